@@ -0,0 +1,183 @@
+/*
+ * Copyright 2013 University of California, San Diego.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucsd.hep.roofitexplorer;
+
+import edu.ucsd.hep.roofitexplorer.datatypes.MemberDumpRecord;
+import edu.ucsd.hep.rootrunnerutil.ROOTRunner;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Fetches the dump records (see MemberDumpDecoder) of a list of workspace
+ * members from ROOT in batches, using ROOTRunner.getMultipleCommandsOutputBatch(..).
+ *
+ * The requests to ROOT are sent from a background thread so that
+ * ROOT can already produce the next batches while the caller
+ * is parsing the current one. At most maxBatchesInFlight batches
+ * are requested ahead of the one being consumed.
+ *
+ * The ROOTRunner must not be used by anybody else until all
+ * batches were consumed or close() was called.
+ *
+ * @author holzner
+ */
+class BatchedMemberFetcher
+{
+  private final ROOTRunner rootRunner;
+  private final String workspaceName;
+  private final List<String> varNames;
+  private final int batchSize;
+  private final int maxBatchesInFlight;
+  private final boolean summaryOnly;
+
+  /** decodes the outputs of ROOT */
+  private final ParallelMemberDecoder decoder;
+
+  /** the ROOT session can only process one request at a time
+   *  so we use a single thread */
+  private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+  /** the batches requested so far but not yet returned to the caller
+   *  (in the order of the members) */
+  private final LinkedList<Future<List<String>>> pending = new LinkedList<Future<List<String>>>();
+
+  /** index of the first member which was not yet requested */
+  private int nextToRequest = 0;
+
+  /** total time spent in nextBatch() waiting for ROOT */
+  private long waitNanos = 0;
+
+  //----------------------------------------------------------------------
+
+  BatchedMemberFetcher(ROOTRunner rootRunner, String workspaceName, List<String> varNames,
+                       int batchSize, int maxBatchesInFlight, boolean summaryOnly, ParallelMemberDecoder decoder)
+  {
+    this.summaryOnly = summaryOnly;
+    this.decoder = decoder;
+    this.rootRunner = rootRunner;
+    this.workspaceName = workspaceName;
+    this.varNames = varNames;
+    this.batchSize = batchSize;
+    this.maxBatchesInFlight = maxBatchesInFlight;
+
+    fillPipeline();
+  }
+
+  //----------------------------------------------------------------------
+
+  private void fillPipeline()
+  {
+    while (pending.size() < maxBatchesInFlight && nextToRequest < varNames.size())
+    {
+      int end = Math.min(nextToRequest + batchSize, varNames.size());
+
+      final List<String> cmds = new ArrayList<String>();
+      for (String varName : varNames.subList(nextToRequest, end))
+        cmds.add(WorkspaceDumpCommands.memberRecordCommand(workspaceName, varName, summaryOnly));
+
+      pending.add(executor.submit(new Callable<List<String>>()
+      {
+        public List<String> call() throws Exception
+        {
+          return rootRunner.getMultipleCommandsOutputBatch(cmds);
+        }
+      }));
+
+      nextToRequest = end;
+    }
+  }
+
+  //----------------------------------------------------------------------
+
+  boolean hasNextBatch()
+  {
+    return ! pending.isEmpty();
+  }
+
+  //----------------------------------------------------------------------
+
+  /** waits for the next batch to arrive and decodes it.
+   *
+   *  @return the records of the next batch of members, in the order
+   *  the names were given. Members for which no complete record
+   *  was found in the output are missing in the returned list.
+   */
+  List<MemberDumpRecord> nextBatch() throws IOException
+  {
+    Future<List<String>> future = pending.removeFirst();
+
+    // request the following batch before we start parsing this one
+    fillPipeline();
+
+    List<String> outputs;
+    long start = System.nanoTime();
+    try
+    {
+      outputs = future.get();
+    }
+    catch (InterruptedException ex)
+    {
+      close();
+      Thread.currentThread().interrupt();
+      throw new IOException("interrupted while waiting for output from ROOT");
+    }
+    catch (ExecutionException ex)
+    {
+      close();
+      if (ex.getCause() instanceof IOException)
+        throw (IOException) ex.getCause();
+      throw new Error(ex.getCause());
+    }
+    finally
+    {
+      waitNanos += System.nanoTime() - start;
+    }
+
+    if (! hasNextBatch())
+      close();
+
+    return decoder.decodeAll(outputs);
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return the total time nextBatch() has waited for output from ROOT */
+  long getWaitNanos()
+  {
+    return waitNanos;
+  }
+
+  //----------------------------------------------------------------------
+
+  /** stops requesting further batches */
+  void close()
+  {
+    for (Future<List<String>> future : pending)
+      future.cancel(false);
+    pending.clear();
+    executor.shutdown();
+  }
+
+  //----------------------------------------------------------------------
+
+}
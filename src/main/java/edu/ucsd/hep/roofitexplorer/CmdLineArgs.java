@@ -71,6 +71,79 @@ public class CmdLineArgs
           )
   boolean showProfiles = false;
   
+  //----------
+
+  @Option(name = "--batch-size",
+          metaVar = "N",
+          usage = "read the workspace members from ROOT in batches of N members instead of " +
+                  "dumping all of them to a temporary file in one go"
+          )
+  Integer batchSize;
+
+  @Option(name = "--batches-in-flight",
+          metaVar = "N",
+          usage = "when reading in batches, the maximum number of batches ROOT works on " +
+                  "ahead of the one being parsed (default 2)"
+          )
+  Integer maxBatchesInFlight;
+
+  @Option(name = "--sessions",
+          metaVar = "N",
+          usage = "start N ROOT processes which read the members of the workspace in parallel. " +
+                  "Useful for very large workspaces on machines with many cores."
+          )
+  Integer numSessions;
+
+  @Option(name = "--summary-only",
+          usage = "only read the structure of the workspace members at startup. The full " +
+                  "Print(\"V\") output of a member is fetched from ROOT when it is needed."
+          )
+  boolean summaryOnly = false;
+
+  @Option(name = "--detail-cache-size",
+          metaVar = "N",
+          usage = "with --summary-only or --compact, the maximum number of Print(\"V\") outputs kept in memory " +
+                  "(default " + Parameters.defaultDetailCacheSize + ")"
+          )
+  Integer detailCacheSize;
+
+  @Option(name = "--compact",
+          usage = "keep the Print(\"V\") output of the workspace members in a compressed temporary " +
+                  "file instead of in memory after reading them. Reduces the memory needed for large workspaces."
+          )
+  boolean compact = false;
+
+  @Option(name = "--parse-threads",
+          metaVar = "N",
+          usage = "number of threads decoding the members read from ROOT (default: number of processors)"
+          )
+  Integer parseThreads;
+
+  @Option(name = "--parse-retries",
+          metaVar = "N",
+          usage = "number of times members whose output could not be parsed are fetched from ROOT again " +
+                  "before leaving them out (default: " + Parameters.defaultMaxParseRetries + ")"
+          )
+  Integer maxParseRetries;
+
+  @Option(name = "--no-cache",
+          usage = "always read the workspace from ROOT, even if it was read from the same (unmodified) " +
+                  "file before, and do not store it in the cache in ~/.roofitexplorer/cache"
+          )
+  boolean noCache = false;
+
+  @Option(name = "--clear-cache",
+          usage = "remove all workspaces from the cache in ~/.roofitexplorer/cache at startup"
+          )
+  boolean clearCache = false;
+
+  @Option(name = "--record-root",
+          metaVar = "FILE",
+          usage = "write all commands sent to the main ROOT session and their output to the given file. " +
+                  "This can be used to benchmark reading of the workspace without ROOT " +
+                  "(see WorkspaceReaderBenchmark in the test sources)."
+          )
+  String recordFileName;
   
   //----------
   
@@ -0,0 +1,272 @@
+/*
+ * Copyright 2013 University of California, San Diego.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucsd.hep.roofitexplorer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Keeps the Print("V") outputs of workspace members in a (deflate compressed)
+ * temporary file instead of on the heap. Used in compact mode (see
+ * WorkspaceReaderOptions.compact) where the members release their outputs
+ * once the fields needed for browsing have been extracted.
+ *
+ * As the outputs are typically short, they are compressed in blocks of
+ * about blockSize bytes. Only the position of each output and the
+ * most recently read block are kept in memory. The file is deleted when
+ * close() is called or the program exits.
+ *
+ * @author holzner
+ */
+class DetailSpillFile
+{
+  /** position of an output */
+  private static class Entry
+  {
+    final int block;
+    final int offset;
+    final int length;
+
+    Entry(int block, int offset, int length)
+    {
+      this.block = block;
+      this.offset = offset;
+      this.length = length;
+    }
+  }
+
+  /** (uncompressed) size above which a block is compressed and written */
+  private static final int blockSize = 64 * 1024;
+
+  private final File file;
+
+  private final RandomAccessFile data;
+
+  /** maps from member name to the position of its output */
+  private final Map<String, Entry> entries = new HashMap<String, Entry>();
+
+  private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+
+  private final Inflater inflater = new Inflater();
+
+  /** positions of the blocks written so far in the file and their sizes */
+  private long[] blockOffsets = new long[16];
+  private int[] blockCompressedLengths = new int[16];
+  private int[] blockLengths = new int[16];
+  private int numBlocks = 0;
+
+  /** the block being filled (not yet written) */
+  private byte[] currentBlock = new byte[blockSize];
+  private int currentBlockLength = 0;
+
+  /** the most recently read block */
+  private byte[] cachedBlock;
+  private int cachedBlockIndex = -1;
+
+  /** buffer for compressing, grown when needed */
+  private byte[] buffer = new byte[blockSize];
+
+  private long fileSize = 0;
+
+  /** number of uncompressed bytes added */
+  private long uncompressedSize = 0;
+
+  //----------------------------------------------------------------------
+
+  DetailSpillFile() throws IOException
+  {
+    file = File.createTempFile("rooFitExplorerDetails", ".dat");
+    file.deleteOnExit();
+    data = new RandomAccessFile(file, "rw");
+  }
+
+  //----------------------------------------------------------------------
+
+  private static byte[] grow(byte[] array, int minLength)
+  {
+    byte[] retval = new byte[Math.max(minLength, 2 * array.length)];
+    System.arraycopy(array, 0, retval, 0, array.length);
+    return retval;
+  }
+
+  //----------------------------------------------------------------------
+
+  /** adds the output of the given member. If the member was added 
+   *  before, the new output replaces the old one. */
+  synchronized void put(String varName, String text) throws IOException
+  {
+    byte[] input = text.getBytes("UTF-8");
+
+    if (currentBlockLength > 0 && currentBlockLength + input.length > blockSize)
+      writeCurrentBlock();
+
+    // a single output may be larger than the block size
+    if (currentBlockLength + input.length > currentBlock.length)
+      currentBlock = grow(currentBlock, currentBlockLength + input.length);
+
+    System.arraycopy(input, 0, currentBlock, currentBlockLength, input.length);
+    entries.put(varName, new Entry(numBlocks, currentBlockLength, input.length));
+
+    currentBlockLength += input.length;
+    uncompressedSize += input.length;
+  }
+
+  //----------------------------------------------------------------------
+
+  /** compresses the current block and appends it to the file */
+  private void writeCurrentBlock() throws IOException
+  {
+    deflater.reset();
+    deflater.setInput(currentBlock, 0, currentBlockLength);
+    deflater.finish();
+
+    int compressedLength = 0;
+    while (! deflater.finished())
+    {
+      if (compressedLength == buffer.length)
+        buffer = grow(buffer, 0);
+      compressedLength += deflater.deflate(buffer, compressedLength, buffer.length - compressedLength);
+    }
+
+    data.seek(fileSize);
+    data.write(buffer, 0, compressedLength);
+
+    if (numBlocks == blockOffsets.length)
+    {
+      long[] newOffsets = new long[2 * numBlocks];
+      System.arraycopy(blockOffsets, 0, newOffsets, 0, numBlocks);
+      blockOffsets = newOffsets;
+
+      int[] newCompressedLengths = new int[2 * numBlocks];
+      System.arraycopy(blockCompressedLengths, 0, newCompressedLengths, 0, numBlocks);
+      blockCompressedLengths = newCompressedLengths;
+
+      int[] newLengths = new int[2 * numBlocks];
+      System.arraycopy(blockLengths, 0, newLengths, 0, numBlocks);
+      blockLengths = newLengths;
+    }
+
+    blockOffsets[numBlocks] = fileSize;
+    blockCompressedLengths[numBlocks] = compressedLength;
+    blockLengths[numBlocks] = currentBlockLength;
+    ++numBlocks;
+
+    fileSize += compressedLength;
+    currentBlockLength = 0;
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return the (uncompressed) contents of the given block which was written before */
+  private byte[] readBlock(int index) throws IOException
+  {
+    if (index == cachedBlockIndex)
+      return cachedBlock;
+
+    byte[] compressed = new byte[blockCompressedLengths[index]];
+    data.seek(blockOffsets[index]);
+    data.readFully(compressed);
+
+    byte[] retval = new byte[blockLengths[index]];
+    inflater.reset();
+    inflater.setInput(compressed);
+    try
+    {
+      int length = 0;
+      while (length < retval.length && ! inflater.finished())
+        length += inflater.inflate(retval, length, retval.length - length);
+    }
+    catch (DataFormatException ex)
+    {
+      throw new IOException("corrupt block " + index + " in " + file, ex);
+    }
+
+    cachedBlock = retval;
+    cachedBlockIndex = index;
+    return retval;
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return the output of the given member or null if it was not added */
+  synchronized String get(String varName) throws IOException
+  {
+    Entry entry = entries.get(varName);
+    if (entry == null)
+      return null;
+
+    byte[] block = entry.block == numBlocks ? currentBlock : readBlock(entry.block);
+    return new String(block, entry.offset, entry.length, "UTF-8");
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return the number of outputs in the file */
+  synchronized int size()
+  {
+    return entries.size();
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return the size of the outputs before compression (in bytes) */
+  synchronized long getUncompressedSize()
+  {
+    return uncompressedSize;
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return the size of the file (in bytes). Does not include 
+   *  the last block which is still kept in memory. */
+  synchronized long getFileSize()
+  {
+    return fileSize;
+  }
+
+  //----------------------------------------------------------------------
+
+  /** deletes the file. No outputs can be retrieved afterwards. */
+  synchronized void close()
+  {
+    entries.clear();
+    deflater.end();
+    inflater.end();
+    cachedBlock = null;
+    currentBlock = new byte[0];
+    currentBlockLength = 0;
+
+    try
+    {
+      data.close();
+    }
+    catch (IOException ex)
+    {
+      // we're deleting the file anyway
+    }
+
+    file.delete();
+  }
+
+  //----------------------------------------------------------------------
+
+}
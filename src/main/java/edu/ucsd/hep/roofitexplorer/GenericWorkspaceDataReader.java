@@ -30,8 +30,21 @@ abstract class GenericWorkspaceDataReader
   public static GenericWorkspaceDataReader makeReader(ROOTRunner rootRunner, String fname, String workspaceName) throws IOException, MemberVerboseDataParseError
   {
     // return new WorkspaceReader(rootRunner, fname, workspaceName);
-    return new WorkspaceDataReader2(rootRunner, fname, workspaceName);
+    return makeReader(rootRunner, fname, workspaceName, new WorkspaceReaderOptions());
+  }
 
+  static GenericWorkspaceDataReader makeReader(ROOTRunner rootRunner, String fname, String workspaceName, WorkspaceReaderOptions options) throws IOException, MemberVerboseDataParseError
+  {
+    return makeReader(rootRunner, null, fname, workspaceName, options);
+  }
+
+  /** @param sessionFactory used to start additional ROOT sessions when
+   *  options.numSessions is larger than one (may be null) */
+  static GenericWorkspaceDataReader makeReader(ROOTRunner rootRunner, ROOTSessionFactory sessionFactory, String fname, String workspaceName, WorkspaceReaderOptions options) throws IOException, MemberVerboseDataParseError
+  {
+    WorkspaceDataReader2 reader = new WorkspaceDataReader2(rootRunner, sessionFactory, fname, workspaceName, options);
+    reader.read();
+    return reader;
   }
 
   abstract WorkspaceData getWorkspace();
@@ -22,15 +22,18 @@ import edu.ucsd.hep.roofitexplorer.view.graph.GraphPanel;
 import edu.ucsd.hep.roofitexplorer.view.graph.GraphPanelAdapter;
 import edu.ucsd.hep.roofitexplorer.view.misc.AboutDialog;
 import edu.ucsd.hep.roofitexplorer.view.misc.BrowserPanel;
+import edu.ucsd.hep.roofitexplorer.view.misc.WorkspaceLoadProgressPanel;
 import edu.ucsd.hep.roofitexplorer.view.misc.WorkspaceMemberListWithFilterPanel;
 import edu.ucsd.hep.rootrunnerutil.PipeCommandRunnerListener;
 import edu.ucsd.hep.rootrunnerutil.ROOTRunner;
 import edu.ucsd.hep.rootrunnerutil.ROOTRunnerImpl;
 import edu.ucsd.hep.rootrunnerutil.view.CommandDisplayPanel;
+import java.awt.BorderLayout;
 import java.awt.Toolkit;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
@@ -44,6 +47,8 @@ import javax.swing.JMenu;
 import javax.swing.JMenuBar;
 import javax.swing.JMenuItem;
 import javax.swing.JOptionPane;
+import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
 import javax.swing.event.InternalFrameAdapter;
 import javax.swing.event.InternalFrameEvent;
 import javax.swing.filechooser.FileNameExtensionFilter;
@@ -65,6 +70,8 @@ public class Main
 
   private CmdLineArgs options = new CmdLineArgs();
 
+  private WorkspaceReaderOptions readerOptions = new WorkspaceReaderOptions();
+
   /** the desktop pane */
   private JDesktopPane desktop;
   
@@ -130,6 +137,13 @@ public class Main
     //----------------------------------------
     // check consistency of options
     //----------------------------------------
+    try
+    {
+      readerOptions = WorkspaceReaderOptions.fromCommandLine(options);
+    } catch (IllegalArgumentException ex)
+    {
+      usage(parser, ex);
+    }
   }
   
   //----------------------------------------------------------------------
@@ -155,6 +169,9 @@ public class Main
     // this will throw an exception if the profile does not exist
     // (and is not the default profile)
     userProfileData = UserProfileManager.getProfile(options.profileName);
+
+    if (options.clearCache)
+      WorkspaceCache.makeDefault().clear();
     
     // perform some checks:
     //  - check that that the specified ROOT installation actually exists
@@ -214,43 +231,16 @@ public class Main
       panel.makeFrame().setVisible(true);
       windowListener = panel;
     }
-    {
-      ROOTRunnerImpl rootRunnerImpl = new ROOTRunnerImpl(
-                           windowListener,null,
-                     
-                     // add a newline to avoid merging the root command with previous commands
-                     this.userProfileData.getPreRootShellCommands() + "\n",
-                     null,
-                     this.userProfileData.getRootCmd());
-      root_runner = rootRunnerImpl;  
-      
-    // set some parameters
-    rootRunnerImpl.setTransferRemoteFileToLocalCmd(userProfileData.getTransferRemoteFileToLocalCmd());
-    rootRunnerImpl.setCreateTempFileCmd(userProfileData.getCreateTempFileCmd());
-    }
-    
-    // disable special ROOT signal handlers
-    root_runner.writeLine("gSystem->ResetSignals();");
-    
-    // first load the libraries specified in the profile
-    for (String libraryToLoad : userProfileData.getStartupLibs())
-    {
-      root_runner.writeLine(".L " + libraryToLoad);
-    }
-    
-    // if loading of external shared libraries was requested on the command
-    // line, do it now
-    for (String libraryToLoad : options.librariesToLoad)
-    {
-      root_runner.writeLine(".L " + libraryToLoad);
-    }
-    
-    // root_runner.addCommandPipeListener(new StreamPrinterCommandListener());
-    
-    root_runner.writeLine("TFile *" + this.inputFileVariableName + " = new TFile(\"" + fname + "\");");
-    root_runner.waitForCompletion();
+    root_runner = startROOTSession(fname, windowListener);
+
+    if (options.recordFileName != null)
+      // keep what ROOT tells us, e.g. for benchmarking the reader without ROOT
+      root_runner = new RecordingROOTRunner(root_runner, new File(options.recordFileName));
     
     ws = null;
+
+    // for ROOT files, the members are read after the windows were created
+    WorkspaceDataReader2 backgroundReader = null;
     
     if (fname.toLowerCase().endsWith((".root")))
     {
@@ -264,10 +254,29 @@ public class Main
           return;
       }
       
-      // read a ROOT file
-      GenericWorkspaceDataReader reader = GenericWorkspaceDataReader.makeReader(root_runner, fname, workspaceName);
+      // take the workspace from the cache if we've read it before
+      // (unless we want to record how it is read from ROOT)
+      if (! options.noCache && options.recordFileName == null)
+        ws = WorkspaceCache.makeDefault().load(new File(fname), workspaceName, readerOptions, root_runner);
+
+      if (ws != null)
+        System.out.println("took workspace from the cache");
+      else
+      {
+        // read a ROOT file
+        WorkspaceDataReader2 reader = new WorkspaceDataReader2(root_runner, sessionFactory, fname, workspaceName, readerOptions);
+
+        ws = reader.getWorkspace();
 
-      ws = reader.getWorkspace();
+        if (options.saveFileName != null)
+        {
+          // nothing to show, read everything now
+          if (reader.read())
+            storeInCache(fname, reader);
+        }
+        else
+          backgroundReader = reader;
+      }
     }
     else if (fname.endsWith(".xgz"))
       // assume gzipped xml file
@@ -284,7 +293,8 @@ public class Main
       System.exit(1);
     }
 
-    System.out.println("done reading input file");
+    if (backgroundReader == null)
+      System.out.println("done reading input file");
     
     //----------
     // serialize to a file if requested to do so
@@ -334,7 +344,10 @@ public class Main
     mainWindow.setJMenuBar(this.makeTopMenuBar(mainWindow));
     
     desktop = new JDesktopPane();
-    mainWindow.setContentPane(desktop);
+
+    JPanel contentPane = new JPanel(new BorderLayout());
+    contentPane.add(desktop, BorderLayout.CENTER);
+    mainWindow.setContentPane(contentPane);
     mainWindow.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
     mainWindow.pack();
     mainWindow.setSize(500,500);
@@ -378,11 +391,107 @@ public class Main
       newListPanel();
      
     }
+
+    if (backgroundReader != null)
+    {
+      // show the progress below the desktop
+      contentPane.add(readInBackground(fname, backgroundReader), BorderLayout.SOUTH);
+    }
     
     mainWindow.setVisible(true);
     
   }
 
+  //----------------------------------------------------------------------
+
+  /** starts a thread reading the members of the workspace such that the
+   *  windows can be shown (and are filled) while the workspace is read.
+   *  @return a panel showing the progress of reading */
+  private JPanel readInBackground(final String fname, final WorkspaceDataReader2 reader)
+  {
+    WorkspaceLoadProgressPanel progressPanel = new WorkspaceLoadProgressPanel(new ActionListener()
+    {
+      public void actionPerformed(ActionEvent ae)
+      {
+        reader.cancel();
+      }
+    });
+    
+    ws.addLoadListener(progressPanel);
+
+    Thread thread = new Thread(new Runnable()
+    {
+      public void run()
+      {
+        try
+        {
+          if (reader.read())
+          {
+            System.out.println("done reading input file");
+            storeInCache(fname, reader);
+          }
+        }
+        catch (MemberVerboseDataParseError ex)
+        {
+          ex.printVerboseMessage(System.err);
+          showReadError(ex);
+        }
+        catch (IOException ex)
+        {
+          ex.printStackTrace();
+          showReadError(ex);
+        }
+      }
+    }, "workspace reader");
+
+    // do not prevent the application from exiting
+    thread.setDaemon(true);
+    thread.start();
+
+    return progressPanel;
+  }
+
+  //----------------------------------------------------------------------
+
+  /** writes the workspace read by the given reader to the cache (unless 
+   *  disabled on the command line or some members could not be read). 
+   *  Failing to do so is not fatal. */
+  private void storeInCache(String fname, WorkspaceDataReader2 reader)
+  {
+    if (options.noCache)
+      return;
+
+    if (! reader.isComplete())
+    {
+      System.err.println("not writing workspace " + reader.getWorkspace().getName() + " to the cache, " + 
+                         reader.getQuarantinedMembers().size() + " member(s) are missing");
+      return;
+    }
+
+    try
+    {
+      WorkspaceCache.makeDefault().store(new File(fname), reader.getWorkspace(), readerOptions);
+    }
+    catch (IOException ex)
+    {
+      System.err.println("could not write workspace to the cache: " + ex);
+    }
+  }
+
+  //----------------------------------------------------------------------
+
+  private void showReadError(final Exception ex)
+  {
+    SwingUtilities.invokeLater(new Runnable()
+    {
+      public void run()
+      {
+        JOptionPane.showMessageDialog(desktop, "error while reading the workspace: " + ex.getMessage(),
+                                      "error reading workspace", JOptionPane.ERROR_MESSAGE);
+      }
+    });
+  }
+
   //----------------------------------------------------------------------
   private JMenuBar makeTopMenuBar(final MainWindow frame)
   {
@@ -497,6 +606,14 @@ public class Main
    */
   private void showMemberInGraph(GenericWorkspaceMember member)
   {
+    if (ws.isLoading())
+    {
+      // the links between the members are not yet complete
+      JOptionPane.showMessageDialog(desktop, "the workspace is still being read, please try again when done",
+                                    "workspace not yet complete", JOptionPane.INFORMATION_MESSAGE);
+      return;
+    }
+
     // go through the list of graphs
     // TODO: we should remove a graph when the corresponding window
     // was closed
@@ -537,7 +654,7 @@ public class Main
     
     listPanel.setFilterFactories(MemberFilterFactoryList.makeStandardFilterFactory());
     
-    listPanel.setMembers(ws.getMembers());
+    listPanel.setWorkspace(ws);
     listPanel.addMemberSelectionListener(this.nodeSelectedCallbackForGraph);
     JInternalFrame iframe = listPanel.makeInternalFrame("member list");
     desktop.add(iframe);
@@ -546,6 +663,66 @@ public class Main
 
   //----------------------------------------------------------------------
 
+  /** starts a ROOT process, loads the libraries specified in the user profile 
+   *  and on the command line and opens the given file */
+  private ROOTRunner startROOTSession(String fname, PipeCommandRunnerListener listener) throws IOException
+  {
+    ROOTRunnerImpl rootRunnerImpl = new ROOTRunnerImpl(
+                         listener,null,
+                   
+                   // add a newline to avoid merging the root command with previous commands
+                   this.userProfileData.getPreRootShellCommands() + "\n",
+                   null,
+                   this.userProfileData.getRootCmd());
+    
+    // set some parameters
+    rootRunnerImpl.setTransferRemoteFileToLocalCmd(userProfileData.getTransferRemoteFileToLocalCmd());
+    rootRunnerImpl.setCreateTempFileCmd(userProfileData.getCreateTempFileCmd());
+    
+    ROOTRunner session = rootRunnerImpl;
+    
+    // disable special ROOT signal handlers
+    session.writeLine("gSystem->ResetSignals();");
+    
+    // first load the libraries specified in the profile
+    for (String libraryToLoad : userProfileData.getStartupLibs())
+    {
+      session.writeLine(".L " + libraryToLoad);
+    }
+    
+    // if loading of external shared libraries was requested on the command
+    // line, do it now
+    for (String libraryToLoad : options.librariesToLoad)
+    {
+      session.writeLine(".L " + libraryToLoad);
+    }
+    
+    // session.addCommandPipeListener(new StreamPrinterCommandListener());
+    
+    session.writeLine("TFile *" + this.inputFileVariableName + " = new TFile(\"" + fname + "\");");
+    session.waitForCompletion();
+
+    return session;
+  }
+
+  //----------------------------------------------------------------------
+
+  /** starts the additional sessions used for reading a workspace in parallel */
+  private final ROOTSessionFactory sessionFactory = new ROOTSessionFactory()
+  {
+    public ROOTRunner openSession(String fname) throws IOException
+    {
+      return startROOTSession(fname, null);
+    }
+
+    public void closeSession(ROOTRunner session)
+    {
+      session.writeLine(".q");
+    }
+  };
+
+  //----------------------------------------------------------------------
+
   /** given the ROOT session (assuming that there is an open file)
    *  looks through the ROOT file for instances of RooWorkspace and
    *  asks the user to select a workspace. 
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2013 University of California, San Diego.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucsd.hep.roofitexplorer;
+
+import edu.ucsd.hep.roofitexplorer.datatypes.GenericWorkspaceMember;
+import edu.ucsd.hep.roofitexplorer.datatypes.MemberKind;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Index of the members of a workspace by kind. Maintained by 
+ * WorkspaceData as members are registered, the lists keep the
+ * order in which the members were registered.
+ *
+ * Not thread safe, WorkspaceData accesses it with its lock held.
+ *
+ * @author holzner
+ */
+class MemberIndexes
+{
+  private final Map<MemberKind, List<GenericWorkspaceMember>> byKind = new EnumMap<MemberKind, List<GenericWorkspaceMember>>(MemberKind.class);
+
+  //----------------------------------------------------------------------
+
+  /** @return indexes of the given members */
+  static MemberIndexes of(Iterable<GenericWorkspaceMember> members)
+  {
+    MemberIndexes retval = new MemberIndexes();
+    for (GenericWorkspaceMember member : members)
+      retval.add(member);
+    return retval;
+  }
+
+  //----------------------------------------------------------------------
+
+  void add(GenericWorkspaceMember member)
+  {
+    List<GenericWorkspaceMember> sameKind = byKind.get(member.getKind());
+    if (sameKind == null)
+    {
+      sameKind = new ArrayList<GenericWorkspaceMember>();
+      byKind.put(member.getKind(), sameKind);
+    }
+    sameKind.add(member);
+  }
+
+  //----------------------------------------------------------------------
+
+  /** removes the most recently added member again */
+  void removeLast(GenericWorkspaceMember member)
+  {
+    List<GenericWorkspaceMember> members = byKind.get(member.getKind());
+    if (members.get(members.size() - 1) != member)
+      throw new IllegalStateException("member " + member.getVarName() + " was not the last one registered");
+
+    members.remove(members.size() - 1);
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return the members of the given kind or null if there are none */
+  List<GenericWorkspaceMember> getByKind(MemberKind kind)
+  {
+    return byKind.get(kind);
+  }
+
+  //----------------------------------------------------------------------
+
+}
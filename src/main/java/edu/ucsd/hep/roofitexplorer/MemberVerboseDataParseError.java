@@ -44,6 +44,20 @@ public class MemberVerboseDataParseError extends Exception
 
   //----------------------------------------------------------------------
 
+  String getVarName()
+  {
+    return varName;
+  }
+
+  //----------------------------------------------------------------------
+
+  Throwable getOriginalCause()
+  {
+    return originalCause;
+  }
+
+  //----------------------------------------------------------------------
+
   /** print a short description of the problem */
   void printVerboseMessage(PrintStream os)
   {
@@ -51,14 +65,14 @@ public class MemberVerboseDataParseError extends Exception
       os.println("got exception: " + originalCause);
       originalCause.printStackTrace(os);
     
-      String originalOutput = detailedData.getOriginalOutput();
+      String originalOutput = detailedData != null ? detailedData.getOriginalOutput() : null;
       
       if (originalOutput == null || originalOutput.isEmpty())
         os.println("outptut was empty");
       else
       {
         os.println("outptut was:");
-        os.println(detailedData.getOriginalOutput());
+        os.println(originalOutput);
       }
   }
   //----------------------------------------------------------------------
@@ -0,0 +1,232 @@
+/*
+ * Copyright 2013 University of California, San Diego.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucsd.hep.roofitexplorer;
+
+import edu.ucsd.hep.roofitexplorer.datatypes.MemberDumpDecoder;
+import edu.ucsd.hep.roofitexplorer.datatypes.MemberDumpRecord;
+import edu.ucsd.hep.roofitexplorer.datatypes.StringPool;
+import edu.ucsd.hep.roofitexplorer.datatypes.VerbosePrintOutput;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Decodes the output of the member dump commands on several threads
+ * (using a fork/join pool). The records are returned in the same order
+ * as when decoding serially, i.e. the workspace members can then be
+ * created and registered in a single thread in the same order
+ * as before.
+ *
+ * With a single thread, everything is done in the calling thread.
+ *
+ * @author holzner
+ */
+class ParallelMemberDecoder
+{
+  /** minimum number of characters of the bulk dump decoded by one task */
+  private static final int minChunkLength = 256 * 1024;
+
+  /** minimum number of outputs or records processed by one task */
+  private static final int minItemsPerTask = 64;
+
+  /** null if running single threaded */
+  private final ForkJoinPool forkJoinPool;
+
+  private final StringPool stringPool;
+
+  //----------------------------------------------------------------------
+
+  ParallelMemberDecoder(int numThreads, StringPool stringPool)
+  {
+    this.stringPool = stringPool;
+    this.forkJoinPool = numThreads > 1 ? new ForkJoinPool(numThreads) : null;
+  }
+
+  //----------------------------------------------------------------------
+
+  /** decodes the given parts of the text (the first and last
+   *  split point of the range are included) */
+  private class ChunkTask extends RecursiveTask<List<MemberDumpRecord>>
+  {
+    private final String text;
+    private final int[] splitPoints;
+    private final int from, to;
+
+    ChunkTask(String text, int[] splitPoints, int from, int to)
+    {
+      this.text = text;
+      this.splitPoints = splitPoints;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected List<MemberDumpRecord> compute()
+    {
+      if (to - from == 1)
+        return MemberDumpDecoder.decode(text, splitPoints[from], splitPoints[to], stringPool);
+
+      int middle = (from + to) / 2;
+      ChunkTask second = new ChunkTask(text, splitPoints, middle, to);
+      second.fork();
+
+      List<MemberDumpRecord> retval = new ChunkTask(text, splitPoints, from, middle).compute();
+      retval.addAll(second.join());
+      return retval;
+    }
+  }
+
+  //----------------------------------------------------------------------
+
+  /** decodes the outputs[from..to) */
+  private class OutputsTask extends RecursiveTask<List<MemberDumpRecord>>
+  {
+    private final List<String> outputs;
+    private final int from, to;
+
+    OutputsTask(List<String> outputs, int from, int to)
+    {
+      this.outputs = outputs;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected List<MemberDumpRecord> compute()
+    {
+      if (to - from <= minItemsPerTask)
+      {
+        List<MemberDumpRecord> retval = new ArrayList<MemberDumpRecord>();
+        for (String output : outputs.subList(from, to))
+          retval.addAll(MemberDumpDecoder.decode(output, stringPool));
+        return retval;
+      }
+
+      int middle = (from + to) / 2;
+      OutputsTask second = new OutputsTask(outputs, middle, to);
+      second.fork();
+
+      List<MemberDumpRecord> retval = new OutputsTask(outputs, from, middle).compute();
+      retval.addAll(second.join());
+      return retval;
+    }
+  }
+
+  //----------------------------------------------------------------------
+
+  /** fills detailedData[from..to) for the corresponding records */
+  private static class DetailedDataTask extends RecursiveAction
+  {
+    private final List<MemberDumpRecord> records;
+    private final VerbosePrintOutput[] detailedData;
+    private final int from, to;
+
+    DetailedDataTask(List<MemberDumpRecord> records, VerbosePrintOutput[] detailedData, int from, int to)
+    {
+      this.records = records;
+      this.detailedData = detailedData;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute()
+    {
+      if (to - from <= minItemsPerTask)
+      {
+        for (int i = from; i < to; ++i)
+          detailedData[i] = makeDetailedData(records.get(i));
+        return;
+      }
+
+      int middle = (from + to) / 2;
+      invokeAll(new DetailedDataTask(records, detailedData, from, middle),
+                new DetailedDataTask(records, detailedData, middle, to));
+    }
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return the Print("V") output of the given record (null if there is none) */
+  private static VerbosePrintOutput makeDetailedData(MemberDumpRecord record)
+  {
+    if (record.getVerboseText() == null)
+      return null;
+
+    VerbosePrintOutput retval = new VerbosePrintOutput(record.getVerboseText());
+
+    // the address, clients and servers will be taken from the output
+    if (! record.hasStructuredData())
+      retval.prepare();
+
+    return retval;
+  }
+
+  //----------------------------------------------------------------------
+
+  /** decodes the records in the output of the bulk dump command */
+  List<MemberDumpRecord> decode(String dump)
+  {
+    if (forkJoinPool == null)
+      return MemberDumpDecoder.decode(dump, stringPool);
+
+    int[] splitPoints = MemberDumpDecoder.findSplitPoints(dump, minChunkLength);
+    return forkJoinPool.invoke(new ChunkTask(dump, splitPoints, 0, splitPoints.length - 1));
+  }
+
+  //----------------------------------------------------------------------
+
+  /** decodes the given outputs of the member record commands 
+   *  (typically one per member) */
+  List<MemberDumpRecord> decodeAll(List<String> outputs)
+  {
+    if (forkJoinPool == null || outputs.size() <= minItemsPerTask)
+      return new OutputsTask(outputs, 0, outputs.size()).compute();
+
+    return forkJoinPool.invoke(new OutputsTask(outputs, 0, outputs.size()));
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return the Print("V") outputs of the given records in the same order
+   *  (with null elements for records without one) */
+  VerbosePrintOutput[] makeDetailedData(List<MemberDumpRecord> records)
+  {
+    VerbosePrintOutput[] retval = new VerbosePrintOutput[records.size()];
+
+    DetailedDataTask task = new DetailedDataTask(records, retval, 0, records.size());
+    if (forkJoinPool == null || records.size() <= minItemsPerTask)
+      task.compute();
+    else
+      forkJoinPool.invoke(task);
+
+    return retval;
+  }
+
+  //----------------------------------------------------------------------
+
+  /** stops the threads */
+  void close()
+  {
+    if (forkJoinPool != null)
+      forkJoinPool.shutdown();
+  }
+
+  //----------------------------------------------------------------------
+
+}
@@ -41,5 +41,27 @@ public class Parameters
    */ 
   public static final boolean addMissingServerClientLinks = true;
   
+  /** if true, the workspace is read by running a single macro in ROOT
+   *  which writes the information about all members to a temporary
+   *  file. If false, each member is queried separately (which
+   *  can be very slow for large workspaces, especially when
+   *  running ROOT remotely).
+   */
+  public static final boolean useBulkWorkspaceDump = true;
+
+  /** default for the maximum number of Print("V") outputs kept in memory
+   *  when reading a workspace in summary-only mode (where they are
+   *  fetched from ROOT on demand) */
+  public static final int defaultDetailCacheSize = 200;
+
+  /** maximum total size of the workspaces kept in the on-disk
+   *  cache (see WorkspaceCache) */
+  public static final int maxWorkspaceCacheSizeMB = 1024;
+
+  /** default for how many times members whose output could not be
+   *  parsed are fetched from ROOT again (with the RooFit messages
+   *  which were printed in between removed) */
+  public static final int defaultMaxParseRetries = 2;
+  
   
 }
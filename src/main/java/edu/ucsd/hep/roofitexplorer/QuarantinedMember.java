@@ -0,0 +1,90 @@
+/*
+ * Copyright 2013 University of California, San Diego.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucsd.hep.roofitexplorer;
+
+/**
+ * A member of the workspace whose output from ROOT could not be parsed.
+ * It is left out of the workspace while the reader continues
+ * with the other members (and possibly tries again later).
+ *
+ * @author holzner
+ */
+class QuarantinedMember
+{
+  private final String varName;
+
+  /** the problem found in the most recent attempt */
+  private MemberVerboseDataParseError error;
+
+  /** number of times the member was fetched and parsed again
+   *  after the first failure */
+  private int numRetries = 0;
+
+  //----------------------------------------------------------------------
+
+  QuarantinedMember(MemberVerboseDataParseError error)
+  {
+    this.varName = error.getVarName();
+    this.error = error;
+  }
+
+  //----------------------------------------------------------------------
+
+  String getVarName()
+  {
+    return varName;
+  }
+
+  //----------------------------------------------------------------------
+
+  MemberVerboseDataParseError getError()
+  {
+    return error;
+  }
+
+  //----------------------------------------------------------------------
+
+  void setError(MemberVerboseDataParseError error)
+  {
+    this.error = error;
+  }
+
+  //----------------------------------------------------------------------
+
+  int getNumRetries()
+  {
+    return numRetries;
+  }
+
+  //----------------------------------------------------------------------
+
+  /** called before fetching and parsing the member again */
+  void retrying()
+  {
+    ++numRetries;
+  }
+
+  //----------------------------------------------------------------------
+
+  @Override
+  public String toString()
+  {
+    return varName + " (" + (numRetries + 1) + " attempt(s)): " + error.getOriginalCause();
+  }
+
+  //----------------------------------------------------------------------
+
+}
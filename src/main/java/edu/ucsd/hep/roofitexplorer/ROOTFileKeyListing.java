@@ -0,0 +1,247 @@
+/*
+ * Copyright 2013 University of California, San Diego.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucsd.hep.roofitexplorer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * The names and class names (as stored in the TKeys) of all objects
+ * in a ROOT directory and its subdirectories. Produced by running
+ * the macro returned by makeListingCommand(..) and parsing its
+ * output with parse(..). None of the objects (except the directories
+ * themselves) needs to be read from the file for this.
+ *
+ * @author holzner
+ */
+class ROOTFileKeyListing
+{
+  private static final String MARKER_TOP = "@RFE:T ";
+  private static final String MARKER_DIR = "@RFE:D ";
+  private static final String MARKER_KEY = "@RFE:K ";
+
+  /** a single key of the file */
+  static class Entry
+  {
+    /** the class name as stored in the key */
+    final String className;
+
+    /** the name of the object including the names of the directories
+     *  (relative to the top directory) separated by slashes */
+    final String path;
+
+    Entry(String className, String path)
+    {
+      this.className = className;
+      this.path = path;
+    }
+  }
+
+  /** maps from the directory path (relative to the top directory,
+   *  the top directory itself is "") to the keys in this directory
+   *  in the order ROOT lists them */
+  private final Map<String, List<Entry>> keysByDirectory = new LinkedHashMap<String, List<Entry>>();
+
+  //----------------------------------------------------------------------
+
+  /** @return a macro listing the keys of the given directory
+   *  (and all its subdirectories) to the standard output.
+   *
+   *  @param topDirExpr an expression for a pointer to a TDirectory
+   *  (e.g. a TFile)
+   */
+  static String makeListingCommand(String topDirExpr)
+  {
+    // the directories are visited with an explicit list rather than
+    // by recursion as we can't define functions here. Only subdirectories
+    // are read from the file, for all other keys the class name
+    // stored in the key is used.
+    return "{ TList *rfeDirs = new TList(); " +
+      "TDirectory *rfeDir = (TDirectory *)(" + topDirExpr + "); " +
+      "TIterator *rfeIt; " +
+      "TKey *rfeKey; " +
+      "TClass *rfeClass; " +
+      "cout << \"" + MARKER_TOP + "\" << rfeDir->GetPath() << endl; " +
+      "rfeDirs->Add(rfeDir); " +
+      "while (rfeDirs->GetSize() > 0) { " +
+        "rfeDir = (TDirectory *) rfeDirs->First(); " +
+        "rfeDirs->RemoveFirst(); " +
+        "cout << \"" + MARKER_DIR + "\" << rfeDir->GetPath() << endl; " +
+        "rfeIt = rfeDir->GetListOfKeys()->MakeIterator(); " +
+        "while ((rfeKey = (TKey *) rfeIt->Next()) != NULL) { " +
+          "cout << \"" + MARKER_KEY + "\" << rfeKey->GetClassName() << \",\" << rfeKey->GetName() << endl; " +
+          "rfeClass = TClass::GetClass(rfeKey->GetClassName()); " +
+          "if (rfeClass != NULL && rfeClass->InheritsFrom(TDirectory::Class())) " +
+            "rfeDirs->Add(rfeDir->Get(rfeKey->GetName())); " +
+        "} " +
+        "delete rfeIt; " +
+      "} " +
+      "delete rfeDirs; }";
+  }
+
+  //----------------------------------------------------------------------
+
+  /** parses the output of the command produced by makeListingCommand(..).
+   *  Lines not produced by the macro are ignored. */
+  static ROOTFileKeyListing parse(String output)
+  {
+    ROOTFileKeyListing retval = new ROOTFileKeyListing();
+
+    String topPath = null;
+
+    // keys of the directory currently being listed (null if
+    // this directory was already listed before)
+    List<Entry> currentKeys = null;
+    String currentDir = null;
+
+    for (String line : output.split("\n"))
+    {
+      if (line.endsWith("\r"))
+        line = line.substring(0, line.length() - 1);
+
+      if (line.startsWith(MARKER_TOP))
+        topPath = line.substring(MARKER_TOP.length());
+      else if (line.startsWith(MARKER_DIR) && topPath != null)
+      {
+        String path = line.substring(MARKER_DIR.length());
+        if (! path.startsWith(topPath))
+          throw new Error("directory " + path + " is not below " + topPath);
+
+        currentDir = stripSlashes(path.substring(topPath.length()));
+
+        if (retval.keysByDirectory.containsKey(currentDir))
+          // listed already (e.g. there were multiple cycles of this directory)
+          currentKeys = null;
+        else
+        {
+          currentKeys = new ArrayList<Entry>();
+          retval.keysByDirectory.put(currentDir, currentKeys);
+        }
+      }
+      else if (line.startsWith(MARKER_KEY) && currentKeys != null)
+      {
+        String parts[] = line.substring(MARKER_KEY.length()).split(",", 2);
+        if (parts.length != 2)
+          continue;
+
+        String path = currentDir.isEmpty() ? parts[1] : currentDir + "/" + parts[1];
+        currentKeys.add(new Entry(parts[0], path));
+      }
+    }
+
+    return retval;
+  }
+
+  //----------------------------------------------------------------------
+
+  private static String stripSlashes(String path)
+  {
+    int start = 0;
+    while (start < path.length() && path.charAt(start) == '/')
+      ++start;
+
+    int end = path.length();
+    while (end > start && path.charAt(end - 1) == '/')
+      --end;
+
+    return path.substring(start, end);
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return the keys in the given directory (null for the top directory)
+   *  and, if recurse is true, in its subdirectories. Subdirectories
+   *  are visited just after the keys of their parent directory in the
+   *  order in which the parent directory lists them. Keys appearing
+   *  multiple times (e.g. for different cycles) are only returned once. */
+  List<Entry> getEntries(String topdir, boolean recurse)
+  {
+    List<Entry> retval = new ArrayList<Entry>();
+    addEntries(topdir == null ? "" : stripSlashes(topdir), recurse, retval, new TreeSet<String>());
+    return retval;
+  }
+
+  //----------------------------------------------------------------------
+
+  private void addEntries(String dir, boolean recurse, List<Entry> retval, Set<String> seenPaths)
+  {
+    List<Entry> keys = keysByDirectory.get(dir);
+    if (keys == null)
+      return;
+
+    for (Entry entry : keys)
+      if (seenPaths.add(entry.path))
+        retval.add(entry);
+
+    if (! recurse)
+      return;
+
+    Set<String> seenDirs = new TreeSet<String>();
+    for (Entry entry : keys)
+      if (keysByDirectory.containsKey(entry.path) && seenDirs.add(entry.path))
+        addEntries(entry.path, true, retval, seenPaths);
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return a command printing for each of the given class names
+   *  whether it inherits from baseClassName. The output
+   *  is parsed with parseInheritance(..). */
+  static String makeInheritanceCommand(Iterable<String> classNames, String baseClassName)
+  {
+    StringBuilder cmd = new StringBuilder("{ TClass *rfeClass; ");
+    for (String className : classNames)
+    {
+      cmd.append("rfeClass = TClass::GetClass(\"" + className + "\"); ");
+      cmd.append("cout << \"" + MARKER_KEY + "\" << (rfeClass != NULL && rfeClass->InheritsFrom(\"" +
+                 baseClassName + "\")) << \"," + className + "\" << endl; ");
+    }
+    cmd.append("}");
+    return cmd.toString();
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return a map from the class names to whether they inherit from
+   *  the base class given to makeInheritanceCommand(..) */
+  static Map<String, Boolean> parseInheritance(String output)
+  {
+    Map<String, Boolean> retval = new HashMap<String, Boolean>();
+
+    for (String line : output.split("\n"))
+    {
+      line = line.trim();
+      if (! line.startsWith(MARKER_KEY.trim()))
+        continue;
+
+      String parts[] = line.substring(MARKER_KEY.trim().length()).trim().split(",", 2);
+      if (parts.length != 2)
+        continue;
+
+      retval.put(parts[1], "1".equals(parts[0]));
+    }
+
+    return retval;
+  }
+
+  //----------------------------------------------------------------------
+
+}
@@ -15,105 +15,88 @@
  */
 package edu.ucsd.hep.roofitexplorer;
 
-import edu.ucsd.hep.rootrunnerutil.AHUtils;
 import edu.ucsd.hep.rootrunnerutil.ROOTRunner;
+import java.io.File;
 import java.io.IOException;
-import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 
 /**
  * Class to find certain types of objects in a ROOT file which
  * has been opened already.
- * 
+ *
+ * The keys of the file are listed with a single macro and the
+ * class of each object is taken from its key, i.e. the objects
+ * themselves are not read from the file. The listing of a file
+ * is kept as long as the file is not modified.
+ *
  * @author holzner
  */
 public class ROOTObjectsFinder
 {
   private final ROOTRunner rootRunner;
   private final String topLevelObjectVariableName;
-  /** 
-   * @param topLevelVariableName should be the name of a variable 
-   * 
-   * 
-   * ('->Get(...)' and '->GetListOfKeys(..)' will be used with it).
-   */ 
+
+  /** the key listings of the files seen so far, indexed by the path of the file */
+  private static final Map<String, CachedListing> listingCache = new HashMap<String, CachedListing>();
+
+  private static class CachedListing
+  {
+    final long lastModified;
+    final ROOTFileKeyListing listing;
+
+    CachedListing(long lastModified, ROOTFileKeyListing listing)
+    {
+      this.lastModified = lastModified;
+      this.listing = listing;
+    }
+  }
+
+  /** the listing of the object given in the constructor (read on demand) */
+  private ROOTFileKeyListing listing;
+
+  /** for each base class asked for so far, which classes inherit from it */
+  private final Map<String, Map<String, Boolean>> inheritsFrom = new HashMap<String, Map<String, Boolean>>();
+
+  /**
+   * @param topLevelVariableName should be the name of a variable
+   * pointing to a TDirectory (typically a TFile).
+   */
   public ROOTObjectsFinder(ROOTRunner rootRunner, String topLevelObjectVariableName)
   {
     this.rootRunner = rootRunner;
     this.topLevelObjectVariableName = topLevelObjectVariableName;
   }
-  
+
   //----------------------------------------------------------------------
 
-  /** does not recurse into subdirectories. The return value has names
-   *  which have the top directory prepended. 
+  /** The return value has names which have the top directory prepended.
    *
    *  set topdir to null if this we should look at the top directory
-   *  of the given object (i.e. use GetListOfKeys(..) directly as opposed to Get(..))
-   * 
-   *  TODO: should build a public test case to test this routine.
+   *  of the given object.
    */
   protected List<String> findInstancesOf(String className, String topdir, boolean recurse) throws IOException
   {
-    // TODO: should explicitly declare the variables
-    String cmds;
-    
-    if (topdir == null)
-      cmds = "it = " + this.topLevelObjectVariableName + "->GetListOfKeys().MakeIterator();";
-    else
-      cmds = "it = " + 
-            "((TDirectory *)(" + this.topLevelObjectVariableName + "->Get(\"" + topdir + "\")))->GetListOfKeys().MakeIterator();";
-    
-    
-    cmds += "while ((key = ((TKey*) (it.Next()))) != NULL) {";
-    
-    // obj is a TKey
-    String absPath;
-    if (topdir == null)
-      absPath = "key->GetName()";
-    else
-      absPath = "TString(\"" + topdir + "/\") + key->GetName()";
-    
-    cmds += "  TObject *obj = " + this.topLevelObjectVariableName + "->Get(" + absPath + "); \n";
-    
-    cmds += "  if (obj->IsA()->InheritsFrom(\"" + className + "\")) {";
-    
-    cmds += "    cout << key->GetName() << endl; }";
-    cmds += "}\n";
-
-    String output = rootRunner.getCommandOutput(cmds);
-    
-    List<String> retval = AHUtils.splitToLines(output);
-    
-    // ignore empty strings
-    Iterator<String> it = retval.iterator();
-    while (it.hasNext())
-    {
-      String value = it.next();
-      if (value == null || value.isEmpty())
-        it.remove();
-    }
-    
-    if (topdir != null)
-      for (int i = 0; i < retval.size(); ++i)
-        retval.set(i, topdir + "/" + retval.get(i));
-    
-    if (recurse)
-    {
-      List<String> subDirNames = findInstancesOf("TDirectory", topdir, false);
-      
-      for (String subdir : subDirNames)
-      {
-        // note that subdir already contains the name of topdir, so there
-        // is no need to prepend topdir to subdir
-       
-        retval.addAll(findInstancesOf(className, subdir, true));
-      }
-    }
-    
+    List<ROOTFileKeyListing.Entry> entries = getListing().getEntries(topdir, recurse);
+
+    Set<String> classNames = new TreeSet<String>();
+    for (ROOTFileKeyListing.Entry entry : entries)
+      classNames.add(entry.className);
+
+    Map<String, Boolean> inheriting = getInheritance(classNames, className);
+
+    List<String> retval = new ArrayList<String>();
+    for (ROOTFileKeyListing.Entry entry : entries)
+      if (Boolean.TRUE.equals(inheriting.get(entry.className)))
+        retval.add(entry.path);
+
     return retval;
   }
-  
+
   //----------------------------------------------------------------------
 
   /** recurses into subdirectories */
@@ -123,5 +106,83 @@ public class ROOTObjectsFinder
   }
 
   //----------------------------------------------------------------------
-  
+
+  /** @return the listing of all keys of the top level object. Takes it
+   *  from the cache if the top level object is a file which was
+   *  not modified since it was listed. */
+  private ROOTFileKeyListing getListing() throws IOException
+  {
+    if (listing != null)
+      return listing;
+
+    // find out which file we are looking at
+    // (ROOT may append further lines, e.g. with the return value)
+    String output = rootRunner.getCommandOutput("{ cout << " + topLevelObjectVariableName + "->GetName() << endl; }");
+    File file = new File(output.trim().split("\n")[0].trim());
+
+    String cacheKey = null;
+    long lastModified = 0;
+
+    if (file.isFile())
+    {
+      cacheKey = file.getAbsolutePath();
+      lastModified = file.lastModified();
+
+      synchronized (listingCache)
+      {
+        CachedListing cached = listingCache.get(cacheKey);
+        if (cached != null && cached.lastModified == lastModified)
+        {
+          listing = cached.listing;
+          return listing;
+        }
+      }
+    }
+
+    listing = ROOTFileKeyListing.parse(rootRunner.getCommandOutput(
+        ROOTFileKeyListing.makeListingCommand(topLevelObjectVariableName)));
+
+    if (cacheKey != null)
+      synchronized (listingCache)
+      {
+        listingCache.put(cacheKey, new CachedListing(lastModified, listing));
+      }
+
+    return listing;
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return for each of the given classes whether it inherits from
+   *  baseClassName. Asks ROOT with one command about the classes
+   *  which were not yet asked about. */
+  private Map<String, Boolean> getInheritance(Set<String> classNames, String baseClassName) throws IOException
+  {
+    Map<String, Boolean> known = inheritsFrom.get(baseClassName);
+    if (known == null)
+    {
+      known = new HashMap<String, Boolean>();
+      inheritsFrom.put(baseClassName, known);
+    }
+
+    List<String> unknown = new ArrayList<String>();
+    for (String name : classNames)
+      if (! known.containsKey(name))
+        unknown.add(name);
+
+    if (! unknown.isEmpty())
+    {
+      Map<String, Boolean> answers = ROOTFileKeyListing.parseInheritance(rootRunner.getCommandOutput(
+          ROOTFileKeyListing.makeInheritanceCommand(unknown, baseClassName)));
+
+      // classes ROOT did not answer about are assumed not to inherit
+      for (String name : unknown)
+        known.put(name, Boolean.TRUE.equals(answers.get(name)));
+    }
+
+    return known;
+  }
+
+  //----------------------------------------------------------------------
+
 }
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2013 University of California, San Diego.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucsd.hep.roofitexplorer;
+
+import edu.ucsd.hep.rootrunnerutil.ROOTRunner;
+import java.io.IOException;
+
+/**
+ * Starts additional ROOT sessions, e.g. to read the members of
+ * a workspace in parallel.
+ *
+ * @author holzner
+ */
+interface ROOTSessionFactory
+{
+  /** starts a new ROOT process, loads the libraries needed to read
+   *  the workspace and opens the given file in it. Must be
+   *  safe to call from several threads at the same time. */
+  ROOTRunner openSession(String fname) throws IOException;
+
+  /** terminates a session obtained from openSession(..) */
+  void closeSession(ROOTRunner session);
+}
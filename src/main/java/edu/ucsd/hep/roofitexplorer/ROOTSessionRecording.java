@@ -0,0 +1,170 @@
+/*
+ * Copyright 2013 University of California, San Diego.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucsd.hep.roofitexplorer;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The requests sent to a ROOT session and the corresponding answers,
+ * as written by RecordingROOTRunner and served by ReplayingROOTRunner.
+ *
+ * A request is identified by its kind and its argument (e.g. the
+ * command for KIND_COMMAND). The same request may appear multiple times,
+ * the answers are then kept in the order they were given.
+ *
+ * On disk, each entry is written as the kind (one byte), the argument
+ * (UTF-8, preceded by its length) and the answer (preceded by its length).
+ *
+ * @author holzner
+ */
+class ROOTSessionRecording
+{
+  /** getCommandOutput(..) or one command of getMultipleCommandsOutputBatch(..) */
+  static final byte KIND_COMMAND = 'C';
+
+  /** createTempFile(..), the argument is the prefix and suffix separated by a newline */
+  static final byte KIND_TEMP_FILE = 'T';
+
+  /** readFile(..), the argument is the file name */
+  static final byte KIND_READ_FILE = 'F';
+
+  /** maps from the kind and argument to the answers */
+  private final Map<String, List<byte[]>> answers = new LinkedHashMap<String, List<byte[]>>();
+
+  //----------------------------------------------------------------------
+
+  static String makeKey(byte kind, String argument)
+  {
+    return (char) kind + argument;
+  }
+
+  //----------------------------------------------------------------------
+
+  void add(byte kind, String argument, byte[] answer)
+  {
+    String key = makeKey(kind, argument);
+
+    List<byte[]> list = answers.get(key);
+    if (list == null)
+    {
+      list = new ArrayList<byte[]>();
+      answers.put(key, list);
+    }
+
+    list.add(answer);
+  }
+
+  //----------------------------------------------------------------------
+
+  void add(byte kind, String argument, String answer)
+  {
+    add(kind, argument, toBytes(answer));
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return a copy of the answers for each request (to be consumed
+   *  by the caller), indexed by makeKey(..) */
+  Map<String, LinkedList<byte[]>> copyAnswers()
+  {
+    Map<String, LinkedList<byte[]>> retval = new LinkedHashMap<String, LinkedList<byte[]>>();
+    for (Map.Entry<String, List<byte[]>> entry : answers.entrySet())
+      retval.put(entry.getKey(), new LinkedList<byte[]>(entry.getValue()));
+    return retval;
+  }
+
+  //----------------------------------------------------------------------
+
+  /** appends a single entry to the given stream */
+  static void writeEntry(DataOutputStream os, byte kind, String argument, byte[] answer) throws IOException
+  {
+    byte[] arg = toBytes(argument);
+
+    os.writeByte(kind);
+    os.writeInt(arg.length);
+    os.write(arg);
+    os.writeInt(answer.length);
+    os.write(answer);
+  }
+
+  //----------------------------------------------------------------------
+
+  /** reads a file written with writeEntry(..) */
+  static ROOTSessionRecording read(File file) throws IOException
+  {
+    ROOTSessionRecording retval = new ROOTSessionRecording();
+
+    DataInputStream is = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+    try
+    {
+      while (true)
+      {
+        byte kind;
+        try
+        {
+          kind = is.readByte();
+        }
+        catch (EOFException ex)
+        {
+          break;
+        }
+
+        byte[] arg = new byte[is.readInt()];
+        is.readFully(arg);
+
+        byte[] answer = new byte[is.readInt()];
+        is.readFully(answer);
+
+        retval.add(kind, new String(arg, "UTF-8"), answer);
+      }
+    }
+    finally
+    {
+      is.close();
+    }
+
+    return retval;
+  }
+
+  //----------------------------------------------------------------------
+
+  static byte[] toBytes(String text)
+  {
+    try
+    {
+      return text.getBytes("UTF-8");
+    }
+    catch (IOException ex)
+    {
+      // UTF-8 is always supported
+      throw new Error(ex);
+    }
+  }
+
+  //----------------------------------------------------------------------
+
+}
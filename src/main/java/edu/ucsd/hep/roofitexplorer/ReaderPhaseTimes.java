@@ -0,0 +1,71 @@
+/*
+ * Copyright 2013 University of California, San Diego.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucsd.hep.roofitexplorer;
+
+/**
+ * Wall clock time spent by WorkspaceDataReader2 in the different
+ * phases of reading a workspace. Only updated by the thread
+ * running the reader.
+ *
+ * @author holzner
+ */
+class ReaderPhaseTimes
+{
+  /** getting the list of member names from ROOT (zero for the bulk dump) */
+  long summaryNanos;
+
+  /** waiting for ROOT to produce the records of the members */
+  long fetchNanos;
+
+  /** decoding the records and creating the members */
+  long parseNanos;
+
+  /** reading servers which were not listed in the summary */
+  long resolveNanos;
+
+  /** adding server/client links of which only one side was known */
+  long linkFixNanos;
+
+  //----------------------------------------------------------------------
+
+  long getTotalNanos()
+  {
+    return summaryNanos + fetchNanos + parseNanos + resolveNanos + linkFixNanos;
+  }
+
+  //----------------------------------------------------------------------
+
+  private static String toMillis(long nanos)
+  {
+    return String.format("%.1f ms", nanos / 1e6);
+  }
+
+  //----------------------------------------------------------------------
+
+  @Override
+  public String toString()
+  {
+    return "summary " + toMillis(summaryNanos) +
+        ", fetch " + toMillis(fetchNanos) +
+        ", parse " + toMillis(parseNanos) +
+        ", resolve " + toMillis(resolveNanos) +
+        ", link fix " + toMillis(linkFixNanos) +
+        " (total " + toMillis(getTotalNanos()) + ")";
+  }
+
+  //----------------------------------------------------------------------
+
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2013 University of California, San Diego.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucsd.hep.roofitexplorer;
+
+import edu.ucsd.hep.rootrunnerutil.PipeCommandRunnerListener;
+import edu.ucsd.hep.rootrunnerutil.ROOTRunner;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Passes all requests to another ROOTRunner and appends the requests
+ * which produce output together with the output to a file (see
+ * ROOTSessionRecording). The file can be used later on with
+ * ReplayingROOTRunner, e.g. for benchmarking without ROOT.
+ *
+ * Lines sent with writeLine(..) are not recorded as they do not
+ * produce output we look at.
+ *
+ * @author holzner
+ */
+class RecordingROOTRunner implements ROOTRunner
+{
+  private final ROOTRunner delegate;
+
+  private final DataOutputStream os;
+
+  //----------------------------------------------------------------------
+
+  /** the file is overwritten */
+  RecordingROOTRunner(ROOTRunner delegate, File outputFile) throws IOException
+  {
+    this.delegate = delegate;
+    this.os = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(outputFile)));
+  }
+
+  //----------------------------------------------------------------------
+
+  /** writes an entry and makes sure it ends up in the file even if
+   *  the program is not terminated normally */
+  private synchronized void record(byte kind, String argument, byte[] answer) throws IOException
+  {
+    ROOTSessionRecording.writeEntry(os, kind, argument, answer);
+    os.flush();
+  }
+
+  //----------------------------------------------------------------------
+
+  public String getCommandOutput(String cmd) throws IOException
+  {
+    String output = delegate.getCommandOutput(cmd);
+    record(ROOTSessionRecording.KIND_COMMAND, cmd, ROOTSessionRecording.toBytes(output));
+    return output;
+  }
+
+  //----------------------------------------------------------------------
+
+  public List<String> getMultipleCommandsOutputBatch(List<String> cmds) throws IOException
+  {
+    List<String> outputs = delegate.getMultipleCommandsOutputBatch(cmds);
+
+    for (int i = 0; i < cmds.size(); ++i)
+      record(ROOTSessionRecording.KIND_COMMAND, cmds.get(i), ROOTSessionRecording.toBytes(outputs.get(i)));
+
+    return outputs;
+  }
+
+  //----------------------------------------------------------------------
+
+  public void writeLine(String line)
+  {
+    delegate.writeLine(line);
+  }
+
+  //----------------------------------------------------------------------
+
+  public void waitForCompletion()
+  {
+    delegate.waitForCompletion();
+  }
+
+  //----------------------------------------------------------------------
+
+  public String createTempFile(String prefix, String suffix) throws IOException
+  {
+    String fname = delegate.createTempFile(prefix, suffix);
+    record(ROOTSessionRecording.KIND_TEMP_FILE, prefix + "\n" + suffix, ROOTSessionRecording.toBytes(fname));
+    return fname;
+  }
+
+  //----------------------------------------------------------------------
+
+  public byte[] readFile(String fname) throws IOException
+  {
+    byte[] data = delegate.readFile(fname);
+    record(ROOTSessionRecording.KIND_READ_FILE, fname, data);
+    return data;
+  }
+
+  //----------------------------------------------------------------------
+
+  public void addCommandPipeListener(PipeCommandRunnerListener listener)
+  {
+    delegate.addCommandPipeListener(listener);
+  }
+
+  //----------------------------------------------------------------------
+
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2013 University of California, San Diego.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucsd.hep.roofitexplorer;
+
+import edu.ucsd.hep.rootrunnerutil.PipeCommandRunnerListener;
+import edu.ucsd.hep.rootrunnerutil.ROOTRunner;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A ROOTRunner which does not run ROOT but answers the requests
+ * with the answers from a recording (see ROOTSessionRecording).
+ *
+ * Answers to the same request are given in the order they were
+ * recorded. Once all answers to a request were given, the last one
+ * is repeated. Requests which were not recorded result in an IOException.
+ *
+ * To simulate the time ROOT needs, each round trip (i.e. each
+ * call, independently of how many commands are sent with it)
+ * can be delayed by a fixed amount of time.
+ *
+ * @author holzner
+ */
+class ReplayingROOTRunner implements ROOTRunner
+{
+  private final Map<String, LinkedList<byte[]>> answers;
+
+  private final long latencyMillis;
+
+  //----------------------------------------------------------------------
+
+  /** @param latencyMillis time to wait for each round trip */
+  ReplayingROOTRunner(ROOTSessionRecording recording, long latencyMillis)
+  {
+    this.answers = recording.copyAnswers();
+    this.latencyMillis = latencyMillis;
+  }
+
+  //----------------------------------------------------------------------
+
+  private void simulateLatency() throws IOException
+  {
+    if (latencyMillis <= 0)
+      return;
+
+    try
+    {
+      Thread.sleep(latencyMillis);
+    }
+    catch (InterruptedException ex)
+    {
+      Thread.currentThread().interrupt();
+      throw new IOException("interrupted while simulating latency");
+    }
+  }
+
+  //----------------------------------------------------------------------
+
+  private synchronized byte[] getAnswer(byte kind, String argument) throws IOException
+  {
+    LinkedList<byte[]> list = answers.get(ROOTSessionRecording.makeKey(kind, argument));
+    if (list == null)
+      throw new IOException("request was not recorded: " + argument);
+
+    // keep the last answer for further identical requests
+    if (list.size() > 1)
+      return list.removeFirst();
+    return list.getFirst();
+  }
+
+  //----------------------------------------------------------------------
+
+  private String getAnswerString(byte kind, String argument) throws IOException
+  {
+    return new String(getAnswer(kind, argument), "UTF-8");
+  }
+
+  //----------------------------------------------------------------------
+
+  public String getCommandOutput(String cmd) throws IOException
+  {
+    simulateLatency();
+    return getAnswerString(ROOTSessionRecording.KIND_COMMAND, cmd);
+  }
+
+  //----------------------------------------------------------------------
+
+  public List<String> getMultipleCommandsOutputBatch(List<String> cmds) throws IOException
+  {
+    simulateLatency();
+
+    List<String> retval = new ArrayList<String>();
+    for (String cmd : cmds)
+      retval.add(getAnswerString(ROOTSessionRecording.KIND_COMMAND, cmd));
+    return retval;
+  }
+
+  //----------------------------------------------------------------------
+
+  public void writeLine(String line)
+  {
+    // nothing to do
+  }
+
+  //----------------------------------------------------------------------
+
+  public void waitForCompletion()
+  {
+    // nothing to do
+  }
+
+  //----------------------------------------------------------------------
+
+  public String createTempFile(String prefix, String suffix) throws IOException
+  {
+    simulateLatency();
+    return getAnswerString(ROOTSessionRecording.KIND_TEMP_FILE, prefix + "\n" + suffix);
+  }
+
+  //----------------------------------------------------------------------
+
+  public byte[] readFile(String fname) throws IOException
+  {
+    simulateLatency();
+    return getAnswer(ROOTSessionRecording.KIND_READ_FILE, fname);
+  }
+
+  //----------------------------------------------------------------------
+
+  public void addCommandPipeListener(PipeCommandRunnerListener listener)
+  {
+    // nothing is sent through a pipe
+  }
+
+  //----------------------------------------------------------------------
+
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2013 University of California, San Diego.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucsd.hep.roofitexplorer;
+
+import edu.ucsd.hep.roofitexplorer.datatypes.MemberDumpRecord;
+import edu.ucsd.hep.rootrunnerutil.ROOTRunner;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Fetches the dump records of a list of workspace members using
+ * several ROOT sessions in parallel. The member names are distributed
+ * round robin over the sessions, each session reads its share
+ * with a BatchedMemberFetcher.
+ *
+ * The first share is read with the already existing session,
+ * the others with sessions started from the given factory
+ * (which are closed again when done).
+ *
+ * @author holzner
+ */
+class ShardedMemberFetcher
+{
+  private final ROOTRunner mainSession;
+  private final ROOTSessionFactory sessionFactory;
+  private final String fname;
+  private final String workspaceName;
+  private final WorkspaceReaderOptions options;
+  private final ParallelMemberDecoder decoder;
+
+  //----------------------------------------------------------------------
+
+  ShardedMemberFetcher(ROOTRunner mainSession, ROOTSessionFactory sessionFactory,
+                       String fname, String workspaceName, WorkspaceReaderOptions options,
+                       ParallelMemberDecoder decoder)
+  {
+    this.decoder = decoder;
+    this.mainSession = mainSession;
+    this.sessionFactory = sessionFactory;
+    this.fname = fname;
+    this.workspaceName = workspaceName;
+    this.options = options;
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return the records of the given members in the order of varNames
+   *  (members for which no complete record was received are missing) */
+  List<MemberDumpRecord> fetch(List<String> varNames) throws IOException
+  {
+    int numShards = Math.max(1, Math.min(options.numSessions, varNames.size()));
+
+    List<List<String>> shards = new ArrayList<List<String>>();
+    for (int i = 0; i < numShards; ++i)
+      shards.add(new ArrayList<String>());
+
+    for (int i = 0; i < varNames.size(); ++i)
+      shards.get(i % numShards).add(varNames.get(i));
+
+    //----------
+    // read the shards in parallel
+    //----------
+    ExecutorService executor = Executors.newFixedThreadPool(numShards);
+    List<Future<List<MemberDumpRecord>>> futures = new ArrayList<Future<List<MemberDumpRecord>>>();
+
+    for (int i = 0; i < numShards; ++i)
+    {
+      final List<String> shard = shards.get(i);
+      final boolean useMainSession = i == 0;
+
+      futures.add(executor.submit(new Callable<List<MemberDumpRecord>>()
+      {
+        public List<MemberDumpRecord> call() throws Exception
+        {
+          return readShard(shard, useMainSession);
+        }
+      }));
+    }
+
+    executor.shutdown();
+
+    //----------
+    // merge the results
+    //----------
+    Map<String, MemberDumpRecord> recordsByName = new HashMap<String, MemberDumpRecord>();
+    try
+    {
+      for (Future<List<MemberDumpRecord>> future : futures)
+      {
+        for (MemberDumpRecord record : future.get())
+          recordsByName.put(record.getVarName(), record);
+      }
+    }
+    catch (InterruptedException ex)
+    {
+      executor.shutdownNow();
+      Thread.currentThread().interrupt();
+      throw new IOException("interrupted while waiting for output from ROOT");
+    }
+    catch (ExecutionException ex)
+    {
+      executor.shutdownNow();
+      if (ex.getCause() instanceof IOException)
+        throw (IOException) ex.getCause();
+      throw new Error(ex.getCause());
+    }
+
+    List<MemberDumpRecord> retval = new ArrayList<MemberDumpRecord>();
+    for (String varName : varNames)
+    {
+      MemberDumpRecord record = recordsByName.get(varName);
+      if (record != null)
+        retval.add(record);
+    }
+
+    return retval;
+  }
+
+  //----------------------------------------------------------------------
+
+  private List<MemberDumpRecord> readShard(List<String> varNames, boolean useMainSession) throws IOException
+  {
+    ROOTRunner session = useMainSession ? mainSession : sessionFactory.openSession(fname);
+
+    try
+    {
+      List<MemberDumpRecord> retval = new ArrayList<MemberDumpRecord>();
+
+      BatchedMemberFetcher fetcher = new BatchedMemberFetcher(session, workspaceName, varNames,
+                                                              options.batchSize, options.maxBatchesInFlight,
+                                                              options.summaryOnly, decoder);
+      try
+      {
+        while (fetcher.hasNextBatch())
+          retval.addAll(fetcher.nextBatch());
+      }
+      finally
+      {
+        fetcher.close();
+      }
+
+      return retval;
+    }
+    finally
+    {
+      if (! useMainSession)
+        sessionFactory.closeSession(session);
+    }
+  }
+
+  //----------------------------------------------------------------------
+
+}
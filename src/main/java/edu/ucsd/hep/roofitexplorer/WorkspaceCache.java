@@ -0,0 +1,264 @@
+/*
+ * Copyright 2013 University of California, San Diego.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucsd.hep.roofitexplorer;
+
+import edu.ucsd.hep.rootrunnerutil.ROOTRunner;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Keeps workspaces read from ROOT files on disk (using java serialization)
+ * such that they do not have to be read from ROOT again when the same
+ * file is opened again.
+ *
+ * The entries are identified by the path, size and modification time
+ * of the ROOT file, the name of the workspace and the reader options
+ * which change what is kept of the members (see 
+ * WorkspaceReaderOptions.getContentKey()), i.e. they are not
+ * used anymore once the ROOT file is modified. When the total size
+ * of the entries exceeds the given maximum, the least recently used
+ * ones are deleted.
+ *
+ * @author holzner
+ */
+class WorkspaceCache
+{
+  private static final String SUFFIX = ".obj.gz";
+
+  /** incremented when the meaning of the cached data changes
+   *  without changes to the classes being serialized */
+  private static final int FORMAT_VERSION = 1;
+
+  private final File directory;
+
+  private final long maxSizeBytes;
+
+  //----------------------------------------------------------------------
+
+  WorkspaceCache(File directory, long maxSizeBytes)
+  {
+    this.directory = directory;
+    this.maxSizeBytes = maxSizeBytes;
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return the cache in ~/.roofitexplorer/cache */
+  static WorkspaceCache makeDefault()
+  {
+    String path = System.getProperty("user.home") + File.separatorChar
+      + ".roofitexplorer" + File.separatorChar
+      + "cache";
+
+    return new WorkspaceCache(new File(path), Parameters.maxWorkspaceCacheSizeMB * 1024L * 1024L);
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return the file in which the given workspace of the given ROOT file,
+   *  read with the given options, is cached */
+  private File getCacheFile(File rootFile, String workspaceName, WorkspaceReaderOptions options)
+  {
+    String key = FORMAT_VERSION + "\n" +
+      rootFile.getAbsolutePath() + "\n" +
+      rootFile.length() + "\n" +
+      rootFile.lastModified() + "\n" +
+      workspaceName + "\n" +
+      options.getContentKey();
+
+    try
+    {
+      MessageDigest digest = MessageDigest.getInstance("SHA-1");
+      byte[] hash = digest.digest(key.getBytes("UTF-8"));
+
+      StringBuilder name = new StringBuilder();
+      for (byte b : hash)
+        name.append(String.format("%02x", b & 0xff));
+
+      return new File(directory, name + SUFFIX);
+    }
+    catch (NoSuchAlgorithmException ex)
+    {
+      // every java implementation must support SHA-1
+      throw new Error(ex);
+    }
+    catch (IOException ex)
+    {
+      throw new Error(ex);
+    }
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return the cached workspace (attached to the given ROOT session) or
+   *  null if the workspace is not in the cache (for the given options)
+   *  or could not be read (e.g. because it was written by an 
+   *  incompatible version) */
+  WorkspaceData load(File rootFile, String workspaceName, WorkspaceReaderOptions options, ROOTRunner rootRunner)
+  {
+    if (! rootFile.isFile())
+      return null;
+
+    File cacheFile = getCacheFile(rootFile, workspaceName, options);
+    if (! cacheFile.isFile())
+      return null;
+
+    WorkspaceData retval;
+    try
+    {
+      ObjectInputStream is = new ObjectInputStream(new GZIPInputStream(new BufferedInputStream(new FileInputStream(cacheFile))));
+      try
+      {
+        retval = (WorkspaceData) is.readObject();
+      }
+      finally
+      {
+        is.close();
+      }
+    }
+    catch (Exception ex)
+    {
+      // unusable entry, e.g. the classes have changed in the meantime
+      System.err.println("ignoring unreadable workspace cache file " + cacheFile + ": " + ex);
+      cacheFile.delete();
+      return null;
+    }
+
+    // mark as recently used
+    cacheFile.setLastModified(System.currentTimeMillis());
+
+    retval.attachROOTSession(rootRunner);
+    return retval;
+  }
+
+  //----------------------------------------------------------------------
+
+  /** writes the given workspace (read from the given ROOT file with
+   *  the given options) to the cache and removes the least recently 
+   *  used entries if the cache became too large */
+  void store(File rootFile, WorkspaceData workspace, WorkspaceReaderOptions options) throws IOException
+  {
+    if (! rootFile.isFile())
+      return;
+
+    directory.mkdirs();
+
+    File cacheFile = getCacheFile(rootFile, workspace.getName(), options);
+
+    // write to a temporary file first such that we never have incomplete
+    // entries (e.g. if the program is terminated while writing)
+    File tempFile = File.createTempFile("workspace", ".tmp", directory);
+    try
+    {
+      ObjectOutputStream os = new ObjectOutputStream(new GZIPOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile))));
+      try
+      {
+        synchronized (workspace)
+        {
+          os.writeObject(workspace);
+        }
+      }
+      finally
+      {
+        os.close();
+      }
+
+      cacheFile.delete();
+      if (! tempFile.renameTo(cacheFile))
+        throw new IOException("could not rename " + tempFile + " to " + cacheFile);
+    }
+    finally
+    {
+      tempFile.delete();
+    }
+
+    evict();
+  }
+
+  //----------------------------------------------------------------------
+
+  /** deletes the least recently used entries until the total size
+   *  is below the maximum size */
+  private void evict()
+  {
+    File[] files = getEntries();
+
+    long totalSize = 0;
+    for (File file : files)
+      totalSize += file.length();
+
+    // oldest first
+    Arrays.sort(files, new Comparator<File>()
+    {
+      public int compare(File f1, File f2)
+      {
+        long t1 = f1.lastModified(), t2 = f2.lastModified();
+        return t1 < t2 ? -1 : (t1 == t2 ? 0 : 1);
+      }
+    });
+
+    for (File file : files)
+    {
+      if (totalSize <= maxSizeBytes)
+        break;
+
+      long size = file.length();
+      if (file.delete())
+        totalSize -= size;
+    }
+  }
+
+  //----------------------------------------------------------------------
+
+  /** removes all entries */
+  void clear()
+  {
+    for (File file : getEntries())
+      file.delete();
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return the files of all entries in the cache */
+  File[] getEntries()
+  {
+    File[] retval = directory.listFiles();
+    if (retval == null)
+      return new File[0];
+
+    int numEntries = 0;
+    for (File file : retval)
+      if (file.isFile() && file.getName().endsWith(SUFFIX))
+        retval[numEntries++] = file;
+
+    return Arrays.copyOf(retval, numEntries);
+  }
+
+  //----------------------------------------------------------------------
+
+}
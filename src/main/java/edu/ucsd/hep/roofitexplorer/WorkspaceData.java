@@ -19,7 +19,16 @@ import com.thoughtworks.xstream.XStream;
 import com.thoughtworks.xstream.io.binary.BinaryStreamDriver;
 import com.thoughtworks.xstream.io.xml.DomDriver;
 import edu.ucsd.hep.roofitexplorer.datatypes.GenericWorkspaceMember;
+import edu.ucsd.hep.roofitexplorer.datatypes.MemberKind;
+import edu.ucsd.hep.roofitexplorer.datatypes.RooConstVarData;
+import edu.ucsd.hep.roofitexplorer.datatypes.RooRealVarData;
+import edu.ucsd.hep.roofitexplorer.datatypes.StringPool;
+import edu.ucsd.hep.roofitexplorer.datatypes.VerbosePrintOutput;
+import edu.ucsd.hep.roofitexplorer.datatypes.VerbosePrintOutput.ClientServerRecord;
 import edu.ucsd.hep.roofitexplorer.datatypes.WorkspaceMemberList;
+import edu.ucsd.hep.roofitexplorer.graph.ClosureCounts;
+import edu.ucsd.hep.roofitexplorer.graph.ClosureSets;
+import edu.ucsd.hep.roofitexplorer.graph.MemberGraph;
 import edu.ucsd.hep.rootrunnerutil.AHUtils;
 import edu.ucsd.hep.rootrunnerutil.ROOTRunner;
 import java.io.FileInputStream;
@@ -32,10 +41,11 @@ import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Serializable;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.SortedSet;
-import java.util.TreeSet;
 import java.util.zip.GZIPOutputStream;
 
 /**
@@ -56,12 +66,70 @@ public class WorkspaceData implements Serializable
   private Map<String, GenericWorkspaceMember> membersByName = new HashMap<String, GenericWorkspaceMember>();
 
   private WorkspaceMemberList membersList = new WorkspaceMemberList();
+
+  /** the members by class name, kind and name (sorted), maintained 
+   *  as members are registered (rebuilt after deserialization) */
+  private transient MemberIndexes indexes = new MemberIndexes();
   
   // TODO: this should go into a parallel class as this is 'augmented'
   // information, not found in the RooWorkspace
   private transient WorkspaceMemberModificationDispatcher modificationDispatcher = new WorkspaceMemberModificationDispatcher();
   
-  private transient final ROOTRunner rootRunner;
+  /** not serialized, see attachROOTSession(..) */
+  private transient ROOTRunner rootRunner;
+
+  /** objects to be notified while members are being added by a reader */
+  private transient List<WorkspaceLoadListener> loadListeners;
+
+  /** number of members (at the beginning of membersList) which were
+   *  already announced to the load listeners */
+  private transient int numPublishedMembers;
+
+  /** true while a reader is still adding members */
+  private transient volatile boolean loading;
+
+  /** set when a reader finished or the workspace was read from a file
+   *  (see readResolve()), no members or links can be added after 
+   *  this (only values can change, see getSnapshot()) */
+  private transient boolean structureFrozen;
+
+  /** Print("V") outputs of members which were read without them,
+   *  fetched on demand. Least recently used entries are dropped
+   *  once there are more than detailCacheSize of them. */
+  private transient Map<String, VerbosePrintOutput> detailCache;
+
+  private transient int detailCacheSize;
+
+  /** Print("V") outputs released by the members in compact mode
+   *  (see WorkspaceReaderOptions.compact). Null if not in compact mode
+   *  or when the outputs are refetched from ROOT instead. */
+  private transient DetailSpillFile detailSpillFile;
+
+  /** single instances of the class names, member names and addresses
+   *  used by the members. Created on demand (also after deserialization). */
+  private transient StringPool stringPool;
+
+  /** the server/client links between the members in terms of their ids,
+   *  built on demand once the workspace is completely read 
+   *  (see getGraph()) */
+  private transient volatile MemberGraph graph;
+
+  /** the overall numbers of servers and clients of all members,
+   *  computed on demand from the graph (see getClosureCounts()) */
+  private transient volatile ClosureCounts closureCounts;
+
+  /** the leaf servers and overall clients of all members,
+   *  computed on demand from the graph (see getClosureSets()) */
+  private transient volatile ClosureSets closureSets;
+
+  /** the links added when the workspace was read because only one
+   *  side knew about them */
+  private transient MemberGraph repairedLinks;
+
+  /** the current version of the members and their values, 
+   *  made on demand once the workspace is completely read and
+   *  replaced (not modified) when a value changes */
+  private transient volatile WorkspaceSnapshot snapshot;
   
   //----------------------------------------------------------------------
 
@@ -94,26 +162,536 @@ public class WorkspaceData implements Serializable
   
   //----------------------------------------------------------------------
 
-  public GenericWorkspaceMember findByAddress(String address)
+  /** synchronized as members may be registered by a reader thread at the same time */
+  public synchronized GenericWorkspaceMember findByAddress(String address)
   {
     return this.membersByAddress.get(address);
   }
   
   //----------------------------------------------------------------------
 
-  public GenericWorkspaceMember findByName(String name)
+  public synchronized GenericWorkspaceMember findByName(String name)
   {
     return this.membersByName.get(name);
   }
   
   //----------------------------------------------------------------------
 
-  public void register(GenericWorkspaceMember member, String address)
+  /** @return the pool from which the members take their class names, 
+   *  member names and addresses (including those of their clients
+   *  and servers) */
+  public synchronized StringPool getStringPool()
   {
+    if (stringPool == null)
+    {
+      stringPool = new StringPool();
+
+      // e.g. after deserialization: strings of existing members are
+      // used for members added from now on
+      for (GenericWorkspaceMember member : membersList.getList())
+      {
+        stringPool.intern(member.getVarName());
+        stringPool.intern(member.getClassName());
+        stringPool.intern(member.getAddress());
+      }
+    }
+
+    return stringPool;
+  }
+
+  //----------------------------------------------------------------------
+
+  /** adds the given member and assigns it the next id (i.e. its index 
+   *  in the list of members) */
+  public synchronized void register(GenericWorkspaceMember member, String address)
+  {
+    checkStructureModifiable();
+    
+    member.setId(membersList.size());
+
+    MemberIndexes memberIndexes = getIndexes();
+
     // TODO: should we check that each address is only registered once ?
     this.membersByAddress.put(address, member);
     this.membersByName.put(member.getVarName(), member);
     this.membersList.add(member);
+    memberIndexes.add(member);
+    this.graph = null;
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return the member with the given id */
+  public GenericWorkspaceMember getMember(int id)
+  {
+    return membersList.get(id);
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return the links between the members in terms of their ids or null
+   *  while the workspace is still being read. The graph is built
+   *  the first time this is called after reading has finished. */
+  public MemberGraph getGraph()
+  {
+    MemberGraph retval = graph;
+    if (retval != null || loading)
+      return retval;
+
+    synchronized (this)
+    {
+      if (graph == null && ! loading)
+        graph = buildGraph(true);
+
+      return graph;
+    }
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return the same as getGraph() once the workspace is completely read,
+   *  before that a graph of the members registered so far (which
+   *  is not kept) */
+  public MemberGraph getGraphSnapshot()
+  {
+    MemberGraph retval = getGraph();
+    if (retval != null)
+      return retval;
+
+    synchronized (this)
+    {
+      return buildGraph(false);
+    }
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return the overall numbers of servers and clients of all members
+   *  or null while the workspace is still being read. These are computed 
+   *  together (in a single pass over the graph) the first time this is 
+   *  called after the graph was (re)built. */
+  public ClosureCounts getClosureCounts()
+  {
+    MemberGraph currentGraph = getGraph();
+    if (currentGraph == null)
+      return null;
+
+    ClosureCounts retval = closureCounts;
+    if (retval != null && retval.getGraph() == currentGraph)
+      return retval;
+
+    synchronized (this)
+    {
+      if (closureCounts == null || closureCounts.getGraph() != currentGraph)
+        closureCounts = ClosureCounts.compute(currentGraph);
+
+      return closureCounts;
+    }
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return the leaf servers and overall clients of all members
+   *  or null while the workspace is still being read. Each of the two
+   *  is computed for all members at once when first needed
+   *  after the graph was (re)built. */
+  public ClosureSets getClosureSets()
+  {
+    MemberGraph currentGraph = getGraph();
+    if (currentGraph == null)
+      return null;
+
+    ClosureSets retval = closureSets;
+    if (retval != null && retval.getGraph() == currentGraph)
+      return retval;
+
+    synchronized (this)
+    {
+      if (closureSets == null || closureSets.getGraph() != currentGraph)
+        closureSets = new ClosureSets(currentGraph);
+
+      return closureSets;
+    }
+  }
+
+  //----------------------------------------------------------------------
+
+  /** called by the members when their client/server links were changed */
+  public void invalidateGraph()
+  {
+    this.graph = null;
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @throws IllegalStateException if members or links can not be
+   *  added anymore because the workspace was completely read */
+  public synchronized void checkStructureModifiable()
+  {
+    if (structureFrozen)
+      throw new IllegalStateException("the members and links of workspace " + wsName + " can not be changed after it was read");
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return the current version of the members, their links and values 
+   *  or null while the workspace is still being read. The snapshot 
+   *  never changes, a new one is made when a value is modified. */
+  public WorkspaceSnapshot getSnapshot()
+  {
+    MemberGraph currentGraph = getGraph();
+    if (currentGraph == null)
+      return null;
+
+    WorkspaceSnapshot retval = snapshot;
+    if (retval != null && retval.getGraph() == currentGraph)
+      return retval;
+
+    synchronized (this)
+    {
+      if (snapshot == null || snapshot.getGraph() != currentGraph)
+      {
+        // the links were changed (only possible for workspaces which 
+        // were not read by a reader, e.g. in tests)
+        long version = snapshot == null ? 0 : snapshot.getVersion() + 1;
+        snapshot = WorkspaceSnapshot.of(this, version, membersList.getList(), currentGraph);
+      }
+
+      return snapshot;
+    }
+  }
+
+  //----------------------------------------------------------------------
+
+  /** called by the variables after their value was changed, 
+   *  makes a new snapshot with the new value (if there is one already,
+   *  otherwise the value is taken when the first one is made) */
+  public synchronized void valueChanged(GenericWorkspaceMember member, Double value)
+  {
+    if (member.getWorkspace() != this)
+      throw new IllegalArgumentException(member.getVarName() + " is not a member of workspace " + wsName);
+
+    if (! (member instanceof RooRealVarData) && ! (member instanceof RooConstVarData))
+      throw new IllegalArgumentException(member.getVarName() + " is a " + member.getClassName() + 
+                                         ", only variables and constants have a value");
+
+    if (snapshot != null)
+      snapshot = snapshot.withValue(member.getId(), value);
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return the member the given client or server record refers to
+   *  or null if it is not in the workspace */
+  private GenericWorkspaceMember findLinkedMember(ClientServerRecord record)
+  {
+    if (Parameters.useAddress)
+      return findByAddress(record.getAddress());
+    else
+      return findByName(record.getVarName());
+  }
+
+  //----------------------------------------------------------------------
+
+  /** resolves the client and server records of all members.
+   *  Must be called with the lock on this object held.
+   *  @param warn if true, a warning is printed if some of the records
+   *  refer to members which are not in the workspace (these are ignored) */
+  private MemberGraph buildGraph(boolean warn)
+  {
+    int numMembers = membersList.size();
+
+    // e.g. for workspaces read from xml files written before ids were introduced
+    for (int id = 0; id < numMembers; ++id)
+      membersList.get(id).setId(id);
+
+    MemberGraph.Builder builder = new MemberGraph.Builder(numMembers);
+    int numUnresolved = 0;
+
+    for (int id = 0; id < numMembers; ++id)
+    {
+      GenericWorkspaceMember member = membersList.get(id);
+
+      for (ClientServerRecord server : member.getServerRecords())
+      {
+        GenericWorkspaceMember serverObj = findLinkedMember(server);
+        if (serverObj == null)
+          ++numUnresolved;
+        else
+          builder.addServer(id, serverObj.getId());
+      }
+
+      for (ClientServerRecord client : member.getClientRecords())
+      {
+        GenericWorkspaceMember clientObj = findLinkedMember(client);
+        if (clientObj == null)
+          ++numUnresolved;
+        else
+          builder.addClient(id, clientObj.getId());
+      }
+    }
+
+    if (warn && numUnresolved > 0)
+      System.err.println("WARNING: ignoring " + numUnresolved + " client/server link(s) to members which are not in workspace " + wsName);
+
+    return builder.build();
+  }
+
+  //----------------------------------------------------------------------
+
+  /** removes the members registered after the first numMembers ones again,
+   *  e.g. a member which registered itself before its constructor failed.
+   *  Only members which were not yet announced to the load listeners
+   *  can be removed. */
+  synchronized void discardUnpublishedMembers(int numMembers)
+  {
+    if (numMembers < numPublishedMembers)
+      throw new IllegalStateException("can not remove members which were already announced");
+
+    while (membersList.size() > numMembers)
+    {
+      GenericWorkspaceMember member = membersList.remove(membersList.size() - 1);
+
+      // another member may have been registered under the same name or address since
+      if (membersByName.get(member.getVarName()) == member)
+        membersByName.remove(member.getVarName());
+      if (membersByAddress.get(member.getAddress()) == member)
+        membersByAddress.remove(member.getAddress());
+      if (indexes != null)
+        indexes.removeLast(member);
+    }
+  }
+
+  //----------------------------------------------------------------------
+
+  /** registers a listener to be notified about members added from now on.
+   *  
+   *  @return the members which were announced before the listener was
+   *  added (i.e. which the listener will not be notified about) */
+  public synchronized List<GenericWorkspaceMember> addLoadListener(WorkspaceLoadListener listener)
+  {
+    if (loadListeners == null)
+      loadListeners = new ArrayList<WorkspaceLoadListener>();
+
+    loadListeners.add(listener);
+
+    if (! loading)
+      // everything is there already
+      return new ArrayList<GenericWorkspaceMember>(membersList.getList());
+
+    return new ArrayList<GenericWorkspaceMember>(membersList.getList().subList(0, numPublishedMembers));
+  }
+
+  //----------------------------------------------------------------------
+
+  public synchronized void removeLoadListener(WorkspaceLoadListener listener)
+  {
+    if (loadListeners != null)
+      loadListeners.remove(listener);
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return true while a reader is still adding members to this workspace.
+   *  While this is the case, the server/client links of the members
+   *  are not yet complete. */
+  public boolean isLoading()
+  {
+    return loading;
+  }
+
+  //----------------------------------------------------------------------
+
+  /** must be called before sending commands to the ROOT session from
+   *  anywhere but the reader. While the workspace is being read, the 
+   *  reader is using the session, the output of other commands would 
+   *  be mixed with the members it reads.
+   *
+   *  @throws IOException if the workspace is still being read */
+  public void checkROOTSessionIdle() throws IOException
+  {
+    if (loading)
+      throw new IOException("the ROOT session is still reading workspace " + wsName + ", try again when it is done");
+  }
+
+  //----------------------------------------------------------------------
+
+  /** called by the reader before it starts adding members */
+  synchronized void loadingStarted()
+  {
+    this.loading = true;
+    this.numPublishedMembers = membersList.size();
+  }
+
+  //----------------------------------------------------------------------
+
+  /** announces the members registered since the last call to the load listeners */
+  synchronized void publishNewMembers()
+  {
+    int numMembers = membersList.size();
+    if (numMembers == numPublishedMembers)
+      return;
+
+    List<GenericWorkspaceMember> newMembers = new ArrayList<GenericWorkspaceMember>(
+      membersList.getList().subList(numPublishedMembers, numMembers));
+    numPublishedMembers = numMembers;
+
+    for (WorkspaceLoadListener listener : getLoadListeners())
+      listener.membersAdded(this, newMembers);
+  }
+
+  //----------------------------------------------------------------------
+
+  synchronized void fireLoadProgress(int numRead, int numTotal)
+  {
+    for (WorkspaceLoadListener listener : getLoadListeners())
+      listener.loadProgress(this, numRead, numTotal);
+  }
+
+  //----------------------------------------------------------------------
+
+  /** called by the reader when it is done (successfully or not) */
+  synchronized void loadingFinished(boolean completed)
+  {
+    publishNewMembers();
+    this.loading = false;
+    this.structureFrozen = true;
+
+    for (WorkspaceLoadListener listener : getLoadListeners())
+      listener.loadFinished(this, completed);
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return a copy of the list of load listeners */
+  private List<WorkspaceLoadListener> getLoadListeners()
+  {
+    if (loadListeners == null)
+      return new ArrayList<WorkspaceLoadListener>();
+
+    return new ArrayList<WorkspaceLoadListener>(loadListeners);
+  }
+
+  //----------------------------------------------------------------------
+
+  /** sets the maximum number of Print("V") outputs kept by getDetailedData(..) */
+  synchronized void setDetailCacheSize(int detailCacheSize)
+  {
+    this.detailCacheSize = detailCacheSize;
+    this.detailCache = null;
+  }
+
+  //----------------------------------------------------------------------
+
+  /** sets the file to which the Print("V") outputs of members are written
+   *  when they release them (see spillDetailedData(..)) */
+  synchronized void setDetailSpillFile(DetailSpillFile detailSpillFile)
+  {
+    if (this.detailSpillFile != null)
+      this.detailSpillFile.close();
+
+    this.detailSpillFile = detailSpillFile;
+  }
+
+  //----------------------------------------------------------------------
+
+  /** takes the Print("V") output away from the given member (to save memory)
+   *  and writes it to the spill file if there is one. Otherwise it is fetched 
+   *  from ROOT again when it is needed. */
+  synchronized void spillDetailedData(GenericWorkspaceMember member) throws IOException
+  {
+    VerbosePrintOutput detailedData = member.releaseDetailedData();
+    if (detailedData == null || detailSpillFile == null)
+      return;
+
+    detailSpillFile.put(member.getVarName(), detailedData.getOriginalOutput());
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return the output of Print("V") of a member which was read without
+   *  it (see WorkspaceReaderOptions.summaryOnly) or released it (see 
+   *  WorkspaceReaderOptions.compact). Released outputs are read back 
+   *  from the spill file, the others are fetched from the ROOT session.
+   *  The most recently used outputs are kept in memory.
+   *
+   *  @return a placeholder (see VerbosePrintOutput.isAvailable()) if 
+   *  the output must be fetched but there is no ROOT session or while
+   *  the workspace is being read (the session is busy then)
+   */
+  public VerbosePrintOutput getDetailedData(String varName)
+  {
+    DetailSpillFile spillFile;
+    ROOTRunner runner;
+
+    synchronized (this)
+    {
+      VerbosePrintOutput cached = getDetailCache().get(varName);
+      if (cached != null)
+        return cached;
+
+      spillFile = this.detailSpillFile;
+      runner = this.rootRunner;
+    }
+
+    // the spill file and ROOT are read without the lock on this
+    // object held, the reader and the views need it in the meantime
+    VerbosePrintOutput retval;
+    try
+    {
+      String text = spillFile != null ? spillFile.get(varName) : null;
+      if (text != null)
+        retval = new VerbosePrintOutput(text);
+      else
+      {
+        if (runner == null)
+          return VerbosePrintOutput.unavailable("no ROOT session");
+
+        if (loading)
+          return VerbosePrintOutput.unavailable("the workspace is being read");
+
+        retval = GenericWorkspaceMember.getMemberVerboseData(runner, wsName, varName);
+      }
+    }
+    catch (IOException ex)
+    {
+      throw new Error(ex);
+    }
+
+    synchronized (this)
+    {
+      // another thread may have fetched the same output in the meantime
+      VerbosePrintOutput cached = getDetailCache().get(varName);
+      if (cached != null)
+        return cached;
+
+      getDetailCache().put(varName, retval);
+    }
+
+    return retval;
+  }
+
+  //----------------------------------------------------------------------
+
+  /** must be called with the lock on this object held */
+  private Map<String, VerbosePrintOutput> getDetailCache()
+  {
+    if (detailCache == null)
+    {
+      final int maxSize = detailCacheSize > 0 ? detailCacheSize : Parameters.defaultDetailCacheSize;
+
+      // iterates in access order, i.e. the eldest entry is the least recently used one
+      detailCache = new LinkedHashMap<String, VerbosePrintOutput>(16, 0.75f, true)
+      {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, VerbosePrintOutput> eldest)
+        {
+          return size() > maxSize;
+        }
+      };
+    }
+
+    return detailCache;
   }
 
   //----------------------------------------------------------------------
@@ -235,12 +813,94 @@ public class WorkspaceData implements Serializable
 
   //----------------------------------------------------------------------
 
+  /** called when deserializing, both by Java serialization (e.g. 
+   *  readJavaSerializationfile(..), WorkspaceCache) and by XStream 
+   *  (readFromXMLfile(..) etc.). Only completely read workspaces 
+   *  are written, so their structure must not change anymore. */
+  private Object readResolve()
+  {
+    this.structureFrozen = true;
+    return this;
+  }
+
+  //----------------------------------------------------------------------
+
   /** TODO: should make sure that no modifications happen to the
    *  returned object ? */
   public WorkspaceMemberList getMembers()
   {
     return this.membersList;
   }
+
+  //----------------------------------------------------------------------
+
+  /** must be called with the lock on this object held */
+  private MemberIndexes getIndexes()
+  {
+    // transient fields are not initialized when deserializing
+    if (indexes == null)
+      indexes = MemberIndexes.of(membersList);
+
+    return indexes;
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return the members of the given kinds in the order they were 
+   *  registered (as if going through all members) */
+  public synchronized WorkspaceMemberList getMembersOfKind(MemberKind... kinds)
+  {
+    List<List<GenericWorkspaceMember>> lists = new ArrayList<List<GenericWorkspaceMember>>();
+    for (MemberKind kind : kinds)
+    {
+      List<GenericWorkspaceMember> members = getIndexes().getByKind(kind);
+      if (members != null)
+        lists.add(members);
+    }
+
+    // merge the lists of the kinds, each of which is sorted by id
+    WorkspaceMemberList retval = new WorkspaceMemberList();
+    int[] positions = new int[lists.size()];
+    while (true)
+    {
+      int next = -1;
+      for (int i = 0; i < lists.size(); ++i)
+      {
+        if (positions[i] == lists.get(i).size())
+          continue;
+
+        if (next < 0 || lists.get(i).get(positions[i]).getId() < lists.get(next).get(positions[next]).getId())
+          next = i;
+      }
+
+      if (next < 0)
+        break;
+
+      retval.add(lists.get(next).get(positions[next]++));
+    }
+
+    return retval;
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return the same members as getMembers().getPDFs() but without
+   *  going through all members */
+  public WorkspaceMemberList getPDFs()
+  {
+    return getMembersOfKind(MemberKind.PDF);
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return the same members as getMembers().getFunctions() (i.e. 
+   *  everything inheriting from RooAbsReal except the pdfs, in the same 
+   *  order) but without going through all members */
+  public WorkspaceMemberList getFunctions()
+  {
+    return getMembersOfKind(MemberKind.FUNCTION, MemberKind.REAL_VAR, MemberKind.CONST_VAR, MemberKind.DATA);
+  }
+
   //----------------------------------------------------------------------
 
   /** this is for testing only (where we in some cases need an empty workspace) */
@@ -251,48 +911,55 @@ public class WorkspaceData implements Serializable
 
   //----------------------------------------------------------------------
 
-  /** fixes server <-> client links of which only one side knows about... */
-  void addMissingServerClientLinks()
+  /** fixes server <-> client links of which only one side knows about:
+   *  adds the member as server to each of its clients which does not
+   *  list it as server and as client to each of its servers which does
+   *  not list it as client.
+   *  @return the links which were added, in terms of the member ids 
+   *  (also available from getRepairedLinks() afterwards) */
+  MemberGraph addMissingServerClientLinks()
   {
-    WorkspaceMemberComparator comp = WorkspaceMemberComparator.make();
-    
-    // this will compare according to variable name or address, according 
-    // to the settings
-    for (GenericWorkspaceMember member : this.membersList)
+    MemberGraph missing;
+    synchronized (this)
     {
-      for (GenericWorkspaceMember client : member.getClients())
-      {
-        SortedSet<GenericWorkspaceMember> servers = new TreeSet<GenericWorkspaceMember>(comp);
-        servers.addAll(client.getServers().getList());
-        if (! servers.contains(member))
-        {  // missing link
-          System.out.println("adding link from client " + client.getVarName() + " to server " + member.getVarName());
-
-          client.addServer(member);
-        
-        }
-      } // loop over the current member's clients
-      
-      for (GenericWorkspaceMember server : member.getServers())
-      {
-        SortedSet<GenericWorkspaceMember> clients = new TreeSet<GenericWorkspaceMember>(comp);
-        clients.addAll(server.getClients().getList());
-        if (! clients.contains(member))
-        { // missing link
-          System.out.println("adding link from server " + server.getVarName() + " to client " + member.getVarName());
-          server.addClient(member);
-        }
-      } // loop over the current member's clients
-      
-      
+      // the links not pointing to members of this workspace are ignored,
+      // the warning about them comes when the graph is built for use
+      missing = buildGraph(false).getMissingLinks();
     }
-  
+
+    for (int id = 0; id < missing.getNumMembers(); ++id)
+    {
+      GenericWorkspaceMember member = getMember(id);
+
+      for (int i = 0; i < missing.getNumServers(id); ++i)
+        member.addServer(getMember(missing.getServer(id, i)));
+
+      for (int i = 0; i < missing.getNumClients(id); ++i)
+        member.addClient(getMember(missing.getClient(id, i)));
+    }
+
+    this.repairedLinks = missing;
+    return missing;
   }
   
   //----------------------------------------------------------------------
 
-  public WorkspaceMemberModificationDispatcher getModificationDispatcher()
+  /** @return the links which were added by addMissingServerClientLinks()
+   *  (as servers and clients of the members they were added to) 
+   *  or null if it was not called */
+  public MemberGraph getRepairedLinks()
+  {
+    return repairedLinks;
+  }
+
+  //----------------------------------------------------------------------
+
+  public synchronized WorkspaceMemberModificationDispatcher getModificationDispatcher()
   {
+    // transient fields are not initialized when deserializing
+    if (modificationDispatcher == null)
+      modificationDispatcher = new WorkspaceMemberModificationDispatcher();
+
     return modificationDispatcher;
   }
   
@@ -302,6 +969,16 @@ public class WorkspaceData implements Serializable
   {
     return rootRunner;
   }
+
+  //----------------------------------------------------------------------
+
+  /** sets the ROOT session (which must have the workspace's file open) 
+   *  of a workspace which was deserialized, e.g. from the workspace cache */
+  synchronized void attachROOTSession(ROOTRunner rootRunner)
+  {
+    this.rootRunner = rootRunner;
+    this.detailCache = null;
+  }
   
   //----------------------------------------------------------------------
 
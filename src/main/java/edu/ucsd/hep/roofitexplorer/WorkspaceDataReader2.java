@@ -16,6 +16,8 @@
 package edu.ucsd.hep.roofitexplorer;
 
 import edu.ucsd.hep.roofitexplorer.datatypes.GenericWorkspaceMember;
+import edu.ucsd.hep.roofitexplorer.datatypes.MemberDumpDecoder;
+import edu.ucsd.hep.roofitexplorer.datatypes.MemberDumpRecord;
 import edu.ucsd.hep.roofitexplorer.datatypes.RooAbsDataData;
 import edu.ucsd.hep.roofitexplorer.datatypes.RooAbsPdfData;
 import edu.ucsd.hep.roofitexplorer.datatypes.RooAbsRealData;
@@ -27,9 +29,13 @@ import edu.ucsd.hep.rootrunnerutil.AHUtils;
 import edu.ucsd.hep.rootrunnerutil.ROOTRunner;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
 
 /**
  * A newer version of WorkspaceDataReader, not relying on the output
@@ -53,52 +59,178 @@ public class WorkspaceDataReader2 extends GenericWorkspaceDataReader
 
   private final List<RooAbsRealData>  functions = new ArrayList<RooAbsRealData>();
   private final WorkspaceData workspace;
+  private final WorkspaceReaderOptions options;
+
+  /** used to start additional ROOT sessions when reading in parallel
+   *  (may be null) */
+  private final ROOTSessionFactory sessionFactory;
+
+  private final String fname;
+
+  /** the listeners of the workspace are notified (at least) after this many
+   *  new members were added */
+  private static final int publishInterval = 500;
+
+  /** number of members added so far */
+  private int numMembersRead = 0;
+
+  private volatile boolean cancelled = false;
+
+  /** set when read() got through all phases without being cancelled */
+  private boolean finished = false;
+
+  private final ReaderPhaseTimes phaseTimes = new ReaderPhaseTimes();
+
+  /** decodes the output of ROOT, possibly in several threads */
+  private final ParallelMemberDecoder decoder;
+
+  /** names of unknown servers which were already requested (to make sure 
+   *  that we terminate also if some of them can not be found in the workspace) */
+  private final Set<String> requestedServers = new HashSet<String>();
+
+  /** the members whose output could not be parsed (so far), 
+   *  in the order they were encountered */
+  private final Map<String, QuarantinedMember> quarantine = new LinkedHashMap<String, QuarantinedMember>();
   
   //----------------------------------------------------------------------
   
   /** assumes that the file containing the workspace already has been openened
-   *  in the ROOTRunner session.
+   *  in the ROOTRunner session. Note that the members are only read
+   *  when read() is called.
    * @param rootRunner
    * @param workspaceName
    * @throws IOException 
    */
   public WorkspaceDataReader2(ROOTRunner rootRunner, String fname, String workspaceName) throws IOException, MemberVerboseDataParseError
+  {
+    this(rootRunner, fname, workspaceName, new WorkspaceReaderOptions());
+  }
+
+  //----------------------------------------------------------------------
+
+  WorkspaceDataReader2(ROOTRunner rootRunner, String fname, String workspaceName, WorkspaceReaderOptions options) throws IOException, MemberVerboseDataParseError
+  {
+    this(rootRunner, null, fname, workspaceName, options);
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @param sessionFactory is used to start additional ROOT sessions if
+   *  options.numSessions is larger than one. The members are then read in parallel
+   *  by all sessions.
+   */
+  WorkspaceDataReader2(ROOTRunner rootRunner, ROOTSessionFactory sessionFactory, String fname, String workspaceName, WorkspaceReaderOptions options) throws IOException, MemberVerboseDataParseError
   {
     this.rootRunner = rootRunner;
+    this.sessionFactory = sessionFactory;
     this.workspaceName = workspaceName;
+    this.options = options;
+    this.fname = fname;
     this.workspace = new WorkspaceData(fname, workspaceName, rootRunner);
-    readSummary();
-    
-    if (Parameters.addMissingServerClientLinks)
-      this.workspace.addMissingServerClientLinks();
-    
+    this.workspace.setDetailCacheSize(options.detailCacheSize);
+    this.decoder = new ParallelMemberDecoder(options.parseThreads, workspace.getStringPool());
+
+    if (options.compact)
+    {
+      try
+      {
+        this.workspace.setDetailSpillFile(new DetailSpillFile());
+      }
+      catch (IOException ex)
+      {
+        // the outputs will be fetched from ROOT again when needed
+        System.err.println("WARNING: could not create temporary file for the Print(\"V\") outputs, " + 
+                           "they will be fetched from ROOT when needed: " + ex);
+      }
+    }
+
+    // the workspace is incomplete until read() has finished
+    this.workspace.loadingStarted();
+  }
+
+  //----------------------------------------------------------------------
+
+  /** reads all members of the workspace. The members are added to the
+   *  workspace (and announced to its load listeners) while they are being
+   *  read. Can be run in a background thread.
+   *
+   *  Members whose output can not be parsed do not stop reading, they
+   *  are left out and reported at the end (see getQuarantinedMembers()).
+   *
+   *  @return false if reading was cancelled. Note that true does not 
+   *  mean that all members are in the workspace, see isComplete(). */
+  boolean read() throws IOException, MemberVerboseDataParseError
+  {
+    boolean completed = false;
+
+    try
+    {
+      if (sessionFactory != null && options.numSessions > 1)
+        readSharded();
+      else if (options.bulkDump)
+        readBulkDump();
+      else
+        readSummary();
+
+      if (cancelled)
+        return false;
+
+      long start = System.nanoTime();
+      readUnknownServers();
+
+      // members which are parsed successfully when retrying may refer
+      // to further unknown servers
+      while (retryQuarantinedMembers())
+        readUnknownServers();
+      phaseTimes.resolveNanos += System.nanoTime() - start;
+
+      // the other members must not refer to the members which are missing
+      if (! quarantine.isEmpty())
+        for (GenericWorkspaceMember member : workspace.getMembers())
+          member.removeClientsAndServers(quarantine.keySet());
+
+      if (cancelled)
+        return false;
+      
+      start = System.nanoTime();
+      if (Parameters.addMissingServerClientLinks)
+        this.workspace.addMissingServerClientLinks();
+      phaseTimes.linkFixNanos += System.nanoTime() - start;
+
+      reportQuarantinedMembers();
+
+      completed = true;
+      finished = true;
+      return true;
+    }
+    finally
+    {
+      decoder.close();
+      workspace.loadingFinished(completed);
+    }
+  }
+
+  //----------------------------------------------------------------------
+
+  /** requests to stop reading as soon as possible. The workspace
+   *  then only contains the members read so far. Can be called
+   *  from any thread. */
+  void cancel()
+  {
+    this.cancelled = true;
   }
 
   //----------------------------------------------------------------------
   
-  private void readSummary() throws IOException, MemberVerboseDataParseError
+  /** runs a small macro printing the names of all members of the workspace
+   *  @return the names of the members in the order ROOT lists them */
+  private List<String> readMemberNames() throws IOException
   {
+    long start = System.nanoTime();
+
     // we could actually redirect this to a temporary file
     // and then read it
-
-    String cmd = "{TIterator *it = " + workspaceName + "->componentIterator(); " +
-      "TObject *obj; " + 
-      "while ((obj = it->Next()) != NULL) " +
-        "{ cout " +
-        "<< obj->ClassName() << \",\" " + 
-        
-        // need the following to know which attributes should be read
-        "<< obj->IsA()->InheritsFrom(RooAbsPdf::Class()) << \",\" " +
-        "<< obj->IsA()->InheritsFrom(RooConstVar::Class()) << \",\" " +
-        "<< obj->IsA()->InheritsFrom(RooRealVar::Class()) << \",\" " +
-        "<< obj->IsA()->InheritsFrom(RooAbsData::Class()) << \",\" " +
-        "<< obj->IsA()->InheritsFrom(RooAbsReal::Class()) << \",\" " +
-        "<< obj->IsA()->InheritsFrom(RooAbsCategory::Class()) << \",\" " +
-        
-        "<< obj->GetName() " + 
-        "<< endl; } }";
-    
-    String summary = rootRunner.getCommandOutput(cmd);
+    String summary = rootRunner.getCommandOutput(WorkspaceDumpCommands.memberNamesCommand(workspaceName));
 
 //    System.out.println("GOT SUMMARY:");
 //    System.out.println(summary);
@@ -111,7 +243,9 @@ public class WorkspaceDataReader2 extends GenericWorkspaceDataReader
     // output into memory
     List<String> lines = AHUtils.splitToLines(summary);
 
-    // the output format of the above macro is ClassName,InstanceName
+    List<String> varNames = new ArrayList<String>();
+
+    // the output format of the above macro is ClassName,flags,InstanceName
     // we assume that the class name does not have any commas in it
     // (but the instance name actually may have...)
     while (!lines.isEmpty())
@@ -123,322 +257,381 @@ public class WorkspaceDataReader2 extends GenericWorkspaceDataReader
       if (line.isEmpty())
         continue;
       
-      String parts[] = line.split(",",8);
-      
-      String className = parts[0];
-      boolean isAbsPdf = "1".equals(parts[1]);
-      boolean isConstVar = "1".equals(parts[2]);
-      boolean isRealVar = "1".equals(parts[3]);
-      boolean isAbsData = "1".equals(parts[4]);
-      boolean isAbsReal = "1".equals(parts[5]);
-      boolean isAbsCategory = "1".equals(parts[6]);
-      
-      String varname = parts[7];
-      
-      // note the order of the following comparisons: almost everything is also 
-      // a RooAbsReal so we check more specific types before
-      if (isAbsPdf)
-        this.readSinglePdf(varname, className);
-      else if (isConstVar)
-        this.readSingleRooConstVar(varname);
-      else if (isRealVar)
-        this.readSingleVariable(varname);
-      else if (isAbsData)
-        this.readSingleDataSet(varname, className);
-      else if (isAbsReal)
-        this.readSingleFunction(varname, className);
-      else if (isAbsCategory)
-        this.readSingleCategory(varname, className);
-      else
-        System.err.println("don't know what kind of type '" + varname + "' is, ignoring it");
+      MemberDumpRecord summaryRecord = MemberDumpRecord.parseSummaryLine(line, workspace.getStringPool());
+      if (summaryRecord == null)
+        throw new Error("unexpected line '" + line + "' in workspace summary output");
+
+      varNames.add(summaryRecord.getVarName());
       
     } // loop over all lines of the workspace members printout
 
-    //----------
-    // fix RooConstVars which are not printed in the summary
-    // i.e. loop over all known objects and see whether they
-    // have a RooConstVar as server
-    // (Looking at the source code of RooWorkspace::Print(..)
-    // it looks like they are explicitly excluded from printing)
-    //
-    // we make a copy of the list in order not to get a ConcurrentModificationException
-    // because we're eventually adding members to the list inside the loop
-    for (GenericWorkspaceMember obj : new ArrayList<GenericWorkspaceMember>(this.workspace.getMembers().getList()))
-    {
-      for (ClientServerRecord server : obj.getServerRecords())
-      {
-        if (! "RooConstVar".equals(server.getClassName()))
-          continue;
-        
-        // we've found a RooConstVar
-        // TODO: FIX CONCURRENT MODIFICATION WHILE LOOPING
-        //       OVER THE LIST
-        readSingleRooConstVar(server.getVarName());
-      }
-    }
-    
+    phaseTimes.summaryNanos += System.nanoTime() - start;
+
+    return varNames;
   }
 
   //----------------------------------------------------------------------
-  
-  /** parses the lines in the pdf section of the workspace summary output */
-  private void readPdfs(List<String> lines) throws IOException, MemberVerboseDataParseError
-  {
-    boolean batchMode = true;
-
-    List<String> varNames = new ArrayList<String>();
-    List<String> classNames = new ArrayList<String>();
-    
-    
-    Pattern pattern = Pattern.compile("(.*)::([a-zA-Z0-9_]*)\\[");
-    for (String line : lines)
-    {
-      Matcher matcher = pattern.matcher(line);
-      if (! matcher.lookingAt())
-        throw new Error("unexpected line '" + line + "' in workspace summary output");
 
-      varNames.add(matcher.group(2));
-      classNames.add(matcher.group(1));
-      
-      // System.out.println("inserted pdf " + pdfs.get(pdfs.size()-1).varName );
-      
-    } // loop over lines
+  private void readSummary() throws IOException
+  {
+    List<String> varNames = readMemberNames();
+    workspace.fireLoadProgress(0, varNames.size());
 
-    //----------
-    int numElements = varNames.size();
-    
-    if (batchMode)
+    //----------------------------------------
+    // get the details of all members in batches
+    //----------------------------------------
+    BatchedMemberFetcher fetcher = new BatchedMemberFetcher(rootRunner, workspaceName, varNames,
+                                                            options.batchSize, options.maxBatchesInFlight,
+                                                            options.summaryOnly, decoder);
+    long start = System.nanoTime();
+    try
     {
-      List<String> cmds = new ArrayList<String>();
-    
-      for (String varName : varNames)
-      {
-        // System.out.println("reading pdf " + varName);
-        cmds.add(GenericWorkspaceMember.getMemberVerboseDataRootCommand(workspaceName, varName));
-      }
-      
-      // run all commands in batch mode
-      List<String> outputs = rootRunner.getMultipleCommandsOutputBatch(cmds);
-
-      // System.out.println("GOT PDF outputs, starting to parse");
-      // parse the outputs
-      for (int i = 0; i < numElements; ++i)
-      {
-        String output = outputs.get(i);
-        String varName = varNames.get(i);
-        String className = classNames.get(i);
-        
-        VerbosePrintOutput detailedData = new VerbosePrintOutput(output);
-        try
-        {
-          RooAbsPdfData pdf = RooAbsPdfData.make(workspace, varName, className, detailedData);
-          this.pdfs.add(pdf);
-        } catch (Throwable ex)
-        {
-          throw new MemberVerboseDataParseError(varName, detailedData, ex);
-        }
-      }
-      
+      while (fetcher.hasNextBatch() && ! cancelled)
+        this.addMembers(fetcher.nextBatch(), varNames.size());
     }
-    else
+    finally
     {
-      //----------
-      // read one by one
-      //----------
-      for (int i = 0; i < numElements; ++i)
-      {
-        readSinglePdf(varNames.get(i), classNames.get(i));
-      }
+      fetcher.close();
     }
-    
-    
+
+    // everything we did not spend waiting for ROOT was parsing
+    phaseTimes.fetchNanos += fetcher.getWaitNanos();
+    phaseTimes.parseNanos += System.nanoTime() - start - fetcher.getWaitNanos();
   }
+
   //----------------------------------------------------------------------
 
-  private void readFunctions(List<String> lines) throws IOException
+  /** distributes the members over several ROOT sessions which read them
+   *  in parallel. The members are added to the workspace in the order
+   *  of the summary, independently of which session read them. */
+  private void readSharded() throws IOException
   {
-    Pattern pattern = Pattern.compile("(.*)\\::([a-zA-Z0-9_]*)\\[");
-    for (String line : lines)
-    {
-      Matcher matcher = pattern.matcher(line);
-      if (! matcher.lookingAt())
-        throw new Error("unexpected line '" + line + "' in workspace summary output");
+    List<String> varNames = readMemberNames();
+    workspace.fireLoadProgress(0, varNames.size());
 
-      readSingleFunction(matcher.group(2), matcher.group(1));
-      
-      // System.out.println("inserted pdf " + pdfs.get(pdfs.size()-1).varName );
-      
-    } // loop over lines
+    ShardedMemberFetcher fetcher = new ShardedMemberFetcher(rootRunner, sessionFactory, fname, workspaceName, options,
+                                                            decoder);
+
+    // the records are decoded in parallel while fetching
+    long start = System.nanoTime();
+    List<MemberDumpRecord> records = fetcher.fetch(varNames);
+    phaseTimes.fetchNanos += System.nanoTime() - start;
+
+    start = System.nanoTime();
+    this.addMembers(records, varNames.size());
+    phaseTimes.parseNanos += System.nanoTime() - start;
   }
 
   //----------------------------------------------------------------------
 
-  private void readAdditionalRooRealVarData(String varname, RooRealVarData data) throws IOException
+  /** runs a single macro which dumps everything we need about all members
+   *  of the workspace into a temporary file and then parses this file.
+   *  This avoids going back and forth to ROOT for each member.
+   */
+  private void readBulkDump() throws IOException
   {
-      String cmd = "{ RooRealVar *obj = " + workspaceName + "->var(\"" + varname + "\"); " +
-        " cout " +
-        "<< obj->getVal() << \",\" " + 
-        
-        "<< obj->isConstant() " +
-        "<< endl; }";
-    
-    // System.out.println("cmd=" + cmd);
-    String summary = rootRunner.getCommandOutput(cmd);
-    // split into lines as ROOT seems to insist to append a line
-    // with the last return value (e.g. "(class ostream)139784828968064" )
-    
-    // avoid having an empty first line due to a newline at the beginning...
-    summary = summary.trim();
-    
-    List<String> lines = AHUtils.splitToLines(summary);
-    
-    String line = lines.get(0);
-    
-    // System.out.println("line=" + line);
-    line = line.trim();
-    
-    String parts[] = line.split(",",2);
-    
-    // TODO: protect against bad variable names, object not found in the workspace
-    // (should not happen), badly formatted return value (wrong number of fields,
-    // unparseable double values)
-    
-    data.value = Double.parseDouble(parts[0]);
-    
-    data.isConstant = Integer.parseInt(parts[1]) != 0;
-    
-    
+    // we don't know the number of members before the dump is done
+    workspace.fireLoadProgress(0, -1);
+
+    long start = System.nanoTime();
+    String dumpFname = rootRunner.createTempFile("rooFitExplorer", ".txt");
+
+    rootRunner.getCommandOutput(WorkspaceDumpCommands.bulkDumpCommand(workspaceName, dumpFname, options.summaryOnly));
+
+    String dump = new String(rootRunner.readFile(dumpFname), "UTF-8");
+
+    rootRunner.getCommandOutput(WorkspaceDumpCommands.deleteFileCommand(dumpFname));
+    phaseTimes.fetchNanos += System.nanoTime() - start;
+
+    start = System.nanoTime();
+    List<MemberDumpRecord> records = decoder.decode(dump);
+    this.addMembers(records, records.size());
+    phaseTimes.parseNanos += System.nanoTime() - start;
   }
+
   //----------------------------------------------------------------------
-  
-  private void readSingleVariable(String varName) throws IOException
+
+  /** adds the members for the given records and notifies the listeners
+   *  of the workspace */
+  private void addMembers(List<MemberDumpRecord> records, int numTotal) throws IOException
   {
-    VerbosePrintOutput detailedData = GenericWorkspaceMember.getMemberVerboseData(rootRunner, workspaceName, varName);
+    // independent for each record, may run in parallel
+    VerbosePrintOutput[] detailedData = decoder.makeDetailedData(records);
+
+    // the members are registered in the order of the records
+    for (int i = 0; i < records.size(); ++i)
+    {
+      if (cancelled)
+        break;
 
-    // assume they're all RooRealVar's
-    RooRealVarData retval = new RooRealVarData(workspace, varName, "RooRealVar", detailedData);
+      this.addMember(records.get(i), detailedData[i]);
 
-    this.readAdditionalRooRealVarData(varName, retval);
-    
-    this.variables.add(retval);
-    
+      if (++numMembersRead % publishInterval == 0)
+        publishMembers(numTotal);
+    }
+
+    publishMembers(numTotal);
   }
 
   //----------------------------------------------------------------------
-  
-  private void readSinglePdf(String varName, String className) throws IOException, MemberVerboseDataParseError
+
+  private void publishMembers(int numTotal)
   {
-    System.out.println("reading pdf " + varName);
-        
-    VerbosePrintOutput detailedData = GenericWorkspaceMember.getMemberVerboseData(rootRunner, workspaceName, varName);
-    
+    workspace.publishNewMembers();
+    workspace.fireLoadProgress(numMembersRead, numTotal);
+  }
+
+  //----------------------------------------------------------------------
+
+  /** creates the workspace member corresponding to the given record.
+   *  If the record does not contain the Print("V") output (detailedData 
+   *  is null), it will be fetched when needed. 
+   *
+   *  If the record or the output can not be parsed, the member is
+   *  quarantined instead of being added. */
+  private void addMember(MemberDumpRecord record, VerbosePrintOutput detailedData) throws IOException
+  {
+    String varName = record.getVarName();
+
+    if (record.getDecodeError() != null)
+    {
+      quarantine(new MemberVerboseDataParseError(varName, detailedData, record.getDecodeError()));
+      return;
+    }
+
+    // the constructors of the members register them in the workspace
+    // before they are completely parsed
+    int numMembersBefore = workspace.getMembers().size();
+
+    GenericWorkspaceMember member = null;
     try
     {
-      RooAbsPdfData retval = RooAbsPdfData.make(workspace, varName, className, detailedData);
-      this.pdfs.add(retval);
+      switch (record.getKind())
+      {
+        case PDF:
+          RooAbsPdfData pdf = RooAbsPdfData.make(workspace, record, detailedData);
+          this.pdfs.add(pdf);
+          member = pdf;
+          break;
+
+        case CONST_VAR:
+          RooConstVarData constant = new RooConstVarData(workspace, record, detailedData);
+          this.constants.add(constant);
+          member = constant;
+          break;
+
+        case REAL_VAR:
+          RooRealVarData variable = new RooRealVarData(workspace, record, detailedData);
+          this.variables.add(variable);
+          member = variable;
+          break;
+
+        case DATA:
+          RooAbsDataData dataset = new RooAbsDataData(workspace, record, detailedData);
+          this.datasets.add(dataset);
+          member = dataset;
+          break;
+
+        // note that categories are treated like functions for the moment
+        case FUNCTION:
+        case CATEGORY:
+          RooAbsRealData function = RooAbsRealData.make(workspace, record, detailedData);
+          this.functions.add(function);
+          member = function;
+          break;
+
+        default:
+          System.err.println("don't know what kind of type '" + varName + "' is, ignoring it");
+      }
     }
     catch (Throwable ex)
     {
-      throw new MemberVerboseDataParseError(varName, detailedData, ex);
+      workspace.discardUnpublishedMembers(numMembersBefore);
+      quarantine(new MemberVerboseDataParseError(varName, detailedData, ex));
+      return;
     }
+
+    // parsed successfully (possibly when retrying)
+    quarantine.remove(varName);
+
+    // everything needed for browsing has been taken from the output by now
+    if (options.compact && member != null)
+      workspace.spillDetailedData(member);
   }
-  
+
   //----------------------------------------------------------------------
 
-  private void readSingleFunction(String varName, String className) throws IOException
+  /** leaves the member out of the workspace for the moment */
+  private void quarantine(MemberVerboseDataParseError error)
   {
-    System.out.println("reading function " + varName);
-        
-    VerbosePrintOutput detailedData = GenericWorkspaceMember.getMemberVerboseData(rootRunner, workspaceName, varName);
-    
-    RooAbsRealData retval = RooAbsRealData.make(workspace, varName, className, detailedData);
-    this.functions.add(retval);
-    
+    QuarantinedMember quarantined = quarantine.get(error.getVarName());
+    if (quarantined == null)
+      quarantine.put(error.getVarName(), new QuarantinedMember(error));
+    else
+      quarantined.setError(error);
+  }
+
+  //----------------------------------------------------------------------
+
+  /** fetches the output of the quarantined members from ROOT again, 
+   *  removes the messages RooFit printed in between and parses it again.
+   *  Each member is retried at most options.maxParseRetries times.
+   *
+   *  @return true if at least one of the quarantined members could be 
+   *  added to the workspace */
+  private boolean retryQuarantinedMembers() throws IOException
+  {
+    boolean recovered = false;
+
+    while (! cancelled)
+    {
+      List<String> names = new ArrayList<String>();
+      List<String> cmds = new ArrayList<String>();
+      for (QuarantinedMember quarantined : quarantine.values())
+      {
+        if (quarantined.getNumRetries() >= options.maxParseRetries)
+          continue;
+
+        quarantined.retrying();
+        names.add(quarantined.getVarName());
+        cmds.add(WorkspaceDumpCommands.memberRecordCommand(workspaceName, quarantined.getVarName(), options.summaryOnly));
+      }
 
+      if (names.isEmpty())
+        break;
+
+      // there are typically only few of them, so fetch them all at once
+      List<String> outputs = new ArrayList<String>();
+      for (String output : rootRunner.getMultipleCommandsOutputBatch(cmds))
+        outputs.add(MemberDumpDecoder.removeMessageServiceLines(output));
+
+      addMembers(decoder.decodeAll(outputs), -1);
+
+      for (String name : names)
+        if (! quarantine.containsKey(name))
+          recovered = true;
+    }
+
+    return recovered;
   }
-  
+
   //----------------------------------------------------------------------
-  
-  private void readSingleCategory(String varName, String className) throws IOException
+
+  /** prints the members which could not be parsed, if any */
+  private void reportQuarantinedMembers()
   {
-    System.out.println("reading category " + varName);
-        
-    VerbosePrintOutput detailedData = GenericWorkspaceMember.getMemberVerboseData(rootRunner, workspaceName, varName);
-    
-    RooAbsRealData retval = RooAbsRealData.make(workspace, varName, className, detailedData);
-    this.functions.add(retval);
-    
+    if (quarantine.isEmpty())
+      return;
+
+    for (QuarantinedMember quarantined : quarantine.values())
+      quarantined.getError().printVerboseMessage(System.err);
+
+    System.err.println("WARNING: the following " + quarantine.size() + " member(s) of workspace " + workspaceName + 
+                       " could not be parsed and were left out (together with the links to them):");
+    for (QuarantinedMember quarantined : quarantine.values())
+      System.err.println("  " + quarantined);
   }
+
   //----------------------------------------------------------------------
 
-  private void readSingleRooConstVar(String varName) throws IOException
+  /** reads the members which are servers of already read members but
+   *  which are not known yet. This happens in particular for RooConstVars
+   *  which are not listed by RooWorkspace::Print(..).
+   *
+   *  The names of all unknown servers are collected first (each name
+   *  only once, even if it is referenced by many clients) and then requested
+   *  from ROOT with a single batched call. This is repeated as long
+   *  as the newly read members refer to further unknown servers.
+   */
+  private void readUnknownServers() throws IOException
   {
-    VerbosePrintOutput detailedData = GenericWorkspaceMember.getMemberVerboseData(rootRunner, workspaceName, varName);
-    
-    RooConstVarData retval = new RooConstVarData(workspace, varName, "RooConstVar", detailedData);
-    
-    this.readAdditionalRooConstVarData(varName, retval);
+    List<GenericWorkspaceMember> toCheck = new ArrayList<GenericWorkspaceMember>(this.workspace.getMembers().getList());
+
+    while (! toCheck.isEmpty() && ! cancelled)
+    {
+      // use a sorted set to request the members in a reproducible order
+      SortedSet<String> unknownNames = new TreeSet<String>();
 
-    this.constants.add(retval);
+      for (GenericWorkspaceMember obj : toCheck)
+      {
+        for (ClientServerRecord server : obj.getServerRecords())
+        {
+          String name = server.getVarName();
+          if (workspace.findByName(name) == null && ! requestedServers.contains(name))
+            unknownNames.add(name);
+        }
+      }
+
+      if (unknownNames.isEmpty())
+        break;
+
+      requestedServers.addAll(unknownNames);
+
+      int numMembersBefore = this.workspace.getMembers().size();
+
+      List<String> names = new ArrayList<String>(unknownNames);
+      BatchedMemberFetcher fetcher = new BatchedMemberFetcher(rootRunner, workspaceName, names,
+                                                              names.size(), 1, options.summaryOnly, decoder);
+      try
+      {
+        while (fetcher.hasNextBatch())
+          addMembers(fetcher.nextBatch(), -1);
+      }
+      finally
+      {
+        fetcher.close();
+      }
+
+      // only the members read in this round can refer to further unknown servers
+      toCheck = new ArrayList<GenericWorkspaceMember>(
+          this.workspace.getMembers().getList().subList(numMembersBefore, this.workspace.getMembers().size()));
+
+      // the servers ROOT returned a record for but which could not be
+      // parsed are reported by reportQuarantinedMembers()
+      int numNotFound = 0;
+      for (String name : names)
+        if (workspace.findByName(name) == null && ! quarantine.containsKey(name))
+          ++numNotFound;
+
+      if (numNotFound > 0)
+        System.err.println("WARNING: " + numNotFound + " server(s) could not be found in workspace " + workspaceName);
+    }
   }
 
   //----------------------------------------------------------------------
 
-  /** this is actually similar to the method readAdditionalRooRealVarData(..) */
-  private void readAdditionalRooConstVarData(String varname, RooConstVarData data) throws IOException
+
+  WorkspaceData getWorkspace()
   {
-    // note that for RooConstVars, some of them have names like numeric literals
-    // (e.g. '1')
-    
-    // note that we can't use 'obj' as variable name again, despite the
-    // fact that this lives in a different scope. Using a different
-    // variable name seems to make it work (but when we run interactively
-    // it seems to work also if we use the same variable name...)
-    // 
-    // This was the experience at least with ROOT 5.34/03
-    //
-    // note that we could create a new variable name (e.g. using the current
-    // number of Nanoseconds) but this could be resource-wasting...
-    
-    String cmd = "{ RooAbsReal *absReal = " + workspaceName + "->function(\"" + varname + "\"); " +
-        " cout " +
-        "<< absReal->getVal() " + 
-        "<< endl; }";
-    
-    // System.out.println("cmd=" + cmd);
-    String summary = rootRunner.getCommandOutput(cmd);
-    // split into lines as ROOT seems to insist to append a line
-    // with the last return value (e.g. "(class ostream)139784828968064" )
-    
-    // System.out.println("summary='" + summary + "'");
-    
-    // avoid having an empty first line due to a newline at the beginning...
-    summary = summary.trim();
-    
-    List<String> lines = AHUtils.splitToLines(summary);
-    
-    String line = lines.get(0);
-    
-    // System.out.println("line=" + line);
-    line = line.trim();
-    
-    data.value = Double.parseDouble(line);
+    return this.workspace;
   }
+
   //----------------------------------------------------------------------
 
-  private void readSingleDataSet(String varName, String className) throws IOException
+  /** @return the members which could not be parsed (after retrying) and 
+   *  are therefore missing in the workspace */
+  List<QuarantinedMember> getQuarantinedMembers()
   {
-    VerbosePrintOutput detailedData = GenericWorkspaceMember.getMemberVerboseData(rootRunner, workspaceName, varName);
-    
-    RooAbsDataData retval = new RooAbsDataData(workspace, varName, "RooDataset", detailedData);
-    this.datasets.add(retval);
+    return new ArrayList<QuarantinedMember>(quarantine.values());
   }
-  
+
   //----------------------------------------------------------------------
 
-  WorkspaceData getWorkspace()
+  /** @return true if read() has finished and no member was left out
+   *  because it could not be parsed. Only such workspaces may be put 
+   *  in the WorkspaceCache: the members missing from a cached partial 
+   *  workspace would not be reported again when it is taken from there. */
+  boolean isComplete()
   {
-    return this.workspace;
+    return finished && quarantine.isEmpty();
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return the time spent so far in the different phases of reading */
+  ReaderPhaseTimes getPhaseTimes()
+  {
+    return phaseTimes;
   }
 
   //----------------------------------------------------------------------
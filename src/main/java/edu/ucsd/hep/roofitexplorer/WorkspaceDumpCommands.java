@@ -0,0 +1,181 @@
+/*
+ * Copyright 2013 University of California, San Diego.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucsd.hep.roofitexplorer;
+
+import edu.ucsd.hep.roofitexplorer.datatypes.MemberDumpDecoder;
+
+/**
+ * Produces the ROOT commands which dump information about workspace
+ * members in the format understood by MemberDumpDecoder.
+ *
+ * Note that all commands declare their variables with the same
+ * names and types (CINT complains when the same variable name
+ * is declared again with a different type, even in a different scope).
+ *
+ * @author holzner
+ */
+class WorkspaceDumpCommands
+{
+  //----------------------------------------------------------------------
+
+  /** @return the part of a 'cout << ...' statement which prints the class name,
+   *  the inheritance flags and the name of the given object, separated
+   *  by commas (see MemberDumpRecord.parseSummaryLine(..)) */
+  static String summaryFields(String objVar)
+  {
+    return
+        "<< " + objVar + "->ClassName() << \",\" " +
+
+        // need the following to know which attributes should be read
+        "<< " + objVar + "->IsA()->InheritsFrom(RooAbsPdf::Class()) << \",\" " +
+        "<< " + objVar + "->IsA()->InheritsFrom(RooConstVar::Class()) << \",\" " +
+        "<< " + objVar + "->IsA()->InheritsFrom(RooRealVar::Class()) << \",\" " +
+        "<< " + objVar + "->IsA()->InheritsFrom(RooAbsData::Class()) << \",\" " +
+        "<< " + objVar + "->IsA()->InheritsFrom(RooAbsReal::Class()) << \",\" " +
+        "<< " + objVar + "->IsA()->InheritsFrom(RooAbsCategory::Class()) << \",\" " +
+
+        "<< " + objVar + "->GetName() ";
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return a command printing the summary fields (see summaryFields(..))
+   *  of all members of the workspace, one line per member */
+  static String memberNamesCommand(String workspaceName)
+  {
+    return "{TIterator *it = " + workspaceName + "->componentIterator(); " +
+      "TObject *obj; " + 
+      "while ((obj = it->Next()) != NULL) " +
+        "{ cout " +
+        summaryFields("obj") +
+        "<< endl; } }";
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return the part of a 'cout << ...' statement which prints the address,
+   *  the class name and the name of the given RooAbsArg, separated by commas */
+  private static String clientServerFields(String argVar)
+  {
+    return
+        "<< (void*)" + argVar + " << \",\" " +
+        "<< " + argVar + "->ClassName() << \",\" " +
+        "<< " + argVar + "->GetName() ";
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return the statements printing the record of the object pointed to
+   *  by the TObject pointer objVar.
+   *
+   *  @param summaryOnly if true, the output of Print("V") is only printed
+   *  for objects whose structure can not be obtained otherwise
+   *  (i.e. which do not inherit from RooAbsArg)
+   */
+  private static String memberRecordStatements(String objVar, boolean summaryOnly)
+  {
+    String printCondition = summaryOnly ?
+        "if (! " + objVar + "->IsA()->InheritsFrom(RooAbsArg::Class())) " :
+        "";
+
+    return
+        "cout << \"" + MemberDumpDecoder.MARKER_MEMBER + "\" " + summaryFields(objVar) + "<< endl; " +
+
+        // address, servers and clients (RooAbsData does not inherit from RooAbsArg)
+        "if (" + objVar + "->IsA()->InheritsFrom(RooAbsArg::Class())) { " +
+          "cout << \"" + MemberDumpDecoder.MARKER_ADDRESS + "\" << (void*)" + objVar + " << endl; " +
+          "RooAbsArg *rfeSub; " +
+          "TIterator *rfeSubIt = ((RooAbsArg*)" + objVar + ")->serverIterator(); " +
+          "while ((rfeSub = (RooAbsArg*)rfeSubIt->Next()) != NULL) " +
+            "cout << \"" + MemberDumpDecoder.MARKER_SERVER + "\" " + clientServerFields("rfeSub") + "<< endl; " +
+          "delete rfeSubIt; " +
+          "rfeSubIt = ((RooAbsArg*)" + objVar + ")->clientIterator(); " +
+          "while ((rfeSub = (RooAbsArg*)rfeSubIt->Next()) != NULL) " +
+            "cout << \"" + MemberDumpDecoder.MARKER_CLIENT + "\" " + clientServerFields("rfeSub") + "<< endl; " +
+          "delete rfeSubIt; " +
+        "} " +
+
+        // formula and the order of its parameters
+        "if (" + objVar + "->IsA()->InheritsFrom(RooFormulaVar::Class())) { " +
+          "RooAbsArg *rfeSub; " +
+          "Int_t rfeIndex = 0; " +
+          "while ((rfeSub = ((RooFormulaVar*)" + objVar + ")->getParameter(rfeIndex++)) != NULL) " +
+            "cout << \"" + MemberDumpDecoder.MARKER_PROXY + "actualVars,\" << rfeSub->GetName() << endl; " +
+          "cout << \"" + MemberDumpDecoder.MARKER_FORMULA + "\"; " +
+          "((RooFormulaVar*)" + objVar + ")->printMetaArgs(cout); " +
+          "cout << endl; " +
+        "} " +
+
+        printCondition + "{ " +
+          "cout << \"" + MemberDumpDecoder.MARKER_TEXT + "\" << endl; " +
+          objVar + "->Print(\"V\"); " +
+          "cout << \"" + MemberDumpDecoder.MARKER_END_TEXT + "\" << endl; " +
+        "} " +
+
+        // values of variables and constants
+        "if (" + objVar + "->IsA()->InheritsFrom(RooRealVar::Class())) " +
+          "cout << \"" + MemberDumpDecoder.MARKER_VALUE + "\" " +
+          "<< ((RooRealVar*)" + objVar + ")->getVal() << \",\" " +
+          "<< ((RooRealVar*)" + objVar + ")->isConstant() << endl; " +
+        "else if (" + objVar + "->IsA()->InheritsFrom(RooConstVar::Class())) " +
+          "cout << \"" + MemberDumpDecoder.MARKER_VALUE + "\" " +
+          "<< ((RooConstVar*)" + objVar + ")->getVal() << \",1\" << endl; " +
+
+        "cout << \"" + MemberDumpDecoder.MARKER_END + "\" << endl; ";
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return a command which prints the record of a single workspace member
+   *  to the standard output (see memberRecordStatements(..) for summaryOnly).
+   *  Nothing is printed if there is no such member. */
+  static String memberRecordCommand(String workspaceName, String varName, boolean summaryOnly)
+  {
+    return "{ TObject *rfeObj = " + workspaceName + "->obj(\"" + varName + "\"); " +
+        "if (rfeObj != NULL) { " +
+          memberRecordStatements("rfeObj", summaryOnly) +
+        "} }";
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return a macro which walks once over all components of the
+   *  workspace and writes the records of all of them to the given
+   *  file (which is overwritten). The output is redirected to a file
+   *  rather than sent through the pipe as it can be very large.
+   */
+  static String bulkDumpCommand(String workspaceName, String outputFname, boolean summaryOnly)
+  {
+    return "{ gSystem->RedirectOutput(\"" + outputFname + "\", \"w\"); " +
+        "TIterator *rfeIt = " + workspaceName + "->componentIterator(); " +
+        "TObject *rfeObj; " +
+        "while ((rfeObj = rfeIt->Next()) != NULL) { " +
+          memberRecordStatements("rfeObj", summaryOnly) +
+        "} " +
+        "delete rfeIt; " +
+        "gSystem->RedirectOutput(0); }";
+  }
+
+  //----------------------------------------------------------------------
+
+  static String deleteFileCommand(String fname)
+  {
+    return "gSystem->Unlink(\"" + fname + "\");";
+  }
+
+  //----------------------------------------------------------------------
+
+}
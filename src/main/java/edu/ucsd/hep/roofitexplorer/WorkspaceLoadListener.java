@@ -0,0 +1,43 @@
+/*
+ * Copyright 2013 University of California, San Diego.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucsd.hep.roofitexplorer;
+
+import edu.ucsd.hep.roofitexplorer.datatypes.GenericWorkspaceMember;
+import java.util.List;
+
+/**
+ * Interface for classes wanting to be notified while the members 
+ * of a workspace are being read.
+ * 
+ * Note that the methods are called from the thread reading the
+ * workspace, not from the event dispatch thread. Implementations
+ * should return quickly.
+ * 
+ * @author holzner
+ */
+public interface WorkspaceLoadListener
+{
+  /** called when new members were added to the workspace. Note that
+   *  the links between the members are only complete once
+   *  loadFinished(..) was called. */
+  public void membersAdded(WorkspaceData workspace, List<GenericWorkspaceMember> members);
+
+  /** @param numTotal is negative if the total number of members is not yet known */
+  public void loadProgress(WorkspaceData workspace, int numRead, int numTotal);
+
+  /** @param completed is false if reading was cancelled or failed */
+  public void loadFinished(WorkspaceData workspace, boolean completed);
+}
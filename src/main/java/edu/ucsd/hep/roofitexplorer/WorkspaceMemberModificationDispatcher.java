@@ -60,9 +60,9 @@ public class WorkspaceMemberModificationDispatcher
       {
         // note that we do NOT prevent loops here if the workspace has loops
         // (which it should not have)
-        for (GenericWorkspaceMember server : watchedMember.getClients())
+        for (int i = 0, n = watchedMember.getNumClientMembers(); i < n; ++i)
         {
-          modified(server, true);
+          modified(watchedMember.getClientMember(i), true);
         }
       }
     }         
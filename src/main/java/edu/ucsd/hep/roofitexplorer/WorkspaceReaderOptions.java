@@ -0,0 +1,124 @@
+/*
+ * Copyright 2013 University of California, San Diego.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucsd.hep.roofitexplorer;
+
+/**
+ * Settings controlling how the members of a workspace are read
+ * from ROOT. The defaults are taken from Parameters, some of them
+ * can be overridden from the command line.
+ *
+ * @author holzner
+ */
+class WorkspaceReaderOptions
+{
+  /** see Parameters.useBulkWorkspaceDump */
+  boolean bulkDump = Parameters.useBulkWorkspaceDump;
+
+  /** number of members whose information is requested from ROOT
+   *  with a single call (when not using the bulk dump) */
+  int batchSize = 200;
+
+  /** maximum number of batches which have been requested but not
+   *  yet parsed. While the batches are parsed, ROOT is already
+   *  working on the following ones. */
+  int maxBatchesInFlight = 2;
+
+  /** number of ROOT sessions reading the members in parallel
+   *  (including the one which is used afterwards for the GUI).
+   *  More than one session implies reading in batches. */
+  int numSessions = 1;
+
+  /** if true, only the structure of the members (class, name, servers,
+   *  clients, values) is read. The output of Print("V") is fetched 
+   *  when needed. */
+  boolean summaryOnly = false;
+
+  /** maximum number of Print("V") outputs kept in memory when
+   *  they are fetched on demand */
+  int detailCacheSize = Parameters.defaultDetailCacheSize;
+
+  /** if true, the members drop their Print("V") output once the 
+   *  address, clients, servers, values etc. have been taken from it.
+   *  The outputs are written to a compressed temporary file and
+   *  read back from there when needed. */
+  boolean compact = false;
+
+  /** number of threads decoding the output of ROOT. The members
+   *  are still added to the workspace in a single thread. */
+  int parseThreads = Runtime.getRuntime().availableProcessors();
+
+  /** number of times a member whose output could not be parsed
+   *  is fetched from ROOT and parsed again before giving up on it */
+  int maxParseRetries = Parameters.defaultMaxParseRetries;
+
+  //----------------------------------------------------------------------
+
+  /** @return a description of the options which change what is kept
+   *  of the members (as opposed to how they are read), workspaces read
+   *  with different descriptions can not be used in place of each other
+   *  (see WorkspaceCache) */
+  String getContentKey()
+  {
+    return "summaryOnly=" + summaryOnly + ",compact=" + compact;
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return the options as specified on the command line */
+  static WorkspaceReaderOptions fromCommandLine(CmdLineArgs args)
+  {
+    WorkspaceReaderOptions retval = new WorkspaceReaderOptions();
+
+    if (args.batchSize != null)
+    {
+      // the user explicitly asked for batches
+      retval.bulkDump = false;
+      retval.batchSize = args.batchSize;
+    }
+
+    if (args.maxBatchesInFlight != null)
+      retval.maxBatchesInFlight = args.maxBatchesInFlight;
+
+    if (args.numSessions != null)
+      retval.numSessions = args.numSessions;
+
+    retval.summaryOnly = args.summaryOnly;
+
+    if (args.detailCacheSize != null)
+      retval.detailCacheSize = args.detailCacheSize;
+
+    retval.compact = args.compact;
+
+    if (args.parseThreads != null)
+      retval.parseThreads = args.parseThreads;
+
+    if (args.maxParseRetries != null)
+      retval.maxParseRetries = args.maxParseRetries;
+
+    if (retval.batchSize < 1 || retval.maxBatchesInFlight < 1 || retval.numSessions < 1 || retval.detailCacheSize < 1 ||
+        retval.parseThreads < 1)
+      throw new IllegalArgumentException("batch size, number of batches in flight, number of sessions, detail cache size " + 
+                                         "and number of parsing threads must be at least one");
+
+    if (retval.maxParseRetries < 0)
+      throw new IllegalArgumentException("number of parse retries must not be negative");
+
+    return retval;
+  }
+
+  //----------------------------------------------------------------------
+
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright 2013 University of California, San Diego.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucsd.hep.roofitexplorer;
+
+import edu.ucsd.hep.roofitexplorer.datatypes.GenericWorkspaceMember;
+import edu.ucsd.hep.roofitexplorer.datatypes.RooConstVarData;
+import edu.ucsd.hep.roofitexplorer.datatypes.RooRealVarData;
+import edu.ucsd.hep.roofitexplorer.graph.MemberGraph;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An immutable version of a completely read workspace: its members,
+ * the links between them and the values of its variables at one point
+ * in time. Obtained from WorkspaceData.getSnapshot(), it can be used 
+ * by background tasks (analyses, exports, searches) without any locking
+ * while the values in the workspace are being modified.
+ *
+ * Changing a value produces a new version which shares the members, 
+ * the graph and all but one chunk of the values with the previous one.
+ *
+ * @author holzner
+ */
+public final class WorkspaceSnapshot
+{
+  /** the values are kept in chunks of 2^chunkBits members */
+  private static final int chunkBits = 8;
+
+  private static final int chunkSize = 1 << chunkBits;
+
+  private final WorkspaceData workspace;
+
+  /** counts the changes since the workspace was read */
+  private final long version;
+
+  /** indexed by member id, shared by all versions */
+  private final List<GenericWorkspaceMember> members;
+
+  private final MemberGraph graph;
+
+  /** the values of the variables (null for the other members and
+   *  values which are not known), indexed by member id. Chunks which
+   *  did not change are shared with the previous versions and 
+   *  must never be modified. */
+  private final Double[][] valueChunks;
+
+  //----------------------------------------------------------------------
+
+  private WorkspaceSnapshot(WorkspaceData workspace, long version, List<GenericWorkspaceMember> members, 
+                            MemberGraph graph, Double[][] valueChunks)
+  {
+    this.workspace = workspace;
+    this.version = version;
+    this.members = members;
+    this.graph = graph;
+    this.valueChunks = valueChunks;
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return a snapshot of the given members (which must be ordered 
+   *  by id) with the values they currently have */
+  static WorkspaceSnapshot of(WorkspaceData workspace, long version, List<GenericWorkspaceMember> members, MemberGraph graph)
+  {
+    int numMembers = members.size();
+    if (graph.getNumMembers() != numMembers)
+      throw new IllegalArgumentException("graph has " + graph.getNumMembers() + " members instead of " + numMembers);
+
+    Double[][] valueChunks = new Double[(numMembers + chunkSize - 1) >>> chunkBits][];
+
+    for (int chunk = 0; chunk < valueChunks.length; ++chunk)
+    {
+      int start = chunk << chunkBits;
+      Double[] values = new Double[Math.min(chunkSize, numMembers - start)];
+      for (int i = 0; i < values.length; ++i)
+        values[i] = getCurrentValue(members.get(start + i));
+      valueChunks[chunk] = values;
+    }
+
+    List<GenericWorkspaceMember> frozenMembers = Collections.unmodifiableList(
+      Arrays.asList(members.toArray(new GenericWorkspaceMember[numMembers])));
+
+    return new WorkspaceSnapshot(workspace, version, frozenMembers, graph, valueChunks);
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return the value the given member has right now or null if it 
+   *  is not a variable */
+  private static Double getCurrentValue(GenericWorkspaceMember member)
+  {
+    if (member instanceof RooRealVarData)
+      return ((RooRealVarData) member).getValue();
+    if (member instanceof RooConstVarData)
+      return ((RooConstVarData) member).getValue();
+    return null;
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return the next version in which the member with the given id
+   *  has the given value. Only the chunk containing the value is copied. */
+  WorkspaceSnapshot withValue(int id, Double value)
+  {
+    if (id < 0 || id >= members.size())
+      throw new IndexOutOfBoundsException("member id " + id + ", number of members " + members.size());
+
+    int chunk = id >>> chunkBits;
+    Double[][] newChunks = valueChunks.clone();
+    newChunks[chunk] = valueChunks[chunk].clone();
+    newChunks[chunk][id & (chunkSize - 1)] = value;
+
+    return new WorkspaceSnapshot(workspace, version + 1, members, graph, newChunks);
+  }
+
+  //----------------------------------------------------------------------
+
+  public WorkspaceData getWorkspace()
+  {
+    return workspace;
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return the number of value changes before this version was made
+   *  (a snapshot with a higher version is more recent) */
+  public long getVersion()
+  {
+    return version;
+  }
+
+  //----------------------------------------------------------------------
+
+  public int getNumMembers()
+  {
+    return members.size();
+  }
+
+  //----------------------------------------------------------------------
+
+  public GenericWorkspaceMember getMember(int id)
+  {
+    return members.get(id);
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return the members, ordered by id, as an unmodifiable list */
+  public List<GenericWorkspaceMember> getMembers()
+  {
+    return members;
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return the links between the members, in terms of their ids */
+  public MemberGraph getGraph()
+  {
+    return graph;
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return the value of the variable with the given id in this version
+   *  or null if it is not a variable or its value is not known */
+  public Double getValue(int id)
+  {
+    return valueChunks[id >>> chunkBits][id & (chunkSize - 1)];
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return the value of the given member in this version, see getValue(int) */
+  public Double getValue(GenericWorkspaceMember member)
+  {
+    if (member.getWorkspace() != workspace)
+      throw new IllegalArgumentException(member.getVarName() + " is not a member of workspace " + workspace.getName());
+
+    return getValue(member.getId());
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return true if the value of the member with the given id is kept
+   *  in a chunk shared with the given version (for testing) */
+  boolean sharesValuesWith(WorkspaceSnapshot other, int id)
+  {
+    return valueChunks[id >>> chunkBits] == other.valueChunks[id >>> chunkBits];
+  }
+
+  //----------------------------------------------------------------------
+
+}
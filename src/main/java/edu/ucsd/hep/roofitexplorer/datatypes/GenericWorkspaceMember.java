@@ -18,14 +18,21 @@ package edu.ucsd.hep.roofitexplorer.datatypes;
 import edu.ucsd.hep.roofitexplorer.Parameters;
 import edu.ucsd.hep.roofitexplorer.WorkspaceData;
 import edu.ucsd.hep.roofitexplorer.datatypes.VerbosePrintOutput.ClientServerRecord;
+import edu.ucsd.hep.roofitexplorer.graph.ClosureCounts;
+import edu.ucsd.hep.roofitexplorer.graph.ClosureSets;
+import edu.ucsd.hep.roofitexplorer.graph.MemberGraph;
+import edu.ucsd.hep.roofitexplorer.graph.MemberSet;
 import edu.ucsd.hep.rootrunnerutil.ROOTRunner;
 import java.io.IOException;
 import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.RandomAccess;
 import java.util.Set;
 
 /**
@@ -43,6 +50,9 @@ public class GenericWorkspaceMember implements Serializable
   protected final String varName;
   protected final String className;
   protected final String address;
+
+  /** index of this member in the workspace (assigned when registering) */
+  private int id = -1;
   
   /** the workspace members which depend on this member ('use this member') */
   private final List<VerbosePrintOutput.ClientServerRecord> clients;
@@ -50,21 +60,28 @@ public class GenericWorkspaceMember implements Serializable
   /** the workspace members on which this member depends */
   private final List<VerbosePrintOutput.ClientServerRecord> servers;
   
-  private Integer numOverallClients;
-  private Integer numOverallServers;
-  private final VerbosePrintOutput detailedData;
+  /** the caches below are only filled while the workspace is being read
+   *  (possibly by several threads). They are volatile and only assigned 
+   *  complete lists so that other threads never see partially filled ones. */
+  private volatile Integer numOverallClients;
+  private volatile Integer numOverallServers;
+  /** null if the member was read without it or released it (see
+   *  getDetailedData()) */
+  private volatile VerbosePrintOutput detailedData;
   
   /** list of servers (this is filled on demand from the text output
-   *  of the Print("V") call */
-  private WorkspaceMemberList serversList;
-  private WorkspaceMemberList clientsList;
-  private WorkspaceMemberList leafServersList;
+   *  of the Print("V") call. Only used while the workspace is
+   *  being read, afterwards the links are taken from WorkspaceData.getGraph() */
+  private volatile WorkspaceMemberList serversList;
+  private volatile WorkspaceMemberList clientsList;
+  private volatile WorkspaceMemberList leafServersList;
   
   /** List of all clients and their clients etc. This is also the list of 
    *  other objects in the workspace which are influenced by this workspace member.
-   * 
-   * TODO: we could also use this to determine the value for 'numOverallClients' */
-  private WorkspaceMemberList overallClients;
+   *  Only used while the workspace is being read, afterwards the shared 
+   *  sets from WorkspaceData.getClosureSets() are used (the same for
+   *  leafServersList). */
+  private volatile WorkspaceMemberList overallClients;
 
   //----------------------------------------------------------------------
 
@@ -73,17 +90,62 @@ public class GenericWorkspaceMember implements Serializable
     this.detailedData = detailedData;
     
     this.workspace = workspace;
-    this.varName = varName;
-    this.className = className;
+    StringPool pool = workspace.getStringPool();
+    this.varName = pool.intern(varName);
+    this.className = pool.intern(className);
     
     // assumes that all members' classes of the workspace inherit from RooAbsArg
-    this.address = detailedData.findValue("RooAbsArg", "Address");
+    this.address = pool.intern(detailedData.getAddress());
     
     // note that RooAbsData objects seem not to have clients nor
     // servers
-    clients = detailedData.parseClientsOrServers("RooAbsArg", false);
-    servers = detailedData.parseClientsOrServers("RooAbsArg", true);
+    clients = detailedData.parseClientsOrServers("RooAbsArg", false, pool);
+    servers = detailedData.parseClientsOrServers("RooAbsArg", true, pool);
+    
+    // register in this workspace container
+    workspace.register(this, address);
+  }
+
+  //----------------------------------------------------------------------
+
+  /** takes the address, clients and servers from the given record if
+   *  they were dumped explicitly, otherwise falls back to parsing
+   *  them from the Print("V") output.
+   *
+   *  @param detailedData may be null if the record was read without
+   *  the Print("V") output. It is then fetched from the workspace
+   *  when needed. */
+  public GenericWorkspaceMember(WorkspaceData workspace, MemberDumpRecord record, VerbosePrintOutput detailedData)
+  {
+    this.detailedData = detailedData;
     
+    this.workspace = workspace;
+
+    // these are normally pooled already when decoding the record
+    StringPool pool = workspace.getStringPool();
+    this.varName = pool.intern(record.getVarName());
+    this.className = pool.intern(record.getClassName());
+
+    if (record.hasStructuredData())
+    {
+      this.address = pool.intern(record.getAddress());
+      clients = new ArrayList<ClientServerRecord>(record.getClients());
+      servers = new ArrayList<ClientServerRecord>(record.getServers());
+    }
+    else if (detailedData != null)
+    {
+      this.address = pool.intern(detailedData.getAddress());
+      clients = detailedData.parseClientsOrServers("RooAbsArg", false, pool);
+      servers = detailedData.parseClientsOrServers("RooAbsArg", true, pool);
+    }
+    else
+    {
+      // neither dumped nor printed (should not happen for RooAbsArgs)
+      this.address = null;
+      clients = new ArrayList<ClientServerRecord>();
+      servers = new ArrayList<ClientServerRecord>();
+    }
+
     // register in this workspace container
     workspace.register(this, address);
   }
@@ -100,6 +162,23 @@ public class GenericWorkspaceMember implements Serializable
   {
     return varName;
   }
+
+  //----------------------------------------------------------------------
+
+  /** @return the index of this member in the workspace, see 
+   *  WorkspaceData.getGraph() */
+  public int getId()
+  {
+    return id;
+  }
+
+  //----------------------------------------------------------------------
+
+  /** to be used only by WorkspaceData */
+  public void setId(int id)
+  {
+    this.id = id;
+  }
   
   //----------------------------------------------------------------------
 
@@ -131,29 +210,69 @@ public class GenericWorkspaceMember implements Serializable
   /** get the 'children' (those objects which are use in this objects) */
   public WorkspaceMemberList getServers()
   {
-    if (this.serversList == null)
-    {
-     // get the objects on demand
-      serversList = new WorkspaceMemberList();
+    // make a copy
+    return new WorkspaceMemberList(getServersView());
+  }
 
-      for (ClientServerRecord server : this.servers)
-      {
-        GenericWorkspaceMember serverObj;
+  //----------------------------------------------------------------------
 
-        if (Parameters.useAddress)
-          serverObj = this.workspace.findByAddress(server.address);
-        else
-          serverObj = this.workspace.findByName(server.varName);
+  /** @return the same members as getServers() as an unmodifiable list
+   *  without copying them. The list does not change when links
+   *  are added later on. While the workspace is being read, servers 
+   *  which were not read yet are left out. */
+  public List<GenericWorkspaceMember> getServersView()
+  {
+    MemberGraph graph = workspace.getGraph();
+    if (graph != null)
+      return new NeighbourView(workspace, graph, id, true);
 
-        if (serverObj == null)
-          throw new Error("could not find server (child) " + server.address + " (" + server.varName + ") in workspace " + workspace.getName() + " in file " + workspace.getFile());
+    return resolveServers();
+  }
 
-        serversList.add(serverObj);
-      }
+  //----------------------------------------------------------------------
+
+  /** @return the number of members in getServersView(). This can be smaller
+   *  than getNumServers() if some of the servers are not in the workspace. */
+  public int getNumServerMembers()
+  {
+    MemberGraph graph = workspace.getGraph();
+    if (graph != null)
+      return graph.getNumServers(id);
+
+    return resolveServers().size();
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return the same as getServersView().get(index) but without creating
+   *  the list, e.g. for iterating over the servers of many members */
+  public GenericWorkspaceMember getServerMember(int index)
+  {
+    MemberGraph graph = workspace.getGraph();
+    if (graph == null)
+      return resolveServers().get(index);
+
+    if (index < 0 || index >= graph.getNumServers(id))
+      throw new IndexOutOfBoundsException("index " + index + ", size " + graph.getNumServers(id));
+
+    return workspace.getMember(graph.getServer(id, index));
+  }
+
+  //----------------------------------------------------------------------
+
+  /** resolves the names of the servers (while the workspace is still being read) */
+  private List<GenericWorkspaceMember> resolveServers()
+  {
+    WorkspaceMemberList retval = this.serversList;
+    if (retval == null)
+    {
+      // get the objects on demand
+      retval = new WorkspaceMemberList();
+      if (resolveRecords(this.servers, retval))
+        serversList = retval;
     }
     
-    // make a copy
-    return new WorkspaceMemberList(serversList);
+    return retval.getList();
   }
   
   //----------------------------------------------------------------------
@@ -165,13 +284,19 @@ public class GenericWorkspaceMember implements Serializable
    */
   public WorkspaceMemberList getLeafServers()
   {
-    if (this.leafServersList == null)
+    // shared with the other members, computed for all of them at once
+    ClosureSets closureSets = workspace.getClosureSets();
+    if (closureSets != null)
+      return makeMemberList(closureSets.getLeafServers(id));
+
+    WorkspaceMemberList leaves = this.leafServersList;
+    if (leaves == null)
     {
       Set<GenericWorkspaceMember> toVisit = new HashSet<GenericWorkspaceMember>();
       Set<GenericWorkspaceMember> visited = new HashSet<GenericWorkspaceMember>();
-      Set<GenericWorkspaceMember> leaves = new HashSet<GenericWorkspaceMember>();
+      Set<GenericWorkspaceMember> leafSet = new HashSet<GenericWorkspaceMember>();
       
-      toVisit.addAll(this.getServers().getList());
+      toVisit.addAll(this.getServersView());
 
       while (! toVisit.isEmpty())
       {
@@ -182,14 +307,14 @@ public class GenericWorkspaceMember implements Serializable
         {
           visited.add(member);
           
-          WorkspaceMemberList memberServers = member.getServers();
+          List<GenericWorkspaceMember> memberServers = member.getServersView();
           
           if (memberServers.isEmpty())
             // it's a leaf
-            leaves.add(member);
+            leafSet.add(member);
           else
             // not a leaf, inspect the member's servers
-            toVisit.addAll(memberServers.getList());
+            toVisit.addAll(memberServers);
           
         } // if not yet visited
         
@@ -197,11 +322,14 @@ public class GenericWorkspaceMember implements Serializable
       }
       
        // get the objects on demand
-      leafServersList = new WorkspaceMemberList(leaves);
+      leaves = new WorkspaceMemberList(leafSet);
+      // the links may still change while the workspace is being read
+      if (! workspace.isLoading())
+        leafServersList = leaves;
     }
     
     // make a copy
-    return new WorkspaceMemberList(leafServersList);
+    return new WorkspaceMemberList(leaves);
   }
    //----------------------------------------------------------------------
 
@@ -209,30 +337,100 @@ public class GenericWorkspaceMember implements Serializable
   /** get the 'parents' (those objects in which this object is used) */
   public WorkspaceMemberList getClients()
   {
-    if (clientsList == null)
+    // make a copy
+    return new WorkspaceMemberList(getClientsView());
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return the same members as getClients() as an unmodifiable list
+   *  without copying them. The list does not change when links
+   *  are added later on. */
+  public List<GenericWorkspaceMember> getClientsView()
+  {
+    MemberGraph graph = workspace.getGraph();
+    if (graph != null)
+      return new NeighbourView(workspace, graph, id, false);
+
+    return resolveClients();
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return the number of members in getClientsView(). This can be smaller
+   *  than getNumClients() if some of the clients are not in the workspace. */
+  public int getNumClientMembers()
+  {
+    MemberGraph graph = workspace.getGraph();
+    if (graph != null)
+      return graph.getNumClients(id);
+
+    return resolveClients().size();
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return the same as getClientsView().get(index) but without creating
+   *  the list, e.g. for iterating over the clients of many members */
+  public GenericWorkspaceMember getClientMember(int index)
+  {
+    MemberGraph graph = workspace.getGraph();
+    if (graph == null)
+      return resolveClients().get(index);
+
+    if (index < 0 || index >= graph.getNumClients(id))
+      throw new IndexOutOfBoundsException("index " + index + ", size " + graph.getNumClients(id));
+
+    return workspace.getMember(graph.getClient(id, index));
+  }
+
+  //----------------------------------------------------------------------
+
+  /** resolves the names of the clients (while the workspace is still being read) */
+  private List<GenericWorkspaceMember> resolveClients()
+  {
+    WorkspaceMemberList retval = this.clientsList;
+    if (retval == null)
     {
       // get the objects on demand
-      clientsList = new WorkspaceMemberList();
+      retval = new WorkspaceMemberList();
+      if (resolveRecords(this.clients, retval))
+        clientsList = retval;
+    }
+    
+    return retval.getList();
+  }
+
+  //----------------------------------------------------------------------
 
-      for (ClientServerRecord client : this.clients)
+  /** adds the members the given records refer to to the given list.
+   *  Records of members which were not registered (yet) are left out.
+   *  @return true if all records could be resolved (only then the
+   *  result may be kept) */
+  private boolean resolveRecords(List<ClientServerRecord> records, WorkspaceMemberList resolved)
+  {
+    boolean complete = true;
+
+    // the reader may be registering members and adding links at the same time
+    synchronized (workspace)
+    {
+      for (ClientServerRecord record : records)
       {
-        GenericWorkspaceMember clientObj;
+        GenericWorkspaceMember member;
 
         if (Parameters.useAddress)
-          clientObj = this.workspace.findByAddress(client.address);
+          member = this.workspace.findByAddress(record.address);
         else
-          clientObj = this.workspace.findByName(client.varName);
-
-        if (clientObj == null)
-          throw new Error("could not find client (parent) " + client.address + " (" + client.varName + ") in workspace " + workspace.getName() + " in file " + workspace.getFile());
-
-        clientsList.add(clientObj);
+          member = this.workspace.findByName(record.varName);
 
+        if (member == null)
+          complete = false;
+        else
+          resolved.add(member);
       }
     }
-    
-    // make a copy
-    return new WorkspaceMemberList(clientsList);
+
+    return complete;
   }
   
   //----------------------------------------------------------------------
@@ -246,13 +444,17 @@ public class GenericWorkspaceMember implements Serializable
    */
   public WorkspaceMemberList getOverallClients()
   {
+    ClosureSets closureSets = workspace.getClosureSets();
+    if (closureSets != null)
+      return makeMemberList(closureSets.getAllClients(id));
 
-    if (this.overallClients == null)
+    WorkspaceMemberList allClients = this.overallClients;
+    if (allClients == null)
     {
       Set<GenericWorkspaceMember> toVisit = new HashSet<GenericWorkspaceMember>();
       Set<GenericWorkspaceMember> visited = new HashSet<GenericWorkspaceMember>();
       
-      toVisit.addAll(this.getClients().getList());
+      toVisit.addAll(this.getClientsView());
 
       while (! toVisit.isEmpty())
       {
@@ -263,7 +465,7 @@ public class GenericWorkspaceMember implements Serializable
         {
           visited.add(member);
          
-          toVisit.addAll(member.getClients().getList());
+          toVisit.addAll(member.getClientsView());
           
         } // if not yet visited
         
@@ -271,11 +473,13 @@ public class GenericWorkspaceMember implements Serializable
       }
       
        // get the objects on demand
-      overallClients = new WorkspaceMemberList(visited);
+      allClients = new WorkspaceMemberList(visited);
+      if (! workspace.isLoading())
+        overallClients = allClients;
     }
     
     // make a copy
-    return new WorkspaceMemberList(overallClients);
+    return new WorkspaceMemberList(allClients);
       
   }
 
@@ -303,6 +507,14 @@ public class GenericWorkspaceMember implements Serializable
   
   //----------------------------------------------------------------------
 
+  /** this is mainly for internal use... */
+  public List<VerbosePrintOutput.ClientServerRecord> getClientRecords()
+  {
+    return Collections.unmodifiableList(this.clients);
+  }
+
+  //----------------------------------------------------------------------
+
   /** @return true iff this has at least one client (parent node) */
   public boolean hasClients()
   {
@@ -358,17 +570,19 @@ public class GenericWorkspaceMember implements Serializable
    */
   public int getOverallNumClients()
   {
-    // TODO: could we do this in a more efficient way 
-    //       by keeping the number per node ? Not sure
-    //       because a node can have multiple parents...
-    
-    if (numOverallClients == null)
+    // computed for all members at once from the graph
+    ClosureCounts closureCounts = workspace.getClosureCounts();
+    if (closureCounts != null)
+      return closureCounts.getNumAllClients(id);
+
+    Integer retval = numOverallClients;
+    if (retval == null)
     {
 
       // TODO: should we also honour the option in Parameters which determines
       //       whether one should search by address or name ?
       Set<GenericWorkspaceMember> todo = new HashSet<GenericWorkspaceMember>();
-      todo.addAll(this.getClients().getList());
+      todo.addAll(this.getClientsView());
 
       Set<GenericWorkspaceMember> visited = new HashSet<GenericWorkspaceMember>();
 
@@ -384,24 +598,31 @@ public class GenericWorkspaceMember implements Serializable
 
         visited.add(element);
 
-        todo.addAll(element.getClients().getList());
+        todo.addAll(element.getClientsView());
       }
 
-      numOverallClients = visited.size();
+      retval = visited.size();
+      if (! workspace.isLoading())
+        numOverallClients = retval;
     }
-    return numOverallClients;
+    return retval;
   }
 
   //----------------------------------------------------------------------
     
   public int getOverallNumServers()
   {
-    if (numOverallServers == null)
+    ClosureCounts closureCounts = workspace.getClosureCounts();
+    if (closureCounts != null)
+      return closureCounts.getNumAllServers(id);
+
+    Integer retval = numOverallServers;
+    if (retval == null)
     {
       // TODO: should we also honour the option in Parameters which determines
       //       whether one should search by address or name ?
       Set<GenericWorkspaceMember> todo = new HashSet<GenericWorkspaceMember>();
-      todo.addAll(this.getServers().getList());
+      todo.addAll(this.getServersView());
 
       Set<GenericWorkspaceMember> visited = new HashSet<GenericWorkspaceMember>();
 
@@ -417,28 +638,101 @@ public class GenericWorkspaceMember implements Serializable
 
         visited.add(element);
 
-        todo.addAll(element.getServers().getList());
+        todo.addAll(element.getServersView());
       }
 
-      numOverallServers = visited.size();
+      retval = visited.size();
+      if (! workspace.isLoading())
+        numOverallServers = retval;
     }
-    return numOverallServers;
+    return retval;
   }
 
-  /** adds a server by hand, to be used only by WorkspaceDataReader */
+  /** adds a server by hand, to be used only by WorkspaceDataReader.
+   *  @throws IllegalStateException if the workspace was completely read */
   public void addServer(GenericWorkspaceMember member)
   {
-    // make sure the 'servers' field is initialized
-    this.getServers();
-    this.serversList.add(member);
+    workspace.checkStructureModifiable();
+    synchronized (workspace)
+    {
+      this.servers.add(new ClientServerRecord(member.getAddress(), member.getClassName(), member.getVarName()));
+    }
+    linksChanged();
   }
 
-  /** adds a server by hand, to be used only by WorkspaceDataReader */
+  /** adds a client by hand, to be used only by WorkspaceDataReader.
+   *  @throws IllegalStateException if the workspace was completely read */
   public void addClient(GenericWorkspaceMember member)
   {
-    // make sure the 'clients' field is initialized
-    this.getClients();
-    this.clientsList.add(member);
+    workspace.checkStructureModifiable();
+    synchronized (workspace)
+    {
+      this.clients.add(new ClientServerRecord(member.getAddress(), member.getClassName(), member.getVarName()));
+    }
+    linksChanged();
+  }
+
+  //----------------------------------------------------------------------
+
+  /** drops everything derived from the client and server records */
+  private void linksChanged()
+  {
+    // will be filled again on demand
+    this.clientsList = null;
+    this.serversList = null;
+    this.leafServersList = null;
+    this.overallClients = null;
+    this.numOverallClients = null;
+    this.numOverallServers = null;
+
+    workspace.invalidateGraph();
+  }
+
+  //----------------------------------------------------------------------
+
+  /** removes the clients and servers with the given names, to be used 
+   *  by the reader when these members could not be read */
+  public void removeClientsAndServers(Set<String> varNames)
+  {
+    workspace.checkStructureModifiable();
+    synchronized (workspace)
+    {
+      removeRecords(this.clients, varNames);
+      removeRecords(this.servers, varNames);
+    }
+    linksChanged();
+  }
+
+  //----------------------------------------------------------------------
+
+  private static void removeRecords(List<ClientServerRecord> records, Set<String> varNames)
+  {
+    for (Iterator<ClientServerRecord> it = records.iterator(); it.hasNext(); )
+    {
+      if (varNames.contains(it.next().getVarName()))
+        it.remove();
+    }
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return a new list with the members of this workspace with the given ids */
+  private WorkspaceMemberList makeMemberList(MemberSet ids)
+  {
+    WorkspaceMemberList retval = new WorkspaceMemberList();
+    for (int memberId = ids.nextMember(0); memberId >= 0; memberId = ids.nextMember(memberId + 1))
+      retval.add(workspace.getMember(memberId));
+    return retval;
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return the category of this member, as given by the class
+   *  which represents it (note that categories are currently 
+   *  represented like functions when read with WorkspaceDataReader2) */
+  public MemberKind getKind()
+  {
+    return MemberKind.UNKNOWN;
   }
 
   //----------------------------------------------------------------------
@@ -454,9 +748,29 @@ public class GenericWorkspaceMember implements Serializable
   
   //----------------------------------------------------------------------
 
+  /** @return the output of Print("V") for this member. If it was
+   *  not read together with the member, it is fetched from
+   *  the workspace (and not kept by this object) */
   public VerbosePrintOutput getDetailedData()
   {
-    return detailedData;
+    if (detailedData != null)
+      return detailedData;
+
+    return workspace.getDetailedData(varName);
+  }
+
+  //----------------------------------------------------------------------
+
+  /** drops the reference to the output of Print("V") once everything
+   *  needed has been extracted from it. getDetailedData() then gets it 
+   *  from the workspace.
+   *
+   *  @return the output which was released (null if there was none) */
+  public VerbosePrintOutput releaseDetailedData()
+  {
+    VerbosePrintOutput retval = detailedData;
+    detailedData = null;
+    return retval;
   }
 
   //----------------------------------------------------------------------
@@ -475,4 +789,50 @@ public class GenericWorkspaceMember implements Serializable
   
   //----------------------------------------------------------------------
 
+  /** read-only list of the servers or clients of a member, backed
+   *  by the arrays of the graph */
+  private static final class NeighbourView extends AbstractList<GenericWorkspaceMember> implements RandomAccess
+  {
+    private final WorkspaceData workspace;
+    private final MemberGraph graph;
+    private final int id;
+    private final boolean servers;
+    private final int size;
+
+    //--------------------------------------------------------------------
+
+    NeighbourView(WorkspaceData workspace, MemberGraph graph, int id, boolean servers)
+    {
+      this.workspace = workspace;
+      this.graph = graph;
+      this.id = id;
+      this.servers = servers;
+      this.size = servers ? graph.getNumServers(id) : graph.getNumClients(id);
+    }
+
+    //--------------------------------------------------------------------
+
+    @Override
+    public GenericWorkspaceMember get(int index)
+    {
+      if (index < 0 || index >= size)
+        throw new IndexOutOfBoundsException("index " + index + ", size " + size);
+
+      return workspace.getMember(servers ? graph.getServer(id, index) : graph.getClient(id, index));
+    }
+
+    //--------------------------------------------------------------------
+
+    @Override
+    public int size()
+    {
+      return size;
+    }
+
+    //--------------------------------------------------------------------
+
+  }
+
+  //----------------------------------------------------------------------
+
 }
@@ -0,0 +1,357 @@
+/*
+ * Copyright 2013 University of California, San Diego.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucsd.hep.roofitexplorer.datatypes;
+
+import edu.ucsd.hep.roofitexplorer.datatypes.VerbosePrintOutput.ClientServerRecord;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decodes the output of the member dump commands (see WorkspaceDumpCommands)
+ * into MemberDumpRecord objects. The format is line based, one record
+ * per workspace member:
+ *
+ * <pre>
+ *   {@literal @}RFE:M ClassName,isAbsPdf,isConstVar,isRealVar,isAbsData,isAbsReal,isAbsCategory,InstanceName
+ *   {@literal @}RFE:A address
+ *   {@literal @}RFE:S address,ClassName,InstanceName    (one line per server)
+ *   {@literal @}RFE:C address,ClassName,InstanceName    (one line per client)
+ *   {@literal @}RFE:P proxyName,InstanceName            (one line per proxy element, only for RooFormulaVar)
+ *   {@literal @}RFE:F formula="..."                     (only for RooFormulaVar)
+ *   {@literal @}RFE:TEXT
+ *   ... output of Print("V") ...
+ *   {@literal @}RFE:ENDTEXT
+ *   {@literal @}RFE:V value,isConstant           (only for RooRealVar and RooConstVar)
+ *   {@literal @}RFE:E
+ * </pre>
+ *
+ * Lines outside of a record (e.g. error messages ROOT printed in between)
+ * are ignored. The address, server and client lines are absent
+ * for objects which do not inherit from RooAbsArg. Records containing
+ * lines which can not be decoded and records which are followed by 
+ * the next record without an end line are still returned, with the 
+ * problem attached (see MemberDumpRecord.getDecodeError()). A record
+ * at the end of the text without an end line (e.g. because ROOT 
+ * crashed) is not returned.
+ *
+ * @author holzner
+ */
+public class MemberDumpDecoder
+{
+  public static final String MARKER_MEMBER = "@RFE:M ";
+  public static final String MARKER_TEXT = "@RFE:TEXT";
+  public static final String MARKER_END_TEXT = "@RFE:ENDTEXT";
+  public static final String MARKER_VALUE = "@RFE:V ";
+  public static final String MARKER_END = "@RFE:E";
+  public static final String MARKER_ADDRESS = "@RFE:A ";
+  public static final String MARKER_SERVER = "@RFE:S ";
+  public static final String MARKER_CLIENT = "@RFE:C ";
+  public static final String MARKER_PROXY = "@RFE:P ";
+  public static final String MARKER_FORMULA = "@RFE:F ";
+
+  /** prefix of the output of RooFormulaVar::printMetaArgs(..) */
+  private static final String FORMULA_PREFIX = "formula=\"";
+
+  //----------------------------------------------------------------------
+
+  /** goes once through the given text and returns the records found
+   *  in the order they appear in the text */
+  public static List<MemberDumpRecord> decode(String text)
+  {
+    return decode(text, new StringPool());
+  }
+
+  //----------------------------------------------------------------------
+
+  /** same as decode(text) but class names, member names and addresses 
+   *  are taken from the given pool (and added to it), e.g. to share
+   *  them across all members of a workspace */
+  public static List<MemberDumpRecord> decode(String text, StringPool pool)
+  {
+    return decode(text, 0, text.length(), pool);
+  }
+
+  //----------------------------------------------------------------------
+
+  /** decodes the records in text[start..end). start must be at the
+   *  beginning of a line. */
+  public static List<MemberDumpRecord> decode(String text, int start, int end, StringPool pool)
+  {
+    List<MemberDumpRecord> retval = new ArrayList<MemberDumpRecord>();
+
+    MemberDumpRecord current = null;
+
+    // start of the Print("V") output of the current record or -1
+    // if we're not inside a text block
+    int textStart = -1;
+
+    int pos = start;
+    int len = end;
+    while (pos < len)
+    {
+      int eol = text.indexOf('\n', pos);
+      if (eol < 0 || eol > len)
+        eol = len;
+
+      if (textStart >= 0 && ! text.startsWith(MARKER_MEMBER, pos))
+      {
+        // inside the verbose printout, only look for the end marker
+        if (text.startsWith(MARKER_END_TEXT, pos))
+        {
+          current.setVerboseText(text.substring(textStart, pos));
+          textStart = -1;
+        }
+      }
+      else if (text.startsWith(MARKER_MEMBER, pos))
+      {
+        if (current != null)
+        {
+          // the previous record was not terminated, keep it (so that the
+          // member can be reported) but mark it as incomplete
+          current.setDecodeError(new IllegalArgumentException("the record of member " + current.getVarName() + 
+                                                              " is not terminated by " + MARKER_END));
+          retval.add(current);
+          textStart = -1;
+        }
+
+        String line = stripCarriageReturn(text.substring(pos + MARKER_MEMBER.length(), eol));
+        current = MemberDumpRecord.parseSummaryLine(line, pool);
+      }
+      else if (current != null)
+      {
+        try
+        {
+          decodeLine(current, text, pos, eol, pool);
+        }
+        catch (RuntimeException ex)
+        {
+          // keep the record (so that the member can be reported)
+          // but remember that it is incomplete
+          current.setDecodeError(ex);
+        }
+
+        if (text.startsWith(MARKER_TEXT, pos))
+          textStart = Math.min(eol + 1, len);
+        else if (text.startsWith(MARKER_END, pos))
+        {
+          retval.add(current);
+          current = null;
+        }
+      }
+
+      pos = eol + 1;
+    }
+
+    return retval;
+  }
+
+  //----------------------------------------------------------------------
+
+  /** decodes a line (text[pos..eol)) with the information of the given record
+   *  other than the beginning of the text block or the end of the record */
+  private static void decodeLine(MemberDumpRecord current, String text, int pos, int eol, StringPool pool)
+  {
+    if (text.startsWith(MARKER_VALUE, pos))
+      current.parseValueLine(text.substring(pos + MARKER_VALUE.length(), eol));
+    else if (text.startsWith(MARKER_ADDRESS, pos))
+      current.setAddress(internTrimmed(pool, text, pos + MARKER_ADDRESS.length(), eol));
+    else if (text.startsWith(MARKER_SERVER, pos))
+      current.addServer(parseClientServerLine(pool, text, pos + MARKER_SERVER.length(), eol));
+    else if (text.startsWith(MARKER_CLIENT, pos))
+      current.addClient(parseClientServerLine(pool, text, pos + MARKER_CLIENT.length(), eol));
+    else if (text.startsWith(MARKER_PROXY, pos))
+    {
+      String parts[] = stripCarriageReturn(text.substring(pos + MARKER_PROXY.length(), eol)).split(",", 2);
+      if (parts.length == 2)
+        current.addProxyMember(pool.intern(parts[0]), pool.intern(parts[1]));
+    }
+    else if (text.startsWith(MARKER_FORMULA, pos))
+      current.setFormula(parseFormula(text.substring(pos + MARKER_FORMULA.length(), eol)));
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return the given text without the lines printed by RooMsgService,
+   *  i.e. lines of the form '[#1] ERROR:Eval -- ...'. Such lines can end up
+   *  in the middle of the Print("V") output when evaluating a member 
+   *  triggers a message. */
+  public static String removeMessageServiceLines(String text)
+  {
+    StringBuilder buf = null;
+
+    // beginning of the lines not yet copied to buf
+    int copied = 0;
+
+    int pos = 0;
+    while (pos < text.length())
+    {
+      int eol = text.indexOf('\n', pos);
+      int next = eol < 0 ? text.length() : eol + 1;
+
+      if (isMessageServiceLine(text, pos, next))
+      {
+        if (buf == null)
+          buf = new StringBuilder(text.length());
+        buf.append(text, copied, pos);
+        copied = next;
+      }
+
+      pos = next;
+    }
+
+    if (buf == null)
+      return text;
+
+    buf.append(text, copied, text.length());
+    return buf.toString();
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return true if text[start..end) starts with '[#n] LEVEL:' where LEVEL 
+   *  consists of upper case letters (e.g. ERROR, WARNING, INFO or PROGRESS) */
+  static boolean isMessageServiceLine(String text, int start, int end)
+  {
+    if (end - start < 4 || text.charAt(start) != '[' || text.charAt(start + 1) != '#')
+      return false;
+
+    int pos = start + 2;
+    while (pos < end && text.charAt(pos) >= '0' && text.charAt(pos) <= '9')
+      ++pos;
+
+    if (pos == start + 2 || pos + 1 >= end || text.charAt(pos) != ']' || text.charAt(pos + 1) != ' ')
+      return false;
+
+    pos += 2;
+    int levelStart = pos;
+    while (pos < end && text.charAt(pos) >= 'A' && text.charAt(pos) <= 'Z')
+      ++pos;
+
+    return pos > levelStart && pos < end && text.charAt(pos) == ':';
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return the positions at which the given text can be split such that
+   *  each part contains only complete records, i.e. the beginnings of
+   *  member lines directly following an end line (and 0 and the length 
+   *  of the text). The parts are at least about minLength long.
+   *
+   *  Note that this assumes that the output of Print("V") never contains
+   *  such a pair of lines. */
+  public static int[] findSplitPoints(String text, int minLength)
+  {
+    String boundary = MARKER_END + "\n" + MARKER_MEMBER;
+
+    List<Integer> points = new ArrayList<Integer>();
+    points.add(0);
+
+    int pos = minLength;
+    while (pos < text.length())
+    {
+      int found = text.indexOf(boundary, pos);
+      if (found < 0)
+        break;
+
+      // must be at the beginning of a line
+      if (found > 0 && text.charAt(found - 1) != '\n')
+      {
+        pos = found + 1;
+        continue;
+      }
+
+      int splitPoint = found + MARKER_END.length() + 1;
+      points.add(splitPoint);
+      pos = splitPoint + minLength;
+    }
+
+    points.add(text.length());
+
+    int[] retval = new int[points.size()];
+    for (int i = 0; i < retval.length; ++i)
+      retval[i] = points.get(i);
+    return retval;
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return the end of the given line without a trailing carriage return */
+  private static int stripCarriageReturn(String text, int start, int end)
+  {
+    if (end > start && text.charAt(end - 1) == '\r')
+      return end - 1;
+    return end;
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return the pooled instance of the given part of the text
+   *  without leading and trailing whitespace */
+  private static String internTrimmed(StringPool pool, String text, int start, int end)
+  {
+    while (start < end && text.charAt(start) <= ' ')
+      ++start;
+    while (end > start && text.charAt(end - 1) <= ' ')
+      --end;
+
+    return pool.intern(text, start, end);
+  }
+
+  //----------------------------------------------------------------------
+
+  /** parses a line of the form address,ClassName,InstanceName 
+   *  (text[start..end)) */
+  private static ClientServerRecord parseClientServerLine(StringPool pool, String text, int start, int end)
+  {
+    end = stripCarriageReturn(text, start, end);
+
+    // note that the instance name may contain commas
+    int comma1 = text.indexOf(',', start);
+    int comma2 = comma1 >= 0 ? text.indexOf(',', comma1 + 1) : -1;
+    if (comma1 < 0 || comma1 >= end || comma2 < 0 || comma2 >= end)
+      throw new IllegalArgumentException("unexpected server/client line '" + text.substring(start, end) + "'");
+
+    return new ClientServerRecord(pool.intern(text, start, comma1),
+                                  pool.intern(text, comma1 + 1, comma2),
+                                  pool.intern(text, comma2 + 1, end));
+  }
+
+  //----------------------------------------------------------------------
+
+  /** extracts the formula from the output of printMetaArgs(..), 
+   *  i.e. from 'formula="..." '
+   *  @return null if the format was not recognized */
+  private static String parseFormula(String line)
+  {
+    line = line.trim();
+    if (! line.startsWith(FORMULA_PREFIX) || ! line.endsWith("\"") || line.length() <= FORMULA_PREFIX.length())
+      return null;
+
+    return line.substring(FORMULA_PREFIX.length(), line.length() - 1);
+  }
+
+  //----------------------------------------------------------------------
+
+  private static String stripCarriageReturn(String line)
+  {
+    if (line.endsWith("\r"))
+      return line.substring(0, line.length() - 1);
+    return line;
+  }
+
+  //----------------------------------------------------------------------
+
+}
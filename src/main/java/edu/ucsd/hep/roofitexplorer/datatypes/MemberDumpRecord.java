@@ -0,0 +1,302 @@
+/*
+ * Copyright 2013 University of California, San Diego.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucsd.hep.roofitexplorer.datatypes;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ListMultimap;
+import edu.ucsd.hep.roofitexplorer.datatypes.VerbosePrintOutput.ClientServerRecord;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Everything which was dumped by ROOT for one workspace member
+ * (see MemberDumpDecoder for the format).
+ *
+ * @author holzner
+ */
+public class MemberDumpRecord
+{
+  private final String className;
+  private final MemberKind kind;
+  private final String varName;
+
+  /** the output of Print("V") or null if it was not dumped */
+  private String verboseText;
+
+  /** only filled for RooRealVar and RooConstVar */
+  private Double value;
+  private Boolean isConstant;
+
+  /** address of the object in the ROOT session or null if not dumped */
+  private String address;
+
+  private final List<ClientServerRecord> servers = new ArrayList<ClientServerRecord>();
+  private final List<ClientServerRecord> clients = new ArrayList<ClientServerRecord>();
+
+  /** maps from the name of a proxy to the names of the members it refers to
+   *  (in the order of the proxy) */
+  private final ListMultimap<String, String> proxies = ArrayListMultimap.create();
+
+  /** the formula of a RooFormulaVar (as given to the constructor) or null */
+  private String formula;
+
+  /** the first problem found when decoding the lines of this record
+   *  or null if there was none */
+  private RuntimeException decodeError;
+
+  //----------------------------------------------------------------------
+
+  public MemberDumpRecord(String className, MemberKind kind, String varName)
+  {
+    this.className = className;
+    this.kind = kind;
+    this.varName = varName;
+  }
+
+  //----------------------------------------------------------------------
+
+  /** parses a line of the form ClassName,isAbsPdf,isConstVar,isRealVar,isAbsData,isAbsReal,isAbsCategory,InstanceName
+   *  as produced by WorkspaceDumpCommands.summaryFields(..)
+   *
+   *  we assume that the class name does not have any commas in it
+   *  (but the instance name actually may have...)
+   *
+   *  @return null if the line does not have the expected number of fields
+   */
+  public static MemberDumpRecord parseSummaryLine(String line)
+  {
+    return parseSummaryLine(line, new StringPool());
+  }
+
+  //----------------------------------------------------------------------
+
+  /** same as parseSummaryLine(line) but takes the class and
+   *  instance name from the given pool */
+  public static MemberDumpRecord parseSummaryLine(String line, StringPool pool)
+  {
+    String parts[] = line.split(",", 8);
+
+    if (parts.length != 8)
+      return null;
+
+    String className = pool.intern(parts[0]);
+    MemberKind kind = MemberKind.fromInheritanceFlags(
+      "1".equals(parts[1]),
+      "1".equals(parts[2]),
+      "1".equals(parts[3]),
+      "1".equals(parts[4]),
+      "1".equals(parts[5]),
+      "1".equals(parts[6]));
+
+    return new MemberDumpRecord(className, kind, pool.intern(parts[7]));
+  }
+
+  //----------------------------------------------------------------------
+
+  /** parses the 'value,isConstant' part of a value line */
+  void parseValueLine(String line)
+  {
+    String parts[] = line.trim().split(",", 2);
+
+    this.value = parseValue(parts[0]);
+
+    if (parts.length > 1)
+      this.isConstant = Integer.parseInt(parts[1].trim()) != 0;
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return the given number, also accepting the way C++ streams print 
+   *  not-a-number and infinite values ('nan', 'inf', '-inf') */
+  static double parseValue(String text)
+  {
+    String trimmed = text.trim();
+
+    boolean negative = trimmed.startsWith("-");
+    String unsigned = negative || trimmed.startsWith("+") ? trimmed.substring(1) : trimmed;
+
+    if (unsigned.equalsIgnoreCase("nan"))
+      return Double.NaN;
+    if (unsigned.equalsIgnoreCase("inf") || unsigned.equalsIgnoreCase("infinity"))
+      return negative ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+
+    return Double.parseDouble(text);
+  }
+
+  //----------------------------------------------------------------------
+
+  void setAddress(String address)
+  {
+    this.address = address;
+  }
+
+  //----------------------------------------------------------------------
+
+  void addServer(ClientServerRecord server)
+  {
+    this.servers.add(server);
+  }
+
+  //----------------------------------------------------------------------
+
+  void addClient(ClientServerRecord client)
+  {
+    this.clients.add(client);
+  }
+
+  //----------------------------------------------------------------------
+
+  void addProxyMember(String proxyName, String memberName)
+  {
+    this.proxies.put(proxyName, memberName);
+  }
+
+  //----------------------------------------------------------------------
+
+  void setFormula(String formula)
+  {
+    this.formula = formula;
+  }
+
+  //----------------------------------------------------------------------
+
+  public String getClassName()
+  {
+    return className;
+  }
+
+  //----------------------------------------------------------------------
+
+  public MemberKind getKind()
+  {
+    return kind;
+  }
+
+  //----------------------------------------------------------------------
+
+  public String getVarName()
+  {
+    return varName;
+  }
+
+  //----------------------------------------------------------------------
+
+  public String getVerboseText()
+  {
+    return verboseText;
+  }
+
+  //----------------------------------------------------------------------
+
+  void setVerboseText(String verboseText)
+  {
+    this.verboseText = verboseText;
+  }
+
+  //----------------------------------------------------------------------
+
+  public Double getValue()
+  {
+    return value;
+  }
+
+  //----------------------------------------------------------------------
+
+  public Boolean getIsConstant()
+  {
+    return isConstant;
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return true if the address, servers and clients were dumped
+   *  explicitly, i.e. they need not be parsed from the Print("V") output */
+  public boolean hasStructuredData()
+  {
+    return address != null;
+  }
+
+  //----------------------------------------------------------------------
+
+  public String getAddress()
+  {
+    return address;
+  }
+
+  //----------------------------------------------------------------------
+
+  public List<ClientServerRecord> getServers()
+  {
+    return Collections.unmodifiableList(servers);
+  }
+
+  //----------------------------------------------------------------------
+
+  public List<ClientServerRecord> getClients()
+  {
+    return Collections.unmodifiableList(clients);
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return the names of the members the given proxy refers to or
+   *  null if this proxy was not dumped */
+  public List<String> getProxyMembers(String proxyName)
+  {
+    if (! proxies.containsKey(proxyName))
+      return null;
+
+    return Collections.unmodifiableList(proxies.get(proxyName));
+  }
+
+  //----------------------------------------------------------------------
+
+  public String getFormula()
+  {
+    return formula;
+  }
+
+  //----------------------------------------------------------------------
+
+  /** remembers the given problem unless an earlier one was found already */
+  void setDecodeError(RuntimeException decodeError)
+  {
+    if (this.decodeError == null)
+      this.decodeError = decodeError;
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return the first problem found when decoding the dumped lines
+   *  of this member or null if all lines could be decoded. The record
+   *  is incomplete in this case. */
+  public RuntimeException getDecodeError()
+  {
+    return decodeError;
+  }
+
+  //----------------------------------------------------------------------
+
+  @Override
+  public String toString()
+  {
+    return "MemberDumpRecord{" + "className=" + className + ", kind=" + kind + ", varName=" + varName + '}';
+  }
+
+  //----------------------------------------------------------------------
+
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2013 University of California, San Diego.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucsd.hep.roofitexplorer.datatypes;
+
+/**
+ * The broad category of a workspace member, determined from
+ * which RooFit base classes the member's class inherits from.
+ *
+ * @author holzner
+ */
+public enum MemberKind
+{
+  PDF,
+  CONST_VAR,
+  REAL_VAR,
+  DATA,
+  FUNCTION,
+  CATEGORY,
+
+  /** none of the above base classes */
+  UNKNOWN;
+
+  //----------------------------------------------------------------------
+
+  /** note the order of the following comparisons: almost everything is also
+   *  a RooAbsReal so we check more specific types before */
+  public static MemberKind fromInheritanceFlags(boolean isAbsPdf, boolean isConstVar, boolean isRealVar,
+                                                boolean isAbsData, boolean isAbsReal, boolean isAbsCategory)
+  {
+    if (isAbsPdf)
+      return PDF;
+    else if (isConstVar)
+      return CONST_VAR;
+    else if (isRealVar)
+      return REAL_VAR;
+    else if (isAbsData)
+      return DATA;
+    else if (isAbsReal)
+      return FUNCTION;
+    else if (isAbsCategory)
+      return CATEGORY;
+    else
+      return UNKNOWN;
+  }
+
+  //----------------------------------------------------------------------
+
+}
@@ -37,7 +37,22 @@ public class RooAbsCategoryData extends GenericWorkspaceMember
   {
     super(workspace, varName, className, detailedData);
   }
-  
+
+  //----------------------------------------------------------------------
+
+  public RooAbsCategoryData(WorkspaceData workspace, MemberDumpRecord record, VerbosePrintOutput detailedData)
+  {
+    super(workspace, record, detailedData);
+  }
+
+  //----------------------------------------------------------------------
+
+  @Override
+  public MemberKind getKind()
+  {
+    return MemberKind.CATEGORY;
+  }
+
   //----------------------------------------------------------------------
 
 }
@@ -28,5 +28,22 @@ public class RooAbsDataData extends RooAbsRealData
   {
     super(workspace, varName, className, detailedData);
   }
-  
+
+  //----------------------------------------------------------------------
+
+  public RooAbsDataData(WorkspaceData workspace, MemberDumpRecord record, VerbosePrintOutput detailedData)
+  {
+    super(workspace, record, detailedData);
+  }
+
+  //----------------------------------------------------------------------
+
+  @Override
+  public MemberKind getKind()
+  {
+    return MemberKind.DATA;
+  }
+
+  //----------------------------------------------------------------------
+
 }
@@ -29,6 +29,13 @@ public class RooAbsPdfData extends RooAbsRealData
     super(workspace, varName, className, detailedData);
   }
 
+  //----------------------------------------------------------------------
+
+  public RooAbsPdfData(WorkspaceData workspace, MemberDumpRecord record, VerbosePrintOutput detailedData)
+  {
+    super(workspace, record, detailedData);
+  }
+
   public static RooAbsPdfData make(WorkspaceData workspace, String varName, String className, VerbosePrintOutput detailedData)
   {
    //   if (className.equals("RooFormulaVar"))
@@ -37,5 +44,21 @@ public class RooAbsPdfData extends RooAbsRealData
     return new RooAbsPdfData(workspace, varName, className, detailedData);
   }
 
+  //----------------------------------------------------------------------
+
+  public static RooAbsPdfData make(WorkspaceData workspace, MemberDumpRecord record, VerbosePrintOutput detailedData)
+  {
+    return new RooAbsPdfData(workspace, record, detailedData);
+  }
+
+  //----------------------------------------------------------------------
+
+  @Override
+  public MemberKind getKind()
+  {
+    return MemberKind.PDF;
+  }
+
+  //----------------------------------------------------------------------
 
 }
@@ -40,6 +40,24 @@ public class RooAbsRealData extends GenericWorkspaceMember
   }
   //----------------------------------------------------------------------
 
+  /** factory method for members read from a structured dump */
+  public static RooAbsRealData make(WorkspaceData workspace, MemberDumpRecord record, VerbosePrintOutput detailedData)
+  {
+    String className = record.getClassName();
+
+    if (className.equals("RooFormulaVar"))
+      return new RooFormulaVarData(workspace, record, detailedData);
+    else if (className.equals("RooRecursiveFraction"))
+      return new RooRecursiveFractionData(workspace, record, detailedData);
+    else if (className.equals("RooHistFunc"))
+      return new RooHistFuncData(workspace, record, detailedData);
+    else
+      // fallback for not yet known types
+      return new RooAbsRealData(workspace, record, detailedData);
+  }
+
+  //----------------------------------------------------------------------
+
   public RooAbsRealData(WorkspaceData workspace, String varName, String className, VerbosePrintOutput detailedData)
   {
     super(workspace, varName, className, detailedData);
@@ -47,5 +65,19 @@ public class RooAbsRealData extends GenericWorkspaceMember
 
   //----------------------------------------------------------------------
 
-  
+  public RooAbsRealData(WorkspaceData workspace, MemberDumpRecord record, VerbosePrintOutput detailedData)
+  {
+    super(workspace, record, detailedData);
+  }
+
+  //----------------------------------------------------------------------
+
+  @Override
+  public MemberKind getKind()
+  {
+    return MemberKind.FUNCTION;
+  }
+
+  //----------------------------------------------------------------------
+
 }
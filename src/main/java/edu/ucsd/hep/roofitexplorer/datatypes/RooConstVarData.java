@@ -34,6 +34,14 @@ public class RooConstVarData extends RooAbsRealData
   {
     super(workspace, varName, className, detailedData);
   }
+
+  //----------------------------------------------------------------------
+
+  public RooConstVarData(WorkspaceData workspace, MemberDumpRecord record, VerbosePrintOutput detailedData)
+  {
+    super(workspace, record, detailedData);
+    this.value = record.getValue();
+  }
  
   //----------------------------------------------------------------------
 
@@ -44,4 +52,12 @@ public class RooConstVarData extends RooAbsRealData
 
   //----------------------------------------------------------------------
 
+  @Override
+  public MemberKind getKind()
+  {
+    return MemberKind.CONST_VAR;
+  }
+
+  //----------------------------------------------------------------------
+
 }
@@ -32,8 +32,9 @@ public class RooFormulaVarData extends RooAbsRealData
 
   /** the formula. Note that it looks like this is the string as originally
       given to the RooFormulaVar constructor so does not necessarily
-      contain @ signs. */
-  private final String formulaTemplate;
+      contain @ signs. Parsed on demand if it was neither dumped nor
+      printed when reading the workspace. */
+  private String formulaTemplate;
   
   /** the list of variable names (take from the names of the servers).
    *  Initialized on demand.
@@ -51,6 +52,57 @@ public class RooFormulaVarData extends RooAbsRealData
   public RooFormulaVarData(WorkspaceData workspace, String varName, String className, VerbosePrintOutput detailedData)
   {
     super(workspace, varName, className, detailedData);
+    this.formulaTemplate = parseFormulaTemplate(detailedData);
+    this.variableNames = parseVariableNames(varName, detailedData);
+  }
+
+  //----------------------------------------------------------------------
+
+  /** takes the formula and the order of the variables from the record
+   *  if they were dumped, otherwise parses them from the Print("V") output */
+  public RooFormulaVarData(WorkspaceData workspace, MemberDumpRecord record, VerbosePrintOutput detailedData)
+  {
+    super(workspace, record, detailedData);
+
+    List<String> actualVars = record.getProxyMembers("actualVars");
+
+    if (record.getFormula() != null)
+    {
+      this.formulaTemplate = record.getFormula();
+      this.variableNames = actualVars != null ? new ArrayList<String>(actualVars) : new ArrayList<String>();
+    }
+    else if (detailedData != null)
+    {
+      this.formulaTemplate = parseFormulaTemplate(detailedData);
+      this.variableNames = parseVariableNames(varName, detailedData);
+    }
+    // else: read without Print("V") output, parse it when needed
+  }
+
+  //----------------------------------------------------------------------
+
+  /** parses the formula and the variable names from the Print("V") 
+   *  output fetched from the workspace. If the output can not be
+   *  fetched right now, they stay unknown and this is tried again
+   *  the next time. */
+  private void parseDetailedData()
+  {
+    if (formulaTemplate != null)
+      return;
+
+    VerbosePrintOutput detailedData = getDetailedData();
+    if (! detailedData.isAvailable())
+      return;
+
+    this.formulaTemplate = parseFormulaTemplate(detailedData);
+    this.variableNames = parseVariableNames(getVarName(), detailedData);
+  }
+
+  //----------------------------------------------------------------------
+
+  /** finds the formula in the Print("V") output */
+  private static String parseFormulaTemplate(VerbosePrintOutput detailedData)
+  {
     // get the actual formula
     //
     // look for lines like the following:
@@ -93,16 +145,21 @@ public class RooFormulaVarData extends RooAbsRealData
     if (formula == null)
       throw new Error("could not find formula line");
     
-    //-----
-    this.formulaTemplate = formula;
-    
+    return formula;
+  }
+
+  //----------------------------------------------------------------------
+
+  /** finds the order of the variables of the formula in the Print("V") output */
+  private static List<String> parseVariableNames(String varName, VerbosePrintOutput detailedData)
+  {
     //-----
     // find variable numbering:
     //    first attempt: take from the line after the formula -> was incorrect
     //    second attempt: take from the order of the servers -> was incorrect
     //    third attempt: take from the lines after 'actualVars ->'
 
-    lines = detailedData.findSubSection("RooAbsArg", "Proxies");
+    List<String> lines = detailedData.findSubSection("RooAbsArg", "Proxies");
     
     if (lines.isEmpty())
       throw new Error("could not find Proxies subsection for object " + varName);
@@ -113,7 +170,7 @@ public class RooFormulaVarData extends RooAbsRealData
     
     Pattern patActualVar = Pattern.compile("\\s*\\d+\\)\\s*(\\S+)\\s*$");
 
-    variableNames = new ArrayList<String>();
+    List<String> variableNames = new ArrayList<String>();
     
     for (String line2 : lines)
     {
@@ -126,32 +183,44 @@ public class RooFormulaVarData extends RooAbsRealData
       variableNames.add(mo.group(1));
     }
     
-    
+    return variableNames;
   }
 
   //----------------------------------------------------------------------
 
+  /** @return the formula or null if it is not available (the member
+   *  was read without its Print("V") output and it can not be fetched
+   *  right now, e.g. while the workspace is being read) */
   public String getFormulaTemplate()
   {
+    parseDetailedData();
     return formulaTemplate;
   }
 
   //----------------------------------------------------------------------
 
   /** @return the list of variable names for the formula (assumed to 
-      be the servers) */
+      be the servers), empty if the formula is not available */
   public List<String> getVariableNames()
   {
+    parseDetailedData();
+    if (this.variableNames == null)
+      return Collections.emptyList();
     return Collections.unmodifiableList(this.variableNames);
   }
   
   //----------------------------------------------------------------------
 
   /** @return a string with all occurrences of \@n in the formula template
-   *  substituted by the corresponding variable name (n starts at zero).
+   *  substituted by the corresponding variable name (n starts at zero)
+   *  or null if the formula is not available.
    */ 
   public String getExpandedFormulaTemplate()
   {
+    parseDetailedData();
+    if (formulaTemplate == null)
+      return null;
+
     String copy = formulaTemplate;
     Matcher mo = Pattern.compile("@([0-9]+)").matcher(formulaTemplate);
     List<String> variableNames = this.getVariableNames();
@@ -29,4 +29,11 @@ public class RooHistFuncData extends RooAbsRealData
     super(workspace, varName, className, detailedData);
   }
 
+  //----------------------------------------------------------------------
+
+  public RooHistFuncData(WorkspaceData workspace, MemberDumpRecord record, VerbosePrintOutput detailedData)
+  {
+    super(workspace, record, detailedData);
+  }
+
 }
@@ -25,7 +25,10 @@ import java.io.IOException;
  */
 public class RooRealVarData extends RooAbsRealData
 {
-  public Double value;
+  /** volatile as it is changed by setValue(..) while other threads
+   *  may read it, WorkspaceData.getSnapshot() gives consistent values
+   *  of all variables */
+  public volatile Double value;
   public Boolean isConstant;
 
   //----------------------------------------------------------------------
@@ -37,10 +40,21 @@ public class RooRealVarData extends RooAbsRealData
 
   //----------------------------------------------------------------------
 
+  public RooRealVarData(WorkspaceData workspace, MemberDumpRecord record, VerbosePrintOutput detailedData)
+  {
+    super(workspace, record, detailedData);
+    this.value = record.getValue();
+    this.isConstant = record.getIsConstant();
+  }
+
+  //----------------------------------------------------------------------
+
   /** will update the value also in the corresponding object in the ROOT session
    *  and notify the listeners about the modification */
   public void setValue(Double doubleValue) throws IOException
   {
+    this.getWorkspace().checkROOTSessionIdle();
+
     ROOTRunner rootRunner = this.getRootRunner();
     String workspaceName = this.getWorkspace().getName();
             
@@ -53,6 +67,9 @@ public class RooRealVarData extends RooAbsRealData
     rootRunner.getCommandOutput(cmd);
     
     this.value = doubleValue;
+
+    // new version of the workspace for those working on snapshots
+    this.getWorkspace().valueChanged(this, doubleValue);
     
     // notify listeners of this object
     this.getWorkspace().getModificationDispatcher().modified(this);
@@ -68,4 +85,12 @@ public class RooRealVarData extends RooAbsRealData
 
   //----------------------------------------------------------------------
 
+  @Override
+  public MemberKind getKind()
+  {
+    return MemberKind.REAL_VAR;
+  }
+
+  //----------------------------------------------------------------------
+
 }
@@ -32,5 +32,12 @@ public class RooRecursiveFractionData extends RooAbsRealData
 
   //----------------------------------------------------------------------
 
+  public RooRecursiveFractionData(WorkspaceData workspace, MemberDumpRecord record, VerbosePrintOutput detailedData)
+  {
+    super(workspace, record, detailedData);
+  }
+
+  //----------------------------------------------------------------------
+
 
 }
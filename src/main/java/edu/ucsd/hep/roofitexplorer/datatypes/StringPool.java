@@ -0,0 +1,184 @@
+/*
+ * Copyright 2013 University of California, San Diego.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucsd.hep.roofitexplorer.datatypes;
+
+/**
+ * Keeps a single instance of each distinct string, e.g. of class names,
+ * member names and addresses which otherwise exist once per member
+ * and once per client/server record referring to the member.
+ *
+ * Strings can be looked up directly from a region of a larger text
+ * (e.g. of the output of the member dump) such that no temporary
+ * substring is created when the string is in the pool already.
+ *
+ * Thread safe as records are decoded in several threads in parallel
+ * (see ParallelMemberDecoder and ShardedMemberFetcher). The strings
+ * are distributed over several independently locked segments
+ * according to their hash code to reduce contention.
+ *
+ * @author holzner
+ */
+public class StringPool
+{
+  /** an open addressing hash table (linear probing). The length is always
+   *  a power of two and at most half of the slots are used */
+  private static class Segment
+  {
+    String[] table = new String[256];
+
+    int size = 0;
+
+    //----------------------------------------------------------------------
+
+    synchronized String intern(String text, int start, int end, int hash)
+    {
+      int length = end - start;
+      int mask = table.length - 1;
+      int index = hash & mask;
+
+      while (true)
+      {
+        String entry = table[index];
+        if (entry == null)
+          break;
+
+        if (entry.length() == length && entry.regionMatches(0, text, start, length))
+          return entry;
+
+        index = (index + 1) & mask;
+      }
+
+      // the whole string if it is not a region (no copy needed then)
+      String retval = start == 0 && end == text.length() ? text : text.substring(start, end);
+      table[index] = retval;
+
+      if (++size * 2 > table.length)
+        rehash();
+
+      return retval;
+    }
+
+    //----------------------------------------------------------------------
+
+    private void rehash()
+    {
+      String[] oldTable = table;
+      table = new String[2 * oldTable.length];
+      int mask = table.length - 1;
+
+      for (String entry : oldTable)
+      {
+        if (entry == null)
+          continue;
+
+        int index = mix(entry.hashCode()) & mask;
+        while (table[index] != null)
+          index = (index + 1) & mask;
+
+        table[index] = entry;
+      }
+    }
+
+    //----------------------------------------------------------------------
+
+    synchronized int size()
+    {
+      return size;
+    }
+  }
+
+  //----------------------------------------------------------------------
+
+  /** must be a power of two */
+  private static final int numSegments = 16;
+
+  private final Segment[] segments = new Segment[numSegments];
+
+  //----------------------------------------------------------------------
+
+  public StringPool()
+  {
+    for (int i = 0; i < numSegments; ++i)
+      segments[i] = new Segment();
+  }
+
+  //----------------------------------------------------------------------
+
+  /** same as String.hashCode() of the substring */
+  private static int hashCode(String text, int start, int end)
+  {
+    int retval = 0;
+    for (int i = start; i < end; ++i)
+      retval = 31 * retval + text.charAt(i);
+    return retval;
+  }
+
+  //----------------------------------------------------------------------
+
+  /** spreads the bits of the hash code as the table index only
+   *  uses the lower ones */
+  private static int mix(int hash)
+  {
+    return hash ^ (hash >>> 16);
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return the segment for the given (mixed) hash code. Uses the upper
+   *  bits of the hash code multiplied by the golden ratio (the hash codes
+   *  of short strings have only the lower bits set, and those determine
+   *  the index within the segment). */
+  private Segment getSegment(int hash)
+  {
+    return segments[((hash * 0x9E3779B9) >>> 28) & (numSegments - 1)];
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return the pooled instance of text.substring(start, end) */
+  public String intern(String text, int start, int end)
+  {
+    int hash = mix(hashCode(text, start, end));
+    return getSegment(hash).intern(text, start, end, hash);
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return the pooled instance equal to the given string (which is added 
+   *  to the pool if there is none yet). Returns null for null. */
+  public String intern(String text)
+  {
+    if (text == null)
+      return null;
+
+    int hash = mix(text.hashCode());
+    return getSegment(hash).intern(text, 0, text.length(), hash);
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return the number of distinct strings in the pool */
+  public int size()
+  {
+    int retval = 0;
+    for (Segment segment : segments)
+      retval += segment.size();
+    return retval;
+  }
+
+  //----------------------------------------------------------------------
+
+}
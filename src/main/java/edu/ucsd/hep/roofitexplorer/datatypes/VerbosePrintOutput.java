@@ -15,63 +15,361 @@
  */
 package edu.ucsd.hep.roofitexplorer.datatypes;
 
-import com.google.common.collect.ArrayListMultimap;
-import com.google.common.collect.ListMultimap;
 import edu.ucsd.hep.rootrunnerutil.AHUtils;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import java.io.Serializable;
 
 /**
  * contains information and associated helper methods for the 
- * output lines of Print("V") called on a workspace member
+ * output lines of Print("V") called on a workspace member.
+ *
+ * Only the original output is kept. On the first lookup, it is scanned
+ * once and the positions of the non-empty lines, the line ranges of
+ * the sections and subsections are recorded as offsets into the 
+ * original output, i.e. no copies of the lines are made. The address,
+ * clients and servers (which are looked up for every member) are 
+ * located at the same time.
+ *
  * @author holzner
  */
 public class VerbosePrintOutput implements Serializable
 {
   //----------------------------------------------------------------------
   
-  /** maps from the sections to the lines in this section */
-  private final ListMultimap<String, String> data = ArrayListMultimap.create();
-  
   /** the original output of the Print("V") command. Kept for debugging
    *  purposes */
   private final String originalOutput;
-  
-  /** the original printout split into lines */
-  private final List<String> lines;
+
+  /** start and end offsets (into originalOutput) of the non-empty
+   *  lines which are not section headers. Filled on demand as members 
+   *  read from a structured dump typically never need to look at
+   *  the sections. */
+  private transient int[] lineStarts;
+  private transient int[] lineEnds;
+
+  /** number of valid entries in the arrays above */
+  private transient int numLines;
+
+  /** the sections which have at least one line: the offsets of their
+   *  names in originalOutput (-1 for the lines before the first section
+   *  header) and the range [first, end) of their lines */
+  private transient int[] sectionNameStarts;
+  private transient int[] sectionNameEnds;
+  private transient int[] sectionFirstLines;
+  private transient int[] sectionEndLines;
+  private transient int numSections;
+
+  /** the lines of the form ' name:' (with nothing after the colon):
+   *  the offsets of the name, the section they are in and the range
+   *  [first, end) of the lines following them which are indented more */
+  private transient int[] subsectionNameStarts;
+  private transient int[] subsectionNameEnds;
+  private transient int[] subsectionSections;
+  private transient int[] subsectionFirstLines;
+  private transient int[] subsectionEndLines;
+  private transient int numSubsections;
+
+  /** the value of 'Address:' in the RooAbsArg section (null if there is none) */
+  private transient String address;
+
+  /** index of the Servers and Clients subsections of the RooAbsArg 
+   *  section or -1 if there is none */
+  private transient int serversSubsection;
+  private transient int clientsSubsection;
+
+  /** the lines of the output, split on demand (see getLines()) */
+  private transient volatile List<String> lines;
+
+  /** true for the placeholders made by unavailable(..). These are
+   *  never serialized (they are not kept by the members). */
+  private transient boolean unavailable;
 
   //----------------------------------------------------------------------
 
-  /** performs some splitting of the output */
   public VerbosePrintOutput(String output)
   {
     this.originalOutput = output;
-    lines = AHUtils.splitToLines(output);
-    
-    // split into different sections
-    String currentSectionName  = "";
-    
-    Pattern pattern = Pattern.compile("--- (\\S+) ---");
-    for (String line : lines)
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return a placeholder without any sections for an output which 
+   *  could not be obtained (e.g. because there is no ROOT session) */
+  public static VerbosePrintOutput unavailable(String reason)
+  {
+    VerbosePrintOutput retval = new VerbosePrintOutput("(details not available: " + reason + ")");
+    retval.unavailable = true;
+    return retval;
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return false if this is a placeholder made by unavailable(..) */
+  public boolean isAvailable()
+  {
+    return ! unavailable;
+  }
+
+  //----------------------------------------------------------------------
+
+  /** scans the output once for lines and section headers 
+   *  (of the form '--- name ---') and finds the subsections */
+  private synchronized void scan()
+  {
+    if (lineStarts != null)
+      return;
+
+    int capacity = 16;
+    int[] starts = new int[capacity];
+    int[] ends = new int[capacity];
+    int count = 0;
+
+    int sectionCapacity = 8;
+    int[] nameStarts = new int[sectionCapacity];
+    int[] nameEnds = new int[sectionCapacity];
+    int[] firstLines = new int[sectionCapacity];
+    int[] endLines = new int[sectionCapacity];
+    int sections = 0;
+
+    // the section the following lines belong to
+    int currentNameStart = -1, currentNameEnd = -1;
+    boolean sectionStarted = false;
+
+    String text = originalOutput;
+    int len = text.length();
+    int pos = 0;
+    while (pos < len)
     {
-      if (line.trim().isEmpty())
-        continue;
-      
-      Matcher mo = pattern.matcher(line);
-      if (mo.matches())
+      int eol = text.indexOf('\n', pos);
+      if (eol < 0)
+        eol = len;
+
+      int end = eol;
+      if (end > pos && text.charAt(end - 1) == '\r')
+        --end;
+
+      if (! isBlank(text, pos, end))
       {
-        // new section found
-        currentSectionName = mo.group(1);
-        continue;
+        if (isSectionHeader(text, pos, end))
+        {
+          currentNameStart = pos + sectionMarkerLength;
+          currentNameEnd = end - sectionMarkerLength;
+          sectionStarted = false;
+        }
+        else
+        {
+          if (! sectionStarted)
+          {
+            if (sections == sectionCapacity)
+            {
+              sectionCapacity *= 2;
+              nameStarts = copyOf(nameStarts, sectionCapacity);
+              nameEnds = copyOf(nameEnds, sectionCapacity);
+              firstLines = copyOf(firstLines, sectionCapacity);
+              endLines = copyOf(endLines, sectionCapacity);
+            }
+            nameStarts[sections] = currentNameStart;
+            nameEnds[sections] = currentNameEnd;
+            firstLines[sections] = count;
+            ++sections;
+            sectionStarted = true;
+          }
+
+          if (count == capacity)
+          {
+            capacity *= 2;
+            starts = copyOf(starts, capacity);
+            ends = copyOf(ends, capacity);
+          }
+
+          starts[count] = pos;
+          ends[count] = end;
+          ++count;
+          endLines[sections - 1] = count;
+        }
       }
-      
-      data.put(currentSectionName, line);
 
+      pos = eol + 1;
     }
+
+    this.numLines = count;
+    this.lineEnds = ends;
+    this.sectionNameStarts = nameStarts;
+    this.sectionNameEnds = nameEnds;
+    this.sectionFirstLines = firstLines;
+    this.sectionEndLines = endLines;
+    this.numSections = sections;
+    this.lineStarts = starts;
+
+    findSubsections();
+
+    // needed for every member
+    this.address = findValue("RooAbsArg", "Address");
+    this.serversSubsection = findSubsection("RooAbsArg", "Servers");
+    this.clientsSubsection = findSubsection("RooAbsArg", "Clients");
+  }
+
+  //----------------------------------------------------------------------
+
+  /** records the subsections of all sections, called by scan() */
+  private void findSubsections()
+  {
+    int capacity = 8;
+    int[] nameStarts = new int[capacity];
+    int[] nameEnds = new int[capacity];
+    int[] sections = new int[capacity];
+    int[] firstLines = new int[capacity];
+    int[] endLines = new int[capacity];
+    int count = 0;
+
+    for (int section = 0; section < numSections; ++section)
+    {
+      int sectionEnd = sectionEndLines[section];
+
+      for (int line = sectionFirstLines[section]; line < sectionEnd; ++line)
+      {
+        int start = lineStarts[line];
+        int contentStart = skipWhitespace(start, lineEnds[line]);
+
+        // the colon must be the last character which is not whitespace
+        int contentEnd = lineEnds[line];
+        while (contentEnd > contentStart && Character.isWhitespace(originalOutput.charAt(contentEnd - 1)))
+          --contentEnd;
+        if (contentEnd == contentStart || originalOutput.charAt(contentEnd - 1) != ':')
+          continue;
+
+        // take all following lines which have more leading whitespace
+        int indent = contentStart - start;
+        int end = line + 1;
+        while (end < sectionEnd && skipWhitespace(lineStarts[end], lineEnds[end]) - lineStarts[end] > indent)
+          ++end;
+
+        if (count == capacity)
+        {
+          capacity *= 2;
+          nameStarts = copyOf(nameStarts, capacity);
+          nameEnds = copyOf(nameEnds, capacity);
+          sections = copyOf(sections, capacity);
+          firstLines = copyOf(firstLines, capacity);
+          endLines = copyOf(endLines, capacity);
+        }
+        nameStarts[count] = contentStart;
+        nameEnds[count] = contentEnd - 1;
+        sections[count] = section;
+        firstLines[count] = line + 1;
+        endLines[count] = end;
+        ++count;
+      }
+    }
+
+    this.subsectionNameStarts = nameStarts;
+    this.subsectionNameEnds = nameEnds;
+    this.subsectionSections = sections;
+    this.subsectionFirstLines = firstLines;
+    this.subsectionEndLines = endLines;
+    this.numSubsections = count;
+  }
+
+  //----------------------------------------------------------------------
+
+  /** scans the output now instead of at the first lookup, e.g. to
+   *  do this in parallel for many outputs */
+  public void prepare()
+  {
+    scan();
+  }
+
+  //----------------------------------------------------------------------
+
+  private static int[] copyOf(int[] array, int newLength)
+  {
+    int[] retval = new int[newLength];
+    System.arraycopy(array, 0, retval, 0, Math.min(array.length, newLength));
+    return retval;
+  }
+
+  //----------------------------------------------------------------------
+
+  private static boolean isBlank(String text, int start, int end)
+  {
+    for (int i = start; i < end; ++i)
+      if (! Character.isWhitespace(text.charAt(i)))
+        return false;
+    return true;
+  }
+
+  //----------------------------------------------------------------------
+
+  /** length of '--- ' and ' ---' */
+  private static final int sectionMarkerLength = 4;
+
+  /** @return true if the given line is exactly of the form
+   *  '--- name ---' (with name not containing whitespace) */
+  private static boolean isSectionHeader(String text, int start, int end)
+  {
+    if (end - start < 2 * sectionMarkerLength + 1)
+      return false;
+
+    if (! text.startsWith("--- ", start) || ! text.startsWith(" ---", end - sectionMarkerLength))
+      return false;
+
+    for (int i = start + sectionMarkerLength; i < end - sectionMarkerLength; ++i)
+      if (Character.isWhitespace(text.charAt(i)))
+        return false;
+
+    return true;
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return true if originalOutput[start..end) is the given name */
+  private boolean regionEquals(int start, int end, String name)
+  {
+    return end - start == name.length() && originalOutput.startsWith(name, start);
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return true if the given section has the given name */
+  private boolean isSection(int section, String name)
+  {
+    int start = sectionNameStarts[section];
+    if (start < 0)
+      return name.isEmpty();
+
+    return regionEquals(start, sectionNameEnds[section], name);
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return the offset of the first non-whitespace character of the 
+   *  given line (or its end if there is none) */
+  private int skipWhitespace(int pos, int end)
+  {
+    while (pos < end && Character.isWhitespace(originalOutput.charAt(pos)))
+      ++pos;
+    return pos;
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return the offset just after 'key:' if the given line starts 
+   *  (after optional whitespace) with it, -1 otherwise */
+  private int matchKey(int line, String key)
+  {
+    int end = lineEnds[line];
+    int pos = skipWhitespace(lineStarts[line], end);
+
+    if (! originalOutput.startsWith(key, pos))
+      return -1;
+    pos += key.length();
+
+    if (pos >= end || originalOutput.charAt(pos) != ':')
+      return -1;
+
+    return pos + 1;
   }
 
   //----------------------------------------------------------------------
@@ -84,14 +382,26 @@ public class VerbosePrintOutput implements Serializable
    */
   public String findValue(String section, String key)
   {
-    Pattern pattern = Pattern.compile("\\s*" + Pattern.quote(key) + ":\\s+(.*)");
-    for (String line : this.data.get(section))
+    scan();
+
+    for (int s = 0; s < numSections; ++s)
     {
-      Matcher mo = pattern.matcher(line);
-      if (! mo.matches())
+      if (! isSection(s, section))
         continue;
-      
-      return mo.group(1);
+
+      for (int line = sectionFirstLines[s]; line < sectionEndLines[s]; ++line)
+      {
+        int pos = matchKey(line, key);
+        if (pos < 0)
+          continue;
+
+        // at least one whitespace character must follow the colon
+        int end = lineEnds[line];
+        if (pos >= end || ! Character.isWhitespace(originalOutput.charAt(pos)))
+          continue;
+
+        return originalOutput.substring(skipWhitespace(pos, end), end);
+      }
     }
     
     // not found
@@ -100,54 +410,51 @@ public class VerbosePrintOutput implements Serializable
   
   //----------------------------------------------------------------------
 
+  /** @return the index of the first subsection with the given name in
+   *  the given section or -1 if there is none */
+  private int findSubsection(String section, String subsection)
+  {
+    scan();
+
+    for (int i = 0; i < numSubsections; ++i)
+      if (regionEquals(subsectionNameStarts[i], subsectionNameEnds[i], subsection) && 
+          isSection(subsectionSections[i], section))
+        return i;
+
+    return -1;
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return the same as findValue("RooAbsArg", "Address"), which is
+   *  looked up when the output is scanned */
+  public String getAddress()
+  {
+    scan();
+    return address;
+  }
+
+  //----------------------------------------------------------------------
+
   /** for things which span multiple lines, e.g. the 'Servers:' and
    *  'Clients:' section
    * @param section    to be specified without the three dashes (---) on either side
    * @param subsection to be specified without the trailing colon 
-   * @return 
+   * @return null if the subsection was not found
    */
   public List<String> findSubSection(String section, String subsection)
   {
-    Pattern pattern = Pattern.compile("(\\s*)" + Pattern.quote(subsection) + ":\\s*");
-    
-    int numSpacesAtBeginning = -1;
-    List<String> lines = this.data.get(section);
-    int numLines = lines.size();
-    int i = 0;
-    while (i < numLines)
-    {
-      String line = lines.get(i++);
-      Matcher mo = pattern.matcher(line);
-      if (mo.matches())
-      {
-        numSpacesAtBeginning = mo.group(1).length();
-        break;
-      }
-      
-    }
-    
-    if (numSpacesAtBeginning == -1)
-      // not found
+    int index = findSubsection(section, subsection);
+    if (index < 0)
       return null;
-    
-    // add all following lines which have at least this amount of spaces
+
     List<String> retval = new ArrayList<String>();
-    
-    // require at least the given amount of spaces (note the comma)
-    // note also the +1
-    Pattern pattern2 = Pattern.compile("\\s{" + (numSpacesAtBeginning + 1) + ",}\\S+");
-    while (i < numLines)
-    {
-      String line = lines.get(i++);
-      if (! pattern2.matcher(line).lookingAt())
-        break;
-      
-      retval.add(line);
-      
-    }
+    for (int line = subsectionFirstLines[index]; line < subsectionEndLines[index]; ++line)
+      retval.add(originalOutput.substring(lineStarts[line], lineEnds[line]));
     
     return retval;
   }
+
   //----------------------------------------------------------------------
 
   public static class ClientServerRecord implements Serializable
@@ -163,23 +470,116 @@ public class VerbosePrintOutput implements Serializable
       this.varName = varName;
     }
     
-    private static ClientServerRecord parse(String line)
+    // example line:
+    //    (0x2fc1330,V-) RooHistFunc::funcf2cat1 "funcf2cat1"
+    //    (0x1c34b80,V-) RooAddPdf::hggpdf_cat2 ""
+    //    (0x18433f0,V-) RooRecursiveFraction::combhminslidecat2_recursive_fraction_g2slidecat2 "Recursive Fraction"
+    //
+    // This used to be parsed with the regular expression
+    //
+    //   \s*\((0x\S+),\S+\) (\S+)::(\S+) "([^"]*)"\s*
+    //
+    // which is what the hand written scanner below accepts (and is
+    // tested against), including the choice of the last ',' and '::'
+    // where the greedy groups would split.
+
+    /** @return true if c is matched by \s in a regular expression 
+     *  (which is narrower than Character.isWhitespace(..)) */
+    private static boolean isSpace(char c)
+    {
+      return c == ' ' || c == '\t' || c == '\n' || c == 0x0B || c == '\f' || c == '\r';
+    }
+
+    /** @return the first position at or after pos (but before end) at 
+     *  which there is a whitespace character or end if there is none */
+    private static int findSpace(String text, int pos, int end)
+    {
+      while (pos < end && ! isSpace(text.charAt(pos)))
+        ++pos;
+      return pos;
+    }
+
+    /** parses text[start..end) without creating any intermediate objects.
+     *  @param pool if not null, the strings are taken from it
+     *  @return null if this does not have the expected format */
+    static ClientServerRecord scan(String text, int start, int end, StringPool pool)
+    {
+      int pos = start;
+      while (pos < end && isSpace(text.charAt(pos)))
+        ++pos;
+
+      //----------
+      // (address,flags)
+      //----------
+      if (pos >= end || text.charAt(pos) != '(')
+        return null;
+      ++pos;
+
+      int tokenEnd = findSpace(text, pos, end);
+      if (tokenEnd >= end || text.charAt(tokenEnd) != ' ' || text.charAt(tokenEnd - 1) != ')')
+        return null;
+
+      if (! text.startsWith("0x", pos))
+        return null;
+
+      // the last comma which leaves at least one character
+      // for both the address (after 0x) and the flags
+      int comma = tokenEnd - 3;
+      while (comma > pos + 2 && text.charAt(comma) != ',')
+        --comma;
+      if (comma <= pos + 2)
+        return null;
+
+      String address = substring(text, pos, comma, pool);
+
+      //----------
+      // class::name
+      //----------
+      int classStart = tokenEnd + 1;
+      int nameEnd = findSpace(text, classStart, end);
+      if (nameEnd >= end || text.charAt(nameEnd) != ' ')
+        return null;
+
+      // the last '::' leaving at least one character on both sides
+      int separator = nameEnd - 3;
+      while (separator > classStart && ! (text.charAt(separator) == ':' && text.charAt(separator + 1) == ':'))
+        --separator;
+      if (separator <= classStart)
+        return null;
+
+      //----------
+      // "title" (not kept)
+      //----------
+      pos = nameEnd + 1;
+      if (pos >= end || text.charAt(pos) != '"')
+        return null;
+
+      int closingQuote = text.indexOf('"', pos + 1);
+      if (closingQuote < 0 || closingQuote >= end)
+        return null;
+
+      for (pos = closingQuote + 1; pos < end; ++pos)
+        if (! isSpace(text.charAt(pos)))
+          return null;
+
+      return new ClientServerRecord(address,
+                                    substring(text, classStart, separator, pool),
+                                    substring(text, separator + 2, nameEnd, pool));
+    }
+
+    private static String substring(String text, int start, int end, StringPool pool)
+    {
+      if (pool != null)
+        return pool.intern(text, start, end);
+      return text.substring(start, end);
+    }
+
+    static ClientServerRecord parse(String line)
     {
-      // example line:
-      //    (0x2fc1330,V-) RooHistFunc::funcf2cat1 "funcf2cat1"
-      //    (0x1c34b80,V-) RooAddPdf::hggpdf_cat2 ""
-      //    (0x18433f0,V-) RooRecursiveFraction::combhminslidecat2_recursive_fraction_g2slidecat2 "Recursive Fraction"
-      Pattern pattern = Pattern.compile(
-        "\\s*\\((0x\\S+),\\S+\\) (\\S+)::(\\S+) \\\"([^\\\"]*)\\\"\\s*"
-        );
-      Matcher mo = pattern.matcher(line);
-      
-      mo.matches();
-      
-      
-      return new ClientServerRecord(mo.group(1),
-                                    mo.group(2),
-                                    mo.group(3));
+      ClientServerRecord retval = scan(line, 0, line.length(), null);
+      if (retval == null)
+        throw new IllegalArgumentException("unexpected format of client/server line '" + line + "'");
+      return retval;
     }
 
     public String getAddress()
@@ -204,39 +604,52 @@ public class VerbosePrintOutput implements Serializable
   
   public List<ClientServerRecord> parseClientsOrServers(String section, boolean servers)
   {
-    List<String> lines;
-    if (servers)
-      lines = findSubSection(section, "Servers");  
+    return parseClientsOrServers(section, servers, null);
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @param pool if not null, the addresses, class and member names 
+   *  are taken from it */
+  public List<ClientServerRecord> parseClientsOrServers(String section, boolean servers, StringPool pool)
+  {
+    scan();
+
+    int index;
+    if ("RooAbsArg".equals(section))
+      // found when scanning
+      index = servers ? serversSubsection : clientsSubsection;
     else
-      lines = findSubSection(section, "Clients");
+      index = findSubsection(section, servers ? "Servers" : "Clients");
     
     List<ClientServerRecord> retval = new ArrayList<ClientServerRecord>();
     
     // note that RooAbsData objects seem not to have clients nor
-    // servers. In that case, lines is a null pointer and for convenience
-    // we just make retval the empty list
-    
-    if (lines != null)
+    // servers. In that case, there is no such subsection and for 
+    // convenience we just return the empty list
+    if (index < 0)
+      return retval;
+
+    for (int line = subsectionFirstLines[index]; line < subsectionEndLines[index]; ++line)
     {
-      for (String line : lines)
-      {
-        retval.add(ClientServerRecord.parse(line));
-      }
+      ClientServerRecord record = ClientServerRecord.scan(originalOutput, lineStarts[line], lineEnds[line], pool);
+      if (record == null)
+        throw new IllegalArgumentException("unexpected format of client/server line '" + 
+                                           originalOutput.substring(lineStarts[line], lineEnds[line]) + "'");
+      retval.add(record);
     }
     
     return retval;
-      
-  
   }
   
   //----------------------------------------------------------------------
-  
 
   @Override
   public String toString()
   {
-    return "VerbosePrintOutput{" + "data=" + data + '}';
+    return "VerbosePrintOutput{" + "originalOutput=" + originalOutput + '}';
   }
+
   //----------------------------------------------------------------------
 
   public String getOriginalOutput()
@@ -246,10 +659,19 @@ public class VerbosePrintOutput implements Serializable
   
   //----------------------------------------------------------------------
 
+  /** @return the original printout split into lines (split on the
+   *  first call and kept afterwards) */
   public List<String> getLines()
   {
-    return Collections.unmodifiableList(lines);
+    List<String> retval = lines;
+    if (retval == null)
+    {
+      retval = Collections.unmodifiableList(AHUtils.splitToLines(originalOutput));
+      lines = retval;
+    }
+    return retval;
   }
+
   //----------------------------------------------------------------------
 
 }
@@ -69,6 +69,13 @@ public class WorkspaceMemberList implements Iterable<GenericWorkspaceMember>, Se
     return members.add(e);
   }
 
+  //----------------------------------------------------------------------
+
+  public GenericWorkspaceMember remove(int i)
+  {
+    return members.remove(i);
+  }
+
   //----------------------------------------------------------------------
   public GenericWorkspaceMember get(int i)
   {
@@ -85,6 +92,8 @@ public class WorkspaceMemberList implements Iterable<GenericWorkspaceMember>, Se
 
   //----------------------------------------------------------------------
 
+  /** see also WorkspaceData.getPDFs() which uses an index instead
+   *  of going through all members */
   public WorkspaceMemberList getPDFs()
   {
     WorkspaceMemberList retval = new WorkspaceMemberList();
@@ -99,6 +108,7 @@ public class WorkspaceMemberList implements Iterable<GenericWorkspaceMember>, Se
 
   //----------------------------------------------------------------------
 
+  /** see also WorkspaceData.getFunctions() */
   public WorkspaceMemberList getFunctions()
   {
     WorkspaceMemberList retval = new WorkspaceMemberList();
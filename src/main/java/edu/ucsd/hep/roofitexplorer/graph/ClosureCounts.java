@@ -0,0 +1,253 @@
+/*
+ * Copyright 2013 University of California, San Diego.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucsd.hep.roofitexplorer.graph;
+
+import java.util.Arrays;
+
+/**
+ * The number of members which can be reached from each member of a 
+ * workspace following the server links (i.e. the number of all servers,
+ * their servers etc.) and following the client links. These are the 
+ * cardinalities of MemberGraph.getAllServers(..) and getAllClients(..),
+ * but computed for all members at once instead of one traversal per member.
+ *
+ * The graph is first condensed into its strongly connected components
+ * (which form a directed acyclic graph). The components are then 
+ * visited in topological order (the linked components first) and the 
+ * set of reachable members of each component is the union of the sets 
+ * of its linked components and their members. To keep the memory 
+ * bounded, only a block of the members (ordered by component) is 
+ * considered at a time, i.e. each set is a fixed number of 64 bit words
+ * per component and the counts are accumulated over the blocks.
+ * A component can only reach components with a lower number, so
+ * the components before a block need not be visited for it and
+ * components which reach nothing in a block are not combined.
+ *
+ * @author holzner
+ */
+public final class ClosureCounts
+{
+  /** the maximum number of words of the reachable sets kept in memory 
+   *  at a time (16 MByte) */
+  private static final int maxWordsInMemory = 1 << 21;
+
+  /** the maximum number of 64 bit words per component and block */
+  private static final int maxBlockWords = 64;
+
+  /** the graph these counts were computed from */
+  private final MemberGraph graph;
+
+  private final int[] numAllServers;
+  private final int[] numAllClients;
+
+  //----------------------------------------------------------------------
+
+  private ClosureCounts(MemberGraph graph, int[] numAllServers, int[] numAllClients)
+  {
+    this.graph = graph;
+    this.numAllServers = numAllServers;
+    this.numAllClients = numAllClients;
+  }
+
+  //----------------------------------------------------------------------
+
+  public static ClosureCounts compute(MemberGraph graph)
+  {
+    return new ClosureCounts(graph,
+      countReachable(graph.getServerComponents(), graph.getServerStarts(), graph.getServerIds()),
+      countReachable(graph.getClientComponents(), graph.getClientStarts(), graph.getClientIds()));
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return the graph from which these counts were computed */
+  public MemberGraph getGraph()
+  {
+    return graph;
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return the number of servers of the given member, their servers 
+   *  etc. (including the member itself if it is part of a cycle) */
+  public int getNumAllServers(int id)
+  {
+    return numAllServers[id];
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return the number of clients of the given member, their clients
+   *  etc. (including the member itself if it is part of a cycle) */
+  public int getNumAllClients(int id)
+  {
+    return numAllClients[id];
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return for each node the number of nodes reachable from it
+   *  (via at least one link) in the graph given in compressed sparse 
+   *  row format with the given strongly connected components */
+  static int[] countReachable(StronglyConnectedComponents components, int[] starts, int[] ids)
+  {
+    int numNodes = starts.length - 1;
+    int numComponents = components.getNumComponents();
+
+    //----------
+    // links between the components (without duplicates)
+    //----------
+    int[] componentLinkStarts = new int[numComponents + 1];
+    int[] lastSeen = new int[numComponents];
+
+    Arrays.fill(lastSeen, -1);
+    for (int c = 0; c < numComponents; ++c)
+      componentLinkStarts[c + 1] = componentLinkStarts[c] + 
+        collectLinks(components, c, starts, ids, lastSeen, null, 0);
+
+    int[] componentLinks = new int[componentLinkStarts[numComponents]];
+
+    Arrays.fill(lastSeen, -1);
+    for (int c = 0; c < numComponents; ++c)
+      collectLinks(components, c, starts, ids, lastSeen, componentLinks, componentLinkStarts[c]);
+
+    //----------
+    // reachable sets, one block of nodes at a time
+    //----------
+    int blockWords = Math.max(1, Math.min(maxBlockWords, maxWordsInMemory / Math.max(1, numComponents)));
+    int blockSize = 64 * blockWords;
+
+    long[] reachable = new long[numComponents * blockWords];
+    int[] componentCounts = new int[numComponents];
+
+    // the count of each component in the current block (the words
+    // of the components with a count of zero need not be combined)
+    int[] blockCounts = new int[numComponents];
+
+    for (int blockStart = 0; blockStart < numNodes; blockStart += blockSize)
+    {
+      int blockEnd = Math.min(numNodes, blockStart + blockSize);
+
+      // the components before this one can't reach any node in this block
+      int firstComponent = components.getComponent(components.getNodeAt(blockStart));
+
+      for (int c = firstComponent; c < numComponents; ++c)
+      {
+        int offset = c * blockWords;
+        Arrays.fill(reachable, offset, offset + blockWords, 0L);
+
+        if (components.isCyclic(c))
+          setRange(reachable, offset, blockStart, blockEnd,
+                   components.getComponentStart(c), components.getComponentStart(c + 1));
+
+        for (int i = componentLinkStarts[c]; i < componentLinkStarts[c + 1]; ++i)
+        {
+          int linked = componentLinks[i];
+          if (linked < firstComponent)
+            continue;
+
+          if (blockCounts[linked] > 0)
+          {
+            int linkedOffset = linked * blockWords;
+            for (int word = 0; word < blockWords; ++word)
+              reachable[offset + word] |= reachable[linkedOffset + word];
+          }
+
+          setRange(reachable, offset, blockStart, blockEnd,
+                   components.getComponentStart(linked), components.getComponentStart(linked + 1));
+        }
+
+        int count = 0;
+        for (int word = 0; word < blockWords; ++word)
+          count += Long.bitCount(reachable[offset + word]);
+
+        blockCounts[c] = count;
+        componentCounts[c] += count;
+      }
+    }
+
+    int[] retval = new int[numNodes];
+    for (int node = 0; node < numNodes; ++node)
+      retval[node] = componentCounts[components.getComponent(node)];
+
+    return retval;
+  }
+
+  //----------------------------------------------------------------------
+
+  /** finds the components linked from the given component (other than
+   *  the component itself) which were not yet seen for it.
+   *  @param linked if not null, the linked components are stored 
+   *  there starting at the given position
+   *  @return the number of linked components */
+  private static int collectLinks(StronglyConnectedComponents components, int component,
+                                  int[] starts, int[] ids, int[] lastSeen, int[] linked, int pos)
+  {
+    int numLinked = 0;
+
+    for (int i = 0; i < components.getComponentSize(component); ++i)
+    {
+      int node = components.getNode(component, i);
+
+      for (int j = starts[node]; j < starts[node + 1]; ++j)
+      {
+        int other = components.getComponent(ids[j]);
+        if (other == component || lastSeen[other] == component)
+          continue;
+
+        lastSeen[other] = component;
+        if (linked != null)
+          linked[pos + numLinked] = other;
+        ++numLinked;
+      }
+    }
+
+    return numLinked;
+  }
+
+  //----------------------------------------------------------------------
+
+  /** sets the bits of the given node positions [from, to) which are inside
+   *  the block [blockStart, blockEnd) in the set starting at the given offset */
+  private static void setRange(long[] sets, int offset, int blockStart, int blockEnd, int from, int to)
+  {
+    from = Math.max(from, blockStart) - blockStart;
+    to = Math.min(to, blockEnd) - blockStart;
+    if (from >= to)
+      return;
+
+    int firstWord = from >>> 6;
+    int lastWord = (to - 1) >>> 6;
+
+    // shifts of longs only use the lowest six bits of the shift distance
+    long firstMask = -1L << from;
+    long lastMask = -1L >>> -to;
+
+    if (firstWord == lastWord)
+    {
+      sets[offset + firstWord] |= firstMask & lastMask;
+      return;
+    }
+
+    sets[offset + firstWord] |= firstMask;
+    for (int word = firstWord + 1; word < lastWord; ++word)
+      sets[offset + word] = -1L;
+    sets[offset + lastWord] |= lastMask;
+  }
+
+  //----------------------------------------------------------------------
+
+}
@@ -0,0 +1,347 @@
+/*
+ * Copyright 2013 University of California, San Diego.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucsd.hep.roofitexplorer.graph;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The leaf servers (members without servers which a member depends on,
+ * directly or indirectly) and the overall clients (the members which 
+ * are influenced by a member) of all members of a workspace.
+ *
+ * Each of the two is computed for the whole graph at once the first 
+ * time it is needed: the graph is condensed into its strongly connected
+ * components, which are visited in topological order such that the set 
+ * of a component is the union of the sets of the components it links to
+ * (plus those components themselves where applicable). The leaf servers
+ * are thus collected from the leaves upwards and the overall clients 
+ * from the top level members downwards.
+ *
+ * The sets are immutable and shared: all members of a cycle have the
+ * same set and a member whose leaf servers all come through a single 
+ * server (e.g. a chain of functions) gets the set of that server.
+ *
+ * The sets of different components can still be distinct and large 
+ * (e.g. the overall clients of the members of a long chain), i.e. 
+ * the sets of all members could need memory quadratic in the number 
+ * of members. Like in ClosureCounts, the memory is therefore bounded:
+ * if the sets of all members need more than a fixed number of words,
+ * the computation is given up and the set of a member is found by 
+ * traversing the graph from it when asked for. The most recently
+ * used of these sets are kept.
+ *
+ * @author holzner
+ */
+public final class ClosureSets
+{
+  /** the default maximum number of words of the sets computed for
+   *  all members at once, per direction (16 MByte) */
+  static final int defaultMaxWords = 1 << 21;
+
+  /** the number of sets found for single members which are kept,
+   *  per direction */
+  private static final int maxRecentSets = 64;
+
+  private final MemberGraph graph;
+
+  /** see defaultMaxWords */
+  private final int maxWords;
+
+  /** the sets of all components, null until first needed or if they
+   *  needed too much memory (see leafServersTried/allClientsTried) */
+  private MemberSet[] leafServers;
+  private MemberSet[] allClients;
+
+  private boolean leafServersTried = false;
+  private boolean allClientsTried = false;
+
+  /** number of words used by the distinct sets in leafServers/allClients */
+  private long numLeafServerWords = 0;
+  private long numAllClientWords = 0;
+
+  /** the sets found for single members if the sets of all members
+   *  need too much memory, by component, least recently used first */
+  private final Map<Integer, MemberSet> recentLeafServers = makeRecentSetsMap();
+  private final Map<Integer, MemberSet> recentAllClients = makeRecentSetsMap();
+
+  //----------------------------------------------------------------------
+
+  public ClosureSets(MemberGraph graph)
+  {
+    this(graph, defaultMaxWords);
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @param maxWords the maximum number of words the sets computed
+   *  for all members may use (per direction) */
+  ClosureSets(MemberGraph graph, int maxWords)
+  {
+    this.graph = graph;
+    this.maxWords = maxWords;
+  }
+
+  //----------------------------------------------------------------------
+
+  private static Map<Integer, MemberSet> makeRecentSetsMap()
+  {
+    // iterates in access order, i.e. the eldest entry is the least recently used one
+    return new LinkedHashMap<Integer, MemberSet>(16, 0.75f, true)
+    {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Integer, MemberSet> eldest)
+      {
+        return size() > maxRecentSets;
+      }
+    };
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return the graph these sets are computed from */
+  public MemberGraph getGraph()
+  {
+    return graph;
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return the members without servers which are servers of the 
+   *  given member, servers of its servers etc. */
+  public synchronized MemberSet getLeafServers(int id)
+  {
+    StronglyConnectedComponents components = graph.getServerComponents();
+    if (! leafServersTried)
+    {
+      leafServersTried = true;
+      leafServers = computeSets(graph.getServerStarts(), graph.getServerIds(), components, true);
+      if (leafServers != null)
+        numLeafServerWords = countWords(leafServers);
+    }
+
+    int component = components.getComponent(id);
+    if (leafServers != null)
+      return leafServers[component];
+
+    MemberSet retval = recentLeafServers.get(component);
+    if (retval == null)
+    {
+      BitSet servers = graph.getAllServers(id);
+      MemberSet.Builder builder = new MemberSet.Builder(graph.getNumMembers());
+      for (int server = servers.nextSetBit(0); server >= 0; server = servers.nextSetBit(server + 1))
+        if (graph.getNumServers(server) == 0)
+          builder.add(server);
+
+      retval = builder.build();
+      recentLeafServers.put(component, retval);
+    }
+
+    return retval;
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return the clients of the given member, their clients etc. 
+   *  (including the member itself if it is part of a cycle), 
+   *  i.e. the same as MemberGraph.getAllClients(id) */
+  public synchronized MemberSet getAllClients(int id)
+  {
+    StronglyConnectedComponents components = graph.getClientComponents();
+    if (! allClientsTried)
+    {
+      allClientsTried = true;
+      allClients = computeSets(graph.getClientStarts(), graph.getClientIds(), components, false);
+      if (allClients != null)
+        numAllClientWords = countWords(allClients);
+    }
+
+    int component = components.getComponent(id);
+    if (allClients != null)
+      return allClients[component];
+
+    MemberSet retval = recentAllClients.get(component);
+    if (retval == null)
+    {
+      BitSet clients = graph.getAllClients(id);
+      MemberSet.Builder builder = new MemberSet.Builder(graph.getNumMembers());
+      for (int client = clients.nextSetBit(0); client >= 0; client = clients.nextSetBit(client + 1))
+        builder.add(client);
+
+      retval = builder.build();
+      recentAllClients.put(component, retval);
+    }
+
+    return retval;
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return the (approximate) number of 64 bit words used by the sets 
+   *  kept so far (in both directions) */
+  synchronized long getNumWords()
+  {
+    long retval = numLeafServerWords + numAllClientWords;
+
+    for (MemberSet set : recentLeafServers.values())
+      retval += set.getNumWords();
+    for (MemberSet set : recentAllClients.values())
+      retval += set.getNumWords();
+
+    return retval;
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return the number of words used by the distinct sets in the given array */
+  private static long countWords(MemberSet[] sets)
+  {
+    Set<MemberSet> counted = Collections.newSetFromMap(new IdentityHashMap<MemberSet, Boolean>());
+
+    long retval = 0;
+    for (MemberSet set : sets)
+      if (counted.add(set))
+        retval += set.getNumWords();
+    return retval;
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return the set for each component or null if these would use
+   *  more than maxWords words
+   *  @param onlyLeaves if true, only nodes without links are collected,
+   *  otherwise all reachable nodes */
+  private MemberSet[] computeSets(int[] starts, int[] ids, StronglyConnectedComponents components, boolean onlyLeaves)
+  {
+    int numComponents = components.getNumComponents();
+    MemberSet[] retval = new MemberSet[numComponents];
+
+    MemberSet.Builder builder = new MemberSet.Builder(graph.getNumMembers());
+
+    // words of the sets built so far (shared sets are not counted again)
+    long numWords = 0;
+
+    // components linked from the current one (without duplicates)
+    int[] lastSeen = new int[numComponents];
+    Arrays.fill(lastSeen, -1);
+    int[] linked = new int[16];
+
+    // the linked components come first, so their sets are known
+    for (int c = 0; c < numComponents; ++c)
+    {
+      int numLinked = 0;
+
+      for (int i = 0; i < components.getComponentSize(c); ++i)
+      {
+        int node = components.getNode(c, i);
+        for (int j = starts[node]; j < starts[node + 1]; ++j)
+        {
+          int other = components.getComponent(ids[j]);
+          if (other == c || lastSeen[other] == c)
+            continue;
+
+          lastSeen[other] = c;
+          if (numLinked == linked.length)
+            linked = Arrays.copyOf(linked, 2 * linked.length);
+          linked[numLinked++] = other;
+        }
+      }
+
+      if (onlyLeaves)
+      {
+        // a leaf has no links, so it is a component of its own
+        // and a member of a cycle is never a leaf
+        MemberSet single = null;
+        int numNonEmpty = 0;
+        boolean linksToLeaf = false;
+
+        for (int i = 0; i < numLinked; ++i)
+        {
+          if (isLeaf(components, linked[i], starts))
+            linksToLeaf = true;
+          else if (! retval[linked[i]].isEmpty())
+          {
+            single = retval[linked[i]];
+            ++numNonEmpty;
+          }
+        }
+
+        if (! linksToLeaf && numNonEmpty <= 1)
+        {
+          // share the set of the only linked component contributing
+          retval[c] = single == null ? MemberSet.EMPTY : single;
+          continue;
+        }
+
+        for (int i = 0; i < numLinked; ++i)
+        {
+          if (isLeaf(components, linked[i], starts))
+            builder.add(components.getNode(linked[i], 0));
+          else
+            builder.addAll(retval[linked[i]]);
+        }
+      }
+      else
+      {
+        if (components.isCyclic(c))
+          addNodes(builder, components, c);
+
+        for (int i = 0; i < numLinked; ++i)
+        {
+          addNodes(builder, components, linked[i]);
+          builder.addAll(retval[linked[i]]);
+        }
+      }
+
+      retval[c] = builder.build();
+
+      numWords += retval[c].getNumWords();
+      if (numWords > maxWords)
+        // search the sets of single members instead
+        return null;
+    }
+
+    return retval;
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return true if the given component is a single node without links */
+  private static boolean isLeaf(StronglyConnectedComponents components, int component, int[] starts)
+  {
+    if (components.getComponentSize(component) != 1)
+      return false;
+
+    int node = components.getNode(component, 0);
+    return starts[node] == starts[node + 1];
+  }
+
+  //----------------------------------------------------------------------
+
+  private static void addNodes(MemberSet.Builder builder, StronglyConnectedComponents components, int component)
+  {
+    for (int i = 0; i < components.getComponentSize(component); ++i)
+      builder.add(components.getNode(component, i));
+  }
+
+  //----------------------------------------------------------------------
+
+}
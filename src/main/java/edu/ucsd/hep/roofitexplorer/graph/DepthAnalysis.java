@@ -0,0 +1,129 @@
+/*
+ * Copyright 2013 University of California, San Diego.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucsd.hep.roofitexplorer.graph;
+
+import java.util.Arrays;
+
+/**
+ * The depth of each node of a directed graph given in compressed sparse
+ * row format (the links of node i are ids[starts[i] .. starts[i+1])),
+ * counted from the nodes no other node links to, and a topological
+ * order of the nodes. 
+ *
+ * Cycles (which should not appear in a well formed workspace) are 
+ * handled via the strongly connected components: the nodes of a 
+ * component which no other component links to are all at depth zero 
+ * and the nodes of a cycle are ordered arbitrarily among themselves.
+ * 
+ * Everything is computed iteratively in O(nodes + links).
+ *
+ * @author holzner
+ */
+public final class DepthAnalysis
+{
+  /** the length of the shortest path from a node at depth zero */
+  private final int[] minDepths;
+
+  /** the nodes such that each node comes before the nodes it links to */
+  private final int[] order;
+
+  //----------------------------------------------------------------------
+
+  public DepthAnalysis(int numNodes, int[] starts, int[] ids)
+  {
+    StronglyConnectedComponents components = new StronglyConnectedComponents(numNodes, starts, ids);
+    int numComponents = components.getNumComponents();
+
+    //----------
+    // topological order: the components linked to have lower numbers
+    //----------
+    order = new int[numNodes];
+    int pos = 0;
+    for (int c = numComponents - 1; c >= 0; --c)
+      for (int i = 0; i < components.getComponentSize(c); ++i)
+        order[pos++] = components.getNode(c, i);
+
+    //----------
+    // the components linked to from other components
+    //----------
+    boolean[] linkedTo = new boolean[numComponents];
+    for (int node = 0; node < numNodes; ++node)
+    {
+      for (int j = starts[node]; j < starts[node + 1]; ++j)
+      {
+        int other = components.getComponent(ids[j]);
+        if (other != components.getComponent(node))
+          linkedTo[other] = true;
+      }
+    }
+
+    //----------
+    // minimal depths: breadth first search starting from all
+    // nodes of the components which are not linked to
+    //----------
+    minDepths = new int[numNodes];
+    Arrays.fill(minDepths, -1);
+
+    int[] queue = new int[numNodes];
+    int queueStart = 0;
+    int queueEnd = 0;
+
+    for (int node = 0; node < numNodes; ++node)
+    {
+      if (! linkedTo[components.getComponent(node)])
+      {
+        minDepths[node] = 0;
+        queue[queueEnd++] = node;
+      }
+    }
+
+    while (queueStart < queueEnd)
+    {
+      int node = queue[queueStart++];
+      for (int j = starts[node]; j < starts[node + 1]; ++j)
+      {
+        int other = ids[j];
+        if (minDepths[other] >= 0)
+          continue;
+
+        minDepths[other] = minDepths[node] + 1;
+        queue[queueEnd++] = other;
+      }
+    }
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return the smallest number of links from a node at depth zero */
+  public int getMinDepth(int node)
+  {
+    return minDepths[node];
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return the node at the given position in the topological order,
+   *  where each node comes before the nodes it links to (unless they
+   *  are on a cycle) */
+  public int getNodeInOrder(int position)
+  {
+    return order[position];
+  }
+
+
+  //----------------------------------------------------------------------
+
+}
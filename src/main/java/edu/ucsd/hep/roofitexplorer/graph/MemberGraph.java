@@ -0,0 +1,396 @@
+/*
+ * Copyright 2013 University of California, San Diego.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucsd.hep.roofitexplorer.graph;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * The server/client links between the members of a workspace in terms
+ * of the members' integer ids (their index in the workspace), stored
+ * in compressed sparse row format: the servers of member i are 
+ * serverIds[serverStarts[i] .. serverStarts[i+1]) and similarly for 
+ * the clients.
+ *
+ * The servers and clients are kept separately (and in the order
+ * they were added) as the two directions are not necessarily 
+ * symmetric in the output of ROOT.
+ *
+ * Instances are immutable and are built with a MemberGraph.Builder.
+ * The strongly connected components of the links are computed
+ * when first needed and kept.
+ *
+ * @author holzner
+ */
+public final class MemberGraph
+{
+  private final int numMembers;
+
+  private final int[] serverStarts;
+  private final int[] serverIds;
+
+  private final int[] clientStarts;
+  private final int[] clientIds;
+
+  /** null until first needed */
+  private StronglyConnectedComponents serverComponents;
+  private StronglyConnectedComponents clientComponents;
+
+  //----------------------------------------------------------------------
+
+  private MemberGraph(int numMembers, int[] serverStarts, int[] serverIds, int[] clientStarts, int[] clientIds)
+  {
+    this.numMembers = numMembers;
+    this.serverStarts = serverStarts;
+    this.serverIds = serverIds;
+    this.clientStarts = clientStarts;
+    this.clientIds = clientIds;
+  }
+
+  //----------------------------------------------------------------------
+
+  public int getNumMembers()
+  {
+    return numMembers;
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return the total number of server links */
+  public int getNumServerLinks()
+  {
+    return serverIds.length;
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return the total number of client links */
+  public int getNumClientLinks()
+  {
+    return clientIds.length;
+  }
+
+  //----------------------------------------------------------------------
+
+  public int getNumServers(int id)
+  {
+    return serverStarts[id + 1] - serverStarts[id];
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return the id of the index'th server of the given member */
+  public int getServer(int id, int index)
+  {
+    return serverIds[serverStarts[id] + index];
+  }
+
+  //----------------------------------------------------------------------
+
+  public int getNumClients(int id)
+  {
+    return clientStarts[id + 1] - clientStarts[id];
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return the id of the index'th client of the given member */
+  public int getClient(int id, int index)
+  {
+    return clientIds[clientStarts[id] + index];
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return the strongly connected components of the graph formed
+   *  by the server links */
+  public synchronized StronglyConnectedComponents getServerComponents()
+  {
+    if (serverComponents == null)
+      serverComponents = new StronglyConnectedComponents(numMembers, serverStarts, serverIds);
+    return serverComponents;
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return the strongly connected components of the graph formed
+   *  by the client links */
+  public synchronized StronglyConnectedComponents getClientComponents()
+  {
+    if (clientComponents == null)
+      clientComponents = new StronglyConnectedComponents(numMembers, clientStarts, clientIds);
+    return clientComponents;
+  }
+
+  //----------------------------------------------------------------------
+
+  /** the row starts of the servers, shared with the analyses
+   *  in this package (must not be modified) */
+  int[] getServerStarts()
+  {
+    return serverStarts;
+  }
+
+  //----------------------------------------------------------------------
+
+  int[] getServerIds()
+  {
+    return serverIds;
+  }
+
+  //----------------------------------------------------------------------
+
+  /** the row starts of the clients, shared with the analyses
+   *  in this package (must not be modified) */
+  int[] getClientStarts()
+  {
+    return clientStarts;
+  }
+
+  //----------------------------------------------------------------------
+
+  int[] getClientIds()
+  {
+    return clientIds;
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return the ids of the servers of the given member, their servers
+   *  etc. The member itself is only included if it is part of a cycle. */
+  public BitSet getAllServers(int id)
+  {
+    return reach(serverStarts, serverIds, id);
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return the ids of the clients of the given member, their clients
+   *  etc. The member itself is only included if it is part of a cycle. */
+  public BitSet getAllClients(int id)
+  {
+    return reach(clientStarts, clientIds, id);
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return the ids of all members which can be reached from the
+   *  given one following the given links */
+  private BitSet reach(int[] starts, int[] ids, int id)
+  {
+    BitSet visited = new BitSet(numMembers);
+
+    // each member is put on the stack at most once
+    int[] stack = new int[Math.min(16, numMembers)];
+    int stackSize = 0;
+
+    for (int i = starts[id]; i < starts[id + 1]; ++i)
+    {
+      int neighbour = ids[i];
+      if (visited.get(neighbour))
+        continue;
+
+      visited.set(neighbour);
+      if (stackSize == stack.length)
+        stack = Arrays.copyOf(stack, Math.min(2 * stack.length, numMembers));
+      stack[stackSize++] = neighbour;
+    }
+
+    while (stackSize > 0)
+    {
+      int current = stack[--stackSize];
+
+      for (int i = starts[current]; i < starts[current + 1]; ++i)
+      {
+        int neighbour = ids[i];
+        if (visited.get(neighbour))
+          continue;
+
+        visited.set(neighbour);
+        if (stackSize == stack.length)
+          stack = Arrays.copyOf(stack, Math.min(2 * stack.length, numMembers));
+        stack[stackSize++] = neighbour;
+      }
+    }
+
+    return visited;
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return a graph (with the same members) of the links needed to make 
+   *  the client and server links symmetric: the server links of member b
+   *  to all members a which list b as a client but are not listed as
+   *  servers of b and similarly for the client links. Each link 
+   *  appears once, even if the existing link appears several times. */
+  public MemberGraph getMissingLinks()
+  {
+    Builder builder = new Builder(numMembers);
+    addMissingLinks(clientStarts, clientIds, serverStarts, serverIds, builder, true);
+    addMissingLinks(serverStarts, serverIds, clientStarts, clientIds, builder, false);
+    return builder.build();
+  }
+
+  //----------------------------------------------------------------------
+
+  /** adds the reverse links (b, a) of the links (a, b) given by starts/ids 
+   *  which are missing in reverseStarts/reverseIds to the builder. 
+   *  Visits each link a constant number of times.
+   *  @param servers if true, the missing links are added as server
+   *  links, otherwise as client links */
+  private void addMissingLinks(int[] starts, int[] ids, int[] reverseStarts, int[] reverseIds, 
+                               Builder builder, boolean servers)
+  {
+    // for each member b the members a linking to it (in increasing order)
+    int[] incomingStarts = new int[numMembers + 1];
+    for (int id : ids)
+      ++incomingStarts[id + 1];
+    for (int i = 0; i < numMembers; ++i)
+      incomingStarts[i + 1] += incomingStarts[i];
+
+    int[] incomingIds = new int[ids.length];
+    int[] next = Arrays.copyOf(incomingStarts, numMembers);
+    for (int a = 0; a < numMembers; ++a)
+      for (int i = starts[a]; i < starts[a + 1]; ++i)
+        incomingIds[next[ids[i]]++] = a;
+
+    // mark[a] == b if the link (b, a) exists or was already added
+    int[] mark = new int[numMembers];
+    Arrays.fill(mark, -1);
+
+    for (int b = 0; b < numMembers; ++b)
+    {
+      for (int i = reverseStarts[b]; i < reverseStarts[b + 1]; ++i)
+        mark[reverseIds[i]] = b;
+
+      for (int i = incomingStarts[b]; i < incomingStarts[b + 1]; ++i)
+      {
+        int a = incomingIds[i];
+        if (mark[a] == b)
+          continue;
+
+        mark[a] = b;
+        if (servers)
+          builder.addServer(b, a);
+        else
+          builder.addClient(b, a);
+      }
+    }
+  }
+
+  //----------------------------------------------------------------------
+
+  /** collects the links and produces a MemberGraph */
+  public static class Builder
+  {
+    private final int numMembers;
+
+    /** pairs of (member id, server id) */
+    private int[] serverLinks = new int[32];
+    private int numServerLinks = 0;
+
+    /** pairs of (member id, client id) */
+    private int[] clientLinks = new int[32];
+    private int numClientLinks = 0;
+
+    //--------------------------------------------------------------------
+
+    public Builder(int numMembers)
+    {
+      this.numMembers = numMembers;
+    }
+
+    //--------------------------------------------------------------------
+
+    public void addServer(int id, int serverId)
+    {
+      checkId(id);
+      checkId(serverId);
+
+      if (2 * numServerLinks == serverLinks.length)
+        serverLinks = Arrays.copyOf(serverLinks, 2 * serverLinks.length);
+
+      serverLinks[2 * numServerLinks] = id;
+      serverLinks[2 * numServerLinks + 1] = serverId;
+      ++numServerLinks;
+    }
+
+    //--------------------------------------------------------------------
+
+    public void addClient(int id, int clientId)
+    {
+      checkId(id);
+      checkId(clientId);
+
+      if (2 * numClientLinks == clientLinks.length)
+        clientLinks = Arrays.copyOf(clientLinks, 2 * clientLinks.length);
+
+      clientLinks[2 * numClientLinks] = id;
+      clientLinks[2 * numClientLinks + 1] = clientId;
+      ++numClientLinks;
+    }
+
+    //--------------------------------------------------------------------
+
+    private void checkId(int id)
+    {
+      if (id < 0 || id >= numMembers)
+        throw new IllegalArgumentException("member id " + id + " out of range (" + numMembers + " members)");
+    }
+
+    //--------------------------------------------------------------------
+
+    public MemberGraph build()
+    {
+      int[] serverStarts = new int[numMembers + 1];
+      int[] serverIds = new int[numServerLinks];
+      fill(serverLinks, numServerLinks, serverStarts, serverIds);
+
+      int[] clientStarts = new int[numMembers + 1];
+      int[] clientIds = new int[numClientLinks];
+      fill(clientLinks, numClientLinks, clientStarts, clientIds);
+
+      return new MemberGraph(numMembers, serverStarts, serverIds, clientStarts, clientIds);
+    }
+
+    //--------------------------------------------------------------------
+
+    /** sorts the given pairs by their first element (keeping the order
+     *  of the pairs with the same first element) into the row 
+     *  starts and the second elements */
+    private static void fill(int[] links, int numLinks, int[] starts, int[] ids)
+    {
+      // count the links of each member
+      for (int i = 0; i < numLinks; ++i)
+        ++starts[links[2 * i] + 1];
+
+      for (int i = 0; i + 1 < starts.length; ++i)
+        starts[i + 1] += starts[i];
+
+      // next free position in each row
+      int[] next = Arrays.copyOf(starts, starts.length - 1);
+
+      for (int i = 0; i < numLinks; ++i)
+        ids[next[links[2 * i]]++] = links[2 * i + 1];
+    }
+
+    //--------------------------------------------------------------------
+
+  }
+
+  //----------------------------------------------------------------------
+
+}
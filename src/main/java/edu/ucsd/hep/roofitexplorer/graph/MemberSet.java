@@ -0,0 +1,253 @@
+/*
+ * Copyright 2013 University of California, San Diego.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucsd.hep.roofitexplorer.graph;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * An immutable set of member ids. Small sets are kept as a sorted array 
+ * of the ids, large ones as a bitmap over all members of the workspace,
+ * whichever needs less memory. Instances can therefore be shared 
+ * between the members for which the same set was found.
+ *
+ * @author holzner
+ */
+public final class MemberSet
+{
+  public static final MemberSet EMPTY = new MemberSet(new int[0], null, 0);
+
+  /** the ids in increasing order or null if the bitmap is used */
+  private final int[] ids;
+
+  /** one bit per member or null if the array of ids is used */
+  private final long[] words;
+
+  private final int size;
+
+  //----------------------------------------------------------------------
+
+  private MemberSet(int[] ids, long[] words, int size)
+  {
+    this.ids = ids;
+    this.words = words;
+    this.size = size;
+  }
+
+  //----------------------------------------------------------------------
+
+  public int size()
+  {
+    return size;
+  }
+
+  //----------------------------------------------------------------------
+
+  public boolean isEmpty()
+  {
+    return size == 0;
+  }
+
+  //----------------------------------------------------------------------
+
+  public boolean contains(int id)
+  {
+    if (id < 0)
+      return false;
+
+    if (ids != null)
+      return Arrays.binarySearch(ids, id) >= 0;
+
+    int word = id >>> 6;
+    return word < words.length && (words[word] & (1L << id)) != 0;
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return the lowest id in this set which is greater than or equal 
+   *  to the given one or -1 if there is none. Iterating over the set 
+   *  works like with java.util.BitSet:
+   *  <pre>
+   *    for (int id = set.nextMember(0); id >= 0; id = set.nextMember(id + 1))
+   *  </pre>
+   */
+  public int nextMember(int from)
+  {
+    from = Math.max(from, 0);
+
+    if (ids != null)
+    {
+      int pos = Arrays.binarySearch(ids, from);
+      if (pos < 0)
+        pos = -pos - 1;
+      return pos < ids.length ? ids[pos] : -1;
+    }
+
+    int word = from >>> 6;
+    if (word >= words.length)
+      return -1;
+
+    long bits = words[word] & (-1L << from);
+    while (true)
+    {
+      if (bits != 0)
+        return 64 * word + Long.numberOfTrailingZeros(bits);
+
+      if (++word == words.length)
+        return -1;
+      bits = words[word];
+    }
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return the (approximate) memory used by this set in 64 bit words */
+  int getNumWords()
+  {
+    if (ids != null)
+      return (ids.length + 1) / 2;
+
+    return words.length;
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return a (modifiable) copy of this set */
+  public BitSet toBitSet()
+  {
+    if (words != null)
+      return BitSet.valueOf(words);
+
+    BitSet retval = new BitSet();
+    for (int id : ids)
+      retval.set(id);
+    return retval;
+  }
+
+  //----------------------------------------------------------------------
+
+  @Override
+  public String toString()
+  {
+    return toBitSet().toString();
+  }
+
+  //----------------------------------------------------------------------
+
+  /** collects ids to produce MemberSets. The same builder is used 
+   *  for one set after the other. As long as only few ids were added,
+   *  they are also kept in a list (to produce the array of ids and
+   *  to clear the bits again), afterwards bitmaps are combined word
+   *  by word. */
+  static class Builder
+  {
+    /** the ids added so far as bits */
+    private final long[] scratch;
+
+    /** the ids added so far, in the order they were added,
+     *  unless dense is true */
+    private final int[] added;
+    private int numAdded = 0;
+
+    private boolean dense = false;
+
+    //--------------------------------------------------------------------
+
+    Builder(int numMembers)
+    {
+      this.scratch = new long[(numMembers + 63) >>> 6];
+
+      // beyond this, the bitmap needs less memory than the ids
+      this.added = new int[numMembers / 32];
+    }
+
+    //--------------------------------------------------------------------
+
+    void add(int id)
+    {
+      long bit = 1L << id;
+      if ((scratch[id >>> 6] & bit) != 0)
+        return;
+
+      scratch[id >>> 6] |= bit;
+
+      if (dense)
+        return;
+
+      if (numAdded == added.length)
+        dense = true;
+      else
+        added[numAdded++] = id;
+    }
+
+    //--------------------------------------------------------------------
+
+    void addAll(MemberSet set)
+    {
+      if (set.words != null)
+      {
+        dense = true;
+        for (int i = 0; i < set.words.length; ++i)
+          scratch[i] |= set.words[i];
+      }
+      else
+      {
+        for (int id : set.ids)
+          add(id);
+      }
+    }
+
+    //--------------------------------------------------------------------
+
+    /** @return the set of ids added since the last call
+     *  (the builder is empty again afterwards) */
+    MemberSet build()
+    {
+      if (! dense)
+      {
+        if (numAdded == 0)
+          return EMPTY;
+
+        int[] ids = Arrays.copyOf(added, numAdded);
+        Arrays.sort(ids);
+
+        for (int id : ids)
+          scratch[id >>> 6] = 0;
+        numAdded = 0;
+
+        return new MemberSet(ids, null, ids.length);
+      }
+
+      int size = 0;
+      for (long word : scratch)
+        size += Long.bitCount(word);
+
+      // more ids than fit into the list, so the bitmap is smaller
+      MemberSet retval = new MemberSet(null, scratch.clone(), size);
+
+      Arrays.fill(scratch, 0L);
+      numAdded = 0;
+      dense = false;
+
+      return retval;
+    }
+
+    //--------------------------------------------------------------------
+  }
+
+  //----------------------------------------------------------------------
+
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright 2013 University of California, San Diego.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucsd.hep.roofitexplorer.graph;
+
+/**
+ * The strongly connected components of a graph given in compressed 
+ * sparse row format (the links of node i are 
+ * ids[starts[i] .. starts[i+1])), found with Tarjan's algorithm.
+ *
+ * The recursion of the algorithm is replaced by explicit stacks
+ * such that deep chains of members do not overflow the thread's stack.
+ *
+ * The components of the server and client links of a MemberGraph
+ * are available from the graph.
+ *
+ * The components are numbered in the order they are completed:
+ * all components which can be reached from a given component
+ * have a lower number than the component itself, i.e. increasing
+ * component numbers are a topological order of the condensed graph
+ * with the linked nodes first.
+ *
+ * @author holzner
+ */
+public final class StronglyConnectedComponents
+{
+  /** component number of each node */
+  private final int[] componentOf;
+
+  private final int numComponents;
+
+  /** the nodes ordered by component: the nodes of component c
+   *  are nodes[componentStarts[c] .. componentStarts[c+1]) */
+  private final int[] componentStarts;
+  private final int[] nodes;
+
+  /** true for the components with more than one node or a node
+   *  linked to itself */
+  private final boolean[] cyclic;
+
+  //----------------------------------------------------------------------
+
+  StronglyConnectedComponents(int numNodes, int[] starts, int[] ids)
+  {
+    componentOf = new int[numNodes];
+
+    // discovery index (plus one, zero means not yet visited) and the 
+    // lowest discovery index reachable from each node
+    int[] index = new int[numNodes];
+    int[] lowLink = new int[numNodes];
+
+    // next link to follow for each node on the call stack
+    int[] nextLink = new int[numNodes];
+
+    // the nodes of the (emulated) recursion and the nodes
+    // not yet assigned to a component
+    int[] callStack = new int[numNodes];
+    int[] tarjanStack = new int[numNodes];
+
+    int callStackSize = 0;
+    int tarjanStackSize = 0;
+    int nextIndex = 1;
+    int componentCount = 0;
+
+    for (int root = 0; root < numNodes; ++root)
+    {
+      if (index[root] != 0)
+        continue;
+
+      index[root] = lowLink[root] = nextIndex++;
+      nextLink[root] = starts[root];
+      componentOf[root] = -1;
+      callStack[callStackSize++] = root;
+      tarjanStack[tarjanStackSize++] = root;
+
+      while (callStackSize > 0)
+      {
+        int node = callStack[callStackSize - 1];
+
+        if (nextLink[node] < starts[node + 1])
+        {
+          int neighbour = ids[nextLink[node]++];
+
+          if (index[neighbour] == 0)
+          {
+            // 'recurse'
+            index[neighbour] = lowLink[neighbour] = nextIndex++;
+            nextLink[neighbour] = starts[neighbour];
+            componentOf[neighbour] = -1;
+            callStack[callStackSize++] = neighbour;
+            tarjanStack[tarjanStackSize++] = neighbour;
+          }
+          else if (componentOf[neighbour] < 0)
+            // still on the Tarjan stack
+            lowLink[node] = Math.min(lowLink[node], index[neighbour]);
+
+          continue;
+        }
+
+        // all links of this node followed, 'return'
+        --callStackSize;
+
+        if (lowLink[node] == index[node])
+        {
+          // node is the root of a component
+          int member;
+          do
+          {
+            member = tarjanStack[--tarjanStackSize];
+            componentOf[member] = componentCount;
+          } while (member != node);
+
+          ++componentCount;
+        }
+
+        if (callStackSize > 0)
+        {
+          int parent = callStack[callStackSize - 1];
+          lowLink[parent] = Math.min(lowLink[parent], lowLink[node]);
+        }
+      }
+    }
+
+    numComponents = componentCount;
+
+    // group the nodes by component
+    componentStarts = new int[numComponents + 1];
+    for (int node = 0; node < numNodes; ++node)
+      ++componentStarts[componentOf[node] + 1];
+    for (int c = 0; c < numComponents; ++c)
+      componentStarts[c + 1] += componentStarts[c];
+
+    nodes = new int[numNodes];
+    int[] next = new int[numComponents];
+    System.arraycopy(componentStarts, 0, next, 0, numComponents);
+    for (int node = 0; node < numNodes; ++node)
+      nodes[next[componentOf[node]]++] = node;
+
+    cyclic = new boolean[numComponents];
+    for (int c = 0; c < numComponents; ++c)
+      cyclic[c] = componentStarts[c + 1] - componentStarts[c] > 1;
+
+    for (int node = 0; node < numNodes; ++node)
+      for (int i = starts[node]; i < starts[node + 1]; ++i)
+        if (ids[i] == node)
+          cyclic[componentOf[node]] = true;
+  }
+
+  //----------------------------------------------------------------------
+
+  public int getNumComponents()
+  {
+    return numComponents;
+  }
+
+  //----------------------------------------------------------------------
+
+  public int getComponent(int node)
+  {
+    return componentOf[node];
+  }
+
+  //----------------------------------------------------------------------
+
+  public int getComponentSize(int component)
+  {
+    return componentStarts[component + 1] - componentStarts[component];
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return the index'th node of the given component */
+  public int getNode(int component, int index)
+  {
+    return nodes[componentStarts[component] + index];
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return the position of the first node of the given component
+   *  when the nodes are ordered by component */
+  int getComponentStart(int component)
+  {
+    return componentStarts[component];
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return the node at the given position when the nodes are 
+   *  ordered by component */
+  int getNodeAt(int position)
+  {
+    return nodes[position];
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return true if the given component contains a cycle, i.e.
+   *  has more than one node or a node which is linked to itself */
+  public boolean isCyclic(int component)
+  {
+    return cyclic[component];
+  }
+
+  //----------------------------------------------------------------------
+
+}
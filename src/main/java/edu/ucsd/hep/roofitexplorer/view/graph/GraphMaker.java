@@ -19,12 +19,8 @@ import edu.uci.ics.jung.graph.DirectedGraph;
 import edu.uci.ics.jung.graph.DirectedSparseGraph;
 import edu.ucsd.hep.roofitexplorer.WorkspaceData;
 import edu.ucsd.hep.roofitexplorer.datatypes.GenericWorkspaceMember;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Map;
-import java.util.Set;
+import edu.ucsd.hep.roofitexplorer.graph.MemberGraph;
+import java.util.BitSet;
 
 /**
  * Class for generating various types of graphs
@@ -52,33 +48,34 @@ public class GraphMaker
     // create the graph object
     DirectedSparseGraph<VertexType, EdgeType> graph = new DirectedSparseGraph<VertexType, EdgeType>();
 
-    Map<String, VertexType> addressToVertex = new HashMap<String, VertexType>();
+    MemberGraph memberGraph = workspace.getGraphSnapshot();
+
+    // indexed by member id
+    VertexType[] vertices = new VertexType[memberGraph.getNumMembers()];
     
     // first create the vertices
-    for (GenericWorkspaceMember obj : workspace.getMembers())
+    for (int id = 0; id < vertices.length; ++id)
     {
-      VertexType vertex = new VertexType(obj);
-      graph.addVertex(vertex);
-      addressToVertex.put(obj.getAddress(), vertex);
+      vertices[id] = new VertexType(workspace.getMember(id));
+      graph.addVertex(vertices[id]);
     } // loop over all objects
     
     // then create the edges (make sure to add an edge each edge only
     // once
-    for (GenericWorkspaceMember obj : workspace.getMembers())
+    for (int id = 0; id < vertices.length; ++id)
     {
-      VertexType vertex1 = addressToVertex.get(obj.getAddress());
+      VertexType vertex1 = vertices[id];
       
-      // System.out.println("GETTING SERVERS OF " + obj.getVarName());
-      for (GenericWorkspaceMember child : obj.getServers())
+      for (int i = 0, n = memberGraph.getNumServers(id); i < n; ++i)
       {
         // original convention: arrow from object to a server 
         //                      (i.e. the arrow goes from the object
         //                       to the component used in the object)
-        // graph.addEdge(new EdgeType(), vertex1, addressToVertex.get(child.getAddress()));
+        // graph.addEdge(new EdgeType(), vertex1, vertices[memberGraph.getServer(id, i)]);
       
         // new convention (Bayesian network like): arrow goes from an object
         //            to the server it influences / is an ingredient of
-        graph.addEdge(new EdgeType(), addressToVertex.get(child.getAddress()), vertex1);
+        graph.addEdge(new EdgeType(), vertices[memberGraph.getServer(id, i)], vertex1);
       
       }
     } // loop over all objects
@@ -100,39 +97,38 @@ public class GraphMaker
   public DirectedGraph<VertexType, EdgeType> makeSingleNodeGraph(GenericWorkspaceMember root)
   {
     DirectedSparseGraph<VertexType, EdgeType> retval = new DirectedSparseGraph<VertexType, EdgeType>();
+
+    MemberGraph memberGraph = workspace.getGraphSnapshot();
+
+    // indexed by member id
+    VertexType[] vertices = new VertexType[memberGraph.getNumMembers()];
     
-    Map<String, VertexType> addressToVertex = new HashMap<String, VertexType>();
-    
-    List<GenericWorkspaceMember> nodesToVisit = new ArrayList<GenericWorkspaceMember>();
-    Set<GenericWorkspaceMember> visitedNodes = new HashSet<GenericWorkspaceMember>();
-    
-    nodesToVisit.add(root);
+    // each node is visited once
+    int[] nodesToVisit = new int[memberGraph.getNumMembers()];
+    int numNodesToVisit = 0;
+    BitSet queuedNodes = new BitSet(vertices.length);
+
+    nodesToVisit[numNodesToVisit++] = root.getId();
+    queuedNodes.set(root.getId());
+    vertices[root.getId()] = new VertexType(root);
+    retval.addVertex(vertices[root.getId()]);
     
-    while (! nodesToVisit.isEmpty())
+    for (int next = 0; next < numNodesToVisit; ++next)
     {
-      GenericWorkspaceMember node = nodesToVisit.remove(0);
-
-      if (visitedNodes.contains(node))
-        // node already visited
-        continue;
-
-      VertexType vertex = addressToVertex.get(node.getAddress());
-      if (vertex == null)
-      {
-        vertex = new VertexType(node);
-        addressToVertex.put(node.getAddress(), vertex);
-        retval.addVertex(vertex);
-      }
+      int node = nodesToVisit[next];
+      VertexType vertex = vertices[node];
     
       // loop over the children
-      for (GenericWorkspaceMember child : node.getServers())
+      for (int i = 0, n = memberGraph.getNumServers(node); i < n; ++i)
       {
-        VertexType childVertex = addressToVertex.get(child.getAddress());
+        int child = memberGraph.getServer(node, i);
+
+        VertexType childVertex = vertices[child];
         if (childVertex == null)
         {
-        // add the child vertex
-          childVertex = new VertexType(child);
-          addressToVertex.put(child.getAddress(), childVertex);
+          // add the child vertex
+          childVertex = new VertexType(workspace.getMember(child));
+          vertices[child] = childVertex;
           retval.addVertex(childVertex);
         }
 
@@ -140,7 +136,11 @@ public class GraphMaker
         retval.addEdge(new EdgeType(), vertex, childVertex);
         
         // add this child to the list of nodes to be visited
-        nodesToVisit.add(child);
+        if (! queuedNodes.get(child))
+        {
+          queuedNodes.set(child);
+          nodesToVisit[numNodesToVisit++] = child;
+        }
         
       } // loop over all children
       
@@ -15,16 +15,22 @@
  */
 package edu.ucsd.hep.roofitexplorer.view.graph;
 
+import edu.ucsd.hep.roofitexplorer.graph.DepthAnalysis;
 import edu.uci.ics.jung.graph.DirectedGraph;
-import java.util.Collection;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
  * calculates the 'minimal depth' (minimal with respect to all possible
  * 'root nodes' in a directed, acyclic graph) of a graph.
  * 
+ * The vertices are numbered and the depths are calculated with 
+ * DepthAnalysis, which does not recurse (so deep chains do not 
+ * overflow the stack) and also terminates for graphs with cycles.
+ * 
  * @author holzner
  */
 public class MinimalDepthCalculator<V,E>
@@ -32,64 +38,43 @@ public class MinimalDepthCalculator<V,E>
   
   /** maps from a given vertex to its minimal depth */
   private final Map<V, Integer> depths = new HashMap<V, Integer>();
-  private final DirectedGraph<V, E> graph;
+
+  /** the vertices in topological order (vertices before their successors) */
+  private final List<V> topologicalOrder;
 
   //----------------------------------------------------------------------
   
   public MinimalDepthCalculator(DirectedGraph<V, E> graph)
   {
-    this.graph = graph;
-    for (V vertex : graph.getVertices())
-    {
-      calculateMinimalDepth(vertex);
-    } // loop over all vertices
-    
-    // make sure we didn't miss any vertex
-    assert(graph.getVertexCount() == depths.size());
-  }
-  
-  //----------------------------------------------------------------------
+    List<V> vertices = new ArrayList<V>(graph.getVertices());
+    int numVertices = vertices.size();
 
-  private int calculateMinimalDepth(V vertex)
-  {
-    Integer depth = depths.get(vertex);
-    if (depth != null)
-      // already calculated
-      return depth;
-    
-    // look at each 'predecessor' (vertex having an edge
-    // leading to 'vertex') and take the minimum value + 1
-    // of the predecessor's depths.
-    //
-    // This will potentially call itself recursively 
-    // if the depth of a predecessor was not calculated yet.
-    //
-    // (note that there are several 'roots' which can 
-    // lead to this vertex)
-    //
-    // this also updates the map 'depths'.
-    
-    Collection<V> preds = this.graph.getPredecessors(vertex);
-    
-    if (preds.isEmpty())
+    Map<V, Integer> indices = new HashMap<V, Integer>();
+    for (int i = 0; i < numVertices; ++i)
+      indices.put(vertices.get(i), i);
+
+    // the successors of each vertex in compressed sparse row format
+    int[] starts = new int[numVertices + 1];
+    List<V> successors = new ArrayList<V>();
+    for (int i = 0; i < numVertices; ++i)
     {
-      // this is a 'root' vertex
-      this.depths.put(vertex, 0);
-      return 0;
-    } 
-    
-    // loop over predecessors
-    int bestVal = Integer.MAX_VALUE;
-    
-    for (V pred : preds)
+      successors.addAll(graph.getSuccessors(vertices.get(i)));
+      starts[i + 1] = successors.size();
+    }
+
+    int[] ids = new int[successors.size()];
+    for (int i = 0; i < ids.length; ++i)
+      ids[i] = indices.get(successors.get(i));
+
+    DepthAnalysis analysis = new DepthAnalysis(numVertices, starts, ids);
+
+    topologicalOrder = new ArrayList<V>(numVertices);
+    for (int i = 0; i < numVertices; ++i)
     {
-      bestVal = Math.min(bestVal, calculateMinimalDepth(pred));
+      V vertex = vertices.get(i);
+      depths.put(vertex, analysis.getMinDepth(i));
+      topologicalOrder.add(vertices.get(analysis.getNodeInOrder(i)));
     }
-    
-    bestVal += 1;
-    this.depths.put(vertex, bestVal);
-    return bestVal;
-    
   }
   
   //----------------------------------------------------------------------
@@ -98,6 +83,16 @@ public class MinimalDepthCalculator<V,E>
   {
     return Collections.unmodifiableMap(depths);
   }
+
+  //----------------------------------------------------------------------
+
+  /** @return the vertices such that each vertex comes before
+   *  its successors (unless they are on a cycle) */
+  public List<V> getTopologicalOrder()
+  {
+    return Collections.unmodifiableList(topologicalOrder);
+  }
+
   //----------------------------------------------------------------------
   
 }
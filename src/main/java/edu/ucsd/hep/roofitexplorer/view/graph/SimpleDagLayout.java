@@ -24,7 +24,6 @@ import java.awt.Dimension;
 import java.awt.geom.Point2D;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Map.Entry;
 import org.apache.commons.collections15.Transformer;
 
 /**
@@ -83,14 +82,16 @@ public class SimpleDagLayout<V,E> implements Layout<V,E>
     public GraphPositionData(DirectedGraph<V, E> graph)
     {
       // calculate the (minimal) depths
-      minimalDepths = new MinimalDepthCalculator(graph).getDepths();
+      MinimalDepthCalculator<V, E> depthCalculator = new MinimalDepthCalculator<V, E>(graph);
+      minimalDepths = depthCalculator.getDepths();
     
-      // inverse mapping
+      // inverse mapping (in topological order, which tends to keep
+      // the vertices reached from the same vertex next to each other)
       depthToVertices = ArrayListMultimap.create();
       
-      for (Entry<V, Integer> entry : minimalDepths.entrySet())
+      for (V vertex : depthCalculator.getTopologicalOrder())
       {
-        depthToVertices.put(entry.getValue(), entry.getKey());
+        depthToVertices.put(minimalDepths.get(vertex), vertex);
       }
 
       assert(depthToVertices.size() == graph.getVertexCount());
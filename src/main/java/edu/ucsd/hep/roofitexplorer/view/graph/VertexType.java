@@ -94,6 +94,10 @@ public class VertexType implements Comparable<VertexType>
   
   private String getRooFormulaVarSpecificString(RooFormulaVarData data)
   {
+    // e.g. read without Print("V") output while the workspace is still being read
+    if (data.getFormulaTemplate() == null)
+      return "(formula not available)<br/>";
+
     // template expression
     String retval = data.getFormulaTemplate() + "<br/>";
       
@@ -78,6 +78,8 @@ public class OneDimPlotPanel extends JPanel implements WorkspaceMemberModifiedLi
 
   public final void updatePlot() throws IOException
   {
+    func.getWorkspace().checkROOTSessionIdle();
+
     String imageFname = rootRunner.createTempFile("rooFitExplorer",".png");
     
     String cmd = 
@@ -46,6 +46,8 @@ public class RooAbsRealValueDisplay extends JPanel implements WorkspaceMemberMod
   
   public RooAbsRealValueDisplay(ROOTRunner rootRunner, String workspaceName, RooAbsRealData func) throws IOException
   {
+    func.getWorkspace().checkROOTSessionIdle();
+
     this.rootRunner = rootRunner;
     this.workspaceName = workspaceName;
     this.func = func;
@@ -16,6 +16,8 @@
 package edu.ucsd.hep.roofitexplorer.view.misc;
 
 import edu.ucsd.hep.roofitexplorer.ExcelWorkbookProducer;
+import edu.ucsd.hep.roofitexplorer.WorkspaceData;
+import edu.ucsd.hep.roofitexplorer.WorkspaceLoadListener;
 import edu.ucsd.hep.roofitexplorer.WorkspaceMemberSelectionListener;
 import edu.ucsd.hep.roofitexplorer.WorkspaceMemberSelectionListenerList;
 import edu.ucsd.hep.roofitexplorer.datatypes.GenericWorkspaceMember;
@@ -61,6 +63,7 @@ import javax.swing.JPopupMenu;
 import javax.swing.JScrollPane;
 import javax.swing.JTable;
 import javax.swing.JTextField;
+import javax.swing.SwingUtilities;
 import javax.swing.filechooser.FileNameExtensionFilter;
 import javax.swing.table.TableRowSorter;
 import org.apache.poi.ss.usermodel.Workbook;
@@ -303,6 +306,70 @@ public class SimpleWorkspaceMemberListPanel extends JPanel
 
   //----------------------------------------------------------------------
 
+  /** shows the members the given workspace has so far and appends
+   *  the members added later while the workspace is still being read */
+  public void setWorkspace(WorkspaceData workspace)
+  {
+    WorkspaceLoadListener loadListener = new WorkspaceLoadListener()
+    {
+      public void membersAdded(WorkspaceData workspace, final List<GenericWorkspaceMember> members)
+      {
+        SwingUtilities.invokeLater(new Runnable()
+        {
+          public void run()
+          {
+            tableModel.addMembers(members);
+            setNumItemsLabel(tableModel.getRowCount());
+          }
+        });
+      }
+
+      public void loadProgress(WorkspaceData workspace, int numRead, int numTotal)
+      {
+      }
+
+      public void loadFinished(WorkspaceData workspace, boolean completed)
+      {
+        workspace.removeLoadListener(this);
+
+        // compute the overall counts on this thread rather than
+        // on the event dispatch thread when the table is redrawn
+        if (completed)
+          workspace.getClosureCounts();
+
+        SwingUtilities.invokeLater(new Runnable()
+        {
+          public void run()
+          {
+            tableModel.setOverallCountsAvailable(true);
+          }
+        });
+      }
+    };
+
+    // hold the workspace's lock such that no new members can be announced
+    // before the members which are there already were queued for display
+    synchronized (workspace)
+    {
+      final WorkspaceMemberList members = new WorkspaceMemberList(workspace.addLoadListener(loadListener));
+      final boolean loading = workspace.isLoading();
+
+      if (! loading)
+        workspace.removeLoadListener(loadListener);
+
+      SwingUtilities.invokeLater(new Runnable()
+      {
+        public void run()
+        {
+          tableModel.setOverallCountsAvailable(! loading);
+          setData(members);
+        }
+      });
+    }
+  }
+
+  //----------------------------------------------------------------------
+
   public boolean addMemberSelectionListener(WorkspaceMemberSelectionListener listener)
   {
     return listeners.addListener(listener);
@@ -493,7 +560,7 @@ public class SimpleWorkspaceMemberListPanel extends JPanel
     //----------
     {
       menuItem = makeWatchValueMenuItem(member);
-      menuItem.setEnabled(member instanceof RooAbsRealData);
+      menuItem.setEnabled(member instanceof RooAbsRealData && ! member.getWorkspace().isLoading());
       
       popupMenu.add(menuItem);
     }
@@ -595,6 +662,13 @@ public class SimpleWorkspaceMemberListPanel extends JPanel
       return retval;
     }    
 
+    // the session is busy while the workspace is being read
+    if (member.getWorkspace().isLoading())
+    {
+      addExplanationAction(retval, "The workspace is still being read");
+      return retval;
+    }
+
     WorkspaceMemberList leafServers = member.getLeafServers();
     
     // for the moment, just include simple cases we know we can
@@ -804,8 +878,8 @@ public class SimpleWorkspaceMemberListPanel extends JPanel
   {
     JMenuItem menuItem = new JMenuItem("set value...");
 
-    // check if we have a ROOTrunner
-    if (var.getRootRunner() == null)
+    // check if we have a ROOTrunner which is not busy reading the workspace
+    if (var.getRootRunner() == null || var.getWorkspace().isLoading())
       menuItem.setEnabled(false);
     else
     {
@@ -885,7 +959,11 @@ public class SimpleWorkspaceMemberListPanel extends JPanel
       public void actionPerformed(ActionEvent ae)
       {
         Clipboard cb = Toolkit.getDefaultToolkit().getSystemClipboard();
-        StringSelection sel = new StringSelection(var.getFormulaTemplate());
+        String formula = var.getFormulaTemplate();
+        if (formula == null)
+          return;
+        
+        StringSelection sel = new StringSelection(formula);
         cb.setContents(sel, null);
       }
     });
@@ -18,6 +18,7 @@ package edu.ucsd.hep.roofitexplorer.view.misc;
 import edu.ucsd.hep.roofitexplorer.datatypes.GenericWorkspaceMember;
 import edu.ucsd.hep.roofitexplorer.datatypes.WorkspaceMemberList;
 import edu.ucsd.hep.roofitexplorer.view.textsearch.TextSearchTableModel;
+import java.util.List;
 import javax.swing.table.AbstractTableModel;
 
 /**
@@ -49,6 +50,10 @@ public class SimpleWorkspaceMemberTableModel extends AbstractTableModel implemen
   }
   
   private final Column activeColumns[] = Column.values();
+
+  /** the overall number of clients and servers can only be
+   *  calculated once all members of the workspace were read */
+  private boolean overallCountsAvailable = true;
   
   //----------------------------------------------------------------------
 
@@ -82,9 +87,9 @@ public class SimpleWorkspaceMemberTableModel extends AbstractTableModel implemen
       case COL_NUM_DIRECT_SERVERS: return member.getNumServers();
         
         
-      case COL_OVERALL_NUM_CLIENTS: return member.getOverallNumClients();
+      case COL_OVERALL_NUM_CLIENTS: return overallCountsAvailable ? member.getOverallNumClients() : null;
 
-      case COL_OVERALL_NUM_SERVERS: return member.getOverallNumServers();
+      case COL_OVERALL_NUM_SERVERS: return overallCountsAvailable ? member.getOverallNumServers() : null;
 
       default:  return "???";
     }
@@ -154,6 +159,33 @@ public class SimpleWorkspaceMemberTableModel extends AbstractTableModel implemen
   
   //----------------------------------------------------------------------
 
+  /** appends the given members to the list shown. Note that this modifies 
+   *  the list given to setData(..). Must be called from the event dispatch thread. */
+  public void addMembers(List<GenericWorkspaceMember> newMembers)
+  {
+    if (newMembers.isEmpty())
+      return;
+
+    int firstRow = members.size();
+
+    for (GenericWorkspaceMember member : newMembers)
+      members.add(member);
+
+    this.fireTableRowsInserted(firstRow, members.size() - 1);
+  }
+
+  //----------------------------------------------------------------------
+
+  /** enables or disables the columns with the overall number of clients and servers
+   *  (which need the complete workspace) */
+  public void setOverallCountsAvailable(boolean overallCountsAvailable)
+  {
+    this.overallCountsAvailable = overallCountsAvailable;
+    this.fireTableDataChanged();
+  }
+
+  //----------------------------------------------------------------------
+
   GenericWorkspaceMember getMember(int modelRow)
   {
     return this.members.get(modelRow);
@@ -182,7 +214,9 @@ public class SimpleWorkspaceMemberTableModel extends AbstractTableModel implemen
       if (col > 0)
         retval += " ";
       
-      retval += this.getValueAt(row, col).toString();
+      Object value = this.getValueAt(row, col);
+      if (value != null)
+        retval += value.toString();
     }
     
     return retval;
@@ -16,6 +16,7 @@
 package edu.ucsd.hep.roofitexplorer.view.misc;
 
 import edu.ucsd.hep.roofitexplorer.WorkspaceData;
+import edu.ucsd.hep.roofitexplorer.WorkspaceLoadListener;
 import edu.ucsd.hep.roofitexplorer.WorkspaceMemberSelectionListener;
 import edu.ucsd.hep.roofitexplorer.WorkspaceMemberSelectionListenerList;
 import edu.ucsd.hep.roofitexplorer.datatypes.GenericWorkspaceMember;
@@ -32,6 +33,7 @@ import java.util.List;
 import javax.swing.AbstractAction;
 import javax.swing.JFrame;
 import javax.swing.JScrollPane;
+import javax.swing.SwingUtilities;
 import org.jdesktop.swingx.JXTaskPane;
 import org.jdesktop.swingx.JXTaskPaneContainer;
 
@@ -44,32 +46,129 @@ public class WorkspaceListBrowser extends JXTaskPaneContainer
 {
   //----------------------------------------------------------------------
   private final WorkspaceMemberSelectionListenerList listeners = new WorkspaceMemberSelectionListenerList();
+  private final WorkspaceData workspace;
   private final WorkspaceMemberList members;
 
+  /** while the workspace is being read, the members are added
+   *  to this pane as they arrive */
+  private JXTaskPane loadingTaskPane;
+  private int numLoadedMembers;
+
   public WorkspaceListBrowser(WorkspaceData workspace, GraphPanel graphPanel)
   {
     
+    this.workspace = workspace;
     members = workspace.getMembers();
-    
-    this.add(makeTaskPane("top level objects", new TopLevelMembersFilter()));
-    this.add(makeTaskPane("leaf objects", new LeafMembersFilter()));
 
-    this.add(makeTaskPane("pdfs", members.getPDFs()));
-    this.add(makeTaskPane("functions", members.getFunctions()));
+    // the groups of members below need the complete workspace,
+    // show only the list of members read so far while reading
+    synchronized (workspace)
+    {
+      List<GenericWorkspaceMember> membersSoFar = workspace.addLoadListener(loadListener);
+      
+      if (workspace.isLoading())
+      {
+        loadingTaskPane = new JXTaskPane();
+        this.add(loadingTaskPane);
+        addLoadedMembers(membersSoFar);
+        return;
+      }
+      
+      workspace.removeLoadListener(loadListener);
+    }
+
+    addTaskPanes();
+  }
 
-    // objects with neither servers nor clients
-    this.add(makeTaskPane("disconnected objects", new ConnectedMembersFilter(false)));
+  //----------------------------------------------------------------------
 
-    this.add(makeTaskPane("all objects", members));
-    
+  private final WorkspaceLoadListener loadListener = new WorkspaceLoadListener()
+  {
+    public void membersAdded(WorkspaceData workspace, final List<GenericWorkspaceMember> newMembers)
+    {
+      SwingUtilities.invokeLater(new Runnable()
+      {
+        public void run()
+        {
+          addLoadedMembers(newMembers);
+        }
+      });
+    }
+
+    public void loadProgress(WorkspaceData workspace, int numRead, int numTotal)
+    {
+    }
+
+    public void loadFinished(WorkspaceData workspace, boolean completed)
+    {
+      workspace.removeLoadListener(this);
+
+      SwingUtilities.invokeLater(new Runnable()
+      {
+        public void run()
+        {
+          // replace the list of members read by the groups
+          removeAll();
+          loadingTaskPane = null;
+          addTaskPanes();
+          revalidate();
+          repaint();
+        }
+      });
+    }
+  };
+
+  //----------------------------------------------------------------------
+
+  private void addLoadedMembers(List<GenericWorkspaceMember> newMembers)
+  {
+    if (loadingTaskPane == null)
+      return;
+
+    for (GenericWorkspaceMember member : newMembers)
+      loadingTaskPane.add(makeAction(member));
+
+    numLoadedMembers += newMembers.size();
+    loadingTaskPane.setTitle("objects read so far (" + numLoadedMembers + " objects)");
   }
-  
+
   //----------------------------------------------------------------------
-  
-  private JXTaskPane makeTaskPane(String title, WorkspaceMemberFilter filter)
+
+  private void addTaskPanes()
   {
-    WorkspaceMemberList objects = members.filter(filter);
-    return makeTaskPane(title, objects);
+    // the groups depending on the links are exclusive,
+    // so they are collected in a single pass
+    WorkspaceMemberFilter topLevelFilter = new TopLevelMembersFilter();
+    WorkspaceMemberFilter leafFilter = new LeafMembersFilter();
+    
+    // objects with neither servers nor clients
+    WorkspaceMemberFilter disconnectedFilter = new ConnectedMembersFilter(false);
+
+    WorkspaceMemberList topLevel = new WorkspaceMemberList();
+    WorkspaceMemberList leaves = new WorkspaceMemberList();
+    WorkspaceMemberList disconnected = new WorkspaceMemberList();
+
+    for (GenericWorkspaceMember member : members)
+    {
+      if (topLevelFilter.accept(member))
+        topLevel.add(member);
+      else if (leafFilter.accept(member))
+        leaves.add(member);
+      else if (disconnectedFilter.accept(member))
+        disconnected.add(member);
+    }
+
+    this.add(makeTaskPane("top level objects", topLevel));
+    this.add(makeTaskPane("leaf objects", leaves));
+
+    // these are taken from the workspace's indexes
+    this.add(makeTaskPane("pdfs", workspace.getPDFs()));
+    this.add(makeTaskPane("functions", workspace.getFunctions()));
+
+    this.add(makeTaskPane("disconnected objects", disconnected));
+
+    this.add(makeTaskPane("all objects", members));
+    
   }
 
   //----------------------------------------------------------------------
@@ -88,27 +187,30 @@ public class WorkspaceListBrowser extends JXTaskPaneContainer
     JXTaskPane retval = new JXTaskPane();
     retval.setTitle(title);
    
-    for (final GenericWorkspaceMember member : objList)
+    for (GenericWorkspaceMember member : objList)
     {
-
-      AbstractAction action = new AbstractAction(member.getVarName())
-      {
-
-        public void actionPerformed(ActionEvent e)
-        {
-          // notify the listeners that this member was selected
-          listeners.workspaceMemberSelected(member);
-        }
-      };
-
-      retval.add(action);
-
+      retval.add(makeAction(member));
     } // loop over all objects
 
     
    
     return retval;
   }
+
+  //----------------------------------------------------------------------
+
+  private AbstractAction makeAction(final GenericWorkspaceMember member)
+  {
+    return new AbstractAction(member.getVarName())
+    {
+
+      public void actionPerformed(ActionEvent e)
+      {
+        // notify the listeners that this member was selected
+        listeners.workspaceMemberSelected(member);
+      }
+    };
+  }
   
   //----------------------------------------------------------------------
   public JFrame makeFrame(String title)
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2013 University of California, San Diego.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucsd.hep.roofitexplorer.view.misc;
+
+import edu.ucsd.hep.roofitexplorer.WorkspaceData;
+import edu.ucsd.hep.roofitexplorer.WorkspaceLoadListener;
+import edu.ucsd.hep.roofitexplorer.datatypes.GenericWorkspaceMember;
+import java.awt.BorderLayout;
+import java.awt.Container;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.List;
+import javax.swing.BorderFactory;
+import javax.swing.JButton;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JProgressBar;
+import javax.swing.SwingUtilities;
+
+/**
+ * Shows the progress of reading a workspace (with an estimate
+ * of the remaining time) and allows to cancel reading.
+ * Removes itself from its parent when reading completed.
+ * 
+ * @author holzner
+ */
+public class WorkspaceLoadProgressPanel extends JPanel implements WorkspaceLoadListener
+{
+  private final JProgressBar progressBar = new JProgressBar();
+  private final JLabel statusLabel = new JLabel("reading workspace...");
+  private final JButton cancelButton = new JButton("Cancel");
+
+  /** time when reading started (in milliseconds) */
+  private final long startTime = System.currentTimeMillis();
+
+  //----------------------------------------------------------------------
+
+  /** @param cancelListener is called when the user presses the cancel button */
+  public WorkspaceLoadProgressPanel(final ActionListener cancelListener)
+  {
+    this.setLayout(new BorderLayout(5, 0));
+    this.setBorder(BorderFactory.createEmptyBorder(2, 5, 2, 5));
+
+    progressBar.setIndeterminate(true);
+
+    this.add(statusLabel, BorderLayout.WEST);
+    this.add(progressBar, BorderLayout.CENTER);
+    this.add(cancelButton, BorderLayout.EAST);
+
+    cancelButton.addActionListener(new ActionListener()
+    {
+      public void actionPerformed(ActionEvent ae)
+      {
+        cancelButton.setEnabled(false);
+        statusLabel.setText("cancelling...");
+        cancelListener.actionPerformed(ae);
+      }
+    });
+  }
+
+  //----------------------------------------------------------------------
+  // interface WorkspaceLoadListener
+  //----------------------------------------------------------------------
+
+  public void membersAdded(WorkspaceData workspace, List<GenericWorkspaceMember> members)
+  {
+    // we only use the progress notifications
+  }
+
+  //----------------------------------------------------------------------
+
+  public void loadProgress(WorkspaceData workspace, final int numRead, final int numTotal)
+  {
+    final long elapsed = System.currentTimeMillis() - startTime;
+
+    SwingUtilities.invokeLater(new Runnable()
+    {
+      public void run()
+      {
+        if (! cancelButton.isEnabled())
+          // keep the 'cancelling' message
+          return;
+
+        if (numTotal < 0)
+        {
+          progressBar.setIndeterminate(true);
+          statusLabel.setText("reading workspace (" + numRead + " objects so far)");
+          return;
+        }
+
+        progressBar.setIndeterminate(false);
+        progressBar.setMaximum(numTotal);
+        progressBar.setValue(numRead);
+
+        String text = "read " + numRead + " of " + numTotal + " objects";
+
+        if (numRead > 0 && numRead < numTotal)
+        {
+          long remainingSeconds = elapsed * (numTotal - numRead) / numRead / 1000;
+          text += ", about " + formatDuration(remainingSeconds) + " left";
+        }
+
+        statusLabel.setText(text);
+      }
+    });
+  }
+
+  //----------------------------------------------------------------------
+
+  public void loadFinished(WorkspaceData workspace, final boolean completed)
+  {
+    workspace.removeLoadListener(this);
+
+    SwingUtilities.invokeLater(new Runnable()
+    {
+      public void run()
+      {
+        if (completed)
+        {
+          Container parent = getParent();
+          if (parent != null)
+          {
+            parent.remove(WorkspaceLoadProgressPanel.this);
+            parent.validate();
+            parent.repaint();
+          }
+        }
+        else
+        {
+          // keep a note that the workspace is incomplete
+          progressBar.setVisible(false);
+          cancelButton.setVisible(false);
+          statusLabel.setText("reading the workspace was cancelled or failed, only a part of the objects is shown");
+        }
+      }
+    });
+  }
+
+  //----------------------------------------------------------------------
+  // end of interface WorkspaceLoadListener
+  //----------------------------------------------------------------------
+
+  private static String formatDuration(long seconds)
+  {
+    if (seconds < 60)
+      return seconds + " s";
+
+    return (seconds / 60) + " min " + (seconds % 60) + " s";
+  }
+
+  //----------------------------------------------------------------------
+
+}
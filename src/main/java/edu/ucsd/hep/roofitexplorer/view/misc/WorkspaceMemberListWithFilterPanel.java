@@ -15,6 +15,7 @@
  */
 package edu.ucsd.hep.roofitexplorer.view.misc;
 
+import edu.ucsd.hep.roofitexplorer.WorkspaceData;
 import edu.ucsd.hep.roofitexplorer.WorkspaceMemberSelectionListener;
 import edu.ucsd.hep.roofitexplorer.datatypes.WorkspaceMemberList;
 import edu.ucsd.hep.roofitexplorer.filters.MemberFilterFactoryList;
@@ -78,6 +79,15 @@ public class WorkspaceMemberListWithFilterPanel extends JPanel
 
   //----------------------------------------------------------------------
 
+  /** shows the members of the given workspace, including those which
+   *  are added while the workspace is still being read */
+  public void setWorkspace(WorkspaceData workspace)
+  {
+    memberListPanel.setWorkspace(workspace);
+  }
+
+  //----------------------------------------------------------------------
+
   public boolean addMemberSelectionListener(WorkspaceMemberSelectionListener listener)
   {
     return memberListPanel.addMemberSelectionListener(listener);
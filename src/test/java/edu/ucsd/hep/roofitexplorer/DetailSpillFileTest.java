@@ -0,0 +1,73 @@
+/*
+ * Copyright 2013 University of California, San Diego.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucsd.hep.roofitexplorer;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author holzner
+ */
+public class DetailSpillFileTest
+{
+  //----------------------------------------------------------------------
+
+  private static String makeText(int index)
+  {
+    StringBuilder buf = new StringBuilder("--- RooAbsArg ---\n  Address: 0x" + Integer.toHexString(index) + "\n");
+    
+    // some outputs are larger than a block
+    int numLines = index % 1000 == 0 ? 10000 : index % 10;
+    for (int i = 0; i < numLines; ++i)
+      buf.append("    (0x" + i + ",V-) RooRealVar::x" + i + " \"\u00e9\"\n");
+
+    return buf.toString();
+  }
+
+  //----------------------------------------------------------------------
+
+  /** outputs spanning several blocks are read back unchanged */
+  @Test
+  public void test01() throws Exception
+  {
+    DetailSpillFile spillFile = new DetailSpillFile();
+
+    int numOutputs = 5000;
+    for (int i = 0; i < numOutputs; ++i)
+      spillFile.put("member" + i, makeText(i));
+
+    // replaces the previous output
+    spillFile.put("member7", "new");
+
+    assertEquals(numOutputs, spillFile.size());
+    assertTrue(spillFile.getFileSize() > 0);
+    assertTrue(spillFile.getFileSize() < spillFile.getUncompressedSize());
+
+    // in arbitrary order, from the blocks written and the one still in memory
+    for (int i = numOutputs - 1; i >= 0; i -= 7)
+      if (i != 7)
+        assertEquals(makeText(i), spillFile.get("member" + i));
+
+    assertEquals("new", spillFile.get("member7"));
+    assertNull(spillFile.get("unknown"));
+
+    spillFile.close();
+  }
+
+  //----------------------------------------------------------------------
+
+}
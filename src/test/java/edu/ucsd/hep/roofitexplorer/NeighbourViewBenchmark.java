@@ -0,0 +1,147 @@
+/*
+ * Copyright 2013 University of California, San Diego.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucsd.hep.roofitexplorer;
+
+import edu.ucsd.hep.roofitexplorer.datatypes.GenericWorkspaceMember;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+/**
+ * Compares iterating over the servers and clients of all members
+ * of a synthetic workspace with getServers()/getClients() (which copy
+ * the members into a new list on every call) and with 
+ * getServersView()/getClientsView() and with the index based
+ * getServerMember(..)/getClientMember(..). Prints the time and the number
+ * of bytes allocated per pass. Not run as part of the unit tests.
+ *
+ * Usage:
+ * <pre>
+ *   NeighbourViewBenchmark [numMembers]
+ * </pre>
+ *
+ * @author holzner
+ */
+public class NeighbourViewBenchmark
+{
+  /** prevents the JIT from optimizing the loops away */
+  private static int checksum;
+
+  //----------------------------------------------------------------------
+
+  /** @return the number of bytes allocated so far by the current thread
+   *  or -1 if the JVM does not support measuring this */
+  private static long getAllocatedBytes()
+  {
+    java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    if (! (bean instanceof com.sun.management.ThreadMXBean))
+      return -1;
+
+    return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+
+  //----------------------------------------------------------------------
+
+  private static void iterateCopies(List<GenericWorkspaceMember> members)
+  {
+    for (GenericWorkspaceMember member : members)
+    {
+      for (GenericWorkspaceMember server : member.getServers())
+        checksum += server.getId();
+      for (GenericWorkspaceMember client : member.getClients())
+        checksum += client.getId();
+    }
+  }
+
+  //----------------------------------------------------------------------
+
+  private static void iterateViews(List<GenericWorkspaceMember> members)
+  {
+    for (int i = 0, n = members.size(); i < n; ++i)
+    {
+      GenericWorkspaceMember member = members.get(i);
+
+      List<GenericWorkspaceMember> servers = member.getServersView();
+      for (int j = 0, m = servers.size(); j < m; ++j)
+        checksum += servers.get(j).getId();
+
+      List<GenericWorkspaceMember> clients = member.getClientsView();
+      for (int j = 0, m = clients.size(); j < m; ++j)
+        checksum += clients.get(j).getId();
+    }
+  }
+
+  //----------------------------------------------------------------------
+
+  private static void iterateIndexed(List<GenericWorkspaceMember> members)
+  {
+    for (int i = 0, n = members.size(); i < n; ++i)
+    {
+      GenericWorkspaceMember member = members.get(i);
+
+      for (int j = 0, m = member.getNumServerMembers(); j < m; ++j)
+        checksum += member.getServerMember(j).getId();
+
+      for (int j = 0, m = member.getNumClientMembers(); j < m; ++j)
+        checksum += member.getClientMember(j).getId();
+    }
+  }
+
+  //----------------------------------------------------------------------
+
+  private static void report(String label, int round, long nanos, long bytes, int numMembers)
+  {
+    System.out.println(String.format("round %d %-7s %8.1f ms %12d bytes allocated (%.1f per member)",
+                                     round, label, nanos / 1e6, bytes, bytes / (double) numMembers));
+  }
+
+  //----------------------------------------------------------------------
+
+  public static void main(String argv[]) throws Exception
+  {
+    int numMembers = argv.length >= 1 ? Integer.parseInt(argv[0]) : 100000;
+
+    WorkspaceDataReader2 reader = new WorkspaceDataReader2(
+      new ReplayingROOTRunner(SyntheticWorkspaces.makeRecording(numMembers), 0), 
+      "benchmark.root", "w", new WorkspaceReaderOptions());
+    reader.read();
+
+    List<GenericWorkspaceMember> members = reader.getWorkspace().getMembers().getList();
+
+    // the first rounds warm up the JVM
+    for (int round = 0; round < 10; ++round)
+    {
+      long bytes = getAllocatedBytes();
+      long start = System.nanoTime();
+      iterateCopies(members);
+      report("copies", round, System.nanoTime() - start, getAllocatedBytes() - bytes, numMembers);
+
+      bytes = getAllocatedBytes();
+      start = System.nanoTime();
+      iterateViews(members);
+      report("views", round, System.nanoTime() - start, getAllocatedBytes() - bytes, numMembers);
+
+      bytes = getAllocatedBytes();
+      start = System.nanoTime();
+      iterateIndexed(members);
+      report("indexed", round, System.nanoTime() - start, getAllocatedBytes() - bytes, numMembers);
+    }
+
+    System.out.println("(checksum " + checksum + ")");
+  }
+
+  //----------------------------------------------------------------------
+
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2013 University of California, San Diego.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucsd.hep.roofitexplorer;
+
+import edu.ucsd.hep.roofitexplorer.datatypes.GenericWorkspaceMember;
+import edu.ucsd.hep.roofitexplorer.datatypes.MemberDumpRecord;
+import edu.ucsd.hep.roofitexplorer.datatypes.StringPool;
+import edu.ucsd.hep.roofitexplorer.datatypes.VerbosePrintOutput.ClientServerRecord;
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author holzner
+ */
+public class ParallelMemberDecoderTest
+{
+  //----------------------------------------------------------------------
+
+  /** @return a description of the members of the workspace read with the
+   *  given options, in the order they were registered */
+  private static List<String> readWorkspace(ROOTSessionRecording recording, boolean bulkDump, int parseThreads) throws Exception
+  {
+    WorkspaceReaderOptions options = new WorkspaceReaderOptions();
+    options.bulkDump = bulkDump;
+    options.parseThreads = parseThreads;
+
+    List<String> retval = new ArrayList<String>();
+    for (GenericWorkspaceMember member : SyntheticWorkspaces.read(recording, options).getMembers().getList())
+    {
+      StringBuilder buf = new StringBuilder(member.getVarName() + " " + member.getClassName() + " " + member.getAddress() + ":");
+      for (ClientServerRecord server : member.getServerRecords())
+        buf.append(" " + server.getVarName());
+      retval.add(buf.toString());
+    }
+
+    return retval;
+  }
+
+  //----------------------------------------------------------------------
+
+  /** decoding in parallel gives the same members in the same order */
+  @Test
+  public void test01() throws Exception
+  {
+    ROOTSessionRecording recording = SyntheticWorkspaces.makeRecording(5000);
+
+    List<String> expected = readWorkspace(recording, true, 1);
+    assertEquals(5000, expected.size());
+
+    assertEquals(expected, readWorkspace(recording, true, 4));
+    assertEquals(expected, readWorkspace(recording, false, 1));
+    assertEquals(expected, readWorkspace(recording, false, 4));
+  }
+
+  //----------------------------------------------------------------------
+
+  /** the dump is split only between records */
+  @Test
+  public void test02() throws Exception
+  {
+    ROOTSessionRecording recording = SyntheticWorkspaces.makeRecording(5000);
+    ReplayingROOTRunner rootRunner = new ReplayingROOTRunner(recording, 0);
+    String dump = new String(rootRunner.readFile(rootRunner.createTempFile("rooFitExplorer", ".txt")), "UTF-8");
+
+    ParallelMemberDecoder serial = new ParallelMemberDecoder(1, new StringPool());
+    ParallelMemberDecoder parallel = new ParallelMemberDecoder(3, new StringPool());
+
+    List<MemberDumpRecord> expected = serial.decode(dump);
+    List<MemberDumpRecord> records = parallel.decode(dump);
+    parallel.close();
+
+    assertEquals(expected.size(), records.size());
+    for (int i = 0; i < records.size(); ++i)
+    {
+      assertEquals(expected.get(i).getVarName(), records.get(i).getVarName());
+      assertEquals(expected.get(i).getVerboseText(), records.get(i).getVerboseText());
+      assertEquals(expected.get(i).getServers().size(), records.get(i).getServers().size());
+    }
+  }
+
+  //----------------------------------------------------------------------
+
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2013 University of California, San Diego.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucsd.hep.roofitexplorer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author holzner
+ */
+public class ROOTFileKeyListingTest
+{
+  /** output of the listing macro for a file with the same structure
+   *  as testdata/ROOTObjectsFinderTest01.root (directories are listed
+   *  breadth first by the macro) */
+  final String listingOutput =
+    "@RFE:T test.root:/\n" +
+    "@RFE:D test.root:/\n" +
+    "@RFE:K TDirectoryFile,subdir1\n" +
+    "@RFE:K TDirectoryFile,subdir2\n" +
+    "@RFE:K TDirectoryFile,subdir3\n" +
+    "@RFE:K TH1F,histo3\n" +
+    "@RFE:K TH1F,histo3\n" +
+    "@RFE:D test.root:/subdir1\n" +
+    "@RFE:K TH1F,histo2\n" +
+    "@RFE:D test.root:/subdir2\n" +
+    "@RFE:D test.root:/subdir3\n" +
+    "@RFE:K TDirectoryFile,dirA\n" +
+    "@RFE:D test.root:/subdir3/dirA\n" +
+    "@RFE:K TH1F,histo1\n" +
+    "(class ostream)0x7f0000\n";
+
+  //----------------------------------------------------------------------
+
+  private static List<String> paths(List<ROOTFileKeyListing.Entry> entries)
+  {
+    List<String> retval = new ArrayList<String>();
+    for (ROOTFileKeyListing.Entry entry : entries)
+      retval.add(entry.path);
+    return retval;
+  }
+
+  //----------------------------------------------------------------------
+
+  /** the entries must come in the same order as when recursing
+   *  depth first, each key only once */
+  @Test
+  public void test01() throws Exception
+  {
+    ROOTFileKeyListing listing = ROOTFileKeyListing.parse(listingOutput);
+
+    List<String> expResult = new ArrayList<String>();
+    expResult.add("subdir1");
+    expResult.add("subdir2");
+    expResult.add("subdir3");
+    expResult.add("histo3");
+    expResult.add("subdir1/histo2");
+    expResult.add("subdir3/dirA");
+    expResult.add("subdir3/dirA/histo1");
+
+    assertEquals(expResult, paths(listing.getEntries(null, true)));
+
+    expResult.clear();
+    expResult.add("subdir3/dirA");
+    expResult.add("subdir3/dirA/histo1");
+    assertEquals(expResult, paths(listing.getEntries("subdir3", true)));
+
+    expResult.clear();
+    expResult.add("subdir3/dirA");
+    assertEquals(expResult, paths(listing.getEntries("subdir3", false)));
+
+    assertTrue(listing.getEntries("subdir2", true).isEmpty());
+  }
+
+  //----------------------------------------------------------------------
+
+  @Test
+  public void test02() throws Exception
+  {
+    Map<String, Boolean> result = ROOTFileKeyListing.parseInheritance(
+      "@RFE:K 1,TH1F\n" +
+      "@RFE:K 0,TDirectoryFile\n" +
+      "(class ostream)0x7f0000\n");
+
+    assertEquals(2, result.size());
+    assertEquals(Boolean.TRUE, result.get("TH1F"));
+    assertEquals(Boolean.FALSE, result.get("TDirectoryFile"));
+  }
+
+  //----------------------------------------------------------------------
+
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2013 University of California, San Diego.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucsd.hep.roofitexplorer;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author holzner
+ */
+public class ROOTSessionRecordingTest
+{
+  //----------------------------------------------------------------------
+
+  /** records a replayed session and replays the recording again */
+  @Test
+  public void test01() throws Exception
+  {
+    ROOTSessionRecording recording = new ROOTSessionRecording();
+    recording.add(ROOTSessionRecording.KIND_COMMAND, "cmd1", "out1a");
+    recording.add(ROOTSessionRecording.KIND_COMMAND, "cmd1", "out1b");
+    recording.add(ROOTSessionRecording.KIND_COMMAND, "cmd2", "out2");
+    recording.add(ROOTSessionRecording.KIND_TEMP_FILE, "pre\n.txt", "/tmp/pre1.txt");
+    recording.add(ROOTSessionRecording.KIND_READ_FILE, "/tmp/pre1.txt", "contents");
+
+    File file = File.createTempFile("recording", ".dat");
+    file.deleteOnExit();
+
+    RecordingROOTRunner recorder = new RecordingROOTRunner(new ReplayingROOTRunner(recording, 0), file);
+
+    assertEquals("out1a", recorder.getCommandOutput("cmd1"));
+
+    List<String> cmds = new ArrayList<String>();
+    cmds.add("cmd2");
+    cmds.add("cmd1");
+    List<String> expected = new ArrayList<String>();
+    expected.add("out2");
+    expected.add("out1b");
+    assertEquals(expected, recorder.getMultipleCommandsOutputBatch(cmds));
+
+    // the last answer is repeated
+    assertEquals("out1b", recorder.getCommandOutput("cmd1"));
+
+    assertEquals("/tmp/pre1.txt", recorder.createTempFile("pre", ".txt"));
+    assertEquals("contents", new String(recorder.readFile("/tmp/pre1.txt"), "UTF-8"));
+
+    ReplayingROOTRunner replayer = new ReplayingROOTRunner(ROOTSessionRecording.read(file), 0);
+    assertEquals("out1a", replayer.getCommandOutput("cmd1"));
+    assertEquals("out2", replayer.getCommandOutput("cmd2"));
+    assertEquals("out1b", replayer.getCommandOutput("cmd1"));
+    assertEquals("out1b", replayer.getCommandOutput("cmd1"));
+    assertEquals("/tmp/pre1.txt", replayer.createTempFile("pre", ".txt"));
+    assertEquals("contents", new String(replayer.readFile("/tmp/pre1.txt"), "UTF-8"));
+
+    try
+    {
+      replayer.getCommandOutput("cmd3");
+      fail("expected an exception for a command which was not recorded");
+    }
+    catch (IOException ex)
+    {
+      // expected
+    }
+  }
+
+  //----------------------------------------------------------------------
+
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2013 University of California, San Diego.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucsd.hep.roofitexplorer;
+
+import edu.ucsd.hep.roofitexplorer.datatypes.GenericWorkspaceMember;
+import edu.ucsd.hep.roofitexplorer.datatypes.VerbosePrintOutput.ClientServerRecord;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Estimates the heap used by the class names, member names and addresses
+ * of the members of a workspace and their client/server records, to see
+ * how much is saved by sharing them (see StringPool). Used by
+ * WorkspaceReaderBenchmark.
+ *
+ * The sizes are estimates for a 64 bit JVM with compressed object
+ * pointers and strings backed by a char array (two bytes per character,
+ * as in Java 7 and 8). With the compact strings of Java 9 and later,
+ * the arrays of strings with only Latin-1 characters are half as large.
+ *
+ * @author holzner
+ */
+class StringFootprint
+{
+  /** number of fields referring to one of the strings */
+  int numReferences;
+
+  /** number of different String objects */
+  int numInstances;
+
+  /** number of different values */
+  int numValues;
+
+  /** estimated size of the String objects */
+  long instanceBytes;
+
+  /** estimated size if every field had its own String object */
+  long unsharedBytes;
+
+  /** estimated size if there was only one String object per value */
+  long sharedBytes;
+
+  //----------------------------------------------------------------------
+
+  /** @return the estimated size of a String object (including its array) */
+  static long estimateSize(String str)
+  {
+    // object header, reference to the array and hash fields, aligned to 8 bytes
+    long objectSize = 24;
+
+    // array header and contents, aligned to 8 bytes
+    long arraySize = (16 + 2L * str.length() + 7) / 8 * 8;
+
+    return objectSize + arraySize;
+  }
+
+  //----------------------------------------------------------------------
+
+  private void add(Map<String, Boolean> instances, Set<String> values, String str)
+  {
+    if (str == null)
+      return;
+
+    ++numReferences;
+    long size = estimateSize(str);
+    unsharedBytes += size;
+
+    if (instances.put(str, Boolean.TRUE) == null)
+      instanceBytes += size;
+
+    if (values.add(str))
+      sharedBytes += size;
+  }
+
+  //----------------------------------------------------------------------
+
+  static StringFootprint of(Collection<GenericWorkspaceMember> members)
+  {
+    StringFootprint retval = new StringFootprint();
+
+    Map<String, Boolean> instances = new IdentityHashMap<String, Boolean>();
+    Set<String> values = new HashSet<String>();
+
+    for (GenericWorkspaceMember member : members)
+    {
+      retval.add(instances, values, member.getVarName());
+      retval.add(instances, values, member.getClassName());
+      retval.add(instances, values, member.getAddress());
+
+      for (ClientServerRecord record : member.getServerRecords())
+      {
+        retval.add(instances, values, record.getAddress());
+        retval.add(instances, values, record.getClassName());
+        retval.add(instances, values, record.getVarName());
+      }
+
+      for (ClientServerRecord record : member.getClientRecords())
+      {
+        retval.add(instances, values, record.getAddress());
+        retval.add(instances, values, record.getClassName());
+        retval.add(instances, values, record.getVarName());
+      }
+    }
+
+    retval.numInstances = instances.size();
+    retval.numValues = values.size();
+
+    return retval;
+  }
+
+  //----------------------------------------------------------------------
+
+  @Override
+  public String toString()
+  {
+    return String.format("%d references to %d String objects with %d different values: " +
+                         "%.1f MB (%.1f MB without sharing, %.1f MB fully shared)",
+                         numReferences, numInstances, numValues,
+                         instanceBytes / 1048576.0, unsharedBytes / 1048576.0, sharedBytes / 1048576.0);
+  }
+
+  //----------------------------------------------------------------------
+
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright 2013 University of California, San Diego.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucsd.hep.roofitexplorer;
+
+import edu.ucsd.hep.roofitexplorer.datatypes.MemberDumpDecoder;
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.Assert.*;
+
+/**
+ * Synthetic workspaces read without ROOT (using ReplayingROOTRunner),
+ * for the tests and the benchmarks.
+ *
+ * Member i is called 'member' + i. Every fourth member is a RooRealVar 
+ * (with value i / 2) without servers, the others are RooGaussians and
+ * RooProducts depending on the previous member and the one at half
+ * their index.
+ *
+ * @author holzner
+ */
+class SyntheticWorkspaces
+{
+  static final String workspaceName = "w";
+
+  private static final String dumpFname = "/tmp/rooFitExplorerSynthetic.txt";
+
+  //----------------------------------------------------------------------
+
+  private static String getName(int index)
+  {
+    return "member" + index;
+  }
+
+  //----------------------------------------------------------------------
+
+  private static String getAddress(int index)
+  {
+    return "0x" + Integer.toHexString(0x100000 + 16 * index);
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return the servers of the given member of the synthetic workspace.
+   *  Every fourth member is a leaf, the others depend on the previous
+   *  member and the one at half their index. */
+  private static List<Integer> getServers(int index)
+  {
+    List<Integer> retval = new ArrayList<Integer>();
+    if (index % 4 == 0)
+      return retval;
+
+    retval.add(index - 1);
+    if (index / 2 != index - 1)
+      retval.add(index / 2);
+
+    return retval;
+  }
+
+  //----------------------------------------------------------------------
+
+  private static String getClassName(int index)
+  {
+    if (index % 4 == 0)
+      return "RooRealVar";
+    if (index % 4 == 1)
+      return "RooGaussian";
+    return "RooProduct";
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return the fields printed by WorkspaceDumpCommands.summaryFields(..) */
+  private static String getSummaryFields(int index)
+  {
+    String className = getClassName(index);
+    String flags;
+    if (className.equals("RooRealVar"))
+      flags = "0,0,1,0,1,0";
+    else if (className.equals("RooGaussian"))
+      flags = "1,0,0,0,1,0";
+    else
+      flags = "0,0,0,0,1,0";
+
+    return className + "," + flags + "," + getName(index);
+  }
+
+  //----------------------------------------------------------------------
+
+  private static void appendClientServerLine(StringBuilder buf, String marker, int index)
+  {
+    buf.append(marker + getAddress(index) + "," + getClassName(index) + "," + getName(index) + "\n");
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return the record of the given member as printed by the member dump commands */
+  private static String makeRecord(int index, List<List<Integer>> clients)
+  {
+    StringBuilder buf = new StringBuilder();
+    buf.append(MemberDumpDecoder.MARKER_MEMBER + getSummaryFields(index) + "\n");
+    buf.append(MemberDumpDecoder.MARKER_ADDRESS + getAddress(index) + "\n");
+
+    for (int server : getServers(index))
+      appendClientServerLine(buf, MemberDumpDecoder.MARKER_SERVER, server);
+    for (int client : clients.get(index))
+      appendClientServerLine(buf, MemberDumpDecoder.MARKER_CLIENT, client);
+
+    // something looking roughly like the output of Print("V")
+    buf.append(MemberDumpDecoder.MARKER_TEXT + "\n");
+    buf.append("--- RooAbsArg ---\n");
+    buf.append("  Value State: clean\n");
+    buf.append("  Shape State: clean\n");
+    buf.append("  Attributes:  \n");
+    buf.append("  Address: " + getAddress(index) + "\n");
+    buf.append("  Clients: \n");
+    for (int client : clients.get(index))
+      buf.append("    (" + getAddress(client) + ",V-) " + getClassName(client) + "::" + getName(client) + " \"\"\n");
+    buf.append("  Servers: \n");
+    for (int server : getServers(index))
+      buf.append("    (" + getAddress(server) + ",V-) " + getClassName(server) + "::" + getName(server) + " \"\"\n");
+    buf.append("--- RooAbsReal ---\n");
+    buf.append("  Internal value = 1\n");
+    buf.append(MemberDumpDecoder.MARKER_END_TEXT + "\n");
+
+    if (index % 4 == 0)
+      buf.append(MemberDumpDecoder.MARKER_VALUE + (index * 0.5) + ",0\n");
+
+    buf.append(MemberDumpDecoder.MARKER_END + "\n");
+    return buf.toString();
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return a recording of the answers ROOT would give for a workspace
+   *  with the given number of members, both for the bulk dump
+   *  and for reading in batches */
+  static ROOTSessionRecording makeRecording(int numMembers)
+  {
+    List<List<Integer>> clients = new ArrayList<List<Integer>>();
+    for (int i = 0; i < numMembers; ++i)
+      clients.add(new ArrayList<Integer>());
+    for (int i = 0; i < numMembers; ++i)
+      for (int server : getServers(i))
+        clients.get(server).add(i);
+
+    ROOTSessionRecording retval = new ROOTSessionRecording();
+
+    StringBuilder summary = new StringBuilder();
+    StringBuilder dump = new StringBuilder();
+
+    for (int i = 0; i < numMembers; ++i)
+    {
+      String record = makeRecord(i, clients);
+      summary.append(getSummaryFields(i) + "\n");
+      dump.append(record);
+
+      retval.add(ROOTSessionRecording.KIND_COMMAND,
+                 WorkspaceDumpCommands.memberRecordCommand(workspaceName, getName(i), false), record);
+    }
+
+    retval.add(ROOTSessionRecording.KIND_COMMAND, WorkspaceDumpCommands.memberNamesCommand(workspaceName),
+               summary.toString());
+
+    retval.add(ROOTSessionRecording.KIND_TEMP_FILE, "rooFitExplorer\n.txt", dumpFname);
+    retval.add(ROOTSessionRecording.KIND_COMMAND, WorkspaceDumpCommands.bulkDumpCommand(workspaceName, dumpFname, false), "");
+    retval.add(ROOTSessionRecording.KIND_READ_FILE, dumpFname, dump.toString());
+    retval.add(ROOTSessionRecording.KIND_COMMAND, WorkspaceDumpCommands.deleteFileCommand(dumpFname), "");
+
+    return retval;
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return the workspace read from the given recording with the given options */
+  static WorkspaceData read(ROOTSessionRecording recording, WorkspaceReaderOptions options) throws Exception
+  {
+    WorkspaceDataReader2 reader = new WorkspaceDataReader2(new ReplayingROOTRunner(recording, 0), "test.root", 
+                                                           workspaceName, options);
+    assertTrue(reader.read());
+    return reader.getWorkspace();
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return the workspace read from the given recording (e.g. one made with
+   *  makeRecording(..) and extended by the commands a test expects) */
+  static WorkspaceData read(ROOTSessionRecording recording) throws Exception
+  {
+    return read(recording, new WorkspaceReaderOptions());
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return a synthetic workspace with the given number of members */
+  static WorkspaceData read(int numMembers) throws Exception
+  {
+    return read(makeRecording(numMembers));
+  }
+
+  //----------------------------------------------------------------------
+
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2013 University of California, San Diego.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucsd.hep.roofitexplorer;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author holzner
+ */
+public class WorkspaceCacheTest
+{
+  //----------------------------------------------------------------------
+
+  private static File makeTempDir() throws IOException
+  {
+    File dir = File.createTempFile("workspaceCacheTest", "");
+    dir.delete();
+    dir.mkdirs();
+    dir.deleteOnExit();
+    return dir;
+  }
+
+  //----------------------------------------------------------------------
+
+  /** creates a file standing in for a ROOT file */
+  private static File makeInputFile(File dir, String name, int size) throws IOException
+  {
+    File file = new File(dir, name);
+    FileOutputStream os = new FileOutputStream(file);
+    os.write(new byte[size]);
+    os.close();
+    return file;
+  }
+
+  //----------------------------------------------------------------------
+
+  /** storing and loading again, the entry must not be used
+   *  anymore once the input file changed */
+  @Test
+  public void test01() throws Exception
+  {
+    File dir = makeTempDir();
+    WorkspaceCache cache = new WorkspaceCache(new File(dir, "cache"), 1024 * 1024);
+
+    File input = makeInputFile(dir, "input.root", 10);
+    WorkspaceReaderOptions options = new WorkspaceReaderOptions();
+
+    WorkspaceData ws = WorkspaceData.makeDummyWorkspace();
+    WorkspaceDataTest.makeMember(ws, "a", "0x1");
+    WorkspaceDataTest.makeMember(ws, "b", "0x2");
+
+    assertNull(cache.load(input, ws.getName(), options, null));
+
+    cache.store(input, ws, options);
+
+    WorkspaceData ws2 = cache.load(input, ws.getName(), options, null);
+    assertNotNull(ws2);
+    assertEquals(2, ws2.getMembers().size());
+    assertNotNull(ws2.findByName("b"));
+    assertNotNull(ws2.getModificationDispatcher());
+
+    // other workspace name
+    assertNull(cache.load(input, "otherws", options, null));
+
+    // read with options which keep less of the members
+    WorkspaceReaderOptions summaryOnly = new WorkspaceReaderOptions();
+    summaryOnly.summaryOnly = true;
+    assertNull(cache.load(input, ws.getName(), summaryOnly, null));
+
+    WorkspaceReaderOptions compact = new WorkspaceReaderOptions();
+    compact.compact = true;
+    assertNull(cache.load(input, ws.getName(), compact, null));
+
+    // options which only change how the members are read
+    WorkspaceReaderOptions batches = new WorkspaceReaderOptions();
+    batches.bulkDump = false;
+    batches.parseThreads = 3;
+    assertNotNull(cache.load(input, ws.getName(), batches, null));
+
+    // modified input file
+    input = makeInputFile(dir, "input.root", 20);
+    assertNull(cache.load(input, ws.getName(), options, null));
+
+    cache.clear();
+    assertEquals(0, cache.getEntries().length);
+  }
+
+  //----------------------------------------------------------------------
+
+  /** the least recently used entries are removed when the cache is full */
+  @Test
+  public void test02() throws Exception
+  {
+    File dir = makeTempDir();
+
+    File input1 = makeInputFile(dir, "input1.root", 10);
+    File input2 = makeInputFile(dir, "input2.root", 10);
+    WorkspaceReaderOptions options = new WorkspaceReaderOptions();
+
+    WorkspaceData ws = WorkspaceData.makeDummyWorkspace();
+    WorkspaceDataTest.makeMember(ws, "a", "0x1");
+
+    // find out the size of a single entry
+    WorkspaceCache cache = new WorkspaceCache(new File(dir, "cache"), 1024 * 1024);
+    cache.store(input1, ws, options);
+    long entrySize = cache.getEntries()[0].length();
+
+    // only one entry fits
+    cache = new WorkspaceCache(new File(dir, "cache"), entrySize + entrySize / 2);
+    cache.getEntries()[0].setLastModified(System.currentTimeMillis() - 10000);
+
+    cache.store(input2, ws, options);
+
+    assertEquals(1, cache.getEntries().length);
+    assertNull(cache.load(input1, ws.getName(), options, null));
+    assertNotNull(cache.load(input2, ws.getName(), options, null));
+
+    cache.clear();
+  }
+
+  //----------------------------------------------------------------------
+
+}
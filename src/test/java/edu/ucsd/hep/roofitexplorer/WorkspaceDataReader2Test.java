@@ -0,0 +1,317 @@
+/*
+ * Copyright 2013 University of California, San Diego.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucsd.hep.roofitexplorer;
+
+import edu.ucsd.hep.roofitexplorer.datatypes.GenericWorkspaceMember;
+import edu.ucsd.hep.roofitexplorer.datatypes.RooFormulaVarData;
+import edu.ucsd.hep.roofitexplorer.datatypes.RooRealVarData;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author holzner
+ */
+public class WorkspaceDataReader2Test
+{
+  private static final String dumpFname = "/tmp/rooFitExplorerTest.txt";
+
+  /** a RooRealVar */
+  private static final String recordX =
+    "@RFE:M RooRealVar,0,0,1,0,1,0,x\n" +
+    "@RFE:A 0x10\n" +
+    "@RFE:C 0x30,RooFormulaVar,f\n" +
+    "@RFE:TEXT\n" +
+    "--- RooAbsArg ---\n" +
+    "  Address: 0x10\n" +
+    "@RFE:ENDTEXT\n" +
+    "@RFE:V 1.5,0\n" +
+    "@RFE:E\n";
+
+  /** a RooFormulaVar without the formula and proxies dumped separately.
+   *  RooFit printed a message in the middle of the Print("V") output. */
+  private static final String recordF =
+    "@RFE:M RooFormulaVar,0,0,0,0,1,0,f\n" +
+    "@RFE:A 0x30\n" +
+    "@RFE:S 0x10,RooRealVar,x\n" +
+    "@RFE:TEXT\n" +
+    "--- RooAbsArg ---\n" +
+    "  Address: 0x30\n" +
+    "  Servers: \n" +
+    "    (0x10,V-) RooRealVar::x \"\"\n" +
+    "  Proxies: \n" +
+    "[#0] ERROR:Eval -- RooFormulaVar::f: evaluation error\n" +
+    "    actualVars -> \n" +
+    "      1)          x\n" +
+    "--- RooFormula ---\n" +
+    "  Formula: \"2*@0\"\n" +
+    "@RFE:ENDTEXT\n" +
+    "@RFE:E\n";
+
+  /** a RooFormulaVar whose Print("V") output misses the formula */
+  private static final String recordG =
+    "@RFE:M RooFormulaVar,0,0,0,0,1,0,g\n" +
+    "@RFE:A 0x40\n" +
+    "@RFE:TEXT\n" +
+    "--- RooAbsArg ---\n" +
+    "  Address: 0x40\n" +
+    "@RFE:ENDTEXT\n" +
+    "@RFE:E\n";
+
+  /** a RooRealVar with a garbled server line */
+  private static final String recordHBroken =
+    "@RFE:M RooRealVar,0,0,1,0,1,0,h\n" +
+    "@RFE:A 0x50\n" +
+    "@RFE:S garbage\n" +
+    "@RFE:V 2,1\n" +
+    "@RFE:E\n";
+
+  private static final String recordH =
+    "@RFE:M RooRealVar,0,0,1,0,1,0,h\n" +
+    "@RFE:A 0x50\n" +
+    "@RFE:V 2,1\n" +
+    "@RFE:E\n";
+
+  //----------------------------------------------------------------------
+
+  private static ROOTSessionRecording makeRecording()
+  {
+    ROOTSessionRecording retval = new ROOTSessionRecording();
+
+    retval.add(ROOTSessionRecording.KIND_TEMP_FILE, "rooFitExplorer\n.txt", dumpFname);
+    retval.add(ROOTSessionRecording.KIND_COMMAND, WorkspaceDumpCommands.bulkDumpCommand("w", dumpFname, false), "");
+    retval.add(ROOTSessionRecording.KIND_READ_FILE, dumpFname, recordX + recordF + recordG + recordHBroken);
+    retval.add(ROOTSessionRecording.KIND_COMMAND, WorkspaceDumpCommands.deleteFileCommand(dumpFname), "");
+
+    // the answers when fetching single members again
+    retval.add(ROOTSessionRecording.KIND_COMMAND, WorkspaceDumpCommands.memberRecordCommand("w", "f", false), recordF);
+    retval.add(ROOTSessionRecording.KIND_COMMAND, WorkspaceDumpCommands.memberRecordCommand("w", "g", false), recordG);
+    retval.add(ROOTSessionRecording.KIND_COMMAND, WorkspaceDumpCommands.memberRecordCommand("w", "h", false), recordH);
+
+    return retval;
+  }
+
+  //----------------------------------------------------------------------
+
+  /** members which can not be parsed do not stop reading the workspace,
+   *  they are retried and the remaining ones are reported */
+  @Test
+  public void test01() throws Exception
+  {
+    WorkspaceReaderOptions options = new WorkspaceReaderOptions();
+    options.bulkDump = true;
+    options.maxParseRetries = 2;
+
+    WorkspaceDataReader2 reader = new WorkspaceDataReader2(new ReplayingROOTRunner(makeRecording(), 0), "test.root", "w", options);
+    assertTrue(reader.read());
+
+    WorkspaceData workspace = reader.getWorkspace();
+    assertEquals(3, workspace.getMembers().size());
+    assertNotNull(workspace.findByName("x"));
+    assertNotNull(workspace.findByName("h"));
+
+    // parsed after removing the message
+    RooFormulaVarData f = (RooFormulaVarData) workspace.findByName("f");
+    assertEquals("2*@0", f.getFormulaTemplate());
+    assertEquals(1, f.getVariableNames().size());
+    assertEquals("x", f.getVariableNames().get(0));
+    assertEquals(f, workspace.findByName("x").getClients().get(0));
+
+    // registered itself before failing but was removed again
+    assertNull(workspace.findByName("g"));
+    assertNull(workspace.findByAddress("0x40"));
+
+    List<QuarantinedMember> quarantined = reader.getQuarantinedMembers();
+    assertEquals(1, quarantined.size());
+    assertEquals("g", quarantined.get(0).getVarName());
+    assertEquals(2, quarantined.get(0).getNumRetries());
+
+    // must not be cached
+    assertFalse(reader.isComplete());
+  }
+
+  //----------------------------------------------------------------------
+
+  /** without retries, the members are only quarantined */
+  @Test
+  public void test02() throws Exception
+  {
+    WorkspaceReaderOptions options = new WorkspaceReaderOptions();
+    options.bulkDump = true;
+    options.maxParseRetries = 0;
+
+    WorkspaceDataReader2 reader = new WorkspaceDataReader2(new ReplayingROOTRunner(makeRecording(), 0), "test.root", "w", options);
+    assertTrue(reader.read());
+
+    assertEquals(1, reader.getWorkspace().getMembers().size());
+
+    // the link to f was dropped
+    assertTrue(reader.getWorkspace().findByName("x").getClients().isEmpty());
+
+    List<QuarantinedMember> quarantined = reader.getQuarantinedMembers();
+    assertEquals(3, quarantined.size());
+    assertEquals("f", quarantined.get(0).getVarName());
+    assertEquals("g", quarantined.get(1).getVarName());
+    assertEquals("h", quarantined.get(2).getVarName());
+    assertTrue(quarantined.get(2).getError().getOriginalCause() instanceof IllegalArgumentException);
+    assertFalse(reader.isComplete());
+  }
+
+  //----------------------------------------------------------------------
+
+  /** in summary-only mode, the formula is only available once the 
+   *  Print("V") output can be fetched, i.e. after reading */
+  @Test
+  public void test03() throws Exception
+  {
+    String summaryX = 
+      "@RFE:M RooRealVar,0,0,1,0,1,0,x\n" +
+      "@RFE:A 0x10\n" +
+      "@RFE:C 0x30,RooFormulaVar,f\n" +
+      "@RFE:V 1.5,0\n" +
+      "@RFE:E\n";
+    String summaryF = 
+      "@RFE:M RooFormulaVar,0,0,0,0,1,0,f\n" +
+      "@RFE:A 0x30\n" +
+      "@RFE:S 0x10,RooRealVar,x\n" +
+      "@RFE:E\n";
+    String printF =
+      "--- RooAbsArg ---\n" +
+      "  Address: 0x30\n" +
+      "  Proxies: \n" +
+      "    actualVars -> \n" +
+      "      1)          x\n" +
+      "--- RooFormula ---\n" +
+      "  Formula: \"2*@0\"\n";
+
+    ROOTSessionRecording recording = new ROOTSessionRecording();
+    recording.add(ROOTSessionRecording.KIND_TEMP_FILE, "rooFitExplorer\n.txt", dumpFname);
+    recording.add(ROOTSessionRecording.KIND_COMMAND, WorkspaceDumpCommands.bulkDumpCommand("w", dumpFname, true), "");
+    recording.add(ROOTSessionRecording.KIND_READ_FILE, dumpFname, summaryX + summaryF);
+    recording.add(ROOTSessionRecording.KIND_COMMAND, WorkspaceDumpCommands.deleteFileCommand(dumpFname), "");
+    recording.add(ROOTSessionRecording.KIND_COMMAND, GenericWorkspaceMember.getMemberVerboseDataRootCommand("w", "f"), printF);
+
+    WorkspaceReaderOptions options = new WorkspaceReaderOptions();
+    options.bulkDump = true;
+    options.summaryOnly = true;
+
+    WorkspaceDataReader2 reader = new WorkspaceDataReader2(new ReplayingROOTRunner(recording, 0), "test.root", "w", options);
+
+    // what a panel showing the members while reading sees
+    final List<String> formulasWhileReading = new ArrayList<String>();
+    reader.getWorkspace().addLoadListener(new WorkspaceLoadListener()
+    {
+      public void membersAdded(WorkspaceData workspace, List<GenericWorkspaceMember> members)
+      {
+        for (GenericWorkspaceMember member : members)
+          if (member instanceof RooFormulaVarData)
+          {
+            RooFormulaVarData f = (RooFormulaVarData) member;
+            formulasWhileReading.add(String.valueOf(f.getFormulaTemplate()));
+            assertTrue(f.getVariableNames().isEmpty());
+            assertNull(f.getExpandedFormulaTemplate());
+          }
+      }
+
+      public void loadProgress(WorkspaceData workspace, int numRead, int numTotal)
+      {
+      }
+
+      public void loadFinished(WorkspaceData workspace, boolean completed)
+      {
+      }
+    });
+
+    assertTrue(reader.read());
+    assertEquals(1, formulasWhileReading.size());
+    assertEquals("null", formulasWhileReading.get(0));
+
+    // fetched from ROOT now
+    RooFormulaVarData f = (RooFormulaVarData) reader.getWorkspace().findByName("f");
+    assertEquals("2*@0", f.getFormulaTemplate());
+    assertEquals("2*x", f.getExpandedFormulaTemplate());
+  }
+
+  //----------------------------------------------------------------------
+
+  /** commands from the user interface are refused while the reader
+   *  uses the ROOT session and accepted afterwards */
+  @Test
+  public void test04() throws Exception
+  {
+    final String setValueCommand = 
+      "{ RooRealVar *xvar = w->var(\"member4\");\n" +
+      "  xvar->setVal(3.5);\n" +
+      "}\n";
+
+    ROOTSessionRecording recording = SyntheticWorkspaces.makeRecording(2000);
+    recording.add(ROOTSessionRecording.KIND_COMMAND, setValueCommand, "");
+
+    WorkspaceReaderOptions options = new WorkspaceReaderOptions();
+    options.bulkDump = false;
+
+    WorkspaceDataReader2 reader = new WorkspaceDataReader2(new ReplayingROOTRunner(recording, 0), "test.root", "w", options);
+
+    // what the 'set value...' action does while the members are being announced
+    final List<String> errors = new ArrayList<String>();
+    reader.getWorkspace().addLoadListener(new WorkspaceLoadListener()
+    {
+      public void membersAdded(WorkspaceData workspace, List<GenericWorkspaceMember> members)
+      {
+        RooRealVarData var = (RooRealVarData) workspace.findByName("member4");
+        if (var == null || ! errors.isEmpty())
+          return;
+
+        try
+        {
+          var.setValue(3.5);
+          fail("expected the command to be refused while reading");
+        }
+        catch (IOException ex)
+        {
+          errors.add(ex.getMessage());
+        }
+      }
+
+      public void loadProgress(WorkspaceData workspace, int numRead, int numTotal)
+      {
+      }
+
+      public void loadFinished(WorkspaceData workspace, boolean completed)
+      {
+      }
+    });
+
+    assertTrue(reader.read());
+    assertTrue(reader.isComplete());
+    assertEquals(1, errors.size());
+    assertEquals(2000, reader.getWorkspace().getMembers().size());
+
+    // the value was not changed
+    RooRealVarData var = (RooRealVarData) reader.getWorkspace().findByName("member4");
+    assertEquals(Double.valueOf(2.0), var.getValue());
+
+    // the session is free now
+    var.setValue(3.5);
+    assertEquals(Double.valueOf(3.5), var.getValue());
+  }
+
+  //----------------------------------------------------------------------
+
+}
@@ -0,0 +1,348 @@
+/*
+ * Copyright 2013 University of California, San Diego.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucsd.hep.roofitexplorer;
+
+import edu.ucsd.hep.roofitexplorer.datatypes.GenericWorkspaceMember;
+import edu.ucsd.hep.roofitexplorer.datatypes.MemberDumpDecoder;
+import edu.ucsd.hep.roofitexplorer.datatypes.MemberDumpRecord;
+import edu.ucsd.hep.roofitexplorer.datatypes.MemberKind;
+import edu.ucsd.hep.roofitexplorer.datatypes.VerbosePrintOutput;
+import edu.ucsd.hep.roofitexplorer.datatypes.VerbosePrintOutput.ClientServerRecord;
+import edu.ucsd.hep.roofitexplorer.datatypes.WorkspaceMemberList;
+import edu.ucsd.hep.roofitexplorer.graph.MemberGraph;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author holzner
+ */
+public class WorkspaceDataTest
+{
+  //----------------------------------------------------------------------
+
+  /** creates a member without servers and clients */
+  static GenericWorkspaceMember makeMember(WorkspaceData ws, String name, String address)
+  {
+    String dump = 
+      MemberDumpDecoder.MARKER_MEMBER + "RooRealVar,0,0,1,0,1,0," + name + "\n" +
+      MemberDumpDecoder.MARKER_ADDRESS + address + "\n" +
+      MemberDumpDecoder.MARKER_END + "\n";
+
+    MemberDumpRecord record = MemberDumpDecoder.decode(dump).get(0);
+    return new GenericWorkspaceMember(ws, record, new VerbosePrintOutput(""));
+  }
+
+  //----------------------------------------------------------------------
+
+  /** checks that listeners are notified about members published while loading */
+  @Test
+  public void test01() throws Exception
+  {
+    WorkspaceData ws = WorkspaceData.makeDummyWorkspace();
+    ws.loadingStarted();
+    assertTrue(ws.isLoading());
+
+    makeMember(ws, "a", "0x1");
+
+    // not yet published
+    final List<GenericWorkspaceMember> added = new ArrayList<GenericWorkspaceMember>();
+    final List<Boolean> finished = new ArrayList<Boolean>();
+
+    List<GenericWorkspaceMember> before = ws.addLoadListener(new WorkspaceLoadListener()
+    {
+      public void membersAdded(WorkspaceData workspace, List<GenericWorkspaceMember> members)
+      {
+        added.addAll(members);
+      }
+
+      public void loadProgress(WorkspaceData workspace, int numRead, int numTotal)
+      {
+      }
+
+      public void loadFinished(WorkspaceData workspace, boolean completed)
+      {
+        finished.add(completed);
+      }
+    });
+
+    assertTrue(before.isEmpty());
+
+    ws.publishNewMembers();
+    assertEquals(1, added.size());
+
+    // published when loading finishes
+    makeMember(ws, "b", "0x2");
+    ws.loadingFinished(true);
+
+    assertEquals(2, added.size());
+    assertEquals("b", added.get(1).getVarName());
+    assertEquals(1, finished.size());
+    assertTrue(finished.get(0));
+    assertFalse(ws.isLoading());
+  }
+
+  //----------------------------------------------------------------------
+
+  /** in compact mode, released Print("V") outputs are read back from the spill file */
+  @Test
+  public void test02() throws Exception
+  {
+    WorkspaceData ws = WorkspaceData.makeDummyWorkspace();
+    ws.setDetailSpillFile(new DetailSpillFile());
+
+    String text = "--- RooAbsArg ---\n  Address: 0x1\n";
+    GenericWorkspaceMember member = new GenericWorkspaceMember(ws, "a", "RooRealVar", new VerbosePrintOutput(text));
+    assertEquals("0x1", member.getAddress());
+
+    ws.spillDetailedData(member);
+    assertNull(member.releaseDetailedData());
+
+    assertEquals(text, member.getDetailedData().getOriginalOutput());
+    assertEquals("0x1", member.getDetailedData().findValue("RooAbsArg", "Address"));
+
+    // without the spill file, the released output is fetched from ROOT again
+    String textB = "--- RooAbsArg ---\n  Address: 0x2\n";
+    ROOTSessionRecording recording = new ROOTSessionRecording();
+    recording.add(ROOTSessionRecording.KIND_COMMAND, GenericWorkspaceMember.getMemberVerboseDataRootCommand("w", "b"), textB);
+
+    // the output is fetched without the lock on the workspace held
+    final WorkspaceData[] fetchingFrom = new WorkspaceData[1];
+    final boolean[] lockHeld = new boolean[1];
+    ReplayingROOTRunner runner = new ReplayingROOTRunner(recording, 0)
+    {
+      @Override
+      public String getCommandOutput(String cmd) throws IOException
+      {
+        lockHeld[0] |= Thread.holdsLock(fetchingFrom[0]);
+        return super.getCommandOutput(cmd);
+      }
+    };
+
+    ws = new WorkspaceData("test.root", "w", runner);
+    fetchingFrom[0] = ws;
+    ws.setDetailCacheSize(10);
+    GenericWorkspaceMember other = makeMember(ws, "b", "0x2");
+    ws.spillDetailedData(other);
+    assertNull(other.releaseDetailedData());
+
+    VerbosePrintOutput fetched = other.getDetailedData();
+    assertTrue(fetched.isAvailable());
+    assertEquals(textB, fetched.getOriginalOutput());
+    assertFalse(lockHeld[0]);
+
+    // kept in the cache, the recording has only one command
+    assertSame(fetched, other.getDetailedData());
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return the names of the servers (and their servers etc.) or clients
+   *  of the given member found by following the records by name */
+  private static Set<String> findAllNames(WorkspaceData ws, GenericWorkspaceMember member, boolean servers)
+  {
+    Set<String> retval = new HashSet<String>();
+    LinkedList<GenericWorkspaceMember> todo = new LinkedList<GenericWorkspaceMember>();
+    todo.add(member);
+
+    while (! todo.isEmpty())
+    {
+      GenericWorkspaceMember current = todo.removeFirst();
+      for (ClientServerRecord record : servers ? current.getServerRecords() : current.getClientRecords())
+        if (retval.add(record.getVarName()))
+          todo.add(ws.findByName(record.getVarName()));
+    }
+
+    return retval;
+  }
+
+  //----------------------------------------------------------------------
+
+  /** the graph built after reading gives the same links as the records */
+  @Test
+  public void test03() throws Exception
+  {
+    WorkspaceData ws = SyntheticWorkspaces.read(1000);
+
+    MemberGraph graph = ws.getGraph();
+    assertNotNull(graph);
+    assertSame(graph, ws.getGraph());
+    assertEquals(1000, graph.getNumMembers());
+
+    for (int id = 0; id < 1000; ++id)
+    {
+      GenericWorkspaceMember member = ws.getMember(id);
+      assertEquals(id, member.getId());
+
+      List<GenericWorkspaceMember> servers = member.getServers().getList();
+      assertEquals(member.getServerRecords().size(), servers.size());
+      for (int i = 0; i < servers.size(); ++i)
+        assertEquals(member.getServerRecords().get(i).getVarName(), servers.get(i).getVarName());
+
+      List<GenericWorkspaceMember> clients = member.getClients().getList();
+      assertEquals(member.getClientRecords().size(), clients.size());
+      for (int i = 0; i < clients.size(); ++i)
+        assertEquals(member.getClientRecords().get(i).getVarName(), clients.get(i).getVarName());
+
+      // the views and index based accessors give the same members
+      assertEquals(servers, member.getServersView());
+      assertEquals(clients, member.getClientsView());
+      assertEquals(servers.size(), member.getNumServerMembers());
+      for (int i = 0; i < servers.size(); ++i)
+        assertSame(servers.get(i), member.getServerMember(i));
+      assertEquals(clients.size(), member.getNumClientMembers());
+      for (int i = 0; i < clients.size(); ++i)
+        assertSame(clients.get(i), member.getClientMember(i));
+
+      Set<String> allServers = findAllNames(ws, member, true);
+      assertEquals(allServers.size(), member.getOverallNumServers());
+
+      int numLeaves = 0;
+      for (String name : allServers)
+        if (! ws.findByName(name).hasServers())
+          ++numLeaves;
+      assertEquals(numLeaves, member.getLeafServers().size());
+
+      Set<String> allClients = findAllNames(ws, member, false);
+      assertEquals(allClients.size(), member.getOverallNumClients());
+      assertEquals(allClients.size(), member.getOverallClients().size());
+    }
+
+    // the links can not be changed anymore once the workspace was read
+    GenericWorkspaceMember a = ws.getMember(4), b = ws.getMember(8);
+    try
+    {
+      a.addServer(b);
+      fail("expected an exception when adding a link after reading");
+    }
+    catch (IllegalStateException ex)
+    {
+      // expected
+    }
+    assertSame(graph, ws.getGraph());
+    assertTrue(a.getServers().isEmpty());
+
+    // in a workspace which was not read by a reader, adding a link rebuilds the graph
+    WorkspaceData other = WorkspaceData.makeDummyWorkspace();
+    GenericWorkspaceMember c = makeMember(other, "c", "0x1"), d = makeMember(other, "d", "0x2");
+    graph = other.getGraph();
+    c.addServer(d);
+    assertNotSame(graph, other.getGraph());
+    assertEquals(d, c.getServers().get(0));
+  }
+
+  //----------------------------------------------------------------------
+
+  /** links known to only one side are added to the other side */
+  @Test
+  public void test04() throws Exception
+  {
+    WorkspaceData ws = WorkspaceData.makeDummyWorkspace();
+    ws.loadingStarted();
+
+    GenericWorkspaceMember a = makeMember(ws, "a", "0x1");
+    GenericWorkspaceMember b = makeMember(ws, "b", "0x2");
+    GenericWorkspaceMember c = makeMember(ws, "c", "0x3");
+
+    a.addServer(b);
+    b.addClient(a);
+    c.addServer(a);
+    b.addClient(c);
+
+    MemberGraph repaired = ws.addMissingServerClientLinks();
+    ws.loadingFinished(true);
+
+    assertSame(repaired, ws.getRepairedLinks());
+    assertEquals(1, repaired.getNumServerLinks());
+    assertEquals(1, repaired.getNumClientLinks());
+
+    assertEquals(1, a.getNumClientMembers());
+    assertSame(c, a.getClientMember(0));
+    assertEquals(2, c.getNumServerMembers());
+    assertSame(b, c.getServerMember(1));
+
+    // nothing left to fix
+    assertEquals(0, ws.getGraph().getMissingLinks().getNumServerLinks());
+    assertEquals(0, ws.getGraph().getMissingLinks().getNumClientLinks());
+  }
+
+  //----------------------------------------------------------------------
+
+  /** the indexes give the same members as going through all members */
+  @Test
+  public void test05() throws Exception
+  {
+    WorkspaceData ws = SyntheticWorkspaces.read(1000);
+    WorkspaceMemberList members = ws.getMembers();
+
+    // (also in the same order)
+    assertEquals(members.getPDFs().getList(), ws.getPDFs().getList());
+    assertEquals(members.getFunctions().getList(), ws.getFunctions().getList());
+    assertEquals(250, ws.getPDFs().size());
+    assertEquals(750, ws.getFunctions().size());
+
+    // members which are removed again while reading are also removed from the indexes
+    WorkspaceData other = WorkspaceData.makeDummyWorkspace();
+    other.loadingStarted();
+    makeMember(other, "a", "0x1");
+    other.publishNewMembers();
+    makeMember(other, "b", "0x2");
+    other.discardUnpublishedMembers(1);
+    other.loadingFinished(true);
+
+    // (makeMember(..) creates GenericWorkspaceMember objects)
+    assertEquals(1, other.getMembersOfKind(MemberKind.UNKNOWN).size());
+    assertSame(other.getMembers().get(0), other.getMembersOfKind(MemberKind.UNKNOWN).get(0));
+  }
+
+  //----------------------------------------------------------------------
+
+  /** links to members which were not read yet are left out while loading */
+  @Test
+  public void test06() throws Exception
+  {
+    WorkspaceData ws = WorkspaceData.makeDummyWorkspace();
+    ws.loadingStarted();
+
+    String dump = 
+      MemberDumpDecoder.MARKER_MEMBER + "RooProduct,0,0,0,0,1,0,a\n" +
+      MemberDumpDecoder.MARKER_ADDRESS + "0x1\n" +
+      MemberDumpDecoder.MARKER_SERVER + "0x2,RooRealVar,b\n" +
+      MemberDumpDecoder.MARKER_END + "\n";
+    GenericWorkspaceMember a = new GenericWorkspaceMember(ws, MemberDumpDecoder.decode(dump).get(0), new VerbosePrintOutput(""));
+
+    assertTrue(a.hasServers());
+    assertTrue(a.getServers().isEmpty());
+    assertEquals(0, a.getLeafServers().size());
+
+    // found once it is there
+    GenericWorkspaceMember b = makeMember(ws, "b", "0x2");
+    assertEquals(1, a.getNumServerMembers());
+    assertSame(b, a.getServerMember(0));
+
+    ws.loadingFinished(true);
+    assertSame(b, a.getServers().get(0));
+  }
+
+  //----------------------------------------------------------------------
+
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2013 University of California, San Diego.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucsd.hep.roofitexplorer;
+
+import edu.ucsd.hep.roofitexplorer.datatypes.GenericWorkspaceMember;
+import edu.ucsd.hep.roofitexplorer.datatypes.VerbosePrintOutput.ClientServerRecord;
+import java.io.File;
+
+/**
+ * Times reading workspaces with WorkspaceDataReader2 without ROOT,
+ * using ReplayingROOTRunner. Not run as part of the unit tests.
+ *
+ * Usage:
+ * <pre>
+ *   WorkspaceReaderBenchmark [--parse-threads N] [latencyMillis]
+ *       reads synthetic workspaces (see SyntheticWorkspaces) with 1k, 10k 
+ *       and 100k members
+ *
+ *   WorkspaceReaderBenchmark [--parse-threads N] recording workspaceName bulk|batch [latencyMillis]
+ *       reads a workspace from a file written with the --record-root option
+ *       (the mode must be the one which was used when recording)
+ * </pre>
+ *
+ * --parse-threads sets the number of threads decoding the output
+ * of ROOT (see WorkspaceReaderOptions.parseThreads), the default 
+ * is the number of processors.
+ *
+ * @author holzner
+ */
+public class WorkspaceReaderBenchmark
+{
+  //----------------------------------------------------------------------
+
+  /** reads the workspace once and prints the times of the different phases */
+  private static void run(String label, ROOTSessionRecording recording, String wsName,
+                          boolean bulkDump, int parseThreads, long latencyMillis) throws Exception
+  {
+    WorkspaceReaderOptions options = new WorkspaceReaderOptions();
+    options.bulkDump = bulkDump;
+    options.parseThreads = parseThreads;
+
+    ReplayingROOTRunner rootRunner = new ReplayingROOTRunner(recording, latencyMillis);
+
+    long start = System.nanoTime();
+    WorkspaceDataReader2 reader = new WorkspaceDataReader2(rootRunner, null, "benchmark.root", wsName, options);
+    reader.read();
+    long elapsed = System.nanoTime() - start;
+
+    System.out.println(String.format("%-30s %-6s %2d threads %7d members %9.1f ms: %s",
+                                     label, bulkDump ? "bulk" : "batch", parseThreads,
+                                     reader.getWorkspace().getMembers().size(),
+                                     elapsed / 1e6,
+                                     reader.getPhaseTimes()));
+
+    System.out.println("  strings: " + StringFootprint.of(reader.getWorkspace().getMembers().getList()));
+    System.out.println(String.format("  looking up all servers by address: %.1f ms",
+                                     timeServerLookups(reader.getWorkspace()) / 1e6));
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return the time needed to look up the servers of all members by address */
+  private static long timeServerLookups(WorkspaceData workspace)
+  {
+    int numFound = 0;
+    long start = System.nanoTime();
+    for (GenericWorkspaceMember member : workspace.getMembers().getList())
+      for (ClientServerRecord server : member.getServerRecords())
+        if (workspace.findByAddress(server.getAddress()) != null)
+          ++numFound;
+
+    long elapsed = System.nanoTime() - start;
+    if (numFound == 0)
+      System.out.println("  (no servers found)");
+
+    return elapsed;
+  }
+
+  //----------------------------------------------------------------------
+
+  public static void main(String argv[]) throws Exception
+  {
+    int parseThreads = Runtime.getRuntime().availableProcessors();
+    if (argv.length >= 2 && "--parse-threads".equals(argv[0]))
+    {
+      parseThreads = Integer.parseInt(argv[1]);
+
+      String[] rest = new String[argv.length - 2];
+      System.arraycopy(argv, 2, rest, 0, rest.length);
+      argv = rest;
+    }
+
+    if (argv.length >= 3)
+    {
+      ROOTSessionRecording recording = ROOTSessionRecording.read(new File(argv[0]));
+      long latencyMillis = argv.length >= 4 ? Long.parseLong(argv[3]) : 0;
+
+      // the first run warms up the JVM
+      for (int i = 0; i < 2; ++i)
+        run(argv[0], recording, argv[1], "bulk".equals(argv[2]), parseThreads, latencyMillis);
+
+      return;
+    }
+
+    long latencyMillis = argv.length >= 1 ? Long.parseLong(argv[0]) : 0;
+
+    // warm up
+    run("warmup", SyntheticWorkspaces.makeRecording(1000), SyntheticWorkspaces.workspaceName, true, parseThreads, 0);
+
+    for (int numMembers : new int[] { 1000, 10000, 100000 })
+    {
+      ROOTSessionRecording recording = SyntheticWorkspaces.makeRecording(numMembers);
+
+      run("synthetic", recording, SyntheticWorkspaces.workspaceName, true, parseThreads, latencyMillis);
+      run("synthetic", recording, SyntheticWorkspaces.workspaceName, false, parseThreads, latencyMillis);
+    }
+  }
+
+  //----------------------------------------------------------------------
+
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2013 University of California, San Diego.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucsd.hep.roofitexplorer;
+
+import edu.ucsd.hep.roofitexplorer.datatypes.GenericWorkspaceMember;
+import edu.ucsd.hep.roofitexplorer.datatypes.RooRealVarData;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author holzner
+ */
+public class WorkspaceSnapshotTest
+{
+  //----------------------------------------------------------------------
+
+  /** changing a value makes a new version, the old one does not change */
+  @Test
+  public void test01() throws Exception
+  {
+    ROOTSessionRecording recording = SyntheticWorkspaces.makeRecording(1000);
+    recording.add(ROOTSessionRecording.KIND_COMMAND, 
+                  "{ RooRealVar *xvar = w->var(\"member4\");\n" +
+                  "  xvar->setVal(3.5);\n" +
+                  "}\n", "");
+    WorkspaceData ws = SyntheticWorkspaces.read(recording);
+
+    WorkspaceSnapshot first = ws.getSnapshot();
+    assertNotNull(first);
+    assertSame(first, ws.getSnapshot());
+    assertSame(ws.getGraph(), first.getGraph());
+    assertEquals(0, first.getVersion());
+    assertEquals(1000, first.getNumMembers());
+
+    // every fourth member is a variable with value index / 2
+    RooRealVarData var = (RooRealVarData) ws.findByName("member4");
+    GenericWorkspaceMember otherVar = ws.findByName("member996");
+    assertEquals(Double.valueOf(2.0), first.getValue(var));
+    assertEquals(Double.valueOf(498.0), first.getValue(otherVar));
+    assertNull(first.getValue(ws.findByName("member5")));
+
+    var.setValue(3.5);
+
+    WorkspaceSnapshot second = ws.getSnapshot();
+    assertEquals(1, second.getVersion());
+    assertEquals(Double.valueOf(3.5), second.getValue(var));
+    assertEquals(Double.valueOf(2.0), first.getValue(var));
+
+    // only the part with the changed value was copied
+    assertSame(first.getGraph(), second.getGraph());
+    assertSame(first.getMembers(), second.getMembers());
+    assertFalse(second.sharesValuesWith(first, var.getId()));
+    assertTrue(second.sharesValuesWith(first, otherVar.getId()));
+
+    // the structure can not be changed anymore
+    try
+    {
+      WorkspaceDataTest.makeMember(ws, "new", "0x1");
+      fail("expected an exception when adding a member after reading");
+    }
+    catch (IllegalStateException ex)
+    {
+      // expected
+    }
+    assertEquals(1000, ws.getSnapshot().getNumMembers());
+  }
+
+  //----------------------------------------------------------------------
+
+  /** a reader working on a snapshot always sees the same values
+   *  while another thread keeps changing them */
+  @Test
+  public void test02() throws Exception
+  {
+    final WorkspaceData ws = SyntheticWorkspaces.read(10000);
+    final WorkspaceSnapshot snapshot = ws.getSnapshot();
+
+    final int numChanges = 2000;
+    final List<GenericWorkspaceMember> variables = new ArrayList<GenericWorkspaceMember>();
+    for (int id = 0; variables.size() < numChanges; ++id)
+      if (snapshot.getMember(id) instanceof RooRealVarData)
+        variables.add(snapshot.getMember(id));
+
+    double sum = 0;
+    for (int id = 0; id < snapshot.getNumMembers(); ++id)
+      if (snapshot.getValue(id) != null)
+        sum += snapshot.getValue(id);
+    final double expectedSum = sum;
+
+    Thread writer = new Thread()
+    {
+      @Override
+      public void run()
+      {
+        for (int i = 0; i < numChanges; ++i)
+          ws.valueChanged(variables.get(i), (double) -i);
+      }
+    };
+    writer.start();
+
+    while (writer.isAlive())
+    {
+      double currentSum = 0;
+      for (int id = 0; id < snapshot.getNumMembers(); ++id)
+        if (snapshot.getValue(id) != null)
+          currentSum += snapshot.getValue(id);
+      assertEquals(expectedSum, currentSum, 0);
+    }
+    writer.join();
+
+    WorkspaceSnapshot last = ws.getSnapshot();
+    assertEquals(numChanges, last.getVersion());
+    assertEquals(Double.valueOf(-(numChanges - 1)), last.getValue(variables.get(numChanges - 1)));
+  }
+
+  //----------------------------------------------------------------------
+
+  /** only variables have values, workspaces read back from a file
+   *  can not be changed either */
+  @Test
+  public void test03() throws Exception
+  {
+    WorkspaceData ws = SyntheticWorkspaces.read(100);
+
+    try
+    {
+      ws.valueChanged(ws.findByName("member5"), 1.0);
+      fail("expected an exception when setting the value of a function");
+    }
+    catch (IllegalArgumentException ex)
+    {
+      // expected
+    }
+    assertEquals(0, ws.getSnapshot().getVersion());
+
+    File file = File.createTempFile("rooFitExplorerTest", ".obj");
+    try
+    {
+      ws.writeToJavaSerializationFile(file.getPath());
+      WorkspaceData readBack = WorkspaceData.readJavaSerializationfile(file.getPath());
+
+      try
+      {
+        WorkspaceDataTest.makeMember(readBack, "new", "0x1");
+        fail("expected an exception when adding a member to a workspace read from a file");
+      }
+      catch (IllegalStateException ex)
+      {
+        // expected
+      }
+    }
+    finally
+    {
+      file.delete();
+    }
+  }
+
+  //----------------------------------------------------------------------
+
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2013 University of California, San Diego.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucsd.hep.roofitexplorer.datatypes;
+
+import edu.ucsd.hep.roofitexplorer.datatypes.VerbosePrintOutput.ClientServerRecord;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compares the time needed to parse client/server lines of Print("V")
+ * with a regular expression compiled for every line (as it used to be done), 
+ * with a precompiled regular expression and with the hand written scanner.
+ * Not run as part of the unit tests.
+ *
+ * Usage:
+ * <pre>
+ *   ClientServerRecordBenchmark [numLines]
+ * </pre>
+ *
+ * @author holzner
+ */
+public class ClientServerRecordBenchmark
+{
+  /** prevents the JIT from optimizing the parsing away */
+  private static int checksum;
+
+  //----------------------------------------------------------------------
+
+  private static String[] makeLines(int numLines)
+  {
+    String[] retval = new String[numLines];
+    for (int i = 0; i < numLines; ++i)
+      retval[i] = "    (0x" + Integer.toHexString(0x1000000 + 16 * i) + ",V-) RooRealVar::var_" + i + " \"variable " + i + "\"";
+    return retval;
+  }
+
+  //----------------------------------------------------------------------
+
+  private static void consume(ClientServerRecord record)
+  {
+    checksum += record.getAddress().length() + record.getVarName().length();
+  }
+
+  //----------------------------------------------------------------------
+
+  private static long timeCompilingRegex(String[] lines)
+  {
+    long start = System.nanoTime();
+    for (String line : lines)
+    {
+      Matcher mo = Pattern.compile(ClientServerRecordTest.pattern.pattern()).matcher(line);
+      mo.matches();
+      consume(new ClientServerRecord(mo.group(1), mo.group(2), mo.group(3)));
+    }
+    return System.nanoTime() - start;
+  }
+
+  //----------------------------------------------------------------------
+
+  private static long timePrecompiledRegex(String[] lines)
+  {
+    long start = System.nanoTime();
+    for (String line : lines)
+      consume(ClientServerRecordTest.parseWithRegex(line));
+    return System.nanoTime() - start;
+  }
+
+  //----------------------------------------------------------------------
+
+  private static long timeScanner(String[] lines)
+  {
+    long start = System.nanoTime();
+    for (String line : lines)
+      consume(ClientServerRecord.scan(line, 0, line.length(), null));
+    return System.nanoTime() - start;
+  }
+
+  //----------------------------------------------------------------------
+
+  public static void main(String argv[])
+  {
+    // 20k members with an average of five clients and servers
+    int numLines = argv.length >= 1 ? Integer.parseInt(argv[0]) : 200000;
+    String[] lines = makeLines(numLines);
+
+    // the first rounds warm up the JVM
+    for (int round = 0; round < 5; ++round)
+    {
+      long compiling = timeCompilingRegex(lines);
+      long precompiled = timePrecompiledRegex(lines);
+      long scanner = timeScanner(lines);
+
+      System.out.println(String.format("round %d, %d lines: compiled per line %7.1f ms, precompiled %7.1f ms, scanner %7.1f ms",
+                                       round, numLines, compiling / 1e6, precompiled / 1e6, scanner / 1e6));
+    }
+
+    System.out.println("(checksum " + checksum + ")");
+  }
+
+  //----------------------------------------------------------------------
+
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2013 University of California, San Diego.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucsd.hep.roofitexplorer.datatypes;
+
+import edu.ucsd.hep.roofitexplorer.datatypes.VerbosePrintOutput.ClientServerRecord;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author holzner
+ */
+public class ClientServerRecordTest
+{
+  /** the regular expression which was used before the hand written scanner */
+  static final Pattern pattern = Pattern.compile(
+        "\\s*\\((0x\\S+),\\S+\\) (\\S+)::(\\S+) \\\"([^\\\"]*)\\\"\\s*"
+        );
+
+  /** characters from which the random lines are made. Includes whitespace
+   *  which is not matched by \s (but is by Character.isWhitespace(..)) */
+  private static final String alphabet = "(),:\" \t\r\u000B\u2003\u00a0x0aV-";
+
+  //----------------------------------------------------------------------
+
+  /** @return the record as parsed with the regular expression or null 
+   *  if the line does not match */
+  static ClientServerRecord parseWithRegex(String line)
+  {
+    Matcher mo = pattern.matcher(line);
+    if (! mo.matches())
+      return null;
+
+    return new ClientServerRecord(mo.group(1), mo.group(2), mo.group(3));
+  }
+
+  //----------------------------------------------------------------------
+
+  private static String toString(ClientServerRecord record)
+  {
+    if (record == null)
+      return null;
+    return record.getAddress() + "|" + record.getClassName() + "|" + record.getVarName();
+  }
+
+  //----------------------------------------------------------------------
+
+  private static void checkSame(String line)
+  {
+    assertEquals("line '" + line + "'",
+                 toString(parseWithRegex(line)),
+                 toString(ClientServerRecord.scan(line, 0, line.length(), null)));
+  }
+
+  //----------------------------------------------------------------------
+
+  @Test
+  public void test01() throws Exception
+  {
+    ClientServerRecord record = ClientServerRecord.parse("    (0x18433f0,V-) RooRecursiveFraction::frac_g2 \"Recursive Fraction\"");
+    assertEquals("0x18433f0", record.getAddress());
+    assertEquals("RooRecursiveFraction", record.getClassName());
+    assertEquals("frac_g2", record.getVarName());
+
+    // splits like the greedy groups of the regular expression
+    record = ClientServerRecord.parse("(0x1,2,V-) A::B::c \"\" ");
+    assertEquals("0x1,2", record.getAddress());
+    assertEquals("A::B", record.getClassName());
+    assertEquals("c", record.getVarName());
+
+    String[] lines = {
+      "(0x1,V-) A::b \"\"",
+      "(0x1,) A::b \"\"",
+      "(0x,V) A::b \"\"",
+      "(0x1,V-)  A::b \"\"",
+      "(0x1,V-) A::b \"title\" x",
+      "(0x1,V-) A::b \"ti\"tle\"",
+      "(0x1,V-) A:::b \"\"",
+      "(0x1,V-) ::b \"\"",
+      "(0x1,V-) A:: \"\"",
+      "(0x1,V-)\tA::b \"\"",
+      "(0x1,V-) A::b\t\"\"",
+      "(0x1,V-) A::b \"",
+      "\u2003(0x1,V-) A::b \"\"",
+      "",
+    };
+
+    for (String line : lines)
+      checkSame(line);
+
+    try
+    {
+      ClientServerRecord.parse("(0x1,V-) A::b");
+      fail("expected an exception for a malformed line");
+    }
+    catch (IllegalArgumentException ex)
+    {
+      // expected
+    }
+  }
+
+  //----------------------------------------------------------------------
+
+  /** compares the scanner with the regular expression on random lines
+   *  and on random modifications of well formed lines */
+  @Test
+  public void test02() throws Exception
+  {
+    Random random = new Random(1234);
+
+    int numMatched = 0;
+    for (int i = 0; i < 200000; ++i)
+    {
+      String line;
+      if (random.nextBoolean())
+      {
+        // completely random
+        StringBuilder buf = new StringBuilder();
+        int length = random.nextInt(30);
+        for (int j = 0; j < length; ++j)
+          buf.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        line = buf.toString();
+      }
+      else
+      {
+        // a well formed line with a few characters replaced, inserted or removed
+        StringBuilder buf = new StringBuilder("  (0x1a2,V-) Roo::Class::var_1 \"some title\" ");
+        int numChanges = random.nextInt(4);
+        for (int j = 0; j < numChanges; ++j)
+        {
+          int pos = random.nextInt(buf.length());
+          char c = alphabet.charAt(random.nextInt(alphabet.length()));
+          switch (random.nextInt(3))
+          {
+            case 0: buf.setCharAt(pos, c); break;
+            case 1: buf.insert(pos, c); break;
+            default: buf.deleteCharAt(pos); break;
+          }
+        }
+        line = buf.toString();
+      }
+
+      checkSame(line);
+
+      if (parseWithRegex(line) != null)
+        ++numMatched;
+    }
+
+    // make sure both the matching and non-matching cases were exercised
+    assertTrue(numMatched > 1000);
+    assertTrue(numMatched < 190000);
+  }
+
+  //----------------------------------------------------------------------
+
+}
@@ -0,0 +1,270 @@
+/*
+ * Copyright 2013 University of California, San Diego.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucsd.hep.roofitexplorer.datatypes;
+
+import java.util.List;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author holzner
+ */
+public class MemberDumpDecoderTest
+{
+  //----------------------------------------------------------------------
+
+  final String dump = 
+    "@RFE:M RooRealVar,0,0,1,0,1,0,x\n" +
+    "@RFE:TEXT\n" +
+    "--- RooAbsArg ---\n" +
+    "  Address: 0x1c34b80\n" +
+    "@RFE:ENDTEXT\n" +
+    "@RFE:V 1.5,1\n" +
+    "@RFE:E\n" +
+    
+    // error message printed by ROOT between two records
+    "[#0] ERROR:InputArguments -- something went wrong\n" +
+    
+    "@RFE:M RooAddPdf,1,0,0,0,1,0,pdf,with,commas\n" +
+    "@RFE:TEXT\n" +
+    "--- RooAbsArg ---\n" +
+    "@RFE:ENDTEXT\n" +
+    "@RFE:E\n";
+  
+  //----------------------------------------------------------------------
+
+  @Test
+  public void test01() throws Exception
+  {
+    List<MemberDumpRecord> records = MemberDumpDecoder.decode(dump);
+    
+    assertEquals(2, records.size());
+    
+    MemberDumpRecord var = records.get(0);
+    assertEquals("x", var.getVarName());
+    assertEquals("RooRealVar", var.getClassName());
+    assertEquals(MemberKind.REAL_VAR, var.getKind());
+    assertEquals(1.5, var.getValue(), 0);
+    assertEquals(Boolean.TRUE, var.getIsConstant());
+    assertEquals("--- RooAbsArg ---\n  Address: 0x1c34b80\n", var.getVerboseText());
+
+    MemberDumpRecord pdf = records.get(1);
+    assertEquals("pdf,with,commas", pdf.getVarName());
+    assertEquals(MemberKind.PDF, pdf.getKind());
+    assertNull(pdf.getValue());
+  }
+
+  //----------------------------------------------------------------------
+
+  /** a truncated record (e.g. ROOT crashed) must not be returned */
+  @Test
+  public void test02() throws Exception
+  {
+    List<MemberDumpRecord> records = MemberDumpDecoder.decode(dump.substring(0, dump.indexOf("@RFE:E")));
+    assertTrue(records.isEmpty());
+  }
+  
+  //----------------------------------------------------------------------
+
+  /** structured address, server, client, proxy and formula lines */
+  @Test
+  public void test03() throws Exception
+  {
+    String text = 
+      "@RFE:M RooFormulaVar,0,0,0,0,1,0,f\n" +
+      "@RFE:A 0x2fc1330\n" +
+      "@RFE:S 0x1c34b80,RooRealVar,x\n" +
+      "@RFE:S 0x18433f0,RooRealVar,y,z\n" +
+      "@RFE:C 0x1a00000,RooAddPdf,pdf\n" +
+      "@RFE:P actualVars,y,z\n" +
+      "@RFE:P actualVars,x\n" +
+      "@RFE:F formula=\"@0*@1\" \n" +
+      "@RFE:TEXT\n" +
+      "@RFE:ENDTEXT\n" +
+      "@RFE:E\n";
+
+    List<MemberDumpRecord> records = MemberDumpDecoder.decode(text);
+    assertEquals(1, records.size());
+
+    MemberDumpRecord f = records.get(0);
+    assertTrue(f.hasStructuredData());
+    assertEquals("0x2fc1330", f.getAddress());
+
+    assertEquals(2, f.getServers().size());
+    assertEquals("0x18433f0", f.getServers().get(1).getAddress());
+    assertEquals("RooRealVar", f.getServers().get(1).getClassName());
+    assertEquals("y,z", f.getServers().get(1).getVarName());
+
+    assertEquals(1, f.getClients().size());
+    assertEquals("pdf", f.getClients().get(0).getVarName());
+
+    assertEquals(2, f.getProxyMembers("actualVars").size());
+    assertEquals("y,z", f.getProxyMembers("actualVars").get(0));
+    assertNull(f.getProxyMembers("other"));
+
+    assertEquals("@0*@1", f.getFormula());
+    assertEquals("", f.getVerboseText());
+
+    // records without the structured lines
+    assertFalse(MemberDumpDecoder.decode(dump).get(0).hasStructuredData());
+  }
+
+  //----------------------------------------------------------------------
+
+  /** the same names and addresses are shared between records decoded
+   *  with the same pool */
+  @Test
+  public void test04() throws Exception
+  {
+    StringPool pool = new StringPool();
+
+    List<MemberDumpRecord> records1 = MemberDumpDecoder.decode(
+      "@RFE:M RooRealVar,0,0,1,0,1,0,x\n" +
+      "@RFE:A 0x1\r\n" +
+      "@RFE:C 0x2,RooAddPdf,pdf\n" +
+      "@RFE:E\n", pool);
+
+    List<MemberDumpRecord> records2 = MemberDumpDecoder.decode(
+      "@RFE:M RooAddPdf,1,0,0,0,1,0,pdf\n" +
+      "@RFE:A  0x2 \n" +
+      "@RFE:S 0x1,RooRealVar,x\r\n" +
+      "@RFE:E\n", pool);
+
+    MemberDumpRecord x = records1.get(0);
+    MemberDumpRecord pdf = records2.get(0);
+
+    assertEquals("0x1", x.getAddress());
+    assertEquals("0x2", pdf.getAddress());
+    assertEquals("x", pdf.getServers().get(0).getVarName());
+
+    assertSame(x.getVarName(), pdf.getServers().get(0).getVarName());
+    assertSame(x.getClassName(), pdf.getServers().get(0).getClassName());
+    assertSame(x.getAddress(), pdf.getServers().get(0).getAddress());
+    assertSame(pdf.getAddress(), x.getClients().get(0).getAddress());
+    assertSame(pdf.getClassName(), x.getClients().get(0).getClassName());
+
+    // six different strings (and the pool grows beyond its initial size)
+    assertEquals(6, pool.size());
+    for (int i = 0; i < 10000; ++i)
+      assertEquals("s" + i, pool.intern("xs" + i + "y", 1, 2 + Integer.toString(i).length()));
+    assertSame(x.getVarName(), pool.intern("x"));
+    assertEquals(10006, pool.size());
+  }
+
+  //----------------------------------------------------------------------
+
+  /** records with lines which can not be decoded are kept with the problem attached */
+  @Test
+  public void test05() throws Exception
+  {
+    List<MemberDumpRecord> records = MemberDumpDecoder.decode(
+      "@RFE:M RooRealVar,0,0,1,0,1,0,x\n" +
+      "@RFE:S garbage\n" +
+      "@RFE:V 1.5,0\n" +
+      "@RFE:E\n" +
+      "@RFE:M RooRealVar,0,0,1,0,1,0,y\n" +
+      "@RFE:V 2.5,0\n" +
+      "@RFE:E\n");
+
+    assertEquals(2, records.size());
+    assertTrue(records.get(0).getDecodeError() instanceof IllegalArgumentException);
+    assertEquals(1.5, records.get(0).getValue(), 0);
+    assertNull(records.get(1).getDecodeError());
+
+    String text = "--- RooAbsArg ---\n" +
+                  "[#1] ERROR:Eval -- something went wrong\n" +
+                  "  Proxies: \n" +
+                  "[#12] INFO:Minization -- done\r\n" +
+                  "[#] ERROR: not a message\n" +
+                  "[#1] error: neither\n" +
+                  "[#0] WARNING:InputArguments -- last line";
+
+    assertEquals("--- RooAbsArg ---\n" +
+                 "  Proxies: \n" +
+                 "[#] ERROR: not a message\n" +
+                 "[#1] error: neither\n",
+                 MemberDumpDecoder.removeMessageServiceLines(text));
+
+    // returns the same object if there is nothing to remove
+    String clean = "  Address: 0x1\n";
+    assertSame(clean, MemberDumpDecoder.removeMessageServiceLines(clean));
+  }
+
+  //----------------------------------------------------------------------
+
+  /** a record followed by the next one without an end line is kept with 
+   *  the problem attached */
+  @Test
+  public void test06() throws Exception
+  {
+    List<MemberDumpRecord> records = MemberDumpDecoder.decode(
+      "@RFE:M RooRealVar,0,0,1,0,1,0,x\n" +
+      "@RFE:V 1.5,0\n" +
+      "@RFE:M RooRealVar,0,0,1,0,1,0,y\n" +
+      "@RFE:TEXT\n" +
+      "--- RooAbsArg ---\n" +
+      "@RFE:M RooRealVar,0,0,1,0,1,0,z\n" +
+      "@RFE:V 2.5,0\n" +
+      "@RFE:E\n");
+
+    assertEquals(3, records.size());
+    assertEquals("x", records.get(0).getVarName());
+    assertTrue(records.get(0).getDecodeError() instanceof IllegalArgumentException);
+
+    // also if the text block was not terminated
+    assertEquals("y", records.get(1).getVarName());
+    assertNotNull(records.get(1).getDecodeError());
+
+    assertEquals("z", records.get(2).getVarName());
+    assertNull(records.get(2).getDecodeError());
+    assertEquals(2.5, records.get(2).getValue(), 0);
+  }
+
+  //----------------------------------------------------------------------
+
+  /** values printed as not-a-number or infinite by C++ streams */
+  @Test
+  public void test07() throws Exception
+  {
+    List<MemberDumpRecord> records = MemberDumpDecoder.decode(
+      "@RFE:M RooRealVar,0,0,1,0,1,0,a\n" +
+      "@RFE:V nan,0\n" +
+      "@RFE:E\n" +
+      "@RFE:M RooRealVar,0,0,1,0,1,0,b\n" +
+      "@RFE:V inf,1\n" +
+      "@RFE:E\n" +
+      "@RFE:M RooRealVar,0,0,1,0,1,0,c\n" +
+      "@RFE:V -inf,0\n" +
+      "@RFE:E\n" +
+      "@RFE:M RooConstVar,0,1,0,0,1,0,d\n" +
+      "@RFE:V -nan\r\n" +
+      "@RFE:E\n");
+
+    assertEquals(4, records.size());
+    for (MemberDumpRecord record : records)
+      assertNull(record.getDecodeError());
+
+    assertTrue(Double.isNaN(records.get(0).getValue()));
+    assertEquals(Double.POSITIVE_INFINITY, records.get(1).getValue(), 0);
+    assertEquals(Boolean.TRUE, records.get(1).getIsConstant());
+    assertEquals(Double.NEGATIVE_INFINITY, records.get(2).getValue(), 0);
+    assertTrue(Double.isNaN(records.get(3).getValue()));
+  }
+
+  //----------------------------------------------------------------------
+
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2013 University of California, San Diego.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucsd.hep.roofitexplorer.datatypes;
+
+import edu.ucsd.hep.roofitexplorer.datatypes.VerbosePrintOutput.ClientServerRecord;
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author holzner
+ */
+public class VerbosePrintOutputTest
+{
+  /** (shortened) output of Print("V") for a RooFormulaVar */
+  static final String printout =
+    "--- RooAbsArg ---\n" +
+    "  Value State: clean\n" +
+    "  Shape State: clean\n" +
+    "  Attributes:  \n" +
+    "  Address: 0x2fc1330\n" +
+    "  Clients: \n" +
+    "    (0x1c34b80,V-) RooAddPdf::hggpdf_cat2 \"\"\n" +
+    "  Servers: \n" +
+    "    (0x18433f0,V-) RooRealVar::x \"x axis\"\n" +
+    "    (0x18434f0,V-) RooRealVar::y \"\"\n" +
+    "  Proxies: \n" +
+    "    actualVars -> \n" +
+    "      1)          x\n" +
+    "      2)          y\n" +
+    "\r\n" +
+    "--- RooAbsReal ---\n" +
+    "\n" +
+    "  Internal value = 1.5\n" +
+    "--- RooFormula ---\n" +
+    "  Formula: \"@0*@1\"\n";
+
+  //----------------------------------------------------------------------
+
+  @Test
+  public void test01() throws Exception
+  {
+    VerbosePrintOutput output = new VerbosePrintOutput(printout);
+
+    assertEquals("0x2fc1330", output.findValue("RooAbsArg", "Address"));
+    assertEquals("0x2fc1330", output.getAddress());
+    assertEquals("clean", output.findValue("RooAbsArg", "Shape State"));
+
+    // there is a space after the colon, so this is found
+    assertEquals("", output.findValue("RooAbsArg", "Clients"));
+    assertNull(output.findValue("RooAbsArg", "Unknown"));
+    assertNull(output.findValue("RooAbsReal", "Address"));
+
+    List<ClientServerRecord> servers = output.parseClientsOrServers("RooAbsArg", true);
+    assertEquals(2, servers.size());
+    assertEquals("0x18433f0", servers.get(0).getAddress());
+    assertEquals("RooRealVar", servers.get(0).getClassName());
+    assertEquals("y", servers.get(1).getVarName());
+
+    List<ClientServerRecord> clients = output.parseClientsOrServers("RooAbsArg", false);
+    assertEquals(1, clients.size());
+    assertEquals("hggpdf_cat2", clients.get(0).getVarName());
+
+    List<String> expected = new ArrayList<String>();
+    expected.add("    actualVars -> ");
+    expected.add("      1)          x");
+    expected.add("      2)          y");
+    assertEquals(expected, output.findSubSection("RooAbsArg", "Proxies"));
+
+    assertNull(output.findSubSection("RooAbsReal", "Proxies"));
+
+    // nothing in the section after 'Attributes:' is indented more
+    assertTrue(output.findSubSection("RooAbsArg", "Attributes").isEmpty());
+
+    // split once only
+    assertSame(output.getLines(), output.getLines());
+  }
+
+  //----------------------------------------------------------------------
+
+  /** output without any sections (e.g. when a member was not found) */
+  @Test
+  public void test02() throws Exception
+  {
+    VerbosePrintOutput output = new VerbosePrintOutput("");
+    assertNull(output.findValue("RooAbsArg", "Address"));
+    assertNull(output.getAddress());
+    assertTrue(output.parseClientsOrServers("RooAbsArg", true).isEmpty());
+
+    output = new VerbosePrintOutput("  Address: 0x1\n  Clients:\n");
+    assertEquals("0x1", output.findValue("", "Address"));
+
+    // needs at least one space after the colon
+    assertNull(output.findValue("", "Clients"));
+  }
+
+  //----------------------------------------------------------------------
+
+}
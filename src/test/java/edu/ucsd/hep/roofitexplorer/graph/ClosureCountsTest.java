@@ -0,0 +1,149 @@
+/*
+ * Copyright 2013 University of California, San Diego.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucsd.hep.roofitexplorer.graph;
+
+import java.util.Random;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author holzner
+ */
+public class ClosureCountsTest
+{
+  //----------------------------------------------------------------------
+
+  /** compares the counts with the cardinalities of the sets
+   *  found by traversing the graph from each member */
+  private static void checkCounts(MemberGraph graph)
+  {
+    ClosureCounts counts = ClosureCounts.compute(graph);
+    assertSame(graph, counts.getGraph());
+
+    for (int id = 0; id < graph.getNumMembers(); ++id)
+    {
+      assertEquals("servers of " + id, graph.getAllServers(id).cardinality(), counts.getNumAllServers(id));
+      assertEquals("clients of " + id, graph.getAllClients(id).cardinality(), counts.getNumAllClients(id));
+    }
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return a graph with random links (including cycles and
+   *  members linked to themselves) where the clients are not
+   *  the reverse of the servers */
+  private static MemberGraph makeRandomGraph(Random random, int numMembers, int numLinks)
+  {
+    MemberGraph.Builder builder = new MemberGraph.Builder(numMembers);
+    for (int i = 0; i < numLinks; ++i)
+    {
+      int id = random.nextInt(numMembers);
+
+      // mostly links to members with a lower id such that
+      // there are long chains and not only one big cycle
+      if (random.nextInt(20) == 0)
+        builder.addServer(id, random.nextInt(numMembers));
+      else if (id > 0)
+        builder.addServer(id, random.nextInt(id));
+
+      builder.addClient(random.nextInt(numMembers), random.nextInt(numMembers));
+    }
+    return builder.build();
+  }
+
+  //----------------------------------------------------------------------
+
+  /** a cycle, a member linked to itself and an isolated member */
+  @Test
+  public void test01() throws Exception
+  {
+    MemberGraph.Builder builder = new MemberGraph.Builder(6);
+
+    // 0 -> 1 -> 2 -> 1, 2 -> 3, 4 -> 4
+    builder.addServer(0, 1);
+    builder.addServer(1, 2);
+    builder.addServer(2, 1);
+    builder.addServer(2, 3);
+    builder.addServer(4, 4);
+    builder.addClient(3, 2);
+
+    MemberGraph graph = builder.build();
+    ClosureCounts counts = ClosureCounts.compute(graph);
+
+    assertEquals(3, counts.getNumAllServers(0));
+    assertEquals(3, counts.getNumAllServers(1));
+    assertEquals(3, counts.getNumAllServers(2));
+    assertEquals(0, counts.getNumAllServers(3));
+    assertEquals(1, counts.getNumAllServers(4));
+    assertEquals(0, counts.getNumAllServers(5));
+
+    assertEquals(1, counts.getNumAllClients(3));
+    assertEquals(0, counts.getNumAllClients(2));
+
+    checkCounts(graph);
+
+    StronglyConnectedComponents components = graph.getServerComponents();
+    assertEquals(5, components.getNumComponents());
+    assertEquals(components.getComponent(1), components.getComponent(2));
+    assertEquals(2, components.getComponentSize(components.getComponent(1)));
+    assertTrue(components.isCyclic(components.getComponent(1)));
+    assertTrue(components.isCyclic(components.getComponent(4)));
+    assertFalse(components.isCyclic(components.getComponent(0)));
+
+    // linked components come first
+    assertTrue(components.getComponent(3) < components.getComponent(2));
+    assertTrue(components.getComponent(2) < components.getComponent(0));
+  }
+
+  //----------------------------------------------------------------------
+
+  /** random graphs, large enough to need several blocks */
+  @Test
+  public void test02() throws Exception
+  {
+    Random random = new Random(1234);
+
+    checkCounts(new MemberGraph.Builder(0).build());
+    checkCounts(makeRandomGraph(random, 10, 15));
+    checkCounts(makeRandomGraph(random, 200, 400));
+    checkCounts(makeRandomGraph(random, 5000, 6000));
+  }
+
+  //----------------------------------------------------------------------
+
+  /** a long chain does not overflow the stack */
+  @Test
+  public void test03() throws Exception
+  {
+    int numMembers = 200000;
+    MemberGraph.Builder builder = new MemberGraph.Builder(numMembers);
+    for (int id = 1; id < numMembers; ++id)
+    {
+      builder.addServer(id, id - 1);
+      builder.addClient(id - 1, id);
+    }
+
+    ClosureCounts counts = ClosureCounts.compute(builder.build());
+    assertEquals(numMembers - 1, counts.getNumAllServers(numMembers - 1));
+    assertEquals(0, counts.getNumAllServers(0));
+    assertEquals(numMembers - 1, counts.getNumAllClients(0));
+    assertEquals(1, counts.getNumAllClients(numMembers - 2));
+  }
+
+  //----------------------------------------------------------------------
+
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright 2013 University of California, San Diego.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucsd.hep.roofitexplorer.graph;
+
+import java.util.BitSet;
+import java.util.Random;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author holzner
+ */
+public class ClosureSetsTest
+{
+  //----------------------------------------------------------------------
+
+  /** @return the set as BitSet, checking the other accessors on the way */
+  private static BitSet toBitSet(MemberSet set, int numMembers)
+  {
+    BitSet retval = new BitSet();
+    for (int id = set.nextMember(0); id >= 0; id = set.nextMember(id + 1))
+      retval.set(id);
+
+    assertEquals(retval, set.toBitSet());
+    assertEquals(retval.cardinality(), set.size());
+
+    for (int id = 0; id < numMembers; ++id)
+      assertEquals(retval.get(id), set.contains(id));
+
+    return retval;
+  }
+
+  //----------------------------------------------------------------------
+
+  /** compares the sets with the ones found by traversing the graph
+   *  from each member */
+  private static void checkSets(MemberGraph graph)
+  {
+    checkSets(graph, new ClosureSets(graph), 1);
+  }
+
+  //----------------------------------------------------------------------
+
+  /** compares the sets of every step'th member with the ones found 
+   *  by traversing the graph */
+  private static void checkSets(MemberGraph graph, ClosureSets sets, int step)
+  {
+    int numMembers = graph.getNumMembers();
+
+    for (int id = 0; id < numMembers; id += step)
+    {
+      BitSet expectedLeaves = graph.getAllServers(id);
+      for (int server = expectedLeaves.nextSetBit(0); server >= 0; server = expectedLeaves.nextSetBit(server + 1))
+        if (graph.getNumServers(server) > 0)
+          expectedLeaves.clear(server);
+
+      assertEquals("leaves of " + id, expectedLeaves, toBitSet(sets.getLeafServers(id), numMembers));
+      assertEquals("clients of " + id, graph.getAllClients(id), toBitSet(sets.getAllClients(id), numMembers));
+    }
+  }
+
+  //----------------------------------------------------------------------
+
+  /** @return a graph with random links including cycles */
+  private static MemberGraph makeRandomGraph(Random random, int numMembers, int numLinks)
+  {
+    MemberGraph.Builder builder = new MemberGraph.Builder(numMembers);
+    for (int i = 0; i < numLinks; ++i)
+    {
+      int id = random.nextInt(numMembers);
+      if (random.nextInt(20) == 0)
+        builder.addServer(id, random.nextInt(numMembers));
+      else if (id > 0)
+        builder.addServer(id, random.nextInt(id));
+
+      builder.addClient(random.nextInt(numMembers), random.nextInt(numMembers));
+    }
+    return builder.build();
+  }
+
+  //----------------------------------------------------------------------
+
+  /** a chain shares the set, cycles */
+  @Test
+  public void test01() throws Exception
+  {
+    MemberGraph.Builder builder = new MemberGraph.Builder(7);
+
+    // 0 -> 1 -> 2 -> {3, 4}, 5 -> 6 -> 5 -> 4
+    builder.addServer(0, 1);
+    builder.addServer(1, 2);
+    builder.addServer(2, 3);
+    builder.addServer(2, 4);
+    builder.addServer(5, 6);
+    builder.addServer(6, 5);
+    builder.addServer(5, 4);
+
+    builder.addClient(4, 2);
+    builder.addClient(2, 1);
+
+    MemberGraph graph = builder.build();
+    ClosureSets sets = new ClosureSets(graph);
+
+    assertEquals(2, sets.getLeafServers(0).size());
+    assertSame(sets.getLeafServers(2), sets.getLeafServers(0));
+    assertSame(sets.getLeafServers(5), sets.getLeafServers(6));
+    assertEquals(1, sets.getLeafServers(5).size());
+    assertTrue(sets.getLeafServers(5).contains(4));
+    assertTrue(sets.getLeafServers(3).isEmpty());
+
+    assertEquals(2, sets.getAllClients(4).size());
+    assertTrue(sets.getAllClients(4).contains(1));
+    assertTrue(sets.getAllClients(1).isEmpty());
+
+    checkSets(graph);
+  }
+
+  //----------------------------------------------------------------------
+
+  /** random graphs with sparse and dense sets */
+  @Test
+  public void test02() throws Exception
+  {
+    Random random = new Random(4321);
+
+    checkSets(new MemberGraph.Builder(1).build());
+    checkSets(makeRandomGraph(random, 10, 15));
+    checkSets(makeRandomGraph(random, 300, 200));
+    checkSets(makeRandomGraph(random, 300, 600));
+    checkSets(makeRandomGraph(random, 1000, 3000));
+  }
+
+  //----------------------------------------------------------------------
+
+  /** the sets of single members are searched if the sets of all members
+   *  need too many words */
+  @Test
+  public void test03() throws Exception
+  {
+    Random random = new Random(1234);
+
+    for (int maxWords : new int[] { 0, 10, 100 })
+    {
+      MemberGraph graph = makeRandomGraph(random, 1000, 3000);
+      ClosureSets sets = new ClosureSets(graph, maxWords);
+      checkSets(graph, sets, 1);
+
+      // the sets are kept for repeated calls
+      assertSame(sets.getAllClients(999), sets.getAllClients(999));
+      assertSame(sets.getLeafServers(999), sets.getLeafServers(999));
+    }
+  }
+
+  //----------------------------------------------------------------------
+
+  /** a long chain whose overall client sets would need about 
+   *  numMembers^2 / 128 words stays within the default bound */
+  @Test
+  public void test04() throws Exception
+  {
+    int numMembers = 100000;
+
+    // member i is a server of member i + 1
+    MemberGraph.Builder builder = new MemberGraph.Builder(numMembers);
+    for (int i = 0; i + 1 < numMembers; ++i)
+    {
+      builder.addServer(i + 1, i);
+      builder.addClient(i, i + 1);
+    }
+    MemberGraph graph = builder.build();
+
+    ClosureSets sets = new ClosureSets(graph);
+    checkSets(graph, sets, 997);
+
+    assertEquals(numMembers - 1, sets.getAllClients(0).size());
+    assertTrue(sets.getAllClients(numMembers - 1).isEmpty());
+    assertEquals(1, sets.getLeafServers(numMembers - 1).size());
+    assertTrue(sets.getLeafServers(numMembers - 1).contains(0));
+
+    assertTrue(sets.getNumWords() <= ClosureSets.defaultMaxWords);
+  }
+
+  //----------------------------------------------------------------------
+
+}
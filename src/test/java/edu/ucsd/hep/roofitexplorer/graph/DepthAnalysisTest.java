@@ -0,0 +1,130 @@
+/*
+ * Copyright 2013 University of California, San Diego.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucsd.hep.roofitexplorer.graph;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author holzner
+ */
+public class DepthAnalysisTest
+{
+  //----------------------------------------------------------------------
+
+  /** @return the depths following the server links of the given graph */
+  private static DepthAnalysis getServerDepths(MemberGraph graph)
+  {
+    return new DepthAnalysis(graph.getNumMembers(), graph.getServerStarts(), graph.getServerIds());
+  }
+
+  //----------------------------------------------------------------------
+
+  /** checks that each node comes before the nodes it links to
+   *  unless they are in the same component */
+  private static void checkOrder(MemberGraph graph, DepthAnalysis depths)
+  {
+    int numMembers = graph.getNumMembers();
+    int[] positions = new int[numMembers];
+    for (int i = 0; i < numMembers; ++i)
+      positions[depths.getNodeInOrder(i)] = i;
+
+    StronglyConnectedComponents components = graph.getServerComponents();
+    for (int id = 0; id < numMembers; ++id)
+      for (int i = 0; i < graph.getNumServers(id); ++i)
+      {
+        int server = graph.getServer(id, i);
+        if (components.getComponent(id) != components.getComponent(server))
+          assertTrue(positions[id] < positions[server]);
+      }
+  }
+
+  //----------------------------------------------------------------------
+
+  /** an acyclic graph */
+  @Test
+  public void test01() throws Exception
+  {
+    // 0 -> 1 -> 2 -> 3, 0 -> 3, 4 -> 2
+    MemberGraph.Builder builder = new MemberGraph.Builder(5);
+    builder.addServer(0, 1);
+    builder.addServer(1, 2);
+    builder.addServer(2, 3);
+    builder.addServer(0, 3);
+    builder.addServer(4, 2);
+
+    MemberGraph graph = builder.build();
+    DepthAnalysis depths = getServerDepths(graph);
+
+    assertEquals(0, depths.getMinDepth(0));
+    assertEquals(0, depths.getMinDepth(4));
+    assertEquals(1, depths.getMinDepth(2));
+    assertEquals(1, depths.getMinDepth(3));
+
+    checkOrder(graph, depths);
+  }
+
+  //----------------------------------------------------------------------
+
+  /** cycles terminate, a cycle nobody links to is at depth zero */
+  @Test
+  public void test02() throws Exception
+  {
+    // 0 -> 1 -> 2 -> 1, 2 -> 3, 4 -> 5 -> 4, 5 -> 3
+    MemberGraph.Builder builder = new MemberGraph.Builder(6);
+    builder.addServer(0, 1);
+    builder.addServer(1, 2);
+    builder.addServer(2, 1);
+    builder.addServer(2, 3);
+    builder.addServer(4, 5);
+    builder.addServer(5, 4);
+    builder.addServer(5, 3);
+
+    MemberGraph graph = builder.build();
+    DepthAnalysis depths = getServerDepths(graph);
+
+    assertEquals(1, depths.getMinDepth(1));
+    assertEquals(2, depths.getMinDepth(2));
+    assertEquals(0, depths.getMinDepth(4));
+    assertEquals(0, depths.getMinDepth(5));
+    assertEquals(1, depths.getMinDepth(3));
+
+    checkOrder(graph, depths);
+  }
+
+  //----------------------------------------------------------------------
+
+  /** a long chain does not overflow the stack */
+  @Test
+  public void test03() throws Exception
+  {
+    int numMembers = 200000;
+    MemberGraph.Builder builder = new MemberGraph.Builder(numMembers);
+    for (int id = 1; id < numMembers; ++id)
+      builder.addServer(id, id - 1);
+
+    MemberGraph graph = builder.build();
+    DepthAnalysis depths = getServerDepths(graph);
+
+    assertEquals(numMembers - 1, depths.getMinDepth(0));
+    assertEquals(numMembers - 1, depths.getNodeInOrder(0));
+    checkOrder(graph, depths);
+  }
+
+  //----------------------------------------------------------------------
+
+}
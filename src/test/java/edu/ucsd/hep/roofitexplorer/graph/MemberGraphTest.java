@@ -0,0 +1,126 @@
+/*
+ * Copyright 2013 University of California, San Diego.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucsd.hep.roofitexplorer.graph;
+
+import java.util.BitSet;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author holzner
+ */
+public class MemberGraphTest
+{
+  //----------------------------------------------------------------------
+
+  /** the links are kept in the order they were added */
+  @Test
+  public void test01() throws Exception
+  {
+    MemberGraph.Builder builder = new MemberGraph.Builder(4);
+    builder.addServer(2, 1);
+    builder.addServer(0, 3);
+    builder.addServer(2, 0);
+    builder.addServer(2, 3);
+    builder.addClient(3, 2);
+
+    MemberGraph graph = builder.build();
+    assertEquals(4, graph.getNumMembers());
+    assertEquals(4, graph.getNumServerLinks());
+    assertEquals(1, graph.getNumClientLinks());
+
+    assertEquals(1, graph.getNumServers(0));
+    assertEquals(3, graph.getServer(0, 0));
+    assertEquals(0, graph.getNumServers(1));
+    assertEquals(3, graph.getNumServers(2));
+    assertEquals(1, graph.getServer(2, 0));
+    assertEquals(0, graph.getServer(2, 1));
+    assertEquals(3, graph.getServer(2, 2));
+    assertEquals(0, graph.getNumServers(3));
+
+    assertEquals(0, graph.getNumClients(2));
+    assertEquals(1, graph.getNumClients(3));
+    assertEquals(2, graph.getClient(3, 0));
+
+    BitSet expected = new BitSet();
+    expected.set(0);
+    expected.set(1);
+    expected.set(3);
+    assertEquals(expected, graph.getAllServers(2));
+    assertTrue(graph.getAllServers(1).isEmpty());
+
+    try
+    {
+      builder.addServer(4, 0);
+      fail("expected an exception for an id out of range");
+    }
+    catch (IllegalArgumentException ex)
+    {
+      // expected
+    }
+  }
+
+  //----------------------------------------------------------------------
+
+  /** members on a cycle reach themselves */
+  @Test
+  public void test02() throws Exception
+  {
+    MemberGraph.Builder builder = new MemberGraph.Builder(3);
+    builder.addClient(0, 1);
+    builder.addClient(1, 2);
+    builder.addClient(2, 1);
+
+    MemberGraph graph = builder.build();
+
+    assertEquals(2, graph.getAllClients(0).cardinality());
+    assertFalse(graph.getAllClients(0).get(0));
+    assertTrue(graph.getAllClients(1).get(1));
+    assertEquals(2, graph.getAllClients(2).cardinality());
+  }
+
+  //----------------------------------------------------------------------
+
+  /** the links missing for the clients and servers to be symmetric */
+  @Test
+  public void test03() throws Exception
+  {
+    MemberGraph.Builder builder = new MemberGraph.Builder(4);
+
+    // symmetric
+    builder.addServer(0, 1);
+    builder.addClient(1, 0);
+
+    // only known to one side (the client link twice)
+    builder.addServer(2, 1);
+    builder.addClient(3, 0);
+    builder.addClient(3, 0);
+
+    MemberGraph missing = builder.build().getMissingLinks();
+    assertEquals(1, missing.getNumServerLinks());
+    assertEquals(1, missing.getNumClientLinks());
+
+    assertEquals(1, missing.getNumServers(0));
+    assertEquals(3, missing.getServer(0, 0));
+
+    assertEquals(1, missing.getNumClients(1));
+    assertEquals(2, missing.getClient(1, 0));
+  }
+
+  //----------------------------------------------------------------------
+
+}
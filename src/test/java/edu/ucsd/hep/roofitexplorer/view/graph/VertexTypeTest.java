@@ -0,0 +1,55 @@
+/*
+ * Copyright 2013 University of California, San Diego.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucsd.hep.roofitexplorer.view.graph;
+
+import edu.ucsd.hep.roofitexplorer.WorkspaceData;
+import edu.ucsd.hep.roofitexplorer.datatypes.MemberDumpDecoder;
+import edu.ucsd.hep.roofitexplorer.datatypes.RooFormulaVarData;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author holzner
+ */
+public class VertexTypeTest
+{
+  //----------------------------------------------------------------------
+
+  /** a formula read without Print("V") output and without a ROOT session
+   *  to fetch it from is labelled as not available */
+  @Test
+  public void test01() throws Exception
+  {
+    String dump = 
+      MemberDumpDecoder.MARKER_MEMBER + "RooFormulaVar,0,0,0,0,1,0,f\n" +
+      MemberDumpDecoder.MARKER_ADDRESS + "0x30\n" +
+      MemberDumpDecoder.MARKER_END + "\n";
+
+    WorkspaceData ws = WorkspaceData.makeDummyWorkspace();
+    RooFormulaVarData f = new RooFormulaVarData(ws, MemberDumpDecoder.decode(dump).get(0), null);
+
+    assertFalse(f.getDetailedData().isAvailable());
+    assertNull(f.getFormulaTemplate());
+
+    String label = new VertexType(f).toString();
+    assertTrue(label, label.contains("RooFormulaVar<br/>f<br/>"));
+    assertTrue(label, label.contains("(formula not available)"));
+  }
+
+  //----------------------------------------------------------------------
+
+}